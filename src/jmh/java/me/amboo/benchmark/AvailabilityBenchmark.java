@@ -0,0 +1,68 @@
+package me.amboo.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import me.amboo.model.Room;
+import me.amboo.service.RoomService;
+
+/**
+ * RoomService.findAvailableRooms：窗口内走可用性位图，窗口外回退到逐房间检查
+ * cache=true 时重复的 (房型, 日期, 晚数) 命中结果缓存；探测点只有 PROBES 个，稳定状态下几乎全部命中
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AvailabilityBenchmark {
+    private static final int PROBES = 1024;
+
+    @Param({"100", "1000", "10000"})
+    public int rooms;
+
+    @Param({"1000", "20000"})
+    public int orders;
+
+    @Param({"1", "3", "7"})
+    public int stay;
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private RoomService roomService;
+    private LocalDate[] probeDays;
+    private String[] probeTypes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        roomService = HotelFixture.populated(rooms, orders, stay).getRoomService();
+        roomService.getAvailabilityCache().setEnabled(cache);
+        Random random = new Random(HotelFixture.SEED);
+        probeDays = new LocalDate[PROBES];
+        probeTypes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeDays[i] = HotelFixture.BASE.plusDays(random.nextInt(HotelFixture.HORIZON_DAYS));
+            probeTypes[i] = HotelFixture.TYPES[random.nextInt(HotelFixture.TYPES.length)];
+        }
+    }
+
+    @Benchmark
+    public List<Room> findAvailableRooms() {
+        int i = cursor++ & (PROBES - 1);
+        return roomService.findAvailableRooms(probeDays[i], stay, probeTypes[i]);
+    }
+
+    // 查询日期在位图窗口之外（一年以后），走 canBeDistribute 逐房间扫描
+    @Benchmark
+    public List<Room> findAvailableRoomsOutsideWindow() {
+        int i = cursor++ & (PROBES - 1);
+        return roomService.findAvailableRooms(probeDays[i].plusYears(2), stay, probeTypes[i]);
+    }
+}
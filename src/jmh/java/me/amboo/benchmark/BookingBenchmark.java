@@ -0,0 +1,68 @@
+package me.amboo.benchmark;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import me.amboo.model.Order;
+import me.amboo.service.OrderService;
+
+/**
+ * OrderService.placeOrder：成功路径（库存检查 + 建单 + 线段树区间更新）与售罄路径
+ * 每轮迭代前重建服务，避免订单无限累积导致后续迭代的数据规模不同
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BookingBenchmark {
+    // 历史订单之后的空白日期，成功路径从这里开始顺序占满库存
+    private static final LocalDate FREE_FROM = HotelFixture.BASE.plusDays(2 * HotelFixture.HORIZON_DAYS);
+    // 历史订单之前的一天，setup 时把第一个房型占满，用于测售罄路径
+    private static final LocalDate SOLD_OUT_DAY = HotelFixture.BASE.minusDays(30);
+
+    @Param({"100", "1000", "10000"})
+    public int rooms;
+
+    @Param({"1000", "20000"})
+    public int orders;
+
+    @Param({"1", "3", "7"})
+    public int stay;
+
+    private OrderService orderService;
+    private int capacity;
+    private long placed;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        orderService = HotelFixture.populated(rooms, orders, stay);
+        capacity = Integer.MAX_VALUE;
+        for (String type : HotelFixture.TYPES) capacity = Math.min(capacity, orderService.getRoomService().getRoomCount(type));
+        for (int i = 0; i < orderService.getRoomService().getRoomCount(HotelFixture.TYPES[0]); i++) {
+            orderService.placeOrder("SoldOut_" + i, SOLD_OUT_DAY, 1, HotelFixture.TYPES[0]);
+        }
+        placed = 0;
+    }
+
+    @Benchmark
+    public Order placeOrder() {
+        long n = placed++;
+        String type = HotelFixture.TYPES[(int) (n % HotelFixture.TYPES.length)];
+        // 每个房型每 capacity 单换到下一段互不重叠的日期，保证库存始终充足
+        long block = n / HotelFixture.TYPES.length / capacity;
+        return orderService.placeOrder("Guest", FREE_FROM.plusDays(block * stay), stay, type);
+    }
+
+    @Benchmark
+    public Object placeOrderSoldOut() {
+        try {
+            return orderService.placeOrder("Guest", SOLD_OUT_DAY, stay, HotelFixture.TYPES[0]);
+        } catch (IllegalStateException soldOut) {
+            return soldOut;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package me.amboo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import me.amboo.algorithm.AOECalculator;
+import me.amboo.algorithm.AOENetwork;
+import me.amboo.algorithm.AOVNetwork;
+import me.amboo.algorithm.CriticalPathEngine;
+import me.amboo.algorithm.CsrGraph;
+import me.amboo.algorithm.LiveRoomGraph;
+import me.amboo.algorithm.TopoSort;
+import me.amboo.model.Room;
+
+/**
+ * 查房图算法：AOV 建图 + 拓扑排序，AOE 建图，增量维护的查房图，以及关键路径计算
+ * 关键路径测的是 AOECalculator.analyze（calculateCriticalPath 去掉控制台输出的部分）。
+ * 边权由 WeightGenerator 按种子散列得出（默认种子 0，可用 -jvmArgsAppend -Dhotel.weight.seed=N 更换），各 fork 的图完全相同。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class GraphBenchmark {
+
+    @Param({"100", "1000"})
+    public int rooms;
+
+    private List<Room> roomList;
+    private NavigableMap<Integer, List<Room>> roomsByFloor;
+    private AOENetwork aoe;
+    private LiveRoomGraph live;
+    private CriticalPathEngine engine;
+    private int delayFrom;
+    private int delayTo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        roomList = HotelFixture.rooms(rooms);
+        roomsByFloor = new TreeMap<>();
+        for (Room room : roomList) roomsByFloor.computeIfAbsent(room.getFloor(), f -> new ArrayList<>()).add(room);
+        aoe = new AOENetwork();
+        aoe.buildNetwork(roomList);
+        live = new LiveRoomGraph();
+        live.addRooms(roomList);
+        live.snapshot();
+        engine = new CriticalPathEngine(live);
+        CsrGraph graph = live.snapshot();
+        int u = 0;
+        while (graph.edgeStart(u) == graph.edgeEnd(u)) u++;
+        delayFrom = graph.roomID(u);
+        delayTo = graph.roomID(graph.target(graph.edgeStart(u)));
+        engine.getMakespan();
+    }
+
+    @Benchmark
+    public List<Integer> aovBuildAndTopoSort() {
+        AOVNetwork aov = new AOVNetwork();
+        aov.buildNetwork(roomList);
+        return new TopoSort().execute(aov);
+    }
+
+    @Benchmark
+    public AOENetwork aoeBuild() {
+        AOENetwork network = new AOENetwork();
+        network.buildNetwork(roomList);
+        return network;
+    }
+
+    // 由楼层索引（RoomService.getRoomsByFloor 的形式）建图，省去排序与按楼层切段
+    @Benchmark
+    public AOENetwork aoeBuildFromFloorIndex() {
+        AOENetwork network = new AOENetwork();
+        network.buildNetwork(roomsByFloor);
+        return network;
+    }
+
+    // 增量维护：在最高楼层之上加一间房、取快照、再删掉（对比 aoeBuild 的整图重建）
+    @Benchmark
+    public CsrGraph liveAddRemoveAndSnapshot() {
+        int roomID = (roomList.get(roomList.size() - 1).getRoomID() / 100 + 1) * 100;
+        live.addRoom(roomID);
+        CsrGraph graph = live.snapshot();
+        live.removeRoom(roomID);
+        return graph;
+    }
+
+    @Benchmark
+    public AOECalculator.CriticalPath criticalPath() {
+        return new AOECalculator().analyze(aoe);
+    }
+
+    // 动态关键路径：上报一次延误再撤回，对比 criticalPath 的整图重算
+    @Benchmark
+    public int criticalPathDelay() {
+        engine.reportDelay(delayFrom, delayTo, 5);
+        return engine.reportDelay(delayFrom, delayTo, -5);
+    }
+}
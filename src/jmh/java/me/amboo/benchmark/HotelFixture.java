@@ -0,0 +1,64 @@
+package me.amboo.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+/**
+ * 基准测试共用的数据构造
+ * 房间号按 楼层 * 100 + 序号 编排（与 AOV/AOE 的楼层规则一致），房型轮流分配；随机数种子固定，保证每次运行数据相同
+ */
+final class HotelFixture {
+    static final LocalDate BASE = LocalDate.of(2026, 1, 1);
+    static final String[] TYPES = {"单人间", "双人间", "总统套房"};
+    // 历史订单分布的天数，保持在可用性位图窗口之内
+    static final int HORIZON_DAYS = 365;
+    static final long SEED = 20260101L;
+
+    private HotelFixture() {}
+
+    static List<Room> rooms(int count) {
+        List<Room> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int floor = 1 + i / 100;
+            rooms.add(new Room(floor * 100 + i % 100, TYPES[i % TYPES.length], 20.0 + i % 50));
+        }
+        return rooms;
+    }
+
+    /**
+     * 构造带历史订单的服务：最多 orders 个订单随机分布在 HORIZON_DAYS 天内（库存不足时会少于 orders 个），
+     * 能找到空房的订单立即入住，之后三分之一保持入住、三分之一退房待打扫、三分之一打扫完成
+     */
+    static OrderService populated(int roomCount, int orders, int stay) {
+        RoomService roomService = new RoomService(BASE.minusDays(7));
+        rooms(roomCount).forEach(roomService::addRoom);
+        OrderService orderService = new OrderService(roomService);
+        Random random = new Random(SEED);
+        for (int placed = 0, attempts = 0; placed < orders && attempts < orders * 4; attempts++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            LocalDate start = BASE.plusDays(random.nextInt(HORIZON_DAYS - stay));
+            Order order;
+            try {
+                order = orderService.placeOrder("Guest_" + placed, start, stay, type);
+            } catch (IllegalStateException soldOut) {
+                continue;
+            }
+            placed++;
+            List<Room> free = roomService.findAvailableRooms(start, stay, type);
+            if (free.isEmpty()) continue;
+            int roomID = free.get(random.nextInt(free.size())).getRoomID();
+            orderService.processCheckIn(order.getOrderID(), roomID);
+            int phase = random.nextInt(3);
+            if (phase >= 1) orderService.processCheckOut(order.getOrderID(), roomID);
+            if (phase == 2) orderService.processCleaning(order.getOrderID());
+        }
+        return orderService;
+    }
+}
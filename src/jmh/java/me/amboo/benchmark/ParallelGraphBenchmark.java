@@ -0,0 +1,59 @@
+package me.amboo.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import me.amboo.algorithm.AOECalculator;
+import me.amboo.algorithm.AOENetwork;
+import me.amboo.algorithm.AOVNetwork;
+import me.amboo.algorithm.TopoSort;
+
+/**
+ * 按层并行的拓扑排序与关键路径，随线程数的加速比
+ * threads = 1 为顺序实现（基线），其余为指定并行度的 ForkJoinPool；线程数超过 CPU 核数时不会再有收益。
+ * 例如：java -jar target/benchmarks.jar ParallelGraph -p threads=1,2,4,8 -p rooms=50000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParallelGraphBenchmark {
+
+    @Param({"20000", "50000"})
+    public int rooms;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private AOVNetwork aov;
+    private AOENetwork aoe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = threads == 1 ? null : new ForkJoinPool(threads);
+        aoe = new AOENetwork();
+        aoe.buildNetwork(HotelFixture.rooms(rooms));
+        aov = new AOVNetwork(aoe.getGraph());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Integer> topoSort() {
+        return new TopoSort(pool).execute(aov);
+    }
+
+    @Benchmark
+    public AOECalculator.CriticalPath criticalPath() {
+        return new AOECalculator(pool).analyze(aoe);
+    }
+}
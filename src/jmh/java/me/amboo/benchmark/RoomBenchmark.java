@@ -0,0 +1,76 @@
+package me.amboo.benchmark;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+
+/**
+ * 单个房间的区间索引：Room.addOrder（含冲突检测）与 Room.canBeDistribute
+ * 房间内预先放入 orders 个订单，订单与等长的空档交替排列，大多数已打扫完成
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RoomBenchmark {
+    private static final int PROBES = 1024; // 预先生成的随机查询，避免在测量中调用 Random
+
+    @Param({"1000", "20000"})
+    public int orders;
+
+    @Param({"1", "3", "7"})
+    public int stay;
+
+    private Room room;
+    private LocalDate[] gapStarts;  // 空档的起始日，addOrder 必然成功
+    private LocalDate[] probeDays;  // canBeDistribute 的随机查询日
+    private int cursor;
+    private int nextOrderID;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        room = new Room(101, HotelFixture.TYPES[0], 25.0);
+        Random random = new Random(HotelFixture.SEED);
+        for (int i = 0; i < orders; i++) {
+            Order order = new Order(i, "Guest_" + i, slot(2 * i), stay, HotelFixture.TYPES[0]);
+            room.addOrder(order);
+            order.CheckIn();
+            if (random.nextInt(10) > 0) {
+                order.CheckOut();
+                order.Cleaning();
+            }
+        }
+        gapStarts = new LocalDate[PROBES];
+        probeDays = new LocalDate[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            gapStarts[i] = slot(2 * random.nextInt(orders) + 1);
+            probeDays[i] = HotelFixture.BASE.plusDays(random.nextInt(2 * orders * stay));
+        }
+        nextOrderID = orders;
+    }
+
+    private LocalDate slot(int index) {
+        return HotelFixture.BASE.plusDays((long) index * stay);
+    }
+
+    // 写入后立即移除，保持房间内订单数不变
+    @Benchmark
+    public Order addOrder() {
+        Order order = new Order(nextOrderID++, "Guest", gapStarts[cursor++ & (PROBES - 1)], stay, HotelFixture.TYPES[0]);
+        room.addOrder(order);
+        room.deleteOrder(order.getOrderID());
+        return order;
+    }
+
+    @Benchmark
+    public Boolean canBeDistribute() {
+        return room.canBeDistribute(probeDays[cursor++ & (PROBES - 1)], stay);
+    }
+}
@@ -1,29 +1,89 @@
 package me.amboo;
 
 import me.amboo.controller.HotelController;
+import me.amboo.controller.ScriptRunner;
 import me.amboo.model.Room;
+import me.amboo.service.HotelGroup;
+import me.amboo.service.OrderArchive;
 import me.amboo.service.OrderService;
+import me.amboo.service.PropertyShard;
 import me.amboo.service.RoomService;
 import me.amboo.algorithm.*;
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalRecovery;
+import me.amboo.journal.Snapshotter;
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.server.HotelHttpServer;
+import me.amboo.service.id.OrderIdGenerator;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 public class Main {
     private static final Scanner scanner = new Scanner(System.in);
     private static HotelController controller;
+    private static Snapshotter snapshotter; // 启用日志时才有
     private static final String ADMIN_PWD = "admin";
 
     public static void main(String[] args) {
+        boolean isAdmin = false;
+        Path journalDir = null; // -journal <目录>：启用预写日志，启动时重放恢复
+        Integer serverPort = null; // -server <端口>：无界面服务模式，以 HTTP/JSON 提供服务
+        String script = null;      // -script <文件|->：非交互回放命令文件（- 表示标准输入），结束后输出吞吐报告
+        Path weightFile = null;    // -weights <文件>：加载实测的房间间移动耗时，未配置的房间对仍按种子生成
+        Path propertiesDir = null; // -properties <目录>：每个子目录是一家酒店的日志目录，服务模式下按酒店 ID 路由
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-admin" -> isAdmin = true;
+                case "-journal" -> journalDir = Path.of(args[++i]);
+                case "-server" -> serverPort = Integer.parseInt(args[++i]);
+                case "-script" -> script = args[++i];
+                case "-weights" -> weightFile = Path.of(args[++i]);
+                case "-properties" -> propertiesDir = Path.of(args[++i]);
+                case "-seed" -> WeightGenerator.reseed(Long.parseLong(args[++i]));
+            }
+        }
+
         // 1. 初始化依赖
+        HotelMetrics.registerMBean(); // JConsole / VisualVM 中查看 me.amboo:type=HotelMetrics
+        if (weightFile != null) loadWeights(weightFile);
         RoomService roomService = new RoomService();
-        OrderService orderService = new OrderService(roomService);
+        OrderService orderService = journalDir == null
+                ? new OrderService(roomService)
+                : new OrderService(roomService, OrderIdGenerator.persistent(journalDir.resolve("order-id.hwm")),
+                        new OrderArchive(journalDir.resolve("archive")));
         controller = new HotelController(scanner, roomService, orderService);
 
-        // 2. 初始化数据
-        initData(roomService);
+        // 2. 恢复 / 初始化数据
+        if (journalDir != null) {
+            Journal journal = JournalRecovery.recover(journalDir, roomService, orderService);
+            snapshotter = new Snapshotter(journalDir, roomService, orderService, journal);
+            snapshotter.startAutomatic();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                snapshotter.close();
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("日志关闭失败：" + e.getMessage());
+                }
+            }));
+        }
+        // 脚本回放自带房间数据（room add），不再预置演示房间
+        if (script == null && roomService.getAllRooms().isEmpty()) initData(roomService);
 
         // 3. 路由分发
-        if (args.length > 0 && args[0].equals("-admin")) {
+        if (script != null) {
+            runScript(script, roomService, orderService);
+        } else if (serverPort != null) {
+            startServer(serverPort, roomService, orderService, openGroup(propertiesDir, roomService, orderService));
+        } else if (isAdmin) {
             if (authenticate()) adminLoop();
             else System.out.println("认证失败。");
         } else {
@@ -31,38 +91,98 @@ public class Main {
         }
     }
 
+    // 服务模式：HTTP 线程为非守护线程，main 返回后进程继续运行，直到收到终止信号
+    private static void startServer(int port, RoomService roomService, OrderService orderService, HotelGroup group) {
+        HotelHttpServer server = new HotelHttpServer(roomService, orderService, group, ADMIN_PWD);
+        try {
+            server.start(new InetSocketAddress(port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：HTTP 服务启动失败", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(2)));
+        System.out.println("=== Hotel A 服务模式已启动，监听 " + server.getAddress() + " ===");
+    }
+
+    // 本机默认酒店（Hotel A）加上 -properties 目录下的各家酒店，后者各自独立恢复
+    private static HotelGroup openGroup(Path propertiesDir, RoomService roomService, OrderService orderService) {
+        HotelGroup group = new HotelGroup();
+        group.addProperty(PropertyShard.of(HotelHttpServer.DEFAULT_PROPERTY, roomService, orderService));
+        if (propertiesDir == null) return group;
+        System.out.println("已装载 " + group.openAll(propertiesDir) + " 家酒店（" + propertiesDir + "）");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (String id : group.getPropertyIDs()) {
+                if (id.equals(HotelHttpServer.DEFAULT_PROPERTY)) continue;
+                try {
+                    group.getProperty(id).close();
+                } catch (IOException e) {
+                    System.err.println("酒店 " + id + " 日志关闭失败：" + e.getMessage());
+                }
+            }
+        }));
+        return group;
+    }
+
+    private static void runScript(String script, RoomService roomService, OrderService orderService) {
+        ScriptRunner runner = new ScriptRunner(roomService, orderService, System.err);
+        try (BufferedReader in = script.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8)) {
+            runner.run(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：无法读取脚本 " + script, e);
+        }
+        runner.printReport(System.out);
+    }
+
+    private static void loadWeights(Path file) {
+        try {
+            System.out.println("已加载 " + WeightGenerator.loadWeights(file) + " 条房间间耗时（" + file + "）");
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：无法读取权值文件 " + file, e);
+        }
+    }
+
     private static void initData(RoomService rs) {
-        rs.addRoom(new Room(101, "单人间", 20.0));
-        rs.addRoom(new Room(102, "单人间", 25.0));
-        rs.addRoom(new Room(103, "单人间", 22.0));
-        rs.addRoom(new Room(104, "单人间", 21.5));
+        rs.addRoom(new Room(101, "单人间", 20.0, 199));
+        rs.addRoom(new Room(102, "单人间", 25.0, 229));
+        rs.addRoom(new Room(103, "单人间", 22.0, 209));
+        rs.addRoom(new Room(104, "单人间", 21.5, 209));
       
-        rs.addRoom(new Room(202, "双人间", 40.0));
-        rs.addRoom(new Room(203, "双人间", 38.0));
-        rs.addRoom(new Room(204, "双人间", 42.0));
+        rs.addRoom(new Room(202, "双人间", 40.0, 359));
+        rs.addRoom(new Room(203, "双人间", 38.0, 339));
+        rs.addRoom(new Room(204, "双人间", 42.0, 379));
 
-        rs.addRoom(new Room(301, "单人间", 30.0));
-        rs.addRoom(new Room(302, "双人间", 32.0));
+        rs.addRoom(new Room(301, "单人间", 30.0, 259));
+        rs.addRoom(new Room(302, "双人间", 32.0, 319));
 
-        rs.addRoom(new Room(501, "双人间", 45.0));
-        rs.addRoom(new Room(502, "双人间", 48.0));
+        rs.addRoom(new Room(501, "双人间", 45.0, 399));
+        rs.addRoom(new Room(502, "双人间", 48.0, 429));
 
-        rs.addRoom(new Room(601, "总统套房", 65.0));
+        rs.addRoom(new Room(601, "总统套房", 65.0, 1288));
 
-        rs.addRoom(new Room(801, "总统套房", 85.0));
-        rs.addRoom(new Room(888, "总统套房", 120.0));
+        rs.addRoom(new Room(801, "总统套房", 85.0, 1688));
+        rs.addRoom(new Room(888, "总统套房", 120.0, 2888));
     }
 
     private static boolean authenticate() {
         System.out.print("请输入管理员密码: ");
-    //    return ADMIN_PWD.equals(scanner.nextLine());
         java.io.Console console = System.console();
         if (console != null) {
             char[] passwordChars = console.readPassword();
             return ADMIN_PWD.equals(new String(passwordChars));
-        }    else throw new IllegalArgumentException("终端创建异常");
+        }
+        // 没有终端（输入被重定向、在 IDE 或 CI 中运行）时从标准输入读取，密码会回显
+        return scanner.hasNextLine() && ADMIN_PWD.equals(scanner.nextLine());
 }
 
+    private static void takeSnapshot() {
+        if (snapshotter == null) {
+            System.out.println("未启用日志（-journal），无法生成快照。");
+            return;
+        }
+        System.out.println("快照已写入：" + snapshotter.snapshotAsync().join());
+    }
+
     private static void userLoop() {
         System.out.println("=== 欢迎使用 Hotel A 自助系统 ===");
         while (true) {
@@ -80,7 +200,17 @@ public class Main {
             System.out.println("\n[管理菜单] \n1.增删房间 \n2.代理下单 \n3.手动入住 \n4.手动退房 \n5.强制删除订单 \n6.酒店总房间列表 \n7.房间日志查询 ");
             System.out.println("8.[算法实验] AOV/AOE 自动化分析"); 
             System.out.println("9.[算法实验] 查看当前图权值分布");
-            System.out.println("10.[算法实验] 清除权值缓存");
+            System.out.println("10.[算法实验] 重设权值种子");
+            System.out.println("11.打扫完成");
+            System.out.println("12.生成快照");
+            System.out.println("13.团体批量预订");
+            System.out.println("14.性能指标");
+            System.out.println("15.[算法实验] 上报查房延误");
+            System.out.println("16.可用房查询缓存");
+            System.out.println("17.营收报表");
+            System.out.println("18.订单查询（住客 / 预抵 / 待打扫）");
+            System.out.println("19.归档已结束订单");
+            System.out.println("20.自动排房（预抵订单）");
             System.out.println("0.退出");
             System.out.print("选择 > ");
             String choice = scanner.nextLine();
@@ -102,7 +232,17 @@ public class Main {
                     case "7" -> controller.printRoomHistory();
                     case "8" -> controller.runAlgorithmLab();
                     case "9" -> controller.printGraphWeights();
-                    case "10" -> WeightGenerator.resetWeights();
+                    case "10" -> controller.reseedWeights();
+                    case "11" -> controller.finishCleaning();
+                    case "12" -> takeSnapshot();
+                    case "13" -> controller.bookGroup();
+                    case "14" -> System.out.println("\n" + HotelMetrics.dump());
+                    case "15" -> controller.reportInspectionDelay();
+                    case "16" -> controller.manageAvailabilityCache();
+                    case "17" -> controller.printRevenueReport();
+                    case "18" -> controller.searchOrders();
+                    case "19" -> controller.archiveOrders();
+                    case "20" -> controller.assignArrivals();
                 }
             } else {
                 switch (choice) {
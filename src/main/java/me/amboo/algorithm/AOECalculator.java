@@ -1,86 +1,166 @@
 package me.amboo.algorithm;
 
-import java.util.*;
+import me.amboo.metrics.HotelMetrics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class AOECalculator {
+    // 并行模式使用的线程池，为 null 时始终顺序执行
+    private final ForkJoinPool pool;
 
-    // 计算关键路径
+    public AOECalculator() {
+        this(null);
+    }
+
+    /**
+     * 并行模式：图足够大时拓扑排序、ve、vl 和关键活动筛选都按层 / 分块并行，小图仍走顺序实现
+     */
+    public AOECalculator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // 关键活动：房间 from -> 房间 to，耗时 weight
+    public record Activity(int from, int to, int weight) {}
+
+    // 活动的最早开始 e 与最迟开始 l；时差 slack = l - e，为 0 即关键活动
+    public record Schedule(Activity activity, int earliest, int latest) {
+        public int slack() {
+            return latest - earliest;
+        }
+    }
+
+    // 关键路径分析结果：最短总耗时、全部关键活动（按拓扑序），以及每个活动的时间安排
+    public record CriticalPath(int maxTime, List<Activity> criticalActivities, List<Schedule> activities) {}
+
+    // 计算关键路径并打印
     public void calculateCriticalPath(AOENetwork network) {
-        List<Integer> topoOrder = performTopologicalSort(network);
-        if (topoOrder == null) return;
-
-        Set<Integer> allIDs = network.getAllRoomIDs();
-        Map<Integer, Integer> ve = new HashMap<>();
-        Map<Integer, Integer> vl = new HashMap<>();
-
-        // 1. 正向拓扑序列计算 ve (最早发生时间)
-        allIDs.forEach(id -> ve.put(id, 0)); // 对 allIDs 表进行初始化
-        for (int u : topoOrder) {                  //  按拓扑排序顺序遍历u
-            for (Map.Entry<Integer, Integer> entry : 
-                    network.getAdjList()   // 获取邻接表 (RoomID -> Map<邻接房间ID, 边权值>)
-                        .get(u)            // 获得id为u映射的值，也就是一个Map<邻接房间ID, 边权值>
-                        .entrySet()) {     // 把房间u的邻接表Map<邻接房间ID, 边权值>，拆解成一个个散装<邻接房间ID, 边权值>
-                int v = entry.getKey();    // 这里的Key是邻接房间的ID
-                int weight = entry.getValue();   // Value是对应的权值
-                if (ve.get(v) < ve.get(u) + weight) { // 如果 下一节点的权重 < 下一节点权重 + 边权值
-                    ve.put(v, ve.get(u) + weight);
+        CriticalPath result = analyze(network);
+        if (result == null) return;
+        System.out.println("最短总耗时（完成所有查房的最早时间）: " + result.maxTime());
+        System.out.println("\n--- 关键活动与路径 ---");
+        for (Activity a : result.criticalActivities()) {
+            System.out.printf("关键活动: 房间[%d] -> 房间[%d], 耗时: %d\n", a.from(), a.to(), a.weight());
+        }
+    }
+
+    /**
+     * 计算关键路径
+     * @return 分析结果；图中存在环时返回 null
+     */
+    public CriticalPath analyze(AOENetwork network) {
+        CsrGraph g = network.getGraph();
+        if (ParallelGraph.worthParallel(pool, g)) return analyzeParallel(g);
+        int[] topoOrder = performTopologicalSort(g);
+        if (topoOrder == null) return null;
+
+        int n = g.nodeCount();
+        int[] ve = new int[n];
+        int[] vl = new int[n];
+
+        // 1. 正向拓扑序列计算 ve (最早发生时间)，数组初始即为 0
+        HotelMetrics.AOE_VE.run(() -> {
+            for (int u : topoOrder) {
+                for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) {
+                    int v = g.target(k);
+                    if (ve[v] < ve[u] + g.weight(k)) {
+                        ve[v] = ve[u] + g.weight(k);
+                    }
                 }
             }
-        }
+        });
 
         // 2. 确定总耗时 (汇点的 ve 值)
-        int maxTime = ve.values().stream().max(Integer::compare).orElse(0);
-        System.out.println("最短总耗时（完成所有查房的最早时间）: " + maxTime);
+        int maxTime = maxOf(ve);
 
         // 3. 逆向拓扑序列计算 vl (Latest Event Time)
-        allIDs.forEach(id -> vl.put(id, maxTime));
-        Collections.reverse(topoOrder);
-        for (int u : topoOrder) {
-            for (Map.Entry<Integer, Integer> entry : network.getAdjList().get(u).entrySet()) {
-                int v = entry.getKey();
-                int weight = entry.getValue();
-                if (vl.get(u) > vl.get(v) - weight) {
-                    vl.put(u, vl.get(v) - weight);
+        HotelMetrics.AOE_VL.run(() -> {
+            Arrays.fill(vl, maxTime);
+            for (int i = n - 1; i >= 0; i--) {
+                int u = topoOrder[i];
+                for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) {
+                    int v = g.target(k);
+                    if (vl[u] > vl[v] - g.weight(k)) {
+                        vl[u] = vl[v] - g.weight(k);
+                    }
                 }
             }
-        }
+        });
 
         // 4. 计算活动 e 和 l，筛选关键活动与路径
-        System.out.println("\n--- 关键活动与路径 ---");
-        Collections.reverse(topoOrder); // 恢复正序
-        for (int u : topoOrder) {
-            for (Map.Entry<Integer, Integer> entry : network.getAdjList().get(u).entrySet()) {
-                int v = entry.getKey();
-                int weight = entry.getValue();
-                
-                int e = ve.get(u);           // 活动最早开始
-                int l = vl.get(v) - weight;  // 活动最迟开始
+        return HotelMetrics.AOE_CRITICAL.time(() -> {
+            List<Activity> critical = new ArrayList<>();
+            List<Schedule> schedules = new ArrayList<>(g.edgeCount());
+            collect(g, topoOrder, 0, n, ve, vl, critical, schedules);
+            return new CriticalPath(maxTime, critical, schedules);
+        });
+    }
+
+    // 并行版本：步骤与上面相同，拓扑排序、ve、vl 按层并行，第 4 步把拓扑序列切块并行筛选后按序拼接
+    private CriticalPath analyzeParallel(CsrGraph g) {
+        ParallelGraph.Levels levels = HotelMetrics.AOE_TOPO_SORT.time(() -> ParallelGraph.levels(g, pool));
+        if (levels == null) return null;
 
+        int[] ve = HotelMetrics.AOE_VE.time(() -> ParallelGraph.earliest(g, levels, pool));
+        int maxTime = maxOf(ve);
+        int[] vl = HotelMetrics.AOE_VL.time(() -> ParallelGraph.latest(g, levels, maxTime, pool));
+
+        return HotelMetrics.AOE_CRITICAL.time(() -> {
+            int[] order = levels.order();
+            int chunks = Math.min(order.length, pool.getParallelism() * 4);
+            List<ForkJoinTask<CriticalPath>> tasks = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int from = (int) ((long) order.length * c / chunks);
+                int to = (int) ((long) order.length * (c + 1) / chunks);
+                tasks.add(pool.submit(() -> {
+                    List<Activity> critical = new ArrayList<>();
+                    List<Schedule> schedules = new ArrayList<>();
+                    collect(g, order, from, to, ve, vl, critical, schedules);
+                    return new CriticalPath(maxTime, critical, schedules);
+                }));
+            }
+            List<Activity> critical = new ArrayList<>();
+            List<Schedule> schedules = new ArrayList<>(g.edgeCount());
+            for (ForkJoinTask<CriticalPath> task : tasks) {
+                CriticalPath part = task.join();
+                critical.addAll(part.criticalActivities());
+                schedules.addAll(part.activities());
+            }
+            return new CriticalPath(maxTime, critical, schedules);
+        });
+    }
+
+    // 按拓扑序列 order[from .. to) 计算每个活动的 e、l，e == l 的即关键活动
+    private static void collect(CsrGraph g, int[] order, int from, int to, int[] ve, int[] vl,
+                                List<Activity> critical, List<Schedule> schedules) {
+        for (int i = from; i < to; i++) {
+            int u = order[i];
+            for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) {
+                int v = g.target(k);
+                int weight = g.weight(k);
+
+                int e = ve[u];           // 活动最早开始
+                int l = vl[v] - weight;  // 活动最迟开始
+
+                Activity activity = new Activity(g.roomID(u), g.roomID(v), weight);
+                schedules.add(new Schedule(activity, e, l));
                 if (e == l) {
-                    System.out.printf("关键活动: 房间[%d] -> 房间[%d], 耗时: %d\n", u, v, weight);
+                    critical.add(activity);
                 }
             }
         }
     }
 
-    private List<Integer> performTopologicalSort(AOENetwork network) {
-        // 复用之前 AOV 的 Kahn 算法逻辑
-        List<Integer> result = new ArrayList<>();
-        Map<Integer, Integer> tempInDegree = new HashMap<>(network.getInDegreeMap());
-        Queue<Integer> queue = new LinkedList<>();
-
-        tempInDegree.forEach((id, degree) -> {
-            if (degree == 0) queue.offer(id);
-        });
+    private static int maxOf(int[] values) {
+        int max = 0;
+        for (int t : values) max = Math.max(max, t);
+        return max;
+    }
 
-        while (!queue.isEmpty()) {
-            int u = queue.poll();
-            result.add(u);
-            network.getAdjList().get(u).keySet().forEach(v -> {
-                tempInDegree.put(v, tempInDegree.get(v) - 1);
-                if (tempInDegree.get(v) == 0) queue.offer(v);
-            });
-        }
-        return result.size() == network.getAllRoomIDs().size() ? result : null;
+    // 复用之前 AOV 的 Kahn 算法逻辑，返回节点下标序列，成环时返回 null
+    private int[] performTopologicalSort(CsrGraph graph) {
+        return HotelMetrics.AOE_TOPO_SORT.time(() -> graph.topologicalOrder());
     }
 }
\ No newline at end of file
@@ -1,61 +1,38 @@
 package me.amboo.algorithm;
 
+import me.amboo.metrics.HotelMetrics;
 import me.amboo.model.Room;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
 
 public class AOENetwork {
-    // 邻接表：RoomID -> Map<邻接房间ID, 边权值>
-    private Map<Integer, Map<Integer, Integer>> adjList = new HashMap<>();
-    private Map<Integer, Integer> inDegreeMap = new HashMap<>();
-    private Map<Integer, Room> roomNodes = new HashMap<>();
+    // 与 AOV 网相同的楼层建图规则，边权为移动耗时；全部存放在 CSR 数组中
+    private CsrGraph graph = CsrGraph.EMPTY;
+
+    public AOENetwork() {}
+
+    // 直接使用现成的图（例如 RoomService.getRoomGraph().snapshot()），不再调用 buildNetwork
+    public AOENetwork(CsrGraph graph) {
+        if (graph == null) throw new IllegalArgumentException("错误：图不能为空");
+        this.graph = graph;
+    }
 
     public void buildNetwork(List<Room> rooms) {
-        adjList.clear();
-        inDegreeMap.clear();
-        roomNodes.clear();
-
-        // 将列表中的 Room 依次导入本程序的三个map
-        for (Room r : rooms) {
-            int rid = r.getRoomID();
-            roomNodes.put(rid, r);
-            adjList.put(rid, new HashMap<>());
-            inDegreeMap.put(rid, 0);
-        }
-
-        // 按照 AOV 网的逻辑分组与排序楼层
-        Map<Integer, List<Room>> roomsByFloor = rooms.stream()
-                .collect(Collectors.groupingBy(r -> r.getRoomID() / 100));
-        // 结果: 返回一个 Map<楼层，楼层号>
-
-        List<Integer> sortedFloors = roomsByFloor.keySet()
-            .stream()
-            .sorted()
-            .collect(Collectors.toList());
-
-        for (int i = 0; i < sortedFloors.size() - 1; i++) {
-            List<Room> currentFloor = roomsByFloor.get(sortedFloors.get(i));
-            List<Room> nextFloor = roomsByFloor.get(sortedFloors.get(i + 1));
-
-            for (Room a : currentFloor) {
-                for (Room b : nextFloor) {
-                    // 调用 WeightGenerator 生成权值
-                    int weight = WeightGenerator.getWeight(a.getRoomID(), b.getRoomID());
-                    if (weight > 0) {
-                        addEdge(a.getRoomID(), b.getRoomID(), weight);
-                    }
-                }
-            }
-        }
+        graph = HotelMetrics.AOE_BUILD.time(() -> CsrGraph.build(rooms));
     }
 
-    private void addEdge(int u, int v, int w) {
-        adjList.get(u).put(v, w);
-        inDegreeMap.put(v, inDegreeMap.get(v) + 1);
+    // 由 RoomService.getRoomsByFloor() 的楼层索引建图，规则同上，省去排序与按楼层分组
+    public void buildNetwork(SortedMap<Integer, ? extends Collection<Room>> roomsByFloor) {
+        graph = HotelMetrics.AOE_BUILD.time(() -> CsrGraph.build(roomsByFloor));
     }
 
-    // Getter 方法
-    public Map<Integer, Map<Integer, Integer>> getAdjList() { return adjList; }
-    public Map<Integer, Integer> getInDegreeMap() { return inDegreeMap; }
-    public Set<Integer> getAllRoomIDs() { return roomNodes.keySet(); }
+    public CsrGraph getGraph() { return graph; }
+
+    // Getter 方法：按房间号访问的只读视图（RoomID -> Map<邻接房间ID, 边权值>），每次访问走二分查找，热路径请直接用 getGraph()
+    public Map<Integer, Map<Integer, Integer>> getAdjList() { return graph.adjacencyMap(); }
+    public Map<Integer, Integer> getInDegreeMap() { return graph.inDegreeMap(); }
+    public Set<Integer> getAllRoomIDs() { return graph.roomIDSet(); }
 }
\ No newline at end of file
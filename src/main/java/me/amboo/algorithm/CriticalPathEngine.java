@@ -0,0 +1,309 @@
+package me.amboo.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import me.amboo.algorithm.AOECalculator.Activity;
+import me.amboo.algorithm.AOECalculator.CriticalPath;
+import me.amboo.algorithm.AOECalculator.Schedule;
+import me.amboo.metrics.HotelMetrics;
+
+/**
+ * 动态关键路径：常驻维护每个房间的 ve（从起点到该房间的最长耗时）与 tail（从该房间到终点的最长耗时），
+ * 图或权值变化后只沿受影响的部分重新传播，不再每次完整地拓扑排序 + 正反两遍扫描。
+ *   最短总耗时 makespan = max(ve + tail)
+ *   vl = makespan - tail，活动 (u, v, w) 的时差 = makespan - tail[v] - w - ve[u]
+ * 用 tail 代替 vl 的好处：makespan 变化时 vl 全部改变，而 tail 只取决于后继，不受影响。
+ * 边总是从低楼层指向高楼层，房间号升序本身就是一个拓扑序：正向传播按房间号从小到大处理，反向传播从大到小，
+ * 每个节点出队时它的前驱（后继）都已是最终值，因此每个受影响节点只重算一次。
+ * 图结构来自 LiveRoomGraph 的快照，每次查询前与上次同步的快照做一次线性比对，把差异当作增删边处理；
+ * 查房中上报的延误叠加在边的基础耗时上，直到边被删除或调用 clearDelays。
+ */
+public final class CriticalPathEngine {
+    private final LiveRoomGraph graph;
+    private CsrGraph synced = CsrGraph.EMPTY;
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    // 边 (起点 << 32 | 终点) -> 累计延误（分钟）
+    private final Map<Long, Integer> delays = new HashMap<>();
+    // ve + tail -> 取该值的房间；最大键即 makespan，对应的房间就是关键路径上的房间
+    private final TreeMap<Integer, Set<Integer>> byLength = new TreeMap<>();
+    private final PriorityQueue<Integer> forward = new PriorityQueue<>();
+    private final PriorityQueue<Integer> backward = new PriorityQueue<>(Comparator.reverseOrder());
+
+    private static final class Node {
+        final int id;
+        final EdgeList out = new EdgeList(); // 后继房间号 -> 实际耗时（含延误）
+        final EdgeList in = new EdgeList();  // 前驱房间号 -> 实际耗时
+        int ve;
+        int tail;
+        boolean forwardQueued;
+        boolean backwardQueued;
+
+        Node(int id) {
+            this.id = id;
+        }
+    }
+
+    public CriticalPathEngine(LiveRoomGraph graph) {
+        if (graph == null) throw new IllegalArgumentException("错误：图不能为空");
+        this.graph = graph;
+    }
+
+    /**
+     * 最短总耗时（完成所有查房的最早时间）
+     */
+    public synchronized int getMakespan() {
+        sync();
+        return makespan();
+    }
+
+    /**
+     * 全部关键活动，按起点、终点房间号排序；只访问关键路径上的房间
+     */
+    public synchronized List<Activity> getCriticalActivities() {
+        sync();
+        int makespan = makespan();
+        List<Activity> critical = new ArrayList<>();
+        if (byLength.isEmpty()) return critical;
+        int[] ids = byLength.lastEntry().getValue().stream().mapToInt(Integer::intValue).sorted().toArray();
+        for (int id : ids) {
+            Node u = nodes.get(id);
+            for (int i = 0; i < u.out.size(); i++) {
+                int w = u.out.weight(i);
+                if (u.ve + w + nodes.get(u.out.end(i)).tail == makespan) critical.add(new Activity(id, u.out.end(i), w));
+            }
+        }
+        return critical;
+    }
+
+    /**
+     * 活动 from -> to 的时差（最迟开始 - 最早开始），0 表示关键活动
+     */
+    public synchronized int getSlack(int fromRoomID, int toRoomID) {
+        sync();
+        Node u = nodes.get(fromRoomID);
+        int i = u == null ? -1 : u.out.indexOf(toRoomID);
+        if (i < 0) throw new IllegalArgumentException("错误：不存在活动 " + fromRoomID + " -> " + toRoomID);
+        return makespan() - nodes.get(toRoomID).tail - u.out.weight(i) - u.ve;
+    }
+
+    /**
+     * 完整结果：makespan、关键活动以及每个活动的最早 / 最迟开始时间，与 AOECalculator.analyze 的结果格式相同
+     */
+    public synchronized CriticalPath getResult() {
+        sync();
+        int makespan = makespan();
+        int[] ids = nodes.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(ids);
+        List<Activity> critical = new ArrayList<>();
+        List<Schedule> schedules = new ArrayList<>();
+        for (int id : ids) {
+            Node u = nodes.get(id);
+            for (int i = 0; i < u.out.size(); i++) {
+                int w = u.out.weight(i);
+                Activity activity = new Activity(id, u.out.end(i), w);
+                int latest = makespan - nodes.get(u.out.end(i)).tail - w;
+                schedules.add(new Schedule(activity, u.ve, latest));
+                if (latest == u.ve) critical.add(activity);
+            }
+        }
+        return new CriticalPath(makespan, critical, schedules);
+    }
+
+    /**
+     * 上报查房延误：活动 from -> to 的实际耗时增加 minutes 分钟（负数表示提前），只重新传播受影响的部分
+     * @return 新的最短总耗时
+     */
+    public synchronized int reportDelay(int fromRoomID, int toRoomID, int minutes) {
+        sync();
+        Node u = nodes.get(fromRoomID);
+        int i = u == null ? -1 : u.out.indexOf(toRoomID);
+        if (i < 0) throw new IllegalArgumentException("错误：不存在活动 " + fromRoomID + " -> " + toRoomID);
+        int weight = u.out.weight(i) + minutes;
+        if (weight < 0) throw new IllegalArgumentException("错误：调整后耗时不能为负数");
+        HotelMetrics.CPM_UPDATE.run(() -> {
+            delays.merge(WeightTable.key(fromRoomID, toRoomID), minutes, (x, y) -> x + y == 0 ? null : x + y);
+            putEdge(u, nodes.get(toRoomID), weight);
+            propagate();
+        });
+        return makespan();
+    }
+
+    /**
+     * 撤销全部已上报的延误，恢复为图中的基础耗时
+     */
+    public synchronized void clearDelays() {
+        sync();
+        HotelMetrics.CPM_UPDATE.run(() -> {
+            for (Map.Entry<Long, Integer> e : delays.entrySet()) {
+                Node u = nodes.get((int) (e.getKey() >> 32));
+                Node v = nodes.get((int) (long) e.getKey());
+                putEdge(u, v, u.out.weight(u.out.indexOf(v.id)) - e.getValue());
+            }
+            delays.clear();
+            propagate();
+        });
+    }
+
+    // 已上报、尚未撤销的延误：(起点, 终点) -> 分钟
+    public synchronized Map<Activity, Integer> getDelays() {
+        Map<Activity, Integer> result = new HashMap<>();
+        delays.forEach((key, minutes) -> {
+            Node u = nodes.get((int) (key >> 32));
+            int to = (int) (long) key;
+            result.put(new Activity(u.id, to, u.out.weight(u.out.indexOf(to))), minutes);
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    private int makespan() {
+        return byLength.isEmpty() ? 0 : byLength.lastKey();
+    }
+
+    // 与 LiveRoomGraph 的最新快照比对：房间号、出边都按升序排列，一次归并找出差异
+    private void sync() {
+        CsrGraph next = graph.snapshot();
+        if (next == synced) return;
+        HotelMetrics.CPM_UPDATE.run(() -> {
+            CsrGraph prev = synced;
+            int i = 0, j = 0;
+            while (i < prev.nodeCount() || j < next.nodeCount()) {
+                int a = i < prev.nodeCount() ? prev.roomID(i) : Integer.MAX_VALUE;
+                int b = j < next.nodeCount() ? next.roomID(j) : Integer.MAX_VALUE;
+                if (a < b) {
+                    removeNode(nodes.get(a));
+                    i++;
+                } else {
+                    if (a == b) i++;
+                    else addNode(b);
+                    j++;
+                }
+            }
+            for (int u = 0; u < next.nodeCount(); u++) syncEdges(next, u);
+            synced = next;
+            propagate();
+        });
+    }
+
+    private void syncEdges(CsrGraph g, int index) {
+        Node u = nodes.get(g.roomID(index));
+        int k = g.edgeStart(index), end = g.edgeEnd(index);
+        int i = 0;
+        while (i < u.out.size() || k < end) {
+            int current = i < u.out.size() ? u.out.end(i) : Integer.MAX_VALUE;
+            int wanted = k < end ? g.roomID(g.target(k)) : Integer.MAX_VALUE;
+            if (current < wanted) {
+                delays.remove(WeightTable.key(u.id, current));
+                removeEdge(u, nodes.get(current)); // 删除后 i 处已是下一条边
+            } else if (current > wanted) {
+                putEdge(u, nodes.get(wanted), g.weight(k));
+                i++;
+                k++;
+            } else {
+                int weight = g.weight(k) + (delays.isEmpty() ? 0 : delays.getOrDefault(WeightTable.key(u.id, current), 0));
+                if (u.out.weight(i) != weight) putEdge(u, nodes.get(current), weight);
+                i++;
+                k++;
+            }
+        }
+    }
+
+    private void addNode(int id) {
+        Node n = new Node(id);
+        nodes.put(id, n);
+        index(n);
+    }
+
+    private void removeNode(Node n) {
+        for (int i = 0; i < n.out.size(); i++) {
+            Node v = nodes.get(n.out.end(i));
+            v.in.remove(n.id);
+            delays.remove(WeightTable.key(n.id, v.id));
+            markForward(v);
+        }
+        for (int i = 0; i < n.in.size(); i++) {
+            Node s = nodes.get(n.in.end(i));
+            s.out.remove(n.id);
+            delays.remove(WeightTable.key(s.id, n.id));
+            markBackward(s);
+        }
+        unindex(n);
+        nodes.remove(n.id);
+    }
+
+    private void putEdge(Node u, Node v, int weight) {
+        if (u.id >= v.id) throw new IllegalArgumentException("错误：活动必须从低楼层指向高楼层: " + u.id + " -> " + v.id);
+        u.out.put(v.id, weight);
+        v.in.put(u.id, weight);
+        markForward(v);
+        markBackward(u);
+    }
+
+    private void removeEdge(Node u, Node v) {
+        u.out.remove(v.id);
+        v.in.remove(u.id);
+        markForward(v);
+        markBackward(u);
+    }
+
+    private void markForward(Node n) {
+        if (!n.forwardQueued) {
+            n.forwardQueued = true;
+            forward.add(n.id);
+        }
+    }
+
+    private void markBackward(Node n) {
+        if (!n.backwardQueued) {
+            n.backwardQueued = true;
+            backward.add(n.id);
+        }
+    }
+
+    // 正向按房间号升序重算 ve，反向按降序重算 tail；值不变时不再向外扩散
+    private void propagate() {
+        while (!forward.isEmpty()) {
+            Node n = nodes.get(forward.poll());
+            if (n == null) continue; // 已删除
+            n.forwardQueued = false;
+            int ve = 0;
+            for (int i = 0; i < n.in.size(); i++) ve = Math.max(ve, nodes.get(n.in.end(i)).ve + n.in.weight(i));
+            if (ve == n.ve) continue;
+            unindex(n);
+            n.ve = ve;
+            index(n);
+            for (int i = 0; i < n.out.size(); i++) markForward(nodes.get(n.out.end(i)));
+        }
+        while (!backward.isEmpty()) {
+            Node n = nodes.get(backward.poll());
+            if (n == null) continue;
+            n.backwardQueued = false;
+            int tail = 0;
+            for (int i = 0; i < n.out.size(); i++) tail = Math.max(tail, nodes.get(n.out.end(i)).tail + n.out.weight(i));
+            if (tail == n.tail) continue;
+            unindex(n);
+            n.tail = tail;
+            index(n);
+            for (int i = 0; i < n.in.size(); i++) markBackward(nodes.get(n.in.end(i)));
+        }
+    }
+
+    private void index(Node n) {
+        byLength.computeIfAbsent(n.ve + n.tail, k -> new HashSet<>()).add(n.id);
+    }
+
+    private void unindex(Node n) {
+        Set<Integer> ids = byLength.get(n.ve + n.tail);
+        ids.remove(n.id);
+        if (ids.isEmpty()) byLength.remove(n.ve + n.tail);
+    }
+}
@@ -0,0 +1,370 @@
+package me.amboo.algorithm;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+import me.amboo.model.Room;
+
+/**
+ * 查房图的紧凑存储（CSR，压缩稀疏行），供 AOVNetwork / AOENetwork 共用
+ * 节点按房间号升序编号为 0 ~ n-1，房间号 -> 下标用二分查找，不装箱、不哈希：
+ *   roomIDs[i]                          第 i 个节点的房间号
+ *   targets[offsets[i] .. offsets[i+1])  节点 i 的全部后继下标（升序）
+ *   weights[k]                          第 k 条边的权值，与 targets[k] 一一对应
+ * 构建后只读，可被多个线程同时遍历。
+ */
+public final class CsrGraph {
+    static final CsrGraph EMPTY = new CsrGraph(new int[0], new int[1], new int[0], new int[0], new int[0]);
+
+    private final int[] roomIDs;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] inDegree;
+
+    private CsrGraph(int[] roomIDs, int[] offsets, int[] targets, int[] weights, int[] inDegree) {
+        this.roomIDs = roomIDs;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inDegree = inDegree;
+    }
+
+    /**
+     * 按楼层规则建图：边只从某个有房楼层指向紧邻的下一个有房楼层，且 WeightGenerator 给出的权值为正
+     * 房间号升序后同一楼层的房间是连续的一段，切出各楼层的起点后按段扫描相邻两层。
+     */
+    static CsrGraph build(List<Room> rooms) {
+        int n = rooms.size();
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) ids[i] = rooms.get(i).getRoomID();
+        Arrays.sort(ids);
+        for (int i = 1; i < n; i++) {
+            if (ids[i] == ids[i - 1]) throw new IllegalArgumentException("错误：房间号重复: " + ids[i]);
+        }
+        int[] floorStarts = new int[n + 1];
+        int floors = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || Room.floorOf(ids[i]) != Room.floorOf(ids[i - 1])) floorStarts[floors++] = i;
+        }
+        floorStarts[floors] = n;
+        return build(ids, floorStarts, floors);
+    }
+
+    /**
+     * 由楼层索引建图（RoomService.getRoomsByFloor()）：楼层升序、层内房间号升序，省去排序与切段
+     */
+    static CsrGraph build(SortedMap<Integer, ? extends Collection<Room>> roomsByFloor) {
+        int n = 0;
+        for (Collection<Room> floor : roomsByFloor.values()) n += floor.size();
+        int[] ids = new int[n];
+        int[] floorStarts = new int[roomsByFloor.size() + 1];
+        int floors = 0;
+        int i = 0;
+        for (Map.Entry<Integer, ? extends Collection<Room>> entry : roomsByFloor.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            floorStarts[floors++] = i;
+            for (Room room : entry.getValue()) {
+                int id = room.getRoomID();
+                if (Room.floorOf(id) != entry.getKey() || (i > 0 && id <= ids[i - 1])) {
+                    throw new IllegalArgumentException("错误：楼层索引中的房间号无序或楼层不符: " + id);
+                }
+                ids[i++] = id;
+            }
+        }
+        floorStarts[floors] = n;
+        return build(ids, floorStarts, floors);
+    }
+
+    // ids 升序；floorStarts[0 .. floors) 为各楼层第一个房间的下标，floorStarts[floors] = n
+    private static CsrGraph build(int[] ids, int[] floorStarts, int floors) {
+        int n = ids.length;
+        EdgeWeightProvider provider = WeightGenerator.getProvider();
+        int[] offsets = new int[n + 1];
+        int[] inDegree = new int[n];
+        int[] targets = new int[Math.max(16, n)];
+        int[] weights = new int[targets.length];
+        int edges = 0;
+
+        // 第 f 层为 floorStarts[f] .. nextStart，nextStart .. nextEnd 为紧邻的下一个有房楼层
+        for (int f = 0; f < floors; f++) {
+            int nextStart = floorStarts[f + 1];
+            int nextEnd = floorStarts[Math.min(f + 2, floors)];
+            for (int a = floorStarts[f]; a < nextStart; a++) {
+                offsets[a] = edges;
+                for (int b = nextStart; b < nextEnd; b++) {
+                    int weight = provider.weight(ids[a], ids[b]);
+                    if (weight <= 0) continue;
+                    if (edges == targets.length) {
+                        targets = Arrays.copyOf(targets, edges << 1);
+                        weights = Arrays.copyOf(weights, edges << 1);
+                    }
+                    targets[edges] = b;
+                    weights[edges] = weight;
+                    edges++;
+                    inDegree[b]++;
+                }
+            }
+        }
+        offsets[n] = edges;
+        return new CsrGraph(ids, offsets, Arrays.copyOf(targets, edges), Arrays.copyOf(weights, edges), inDegree);
+    }
+
+    /**
+     * 由已排好序的 CSR 数组直接组装（LiveRoomGraph 导出快照用），入度在此统计
+     * @param roomIDs 升序房间号；targets 为节点下标
+     */
+    static CsrGraph of(int[] roomIDs, int[] offsets, int[] targets, int[] weights) {
+        int[] inDegree = new int[roomIDs.length];
+        for (int v : targets) inDegree[v]++;
+        return new CsrGraph(roomIDs, offsets, targets, weights, inDegree);
+    }
+
+    public int nodeCount() {
+        return roomIDs.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public int roomID(int index) {
+        return roomIDs[index];
+    }
+
+    /**
+     * 房间号对应的节点下标，不存在时返回 -1
+     */
+    public int indexOf(int roomID) {
+        int i = Arrays.binarySearch(roomIDs, roomID);
+        return i >= 0 ? i : -1;
+    }
+
+    // 节点 index 的出边在 targets / weights 中的起止位置 [edgeStart, edgeEnd)
+    public int edgeStart(int index) {
+        return offsets[index];
+    }
+
+    public int edgeEnd(int index) {
+        return offsets[index + 1];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public int weight(int edge) {
+        return weights[edge];
+    }
+
+    public int inDegree(int index) {
+        return inDegree[index];
+    }
+
+    /**
+     * Kahn 拓扑排序，数组实现的队列，入度在副本上递减
+     * @return 节点下标的拓扑序列；图中存在环时返回 null
+     */
+    public int[] topologicalOrder() {
+        int n = roomIDs.length;
+        int[] degree = inDegree.clone();
+        int[] order = new int[n];
+        int head = 0, tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (degree[i] == 0) order[tail++] = i;
+        }
+        while (head < tail) {
+            int u = order[head++];
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                if (--degree[targets[k]] == 0) order[tail++] = targets[k];
+            }
+        }
+        return tail == n ? order : null;
+    }
+
+    // ---------------- 以下为按房间号访问的只读视图，兼容原有的 Map / List 接口 ----------------
+
+    Set<Integer> roomIDSet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return indexIterator(0, roomIDs.length, roomIDs);
+            }
+
+            @Override
+            public int size() {
+                return roomIDs.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer id && indexOf(id) >= 0;
+            }
+        };
+    }
+
+    List<Integer> neighbors(int roomID) {
+        int u = indexOf(roomID);
+        if (u < 0) return List.of();
+        int from = offsets[u], to = offsets[u + 1];
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int i) {
+                return roomIDs[targets[from + i]];
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    Map<Integer, Integer> inDegreeMap() {
+        return new RoomKeyedMap<>() {
+            @Override
+            Integer valueAt(int index) {
+                return inDegree[index];
+            }
+        };
+    }
+
+    Map<Integer, Map<Integer, Integer>> adjacencyMap() {
+        return new RoomKeyedMap<>() {
+            @Override
+            Map<Integer, Integer> valueAt(int index) {
+                return new EdgeMap(offsets[index], offsets[index + 1]);
+            }
+        };
+    }
+
+    // 以全部房间号为键的只读 Map，get 走二分查找
+    private abstract class RoomKeyedMap<V> extends AbstractMap<Integer, V> {
+        abstract V valueAt(int index);
+
+        @Override
+        public V get(Object key) {
+            int i = key instanceof Integer id ? indexOf(id) : -1;
+            return i >= 0 ? valueAt(i) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer id && indexOf(id) >= 0;
+        }
+
+        @Override
+        public Set<Integer> keySet() {
+            return roomIDSet();
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    return new Iterator<>() {
+                        private int i;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < roomIDs.length;
+                        }
+
+                        @Override
+                        public Entry<Integer, V> next() {
+                            if (i >= roomIDs.length) throw new NoSuchElementException();
+                            int index = i++;
+                            return new SimpleImmutableEntry<>(roomIDs[index], valueAt(index));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return roomIDs.length;
+                }
+            };
+        }
+    }
+
+    // 单个节点的出边：后继房间号 -> 权值
+    private class EdgeMap extends AbstractMap<Integer, Integer> {
+        private final int from;
+        private final int to;
+
+        EdgeMap(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            if (!(key instanceof Integer id)) return null;
+            int v = indexOf(id);
+            if (v < 0) return null;
+            int k = Arrays.binarySearch(targets, from, to, v);
+            return k >= 0 ? weights[k] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<Integer, Integer>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, Integer>> iterator() {
+                    return new Iterator<>() {
+                        private int k = from;
+
+                        @Override
+                        public boolean hasNext() {
+                            return k < to;
+                        }
+
+                        @Override
+                        public Entry<Integer, Integer> next() {
+                            if (k >= to) throw new NoSuchElementException();
+                            int edge = k++;
+                            return new SimpleImmutableEntry<>(roomIDs[targets[edge]], weights[edge]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+    }
+
+    private static Iterator<Integer> indexIterator(int from, int to, int[] values) {
+        return new Iterator<>() {
+            private int i = from;
+
+            @Override
+            public boolean hasNext() {
+                return i < to;
+            }
+
+            @Override
+            public Integer next() {
+                if (i >= to) throw new NoSuchElementException();
+                return values[i++];
+            }
+        };
+    }
+}
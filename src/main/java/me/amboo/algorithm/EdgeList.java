@@ -0,0 +1,63 @@
+package me.amboo.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * 单个房间的邻接边（对端房间号 -> 权值），按对端房间号升序存放在原始类型数组中
+ * 增删为二分查找 + 数组搬移，节点度数不大（至多一层楼的房间数），比装箱的 Map 省内存、遍历快；非线程安全，由持有者加锁
+ */
+final class EdgeList {
+    private static final int[] NONE = new int[0];
+
+    private int[] ends = NONE;
+    private int[] weights = NONE;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    int end(int i) {
+        return ends[i];
+    }
+
+    int weight(int i) {
+        return weights[i];
+    }
+
+    // 对端房间号对应的位置，不存在时返回负数
+    int indexOf(int end) {
+        return Arrays.binarySearch(ends, 0, size, end);
+    }
+
+    void put(int end, int weight) {
+        int i = indexOf(end);
+        if (i >= 0) {
+            weights[i] = weight;
+            return;
+        }
+        i = -i - 1;
+        if (size == ends.length) {
+            int capacity = Math.max(4, size << 1);
+            ends = Arrays.copyOf(ends, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        System.arraycopy(ends, i, ends, i + 1, size - i);
+        System.arraycopy(weights, i, weights, i + 1, size - i);
+        ends[i] = end;
+        weights[i] = weight;
+        size++;
+    }
+
+    void remove(int end) {
+        int i = indexOf(end);
+        if (i < 0) return;
+        System.arraycopy(ends, i + 1, ends, i, size - i - 1);
+        System.arraycopy(weights, i + 1, weights, i, size - i - 1);
+        size--;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
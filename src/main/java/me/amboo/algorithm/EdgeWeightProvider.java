@@ -0,0 +1,10 @@
+package me.amboo.algorithm;
+
+/**
+ * 查房图的边权来源：给出“查完 from 房间后前往 to 房间”的耗时（分钟）
+ * 非正数表示两房间之间没有边。实现必须线程安全，且对同一对房间总是返回同一个值（建图过程中会被反复调用）。
+ */
+@FunctionalInterface
+public interface EdgeWeightProvider {
+    int weight(int fromRoomID, int toRoomID);
+}
@@ -0,0 +1,197 @@
+package me.amboo.algorithm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.model.Room;
+
+/**
+ * 随房间增删实时维护的查房图，建图规则与 CsrGraph.build 相同（边只连接相邻的两个有房楼层）
+ * 增删房间时只改动相邻有房楼层之间的边：
+ *   在已有楼层加房：上一有房楼层的每个房间 -> 新房间，新房间 -> 下一有房楼层的每个房间
+ *   新开一个楼层：  上一楼层原本指向下一楼层的边全部作废，改为指向新楼层
+ *   删除楼层最后一间房：上一楼层改为直接指向下一楼层（需要重新取这两层之间的全部权值）
+ * 查询通过 snapshot() 取得只读的 CsrGraph，图未变化时直接返回缓存的快照。
+ * 权值在加边时从 WeightGenerator 取得并保存；权值版本变化（重设种子等）后下次取快照时整体重取。
+ * 写操作与快照导出用对象锁串行化；房间增删本就低频，且 RoomService 只在房型锁内调用，不会反过来再取其他锁。
+ */
+public final class LiveRoomGraph {
+    // 楼层号 -> 该楼层的房间号（升序）；按楼层、房间号依次遍历即得到全体房间号的升序
+    private final TreeMap<Integer, TreeSet<Integer>> floors = new TreeMap<>();
+    // 房间号 -> 出边（后继房间号升序）
+    private final Map<Integer, EdgeList> nodes = new HashMap<>();
+    private boolean edgesStale;                 // 权值已过期，等待下次取快照时整体重取
+    private volatile long weightVersion = WeightGenerator.getVersion();
+    private volatile CsrGraph snapshot = CsrGraph.EMPTY; // null 表示图已变化，需要重新导出
+
+    private static int floorOf(int roomID) {
+        return Room.floorOf(roomID);
+    }
+
+    public synchronized void addRoom(int roomID) {
+        HotelMetrics.GRAPH_UPDATE.run(() -> {
+            if (nodes.putIfAbsent(roomID, new EdgeList()) != null) {
+                throw new IllegalArgumentException("错误：ID 为" + roomID + "的房间已在图中");
+            }
+            int f = floorOf(roomID);
+            TreeSet<Integer> floor = floors.get(f);
+            boolean newFloor = floor == null;
+            if (newFloor) {
+                floor = new TreeSet<>();
+                floors.put(f, floor);
+            }
+            floor.add(roomID);
+            snapshot = null;
+            if (isStale()) return;
+
+            EdgeWeightProvider provider = WeightGenerator.getProvider();
+            Map.Entry<Integer, TreeSet<Integer>> prev = floors.lowerEntry(f);
+            Map.Entry<Integer, TreeSet<Integer>> next = floors.higherEntry(f);
+            if (prev != null) {
+                for (int a : prev.getValue()) {
+                    EdgeList out = nodes.get(a);
+                    if (newFloor) out.clear(); // 原本指向 next 楼层的边作废
+                    int w = provider.weight(a, roomID);
+                    if (w > 0) out.put(roomID, w);
+                }
+            }
+            if (next != null) connect(provider, roomID, next.getValue());
+        });
+    }
+
+    public synchronized void removeRoom(int roomID) {
+        HotelMetrics.GRAPH_UPDATE.run(() -> {
+            if (nodes.remove(roomID) == null) {
+                throw new IllegalArgumentException("错误：ID 为" + roomID + "的房间不在图中");
+            }
+            int f = floorOf(roomID);
+            TreeSet<Integer> floor = floors.get(f);
+            floor.remove(roomID);
+            boolean floorGone = floor.isEmpty();
+            if (floorGone) floors.remove(f);
+            snapshot = null;
+            if (isStale()) return;
+
+            Map.Entry<Integer, TreeSet<Integer>> prev = floors.lowerEntry(f);
+            if (prev == null) return;
+            if (!floorGone) {
+                for (int a : prev.getValue()) nodes.get(a).remove(roomID);
+                return;
+            }
+            // 楼层消失：上一楼层改为直接连到再下一个有房楼层
+            Map.Entry<Integer, TreeSet<Integer>> next = floors.higherEntry(f);
+            EdgeWeightProvider provider = WeightGenerator.getProvider();
+            for (int a : prev.getValue()) {
+                nodes.get(a).clear();
+                if (next != null) connect(provider, a, next.getValue());
+            }
+        });
+    }
+
+    /**
+     * 批量加入房间（快照装载等），不逐个连边，下次取快照时整体建边
+     */
+    public synchronized void addRooms(List<Room> rooms) {
+        for (Room room : rooms) {
+            int roomID = room.getRoomID();
+            if (nodes.putIfAbsent(roomID, new EdgeList()) != null) {
+                throw new IllegalArgumentException("错误：ID 为" + roomID + "的房间已在图中");
+            }
+            floors.computeIfAbsent(floorOf(roomID), k -> new TreeSet<>()).add(roomID);
+        }
+        edgesStale = true;
+        snapshot = null;
+    }
+
+    public synchronized int roomCount() {
+        return nodes.size();
+    }
+
+    /**
+     * 当前图的只读快照；图与权值都未变化时直接返回上一次的结果
+     */
+    public CsrGraph snapshot() {
+        CsrGraph g = snapshot;
+        if (g != null && weightVersion == WeightGenerator.getVersion()) return g;
+        synchronized (this) {
+            return HotelMetrics.GRAPH_SNAPSHOT.time(() -> {
+                long version = WeightGenerator.getVersion();
+                if (edgesStale || version != weightVersion) {
+                    rebuildEdgeList(version);
+                } else if (snapshot != null) {
+                    return snapshot;
+                }
+                snapshot = export();
+                return snapshot;
+            });
+        }
+    }
+
+    // 权值版本变化时不再增量维护，标记为过期，等取快照时整体重取
+    private boolean isStale() {
+        if (!edgesStale && WeightGenerator.getVersion() != weightVersion) edgesStale = true;
+        return edgesStale;
+    }
+
+    private void connect(EdgeWeightProvider provider, int from, TreeSet<Integer> nextFloor) {
+        EdgeList out = nodes.get(from);
+        for (int b : nextFloor) {
+            int w = provider.weight(from, b);
+            if (w > 0) out.put(b, w);
+        }
+    }
+
+    private void rebuildEdgeList(long version) {
+        EdgeWeightProvider provider = WeightGenerator.getProvider();
+        TreeSet<Integer> prev = null;
+        for (TreeSet<Integer> floor : floors.values()) {
+            if (prev != null) {
+                for (int a : prev) {
+                    nodes.get(a).clear();
+                    connect(provider, a, floor);
+                }
+            }
+            prev = floor;
+        }
+        if (prev != null) {
+            for (int a : prev) nodes.get(a).clear(); // 最高楼层没有出边
+        }
+        weightVersion = version;
+        edgesStale = false;
+    }
+
+    // 导出为 CSR：房间号升序编号，后继房间号换成下标
+    private CsrGraph export() {
+        int n = nodes.size();
+        int[] ids = new int[n];
+        int edges = 0;
+        int i = 0;
+        for (TreeSet<Integer> floor : floors.values()) {
+            for (int id : floor) {
+                ids[i++] = id;
+                edges += nodes.get(id).size();
+            }
+        }
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[edges];
+        int[] weights = new int[edges];
+        int k = 0;
+        for (int u = 0; u < n; u++) {
+            offsets[u] = k;
+            EdgeList out = nodes.get(ids[u]);
+            // 后继都在更高楼层且升序，从 u 往后顺序查找下标即可，不必每条边二分
+            int v = u + 1;
+            for (int j = 0; j < out.size(); j++, k++) {
+                while (ids[v] != out.end(j)) v++;
+                targets[k] = v;
+                weights[k] = out.weight(j);
+            }
+        }
+        offsets[n] = k;
+        return CsrGraph.of(ids, offsets, targets, weights);
+    }
+}
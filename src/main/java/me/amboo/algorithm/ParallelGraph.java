@@ -0,0 +1,163 @@
+package me.amboo.algorithm;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 按层同步的并行拓扑排序与 ve / vl 计算（供 TopoSort、AOECalculator 的并行模式使用）
+ * 第 k 层 = 所有前驱都在前 k-1 层中的节点；同一层内的节点互不依赖，可以分块交给 fork-join 并行处理：
+ *   拓扑：并行处理当前层的出边，入度用原子减一，减到 0 的节点进入下一层
+ *   ve：  逐层前推，后继的 ve 用 CAS 取最大值
+ *   vl：  逐层倒推，每个节点只由一个任务写入，读取的后继都在已完成的更高层中
+ * 每层结束时 invoke 返回，建立 happens-before，下一层看到的都是上一层的最终结果。
+ * 同一层内节点的先后顺序不固定，但结果总是一个合法的拓扑序列。
+ */
+final class ParallelGraph {
+    // 节点数 + 边数低于此值时并行开销大于收益，调用方应走顺序实现
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    // 单个任务至少处理的节点数
+    private static final int GRAIN = 256;
+
+    private ParallelGraph() {}
+
+    // 单核机器上并行只剩原子操作和任务调度的开销，同样走顺序实现
+    static boolean worthParallel(ForkJoinPool pool, CsrGraph g) {
+        return pool != null && pool.getParallelism() > 1 && Runtime.getRuntime().availableProcessors() > 1
+                && g.nodeCount() + g.edgeCount() >= PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * 分层结果：order 为拓扑序列，第 i 层为 order[starts[i] .. starts[i+1])
+     */
+    record Levels(int[] order, int[] starts) {
+        int count() {
+            return starts.length - 1;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RangeBody {
+        void run(int from, int to);
+    }
+
+    // 把 [from, to) 对半拆分直到不超过 GRAIN
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final transient RangeBody body; // lambda 不可序列化；任务只在池内执行，从不序列化
+
+        RangeTask(int from, int to, RangeBody body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, body), new RangeTask(mid, to, body));
+        }
+    }
+
+    private static void forRange(ForkJoinPool pool, int from, int to, RangeBody body) {
+        if (to - from <= GRAIN) body.run(from, to); // 窄层直接在当前线程做完
+        else pool.invoke(new RangeTask(from, to, body));
+    }
+
+    /**
+     * 分层拓扑排序
+     * @return 分层结果；图中存在环时返回 null
+     */
+    static Levels levels(CsrGraph g, ForkJoinPool pool) {
+        int n = g.nodeCount();
+        AtomicIntegerArray degree = new AtomicIntegerArray(n);
+        int[] order = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            int d = g.inDegree(i);
+            degree.set(i, d);
+            if (d == 0) order[tail++] = i;
+        }
+        AtomicInteger next = new AtomicInteger(tail);
+        int[] starts = new int[Math.max(2, n + 1)];
+        int levels = 0;
+        int head = 0;
+        while (head < tail) {
+            starts[levels++] = head;
+            forRange(pool, head, tail, (from, to) -> {
+                // 先在本地攒下新的零入度节点，再一次性占用 order 中的一段，避免每个节点都争用计数器
+                int[] local = new int[16];
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    int u = order[i];
+                    for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) {
+                        int v = g.target(k);
+                        if (degree.decrementAndGet(v) == 0) {
+                            if (count == local.length) local = Arrays.copyOf(local, count << 1);
+                            local[count++] = v;
+                        }
+                    }
+                }
+                if (count > 0) System.arraycopy(local, 0, order, next.getAndAdd(count), count);
+            });
+            head = tail;
+            tail = next.get();
+        }
+        starts[levels] = head;
+        return head == n ? new Levels(order, Arrays.copyOf(starts, levels + 1)) : null;
+    }
+
+    /**
+     * 逐层前推 ve（最早发生时间）
+     */
+    static int[] earliest(CsrGraph g, Levels levels, ForkJoinPool pool) {
+        AtomicIntegerArray ve = new AtomicIntegerArray(g.nodeCount());
+        int[] order = levels.order();
+        for (int level = 0; level < levels.count(); level++) {
+            forRange(pool, levels.starts()[level], levels.starts()[level + 1], (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int u = order[i];
+                    int base = ve.get(u);
+                    for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) {
+                        int v = g.target(k);
+                        int candidate = base + g.weight(k);
+                        int current = ve.get(v);
+                        while (current < candidate && !ve.compareAndSet(v, current, candidate)) current = ve.get(v);
+                    }
+                }
+            });
+        }
+        int[] result = new int[g.nodeCount()];
+        for (int i = 0; i < result.length; i++) result[i] = ve.get(i);
+        return result;
+    }
+
+    /**
+     * 逐层倒推 vl（最迟发生时间）
+     */
+    static int[] latest(CsrGraph g, Levels levels, int maxTime, ForkJoinPool pool) {
+        int[] vl = new int[g.nodeCount()];
+        Arrays.fill(vl, maxTime);
+        int[] order = levels.order();
+        for (int level = levels.count() - 1; level >= 0; level--) {
+            forRange(pool, levels.starts()[level], levels.starts()[level + 1], (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int u = order[i];
+                    int latest = maxTime;
+                    for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) latest = Math.min(latest, vl[g.target(k)] - g.weight(k));
+                    vl[u] = latest;
+                }
+            });
+        }
+        return vl;
+    }
+}
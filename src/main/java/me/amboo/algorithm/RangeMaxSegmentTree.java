@@ -0,0 +1,87 @@
+package me.amboo.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * 动态开点线段树：区间加 + 区间最大值
+ * 下标为 epochDay（LocalDate.toEpochDay()），只为真正被更新过的区间开辟节点。
+ * 采用“标记永久化”：每个节点的 add 不下推，查询时沿路径累加，因此缺失的子树天然视为全 0。
+ */
+public class RangeMaxSegmentTree {
+    // 可表示的日期范围：约为 1970 年前后各 2870 年，足够覆盖任何业务日期
+    public static final long MIN_DAY = -(1L << 20);
+    public static final long MAX_DAY = 1L << 20;
+
+    // 节点池：下标 0 作为“空节点”哨兵，其 max 永远为 0
+    private int[] left = new int[64];
+    private int[] right = new int[64];
+    private int[] add = new int[64];
+    private int[] max = new int[64];
+    private int size = 1;
+    private int root = 0;
+
+    /**
+     * 对区间 [from, to) 的每一天加上 delta
+     */
+    public void add(long from, long to, int delta) {
+        checkRange(from, to);
+        if (from == to || delta == 0) return;
+        root = update(root, (int) MIN_DAY, (int) MAX_DAY, (int) from, (int) to, delta);
+    }
+
+    /**
+     * 查询区间 [from, to) 内的最大值，空区间返回 0
+     */
+    public int max(long from, long to) {
+        checkRange(from, to);
+        if (from == to) return 0;
+        return query(root, (int) MIN_DAY, (int) MAX_DAY, (int) from, (int) to);
+    }
+
+    private int update(int node, int lo, int hi, int l, int r, int delta) {
+        if (node == 0) node = newNode();
+        if (l <= lo && hi <= r) {
+            add[node] += delta;
+            max[node] += delta;
+            return node;
+        }
+        int mid = lo + (hi - lo) / 2;
+        if (l < mid) {
+            int child = update(left[node], lo, mid, l, r, delta);
+            left[node] = child; // 递归中数组可能扩容，必须在返回后再写入
+        }
+        if (r > mid) {
+            int child = update(right[node], mid, hi, l, r, delta);
+            right[node] = child;
+        }
+        max[node] = add[node] + Math.max(max[left[node]], max[right[node]]);
+        return node;
+    }
+
+    private int query(int node, int lo, int hi, int l, int r) {
+        if (node == 0) return 0; // 未开辟的子树全为 0
+        if (l <= lo && hi <= r) return max[node];
+        int mid = lo + (hi - lo) / 2;
+        int result = Integer.MIN_VALUE;
+        if (l < mid) result = Math.max(result, query(left[node], lo, mid, l, r));
+        if (r > mid) result = Math.max(result, query(right[node], mid, hi, l, r));
+        return result + add[node];
+    }
+
+    private int newNode() {
+        if (size == max.length) {
+            int capacity = size * 2;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            add = Arrays.copyOf(add, capacity);
+            max = Arrays.copyOf(max, capacity);
+        }
+        return size++;
+    }
+
+    private static void checkRange(long from, long to) {
+        if (from > to || from < MIN_DAY || to > MAX_DAY) {
+            throw new IllegalArgumentException("错误：日期区间超出线段树范围 [" + from + ", " + to + ")");
+        }
+    }
+}
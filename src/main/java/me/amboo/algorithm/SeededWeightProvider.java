@@ -0,0 +1,36 @@
+package me.amboo.algorithm;
+
+/**
+ * 由种子决定的伪随机边权：对 (种子, 起点, 终点) 做 64 位混合散列后映射到 [-20, 40]
+ * 与原先“随机生成后缓存”的分布相同，但不需要缓存：同一个种子在任何时候、任何进程里得到的整张图完全一样。
+ */
+public final class SeededWeightProvider implements EdgeWeightProvider {
+    public static final int MIN_WEIGHT = -20;
+    public static final int MAX_WEIGHT = 40;
+    private static final int RANGE = MAX_WEIGHT - MIN_WEIGHT + 1;
+
+    private final long seed;
+
+    public SeededWeightProvider(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int weight(int fromRoomID, int toRoomID) {
+        long h = mix(seed ^ WeightTable.key(fromRoomID, toRoomID));
+        // 取高 32 位做乘法缩放，避免取模带来的偏差与除法开销
+        return MIN_WEIGHT + (int) (((h >>> 32) * RANGE) >>> 32);
+    }
+
+    // SplitMix64 的终结函数，输入相差一位时输出也几乎完全不同
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
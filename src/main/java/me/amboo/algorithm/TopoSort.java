@@ -1,9 +1,27 @@
 package me.amboo.algorithm;
 
-import java.util.*;
+import me.amboo.metrics.HotelMetrics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 // 拓扑排序
 public class TopoSort {
+    // 并行模式使用的线程池，为 null 时始终顺序执行
+    private final ForkJoinPool pool;
+
+    public TopoSort() {
+        this(null);
+    }
+
+    /**
+     * 并行模式：图足够大（节点数 + 边数不少于 65536）时按层并行排序，否则仍走顺序实现
+     * 并行结果同样是合法的拓扑序列，但同一层内房间的先后顺序不固定
+     */
+    public TopoSort(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
     /**
      * 对传入的 AOV 网进行拓扑排序并返回结果
      * @param network 已经构建好的 AOV 网
@@ -12,52 +30,26 @@ public class TopoSort {
      */
 
     public List<Integer> execute(AOVNetwork network) {
-        List<Integer> result = new ArrayList<>();
-
-        // 借助一个临时的 Map 来存储排序过程中动态变化的入度，以保护原 AOV 网数据（尤其是邻接表）不被破坏
-        Map<Integer, Integer> tempInDegreeMap = new HashMap<>();
-
-        // 存储入度为 0 的节点队列
-        Queue<Integer> queue = new LinkedList<>();
-
-        // Set接口：定义一个无重复元素的集合
-        // 这里只是创建一个集合，塞下所有节点（房间）的ID
-        Set<Integer> allRoomIDs = network.getAllRoomIDs(); 
-
-        // 1. 初始化：为临时邻接表导入 入度的值，然后把所有入度为 0 的房间加入队列 quese
-        for (Integer id : allRoomIDs) {
-            int inDegree = network.getInDegree(id); //
-            tempInDegreeMap.put(id, inDegree);
-            if (inDegree == 0) {
-                queue.offer(id);
-            }
-        }
-
-        // 2. 处理队列：依次移除入度为 0 的节点，并更新其邻居的入度
-        while (!queue.isEmpty()) {
-            Integer currentID = queue.poll(); // 返回队列的首个节点并在队列中删除
-            result.add(currentID);
-
-            // 获取当前房间指向的所有后续房间
-            List<Integer> neighbors = network.getNeighbors(currentID); 
-            for (Integer neighborID : neighbors) {
-                // 模拟移除 currentID 后，其后继节点的入度减 1
-                int updatedInDegree = tempInDegreeMap.get(neighborID) - 1;
-                tempInDegreeMap.put(neighborID, updatedInDegree);
-
-                // 如果某个邻居的入度减为 0，则说明它的所有前置条件已满足，加入队列
-                if (updatedInDegree == 0) {
-                    queue.offer(neighborID);
-                }
+        return HotelMetrics.TOPO_SORT.time(() -> {
+            // Kahn 算法在 CSR 数组上执行：入度在副本上递减，保护原 AOV 网数据不被破坏；队列就是结果数组本身
+            CsrGraph graph = network.getGraph();
+            int[] order;
+            if (ParallelGraph.worthParallel(pool, graph)) {
+                ParallelGraph.Levels levels = ParallelGraph.levels(graph, pool);
+                order = levels == null ? null : levels.order();
+            } else {
+                order = graph.topologicalOrder();
             }
-        }
 
-        // 3. 闭环检测：如果结果集中的节点数少于图中的总节点数，说明图中存在环（在楼层约束下理论上不会发生）
-        // 如果成环，图中就会有拓扑排序后入度仍不为0的节点，该节点不会进入result列表，故长度会发生变化
-        if (result.size() != allRoomIDs.size()) {
-            throw new IllegalStateException("错误：该 AOV 网中存在环路，无法生成完整的拓扑序列。");
-        }
+            // 闭环检测：如果成环，图中就会有拓扑排序后入度仍不为0的节点，该节点不会进入结果，故长度会发生变化（在楼层约束下理论上不会发生）
+            if (order == null) {
+                throw new IllegalStateException("错误：该 AOV 网中存在环路，无法生成完整的拓扑序列。");
+            }
 
-        return result;
+            // 下标换回房间号
+            List<Integer> result = new ArrayList<>(order.length);
+            for (int index : order) result.add(graph.roomID(index));
+            return result;
+        });
     }
 }
\ No newline at end of file
@@ -1,28 +1,73 @@
 package me.amboo.algorithm;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * 全局边权入口：AOV / AOE 建图都从这里取权值
+ * 默认来源为“显式配置表 + 种子散列”：配置表（WeightTable）中有的房间对用配置值，其余由 SeededWeightProvider 按当前种子算出。
+ * 初始种子取自系统属性 hotel.weight.seed（缺省为 0），因此同一份数据、同一个种子每次运行得到的图都相同。
+ */
 public class WeightGenerator {
-    // 使用 Map 缓存权值：Key 为 "房间A-房间B"，Value 为生成的随机权值
-    private static final Map<String, Integer> weightCache = new HashMap<>();
+    private static volatile SeededWeightProvider seeded = new SeededWeightProvider(Long.getLong("hotel.weight.seed", 0L));
+    // 配置表的兜底总是读取“当前”种子，重设种子后无需重建配置表
+    private static final WeightTable configured = new WeightTable((from, to) -> seeded.weight(from, to));
+    private static volatile EdgeWeightProvider provider = configured;
+    private static volatile long generation; // 重设种子 / 替换来源时加一
 
     public static int getWeight(int roomID1, int roomID2) {
-        String key = roomID1 + "-" + roomID2;
+        return provider.weight(roomID1, roomID2);
+    }
 
-        // 如果缓存中不存在权值，生成新权值并缓存；否则直接返回
-        if (!weightCache.containsKey(key)) {
-            int weight = ThreadLocalRandom.current().nextInt(-20, 41);
-            weightCache.put(key, weight);
-        }
-        return weightCache.get(key);
+    // 建图时先取一次当前来源，整张图使用同一个来源
+    public static EdgeWeightProvider getProvider() {
+        return provider;
     }
 
-    // 提供一个清除缓存的方法，方便管理员在需要时重新随机化整个酒店的图结构
-    public static void resetWeights() {
-        weightCache.clear();
-        System.out.println(">> 权值缓存已清空，下次将重新随机生成。");
+    // 替换为自定义的权值来源；传入 null 恢复默认（配置表 + 种子）
+    public static synchronized void setProvider(EdgeWeightProvider custom) {
+        provider = custom == null ? configured : custom;
+        generation++;
+    }
+
+    /**
+     * 权值版本号：任何会改变某条边权值的操作（重设种子、替换来源、修改配置表）之后都会变大
+     * 缓存了权值的结构（LiveRoomGraph）据此判断是否需要重新取权值
+     */
+    public static long getVersion() {
+        return generation + configured.getModCount();
+    }
+
+    public static long getSeed() {
+        return seeded.getSeed();
+    }
+
+    /**
+     * 重设种子，重新随机化整个酒店的图结构（代替原先的清空权值缓存）；显式配置的权值不受影响
+     */
+    public static synchronized void reseed(long seed) {
+        seeded = new SeededWeightProvider(seed);
+        generation++;
+    }
+
+    // 随机选取新种子并返回，记下它即可在以后复现同一张图
+    public static long reseed() {
+        long seed = ThreadLocalRandom.current().nextLong();
+        reseed(seed);
+        return seed;
     }
-}
 
+    // 显式配置的权值表，可逐条 put 或从文件加载
+    public static WeightTable getConfiguredWeights() {
+        return configured;
+    }
+
+    /**
+     * 从文件加载实测权值，格式见 WeightTable.load
+     * @return 已加载的条数
+     */
+    public static int loadWeights(Path file) throws IOException {
+        return configured.load(file);
+    }
+}
@@ -0,0 +1,139 @@
+package me.amboo.algorithm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+/**
+ * 显式配置的边权表（例如实测的步行耗时），未配置的房间对交给 fallback
+ * 键为 (起点 << 32 | 终点) 的 long，开放寻址 + 线性探测，键和值都是原始类型数组，不装箱、不产生字符串。
+ * 读无锁：写入时先写值再发布键，读者看到键就一定能看到值；扩容时整体换成新表后再发布，读者手里的旧表始终完整可读。
+ * 写操作之间用对象锁串行化，只在加载配置或管理员修改时发生。
+ */
+public final class WeightTable implements EdgeWeightProvider {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final Pattern FIELDS = Pattern.compile("[\\s,]+");
+
+    private final EdgeWeightProvider fallback;
+    private volatile Table table = new Table(16);
+    private volatile long modCount; // 每次 put 加一，供缓存了权值的图判断是否过期
+
+    private static final class Table {
+        final AtomicLongArray keys;
+        final AtomicIntegerArray values;
+        final int mask;
+        int size; // 只由持锁的写者读写
+
+        Table(int capacity) {
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicIntegerArray(capacity);
+            mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) keys.set(i, EMPTY);
+        }
+    }
+
+    public WeightTable(EdgeWeightProvider fallback) {
+        if (fallback == null) throw new IllegalArgumentException("错误：缺少默认权值来源");
+        this.fallback = fallback;
+    }
+
+    static long key(int fromRoomID, int toRoomID) {
+        return ((long) fromRoomID << 32) | (toRoomID & 0xFFFFFFFFL);
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public int weight(int fromRoomID, int toRoomID) {
+        long key = key(fromRoomID, toRoomID);
+        Table t = table;
+        for (int i = slot(key, t.mask); ; i = (i + 1) & t.mask) {
+            long k = t.keys.get(i);
+            if (k == key) return t.values.get(i);
+            if (k == EMPTY) return fallback.weight(fromRoomID, toRoomID);
+        }
+    }
+
+    /**
+     * 设置一条边的权值（覆盖已有配置）；非正数表示这两个房间之间没有边
+     */
+    public synchronized void put(int fromRoomID, int toRoomID, int weight) {
+        long key = key(fromRoomID, toRoomID);
+        if (key == EMPTY) throw new IllegalArgumentException("错误：无效的房间号: " + fromRoomID);
+        Table t = table;
+        if ((t.size + 1) * 2 > t.mask + 1) {
+            t = resize(t);
+            table = t;
+        }
+        insert(t, key, weight);
+        modCount++;
+    }
+
+    public long getModCount() {
+        return modCount;
+    }
+
+    private static void insert(Table t, long key, int weight) {
+        for (int i = slot(key, t.mask); ; i = (i + 1) & t.mask) {
+            long k = t.keys.get(i);
+            if (k == key) {
+                t.values.set(i, weight);
+                return;
+            }
+            if (k == EMPTY) {
+                t.values.set(i, weight);
+                t.keys.set(i, key); // 最后发布键
+                t.size++;
+                return;
+            }
+        }
+    }
+
+    private static Table resize(Table old) {
+        Table t = new Table((old.mask + 1) << 1);
+        for (int i = 0; i <= old.mask; i++) {
+            long k = old.keys.get(i);
+            if (k != EMPTY) insert(t, k, old.values.get(i));
+        }
+        return t;
+    }
+
+    public synchronized int size() {
+        return table.size;
+    }
+
+    /**
+     * 从文本文件加载权值，每行 “起点房间号 终点房间号 权值”，字段以空白或逗号分隔，# 开头为注释
+     * @return 已加载的条数
+     * @throws IllegalArgumentException 格式错误（附行号）
+     */
+    public int load(Path file) throws IOException {
+        int count = 0;
+        int lineNo = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = FIELDS.split(line);
+                if (f.length != 3) throw new IllegalArgumentException("错误：权值文件第 " + lineNo + " 行应为 “起点 终点 权值”");
+                try {
+                    put(Integer.parseInt(f[0]), Integer.parseInt(f[1]), Integer.parseInt(f[2]));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("错误：权值文件第 " + lineNo + " 行不是整数: " + line);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+}
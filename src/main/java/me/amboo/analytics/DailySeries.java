@@ -0,0 +1,51 @@
+package me.amboo.analytics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按天累计的计数（epochDay -> long），以 1024 天为一块按需分配
+ * 加减用原子操作，多个线程（不同房间的监听器、并行重建）可以同时写；读取无锁，
+ * 一年的区间求和只读约 365 个槽位。
+ */
+final class DailySeries {
+    private static final int BLOCK_BITS = 10;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private final Map<Long, AtomicLongArray> blocks = new ConcurrentHashMap<>();
+
+    // [fromDay, toDay) 的每一天加上 delta
+    void add(long fromDay, long toDay, long delta) {
+        AtomicLongArray block = null;
+        long blockIndex = Long.MIN_VALUE;
+        for (long day = fromDay; day < toDay; day++) {
+            if (day >> BLOCK_BITS != blockIndex) {
+                blockIndex = day >> BLOCK_BITS;
+                block = blocks.computeIfAbsent(blockIndex, b -> new AtomicLongArray(BLOCK_SIZE));
+            }
+            block.addAndGet((int) (day & BLOCK_MASK), delta);
+        }
+    }
+
+    // [fromDay, toDay) 的累计值之和
+    long sum(long fromDay, long toDay) {
+        long total = 0;
+        long day = fromDay;
+        while (day < toDay) {
+            long blockIndex = day >> BLOCK_BITS;
+            long blockEnd = Math.min(toDay, (blockIndex + 1) << BLOCK_BITS);
+            AtomicLongArray block = blocks.get(blockIndex);
+            if (block != null) {
+                for (long d = day; d < blockEnd; d++) total += block.get((int) (d & BLOCK_MASK));
+            }
+            day = blockEnd;
+        }
+        return total;
+    }
+
+    void clear() {
+        blocks.clear();
+    }
+}
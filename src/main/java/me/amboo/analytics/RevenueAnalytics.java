@@ -0,0 +1,221 @@
+package me.amboo.analytics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.model.RoomListener;
+
+/**
+ * 收入与入住率统计：按 房型 × 楼层 × 日期 预聚合，报表只做区间求和，不扫描订单
+ *   已售间夜、收入：订单绑定到房间（入住）时按该房间的房价逐晚计入，从房间移除（取消）时扣回；
+ *                   退房、打扫完成不改变已售的间夜与收入
+ *   在手间夜：      下单即计入房型（尚未分配房间，没有楼层），取消时扣回
+ *   可售间夜：      当前房间数 × 天数（房间没有启用日期，按现有库存估算）
+ * 房价修改时该房间的全部订单按新旧房价重新计入；删除房间时已发生的收入保留，可售房间数减一；订单归档不改变任何统计。
+ * 归档订单不再随房价修改重算：冷存储记下归档时的房价，重建、快照装载按该房价计入，与增量维护的结果一致。
+ * 收入以分为单位累计。写入全部是原子加减，可以在各房型 / 房间锁内并发进行；rebuild 按房间、订单并行重算。
+ */
+public class RevenueAnalytics implements RoomListener {
+    private record Segment(String roomType, int floor) {}
+
+    private static final class Cell {
+        final AtomicInteger rooms = new AtomicInteger();
+        final DailySeries soldNights = new DailySeries();
+        final DailySeries revenueCents = new DailySeries();
+    }
+
+    private final Map<Segment, Cell> cells = new ConcurrentHashMap<>();
+    private final Map<String, DailySeries> bookedNights = new ConcurrentHashMap<>();
+
+    /**
+     * 一个归档订单在统计中的份额；priceCents 为归档时该房间的每晚房价（分），
+     * 为 -1 表示不计入已售间夜（未分配房间，或归档时房间已删除）
+     */
+    public record ArchivedStay(String roomType, int roomID, int startDay, int stayTime, long priceCents) {}
+
+    /**
+     * 报表的一行；floor 为 null 表示整个房型的汇总，roomType 也为 null 表示全酒店
+     */
+    public record Row(String roomType, Integer floor, int rooms, long supplyNights, long soldNights, long bookedNights, BigDecimal revenue) {
+        // 入住率 = 已售间夜 / 可售间夜
+        public double occupancy() {
+            return supplyNights == 0 ? 0 : (double) soldNights / supplyNights;
+        }
+
+        // 平均房价 ADR = 收入 / 已售间夜
+        public BigDecimal adr() {
+            return soldNights == 0 ? BigDecimal.ZERO : revenue.divide(BigDecimal.valueOf(soldNights), 2, RoundingMode.HALF_UP);
+        }
+
+        // 每间可售房收入 RevPAR = 收入 / 可售间夜
+        public BigDecimal revpar() {
+            return supplyNights == 0 ? BigDecimal.ZERO : revenue.divide(BigDecimal.valueOf(supplyNights), 2, RoundingMode.HALF_UP);
+        }
+    }
+
+    private static long cents(BigDecimal price) {
+        return price == null ? 0 : price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // 房间当前的每晚房价（分），未定价为 0
+    public static long priceCents(Room room) {
+        return cents(room.getRoomPrice());
+    }
+
+    private Cell cell(Room room) {
+        return cells.computeIfAbsent(new Segment(room.getRoomType(), room.getFloor()), s -> new Cell());
+    }
+
+    private DailySeries booked(String roomType) {
+        return bookedNights.computeIfAbsent(roomType, t -> new DailySeries());
+    }
+
+    // --- 增量维护 ---
+
+    // 房间加入库存；房间上已有的订单（快照恢复）一并计入
+    public void addRoom(Room room) {
+        Cell cell = cell(room);
+        cell.rooms.incrementAndGet();
+        long price = cents(room.getRoomPrice());
+        for (Order order : room.getOrderList()) post(cell, order, price, 1);
+    }
+
+    public void removeRoom(Room room) {
+        cell(room).rooms.decrementAndGet();
+    }
+
+    /**
+     * 修改房价：先按旧价扣回该房间的全部订单，再按新价计入；调用方须持有该房间的锁
+     */
+    public void repriceRoom(Room room, double newPrice) {
+        Cell cell = cell(room);
+        long oldPrice = cents(room.getRoomPrice());
+        room.setRoomPrice(newPrice);
+        long delta = cents(room.getRoomPrice()) - oldPrice;
+        if (delta == 0) return;
+        for (Order order : room.getOrderList()) {
+            long from = order.getStartDay();
+            cell.revenueCents.add(from, from + order.getStayTime(), delta);
+        }
+    }
+
+    public void orderBooked(Order order) {
+        long from = order.getStartDay();
+        booked(order.getOrderType()).add(from, from + order.getStayTime(), 1);
+    }
+
+    public void orderCancelled(Order order) {
+        long from = order.getStartDay();
+        booked(order.getOrderType()).add(from, from + order.getStayTime(), -1);
+    }
+
+    @Override
+    public void onOrderAdded(Room room, Order order) {
+        post(cell(room), order, cents(room.getRoomPrice()), 1);
+    }
+
+    @Override
+    public void onOrderRemoved(Room room, Order order) {
+        post(cell(room), order, cents(room.getRoomPrice()), -1);
+    }
+
+    /**
+     * 计入一个已归档的订单（重建、快照装载时使用）：在手间夜计入房型，已售间夜与收入按归档时的房价计入原房间所在的楼层
+     */
+    public void addArchived(ArchivedStay stay) {
+        long from = stay.startDay();
+        long to = from + stay.stayTime();
+        booked(stay.roomType()).add(from, to, 1);
+        if (stay.priceCents() < 0) return;
+        Cell cell = cells.computeIfAbsent(new Segment(stay.roomType(), Room.floorOf(stay.roomID())), s -> new Cell());
+        post(cell, from, to, stay.priceCents(), 1);
+    }
+
+    // 归档只是换了存放位置，已售间夜与收入保留
+    @Override
+    public void onOrderArchived(Room room, Order order) {}
+
+    private static void post(Cell cell, Order order, long priceCents, int sign) {
+        long from = order.getStartDay();
+        post(cell, from, from + order.getStayTime(), priceCents, sign);
+    }
+
+    private static void post(Cell cell, long from, long to, long priceCents, int sign) {
+        cell.soldNights.add(from, to, sign);
+        if (priceCents != 0) cell.revenueCents.add(from, to, sign * priceCents);
+    }
+
+    /**
+     * 从全部房间与订单重新计算所有预聚合；调用方须保证期间没有写入（例如持有全部房型锁）
+     * @param archived 已归档的订单：不在房间的订单列表中，按归档时记下的房价计入
+     */
+    public void rebuild(Collection<Room> rooms, Collection<Order> orders, Collection<ArchivedStay> archived, ForkJoinPool pool) {
+        HotelMetrics.ANALYTICS_REBUILD.run(() -> {
+            cells.clear();
+            bookedNights.clear();
+            Runnable task = () -> {
+                rooms.parallelStream().forEach(this::addRoom);
+                orders.parallelStream().forEach(this::orderBooked);
+                archived.parallelStream().forEach(this::addArchived);
+            };
+            if (pool == null) task.run();
+            else pool.submit(task).join();
+        });
+    }
+
+    // --- 报表：[from, to) 各晚 ---
+
+    // 按 房型 × 楼层 的明细，房型、楼层升序
+    public List<Row> reportByFloor(LocalDate from, LocalDate to) {
+        return HotelMetrics.ANALYTICS_REPORT.time(() -> {
+            long lo = from.toEpochDay(), hi = to.toEpochDay();
+            if (hi < lo) throw new IllegalArgumentException("错误：结束日期不能早于开始日期");
+            List<Row> rows = new ArrayList<>();
+            cells.forEach((segment, cell) -> {
+                int rooms = cell.rooms.get();
+                rows.add(new Row(segment.roomType(), segment.floor(), rooms, rooms * (hi - lo), cell.soldNights.sum(lo, hi), 0,
+                        BigDecimal.valueOf(cell.revenueCents.sum(lo, hi), 2)));
+            });
+            rows.sort(Comparator.comparing(Row::roomType).thenComparing(Row::floor));
+            return rows;
+        });
+    }
+
+    // 按房型汇总（含在手间夜），房型升序；最后一行为全酒店合计
+    public List<Row> reportByType(LocalDate from, LocalDate to) {
+        long lo = from.toEpochDay(), hi = to.toEpochDay();
+        Map<String, Row> byType = new TreeMap<>();
+        for (Row row : reportByFloor(from, to)) byType.merge(row.roomType(), plus(row, empty(null)), RevenueAnalytics::plus);
+        for (Map.Entry<String, DailySeries> e : bookedNights.entrySet()) {
+            long booked = e.getValue().sum(lo, hi);
+            Row row = byType.getOrDefault(e.getKey(), empty(e.getKey()));
+            byType.put(e.getKey(), new Row(e.getKey(), null, row.rooms(), row.supplyNights(), row.soldNights(), booked, row.revenue()));
+        }
+        List<Row> rows = new ArrayList<>(byType.values());
+        rows.add(rows.stream().reduce(empty(null), RevenueAnalytics::plus));
+        return rows;
+    }
+
+    private static Row empty(String roomType) {
+        return new Row(roomType, null, 0, 0, 0, 0, BigDecimal.ZERO.setScale(2));
+    }
+
+    // 两行相加，房型取 a 的，楼层置空
+    private static Row plus(Row a, Row b) {
+        return new Row(a.roomType(), null, a.rooms() + b.rooms(), a.supplyNights() + b.supplyNights(),
+                a.soldNights() + b.soldNights(), a.bookedNights() + b.bookedNights(), a.revenue().add(b.revenue()));
+    }
+}
@@ -1,15 +1,23 @@
 package me.amboo.controller;
 
 import me.amboo.algorithm.*;
+import me.amboo.analytics.RevenueAnalytics;
+import me.amboo.model.BookingRequest;
 import me.amboo.model.Order;
 import me.amboo.model.Room;
+import me.amboo.service.AvailabilityCache;
+import me.amboo.service.BatchBookingResult;
+import me.amboo.service.OrderArchive;
 import me.amboo.service.OrderService;
+import me.amboo.service.RoomAssignmentEngine;
 import me.amboo.service.RoomService;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 public class HotelController {
@@ -33,16 +41,18 @@ public class HotelController {
         System.out.print("请输入预定天数: ");
         int days = Integer.parseInt(scanner.nextLine());
         System.out.print("请选择房型 [A]单人间 [B]双人间 [C]总统套房: ");
-        String choice = scanner.nextLine().toUpperCase();
-        
-        String type = switch (choice) {
+        String type = roomTypeOf(scanner.nextLine());
+
+        Order order = orderService.placeOrder(guestId, startDate, days, type);
+        System.out.println("\n预定成功！您的订单 ID 是: " + order.getOrderID());
+    }
+
+    private static String roomTypeOf(String choice) {
+        return switch (choice.trim().toUpperCase()) {
             case "B" -> "双人间";
             case "C" -> "总统套房";
             default -> "单人间";
         };
-
-        Order order = orderService.placeOrder(guestId, startDate, days, type);
-        System.out.println("\n预定成功！您的订单 ID 是: " + order.getOrderID());
     }
 
     public void queryOrder() {
@@ -74,10 +84,17 @@ public class HotelController {
 
         System.out.println("可用房间: ");
         availableRooms.forEach(r -> System.out.print("[" + r.getRoomID() + "] "));
-        System.out.print("\n请选择房间号: ");
-        int roomId = Integer.parseInt(scanner.nextLine());
-
-        orderService.processCheckIn(orderId, roomId);
+        Integer planned = order.getStatus() == Order.OrderStatus.BOOKED
+                ? orderService.getAssignments().reoptimize(order.getStartDate()).roomOf(orderId) : null;
+        System.out.print(planned == null ? "\n请选择房间号: " : "\n请选择房间号（留空使用自动排房推荐的 " + planned + "）: ");
+        String line = scanner.nextLine().trim();
+
+        if (line.isEmpty() && planned != null) {
+            Room room = orderService.getAssignments().checkIn(orderId);
+            System.out.println("入住成功！房间号: " + room.getRoomID());
+            return;
+        }
+        orderService.processCheckIn(orderId, Integer.parseInt(line));
         System.out.println("入住成功！");
     }
 
@@ -92,20 +109,104 @@ public class HotelController {
 
     // --- 管理员专用逻辑 ---
 
+    public void finishCleaning() {
+        System.out.print("请输入订单 ID: ");
+        int orderId = Integer.parseInt(scanner.nextLine());
+        orderService.processCleaning(orderId);
+        System.out.println("打扫完成，房间可以再次分配。");
+    }
+
+    /**
+     * 前台订单查询：按住客、今日预抵、待打扫、状态、入住日期区间检索（走订单二级索引）
+     */
+    public void searchOrders() {
+        System.out.print("查询方式 [G]住客 [A]今日预抵 [C]待打扫房间 [S]按状态 [D]按入住日期: ");
+        String op = scanner.nextLine().trim().toUpperCase();
+        List<Order> orders;
+        switch (op) {
+            case "G" -> {
+                System.out.print("住客姓名/证件号: ");
+                orders = orderService.getOrdersByGuest(scanner.nextLine().trim());
+            }
+            case "A" -> orders = orderService.getArrivals(LocalDate.now());
+            case "C" -> orders = orderService.getOrdersByStatus(Order.OrderStatus.CLEANING);
+            case "S" -> {
+                System.out.print("状态 (BOOKED/OCCUPIED/CLEANING/FINISHED): ");
+                orders = orderService.getOrdersByStatus(Order.OrderStatus.valueOf(scanner.nextLine().trim().toUpperCase()));
+            }
+            case "D" -> {
+                System.out.print("开始日期 (YYYY-MM-DD): ");
+                LocalDate from = LocalDate.parse(scanner.nextLine());
+                System.out.print("结束日期（不含，YYYY-MM-DD）: ");
+                LocalDate to = LocalDate.parse(scanner.nextLine());
+                System.out.print("房型 [A]单人间 [B]双人间 [C]总统套房，留空为全部: ");
+                String type = scanner.nextLine().trim();
+                orders = orderService.getOrdersStartingBetween(type.isEmpty() ? null : roomTypeOf(type), from, to, null);
+            }
+            default -> throw new IllegalArgumentException("错误：未知的查询方式 " + op);
+        }
+        if (orders.isEmpty()) {
+            System.out.println("没有符合条件的订单。");
+            return;
+        }
+        System.out.printf("%-10s %-14s %-12s %-4s %-10s %-6s %-10s\n", "订单ID", "住客", "入住日期", "天数", "房型", "房号", "状态");
+        for (Order o : orders) {
+            System.out.printf("%-10d %-14s %-12s %-4d %-10s %-6s %-10s\n", o.getOrderID(), o.getGuestID(), o.getStartDate(),
+                    o.getStayTime(), o.getOrderType(), o.getRoomID() == null ? "-" : o.getRoomID().toString(), o.getStatus());
+        }
+        System.out.println("共 " + orders.size() + " 条");
+    }
+
+    /**
+     * 团体 / 旅行社批量预订：逐行录入，整批要么全部成功要么全部撤销
+     */
+    public void bookGroup() {
+        System.out.println("逐行输入: 住客姓名/证件号,入住日期(YYYY-MM-DD),天数,房型[A/B/C]，空行结束");
+        List<BookingRequest> requests = new ArrayList<>();
+        while (true) {
+            System.out.print("#" + (requests.size() + 1) + " > ");
+            String line = scanner.nextLine().trim();
+            if (line.isEmpty()) break;
+            String[] f = line.split(",");
+            if (f.length != 4) {
+                System.out.println("格式错误，本行已忽略。");
+                continue;
+            }
+            requests.add(new BookingRequest(f[0].trim(), LocalDate.parse(f[1].trim()), Integer.parseInt(f[2].trim()), roomTypeOf(f[3])));
+        }
+        if (requests.isEmpty()) return;
+
+        BatchBookingResult result = orderService.placeOrders(requests);
+        System.out.println(result.committed() ? "\n整批预订成功：" : "\n整批预订失败，所有预订均未提交：");
+        for (BatchBookingResult.Item item : result.items()) {
+            BookingRequest r = item.request();
+            System.out.printf("%-12s %s %d晚 %-6s -> %s\n", r.guestID(), r.startDate(), r.stayTime(), r.roomType(),
+                    item.order() != null ? "订单ID " + item.order().getOrderID() : item.error());
+        }
+        System.out.printf("共 %d 项，等待锁 %.3f ms，总耗时 %.3f ms\n",
+                result.items().size(), result.lockWaitNanos() / 1e6, result.elapsedNanos() / 1e6);
+    }
+
     public void manageRooms() {
-        System.out.print("请选择操作 [A]添加房间 [D]删除房间: ");
+        System.out.print("请选择操作 [A]添加房间 [D]删除房间 [P]修改房价: ");
         String op = scanner.nextLine().toUpperCase();
         if (op.equals("A")) {
             System.out.print("房间号: "); int id = Integer.parseInt(scanner.nextLine());
             System.out.print("房型: "); String type = scanner.nextLine();
             System.out.print("面积: "); double area = Double.parseDouble(scanner.nextLine());
-            roomService.addRoom(new Room(id, type, area));
+            System.out.print("每晚房价（留空暂不定价）: "); String price = scanner.nextLine().trim();
+            roomService.addRoom(price.isEmpty() ? new Room(id, type, area) : new Room(id, type, area, Double.parseDouble(price)));
             System.out.println("房间添加成功。");
         } else if (op.equals("D")) {
             System.out.print("输入要删除的房间号: ");
             int id = Integer.parseInt(scanner.nextLine());
             roomService.removeRoom(id);
             System.out.println("房间已移除。");
+        } else if (op.equals("P")) {
+            System.out.print("房间号: "); int id = Integer.parseInt(scanner.nextLine());
+            System.out.print("新的每晚房价: "); double price = Double.parseDouble(scanner.nextLine());
+            roomService.setRoomPrice(id, price);
+            System.out.println("房价已更新，该房间的收入统计已按新房价重算。");
         }
     }
 
@@ -120,9 +221,10 @@ public class HotelController {
 
     public void printAllRooms() {
         System.out.println("\n--- 酒店全量房间列表 ---");
-        System.out.printf("%-8s %-12s %-10s\n", "房号", "类型", "面积");
+        System.out.printf("%-8s %-12s %-10s %-10s\n", "房号", "类型", "面积", "房价");
         for (Room r : roomService.getAllRooms()) {
-            System.out.printf("%-8d %-12s %-10.2f\n", r.getRoomID(), r.getRoomType(), r.getRoomArea().doubleValue());
+            System.out.printf("%-8d %-12s %-10.2f %-10s\n", r.getRoomID(), r.getRoomType(), r.getRoomArea().doubleValue(),
+                    r.getRoomPrice() == null ? "未定价" : r.getRoomPrice().toPlainString());
         }
     }
 
@@ -135,25 +237,51 @@ public class HotelController {
         r.getOrderList().forEach(o -> System.out.println("-> 订单ID:" + o.getOrderID() + " | 日期:" + o.getStartDate() + " | 状态:" + o.getStatus()));
     }
 
+    /**
+     * 营收报表：按房型汇总及按楼层明细的入住率、已售间夜、收入、ADR、RevPAR（来自预聚合，不扫描订单）
+     */
+    public void printRevenueReport() {
+        System.out.print("开始日期 (YYYY-MM-DD): ");
+        LocalDate from = LocalDate.parse(scanner.nextLine());
+        System.out.print("结束日期（不含，YYYY-MM-DD）: ");
+        LocalDate to = LocalDate.parse(scanner.nextLine());
+        System.out.print("是否先从全部订单重建统计 [y/N]: ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y")) orderService.rebuildAnalytics();
+
+        RevenueAnalytics analytics = roomService.getAnalytics();
+        System.out.println("\n========== 营收报表 " + from + " ~ " + to + " ==========");
+        System.out.printf("%-10s %-6s %-8s %-8s %-8s %-8s %-12s %-10s %-10s\n",
+                "房型", "楼层", "可售间夜", "已售间夜", "在手间夜", "入住率", "收入", "ADR", "RevPAR");
+        List<RevenueAnalytics.Row> rows = new ArrayList<>(analytics.reportByFloor(from, to));
+        rows.addAll(analytics.reportByType(from, to));
+        for (RevenueAnalytics.Row row : rows) {
+            System.out.printf("%-10s %-6s %-8d %-8d %-8s %-8s %-12s %-10s %-10s\n",
+                    row.roomType() == null ? "合计" : row.roomType(), row.floor() == null ? "全部" : row.floor().toString(),
+                    row.supplyNights(), row.soldNights(), row.floor() == null ? Long.toString(row.bookedNights()) : "-",
+                    String.format("%.1f%%", row.occupancy() * 100), row.revenue().toPlainString(),
+                    row.adr().toPlainString(), row.revpar().toPlainString());
+        }
+    }
+
     /**
      * 自动化算法实验室：一键生成 AOV 和 AOE 结果
      */
     public void runAlgorithmLab() {
-        List<Room> currentRooms = roomService.getAllRooms();
-        if (currentRooms.isEmpty()) {
+        // 查房图随房间增删实时维护，这里直接取当前快照，AOV / AOE 共用同一张图
+        CsrGraph graph = roomService.getRoomGraph().snapshot();
+        if (graph.nodeCount() == 0) {
             System.out.println("警告：当前系统中没有房间，无法生成实验数据。");
             return;
         }
 
         System.out.println("\n========== 数据结构实验：查房逻辑分析 ==========");
-        System.out.println("当前参与计算的房间数量：" + currentRooms.size());
+        System.out.println("当前参与计算的房间数量：" + graph.nodeCount());
 
         // --- 第一阶段：AOV 网与拓扑排序 ---
         System.out.println("\n[1/2] 正在构建 AOV 网并执行拓扑排序...");
-        AOVNetwork aov = new AOVNetwork();
-        aov.buildNetwork(currentRooms); // 内部执行楼层限制和权重判定
+        AOVNetwork aov = new AOVNetwork(graph); // 楼层限制和权重判定已在维护图时完成
 
-        TopoSort sorter = new TopoSort();
+        TopoSort sorter = new TopoSort(ForkJoinPool.commonPool()); // 大图按层并行，小图自动走顺序实现
         try {
             List<Integer> topoOrder = sorter.execute(aov);
             String orderStr = topoOrder.stream()
@@ -166,30 +294,124 @@ public class HotelController {
         }
 
         // --- 第二阶段：AOE 网与关键路径 ---
-        System.out.println("\n[2/2] 正在构建 AOE 网并计算关键路径...");
-        AOENetwork aoe = new AOENetwork();
-        aoe.buildNetwork(currentRooms); // 权值视为移动耗时
+        System.out.println("\n[2/2] 正在计算 AOE 网关键路径...");
+        AOENetwork aoe = new AOENetwork(graph); // 权值视为移动耗时
 
-        AOECalculator calculator = new AOECalculator();
+        AOECalculator calculator = new AOECalculator(ForkJoinPool.commonPool());
         calculator.calculateCriticalPath(aoe); // 计算 ve, vl, e, l 指标
 
         System.out.println("\n================ 实验结束 ================");
     }
 
+/**
+ * 重设权值种子：留空随机选取新种子，输入整数可复现之前的某张图
+ */
+public void reseedWeights() {
+    System.out.print("当前种子 " + WeightGenerator.getSeed() + "，请输入新种子（留空随机）: ");
+    String line = scanner.nextLine().trim();
+    long seed;
+    if (line.isEmpty()) {
+        seed = WeightGenerator.reseed();
+    } else {
+        seed = Long.parseLong(line);
+        WeightGenerator.reseed(seed);
+    }
+    System.out.println(">> 权值种子已设为 " + seed + "，下次建图将按新种子生成。");
+}
+
+/**
+ * 上报查房延误：某段查房活动实际多用了若干分钟，增量重算关键路径并显示新的总耗时
+ */
+public void reportInspectionDelay() {
+    CriticalPathEngine engine = roomService.getCriticalPath();
+    System.out.print("起始房间号: ");
+    int from = Integer.parseInt(scanner.nextLine());
+    System.out.print("目标房间号: ");
+    int to = Integer.parseInt(scanner.nextLine());
+    System.out.print("延误分钟数（负数表示提前，0 表示撤销全部延误）: ");
+    int minutes = Integer.parseInt(scanner.nextLine());
+    int before = engine.getMakespan();
+    if (minutes == 0) {
+        engine.clearDelays();
+    } else {
+        engine.reportDelay(from, to, minutes);
+    }
+    System.out.println(">> 最短总耗时: " + before + " -> " + engine.getMakespan()
+            + "，该活动时差: " + engine.getSlack(from, to));
+    for (AOECalculator.Activity a : engine.getCriticalActivities()) {
+        System.out.printf("关键活动: 房间[%d] -> 房间[%d], 耗时: %d\n", a.from(), a.to(), a.weight());
+    }
+}
+
+/**
+ * 可用房查询缓存：显示命中率等统计，并可开关缓存
+ */
+public void manageAvailabilityCache() {
+    AvailabilityCache cache = roomService.getAvailabilityCache();
+    AvailabilityCache.Stats stats = cache.getStats();
+    System.out.printf("缓存%s，条目 %d / %d，命中 %d，未命中 %d（命中率 %.1f%%），淘汰 %d，失效 %d\n",
+            stats.enabled() ? "已开启" : "已关闭", stats.size(), stats.capacity(), stats.hits(), stats.misses(),
+            stats.hitRate() * 100, stats.evictions(), stats.invalidations());
+    System.out.print("输入 on / off 切换缓存（留空不变）: ");
+    String line = scanner.nextLine().trim();
+    if (line.equalsIgnoreCase("on")) cache.setEnabled(true);
+    else if (line.equalsIgnoreCase("off")) cache.setEnabled(false);
+    else if (!line.isEmpty()) throw new IllegalArgumentException("错误：只能输入 on 或 off");
+    if (!line.isEmpty()) System.out.println(">> 可用房查询缓存已" + (cache.isEnabled() ? "开启" : "关闭"));
+}
+
+/**
+ * 自动排房：为某天的全部预抵订单分配房间并打印计划
+ */
+public void assignArrivals() {
+    System.out.print("排房日期 (yyyy-MM-dd，留空为今天): ");
+    String line = scanner.nextLine().trim();
+    LocalDate date = line.isEmpty() ? LocalDate.now() : LocalDate.parse(line);
+    RoomAssignmentEngine engine = orderService.getAssignments();
+    boolean fresh = false;
+    if (engine.getPlan(date) != null) {
+        System.out.print("已有计划：R-全新排房，留空-在原计划上修补（保留仍有效的房号）: ");
+        fresh = scanner.nextLine().trim().equalsIgnoreCase("R");
+    }
+    RoomAssignmentEngine.Plan plan = fresh ? engine.plan(date) : engine.reoptimize(date);
+
+    System.out.printf("%-10s %-12s %-12s %-6s %-8s\n", "订单ID", "住客", "房型", "天数", "房间");
+    for (RoomAssignmentEngine.Assignment a : plan.assignments()) {
+        System.out.printf("%-10d %-12s %-12s %-6d %-8s\n", a.orderID(), a.guestID(), a.roomType(), a.stayTime(),
+                a.roomID() == null ? "无房" : a.roomID().toString());
+    }
+    System.out.printf(">> %s 预抵 %d 个：已排房 %d（沿用 %d），无房 %d；留下空档 %d 间夜，耗时 %.2f ms\n",
+            date, plan.assignments().size(), plan.assigned(), plan.kept(), plan.unassigned(), plan.gapNights(),
+            plan.elapsedNanos() / 1e6);
+}
+
+/**
+ * 订单归档：把退房超过保留期的已结束订单移入冷存储
+ */
+public void archiveOrders() {
+    OrderArchive archive = orderService.getArchive();
+    LocalDate cutoff = archive.defaultCutoff(LocalDate.now());
+    System.out.print("归档退房日早于哪天的已结束订单 (yyyy-MM-dd，留空为 " + cutoff + "): ");
+    String line = scanner.nextLine().trim();
+    LocalDate before = line.isEmpty() ? cutoff : LocalDate.parse(line);
+    int archived = orderService.archiveFinished(before);
+    OrderArchive.Stats stats = archive.getStats();
+    System.out.printf(">> 本次归档 %d 个订单；冷存储共 %d 个订单，%d 段，%.1f KB（%s），实时订单 %d 个\n",
+            archived, stats.orders(), stats.segments(), stats.bytes() / 1024.0, stats.mapped() ? "文件映射" : "堆内",
+            orderService.getAllOrders().size());
+}
+
 /**
  * 打印当前 AOE 网的完整权值分布
  */
 public void printGraphWeights() {
-    List<Room> currentRooms = roomService.getAllRooms();
-    if (currentRooms.isEmpty()) {
+    // 直接读取实时维护的查房图
+    AOENetwork aoe = new AOENetwork(roomService.getRoomGraph().snapshot());
+    if (aoe.getAllRoomIDs().isEmpty()) {
         System.out.println("系统内无房间，无法生成图。");
         return;
     }
 
-    // 构建 AOE 网以获取权值数据
-    AOENetwork aoe = new AOENetwork();
-    aoe.buildNetwork(currentRooms);
-
     System.out.println("\n========== 当前酒店图权值一览 (移动耗时) ==========");
     System.out.printf("%-15s %-15s %-10s\n", "起始房间", "目标房间", "权值(分钟)");
     System.out.println("--------------------------------------------------");
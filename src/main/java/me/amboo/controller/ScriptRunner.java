@@ -0,0 +1,188 @@
+package me.amboo.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import me.amboo.metrics.LatencyHistogram;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+/**
+ * 非交互的脚本回放：逐行读取命令文件并立即执行，不把整个文件读入内存，结束后按命令类型输出吞吐与延迟分位数
+ * 每行一条命令，字段以空白分隔，# 开头为注释：
+ *   room add <房号> <房型> <面积>
+ *   room remove <房号>
+ *   book <标签|-> <住客> <入住日期> <天数> <房型>      标签供后续命令以 @标签 引用该订单，- 表示不需要
+ *   checkin <订单> [房号]                               不写房号时按自动排房计划分配
+ *   checkout <订单>
+ *   clean <订单>
+ *   cancel <订单>                                       删除已分配房间的订单
+ *   query <订单>
+ *   advance <日期>                                      推进可用性位图窗口（夜审）
+ *   archive <日期>                                      把退房日早于该日期的已结束订单移入冷存储
+ *   assign <日期>                                       为该日的预抵订单排房（在上一版计划上修补）
+ * <订单> 可以是订单 ID，也可以是 @标签。单条命令失败只计数，不中断回放。
+ */
+public class ScriptRunner {
+    private static final Pattern FIELDS = Pattern.compile("\\s+");
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final RoomService roomService;
+    private final OrderService orderService;
+    private final PrintStream err;
+    // 标签 -> 订单 ID；订单结束（打扫完成 / 删除）后移除，内存只与“进行中”的订单数有关
+    private final Map<String, Integer> labels = new HashMap<>();
+    private final Map<String, CommandStats> stats = new LinkedHashMap<>();
+    private long lines;
+    private long failures;
+    private long elapsedNanos;
+
+    // 单类命令的统计
+    private static class CommandStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long failures;
+    }
+
+    public ScriptRunner(RoomService roomService, OrderService orderService, PrintStream err) {
+        this.roomService = roomService;
+        this.orderService = orderService;
+        this.err = err;
+    }
+
+    /**
+     * 流式执行命令，直到输入结束
+     */
+    public void run(BufferedReader in) throws IOException {
+        long begin = System.nanoTime();
+        String line;
+        while ((line = in.readLine()) != null) {
+            lines++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] f = FIELDS.split(line);
+            String command = f[0].equals("room") && f.length > 1 ? "room " + f[1] : f[0];
+            CommandStats s = stats.computeIfAbsent(command, c -> new CommandStats());
+            long start = System.nanoTime();
+            try {
+                execute(command, f);
+            } catch (RuntimeException e) {
+                s.failures++;
+                if (++failures <= MAX_REPORTED_ERRORS) err.println("第 " + lines + " 行执行失败：" + e.getMessage());
+            } finally {
+                s.latency.record(System.nanoTime() - start);
+            }
+        }
+        elapsedNanos = System.nanoTime() - begin;
+    }
+
+    private void execute(String command, String[] f) {
+        switch (command) {
+            case "room add" -> {
+                need(f, 5);
+                roomService.addRoom(new Room(Integer.parseInt(f[2]), f[3], Double.parseDouble(f[4])));
+            }
+            case "room remove" -> {
+                need(f, 3);
+                roomService.removeRoom(Integer.parseInt(f[2]));
+            }
+            case "book" -> {
+                need(f, 6);
+                Order order = orderService.placeOrder(f[2], LocalDate.parse(f[3]), Integer.parseInt(f[4]), f[5]);
+                if (!f[1].equals("-")) labels.put(f[1], order.getOrderID());
+            }
+            case "checkin" -> {
+                need(f, 2);
+                Order order = resolve(f[1]);
+                if (f.length > 2) {
+                    orderService.processCheckIn(order.getOrderID(), Integer.parseInt(f[2]));
+                } else {
+                    orderService.getAssignments().checkIn(order.getOrderID());
+                }
+            }
+            case "checkout" -> {
+                need(f, 2);
+                Order order = resolve(f[1]);
+                orderService.processCheckOut(order.getOrderID(), roomOf(order));
+            }
+            case "clean" -> {
+                need(f, 2);
+                orderService.processCleaning(resolve(f[1]).getOrderID());
+                forget(f[1]);
+            }
+            case "cancel" -> {
+                need(f, 2);
+                Order order = resolve(f[1]);
+                orderService.cancelOrder(order.getOrderID(), roomOf(order));
+                forget(f[1]);
+            }
+            case "query" -> {
+                need(f, 2);
+                resolve(f[1]);
+            }
+            case "advance" -> {
+                need(f, 2);
+                roomService.advanceAvailabilityWindow(LocalDate.parse(f[1]));
+            }
+            case "archive" -> {
+                need(f, 2);
+                orderService.archiveFinished(LocalDate.parse(f[1]));
+            }
+            case "assign" -> {
+                need(f, 2);
+                orderService.getAssignments().reoptimize(LocalDate.parse(f[1]));
+            }
+            default -> throw new IllegalArgumentException("未知命令: " + command);
+        }
+    }
+
+    private Order resolve(String ref) {
+        Integer orderID = ref.startsWith("@") ? labels.get(ref.substring(1)) : Integer.valueOf(ref);
+        if (orderID == null) throw new IllegalArgumentException("未定义的订单标签: " + ref);
+        Order order = orderService.getOrder(orderID);
+        if (order == null) throw new IllegalArgumentException("错误：未找到 ID 为 " + orderID + " 的订单");
+        return order;
+    }
+
+    private static int roomOf(Order order) {
+        Integer roomID = order.getRoomID();
+        if (roomID == null) throw new IllegalStateException("订单 " + order.getOrderID() + " 尚未分配房间");
+        return roomID;
+    }
+
+    private void forget(String ref) {
+        if (ref.startsWith("@")) labels.remove(ref.substring(1));
+    }
+
+    private static void need(String[] f, int count) {
+        if (f.length < count) throw new IllegalArgumentException("参数不足: " + String.join(" ", f));
+    }
+
+    /**
+     * 输出回放报告：总吞吐，以及每类命令的次数、失败数、单线程服务速率和延迟分位数（微秒）
+     */
+    public void printReport(PrintStream out) {
+        long commands = stats.values().stream().mapToLong(s -> s.latency.getCount()).sum();
+        double seconds = elapsedNanos / 1e9;
+        out.println("\n=== 脚本回放报告 ===");
+        out.printf("读取 %d 行，执行 %d 条命令，失败 %d 条，耗时 %.3f s，总吞吐 %.0f ops/s%n",
+                lines, commands, failures, seconds, seconds == 0 ? 0 : commands / seconds);
+        out.printf("%-12s %10s %8s %12s %10s %10s %10s %10s %10s%n",
+                "命令", "次数", "失败", "ops/s", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)");
+        stats.forEach((command, s) -> {
+            LatencyHistogram h = s.latency;
+            double busySeconds = h.getMean() * h.getCount() / 1e9;
+            out.printf("%-12s %10d %8d %12.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    command, h.getCount(), s.failures, busySeconds == 0 ? 0 : h.getCount() / busySeconds,
+                    h.getPercentile(50) / 1e3, h.getPercentile(90) / 1e3, h.getPercentile(99) / 1e3,
+                    h.getPercentile(99.9) / 1e3, h.getMax() / 1e3);
+        });
+    }
+}
@@ -0,0 +1,290 @@
+package me.amboo.journal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import me.amboo.model.Order;
+import me.amboo.model.Order.OrderStatus;
+import me.amboo.model.Room;
+import me.amboo.service.OrderArchive;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+/**
+ * 酒店状态的二进制快照
+ * 文件布局（大端）：
+ *   头部     int 魔数, int 版本, long 基准序号（开始复制前的日志序号）
+ *   字符串表 int 数量, int[数量 + 1] 字节偏移, UTF-8 字节（房型、住客 ID 去重后只存一次）
+ *   房型切点 int 数量, 每项 [int 房型, long 日志序号]
+ *   房间     int 数量, 每条定长 24 字节 [int 房号, int 房型, double 面积, double 房价(NaN 未定价)]
+ *   订单     int 数量, 每条定长 25 字节 [int 订单号, int 住客, int 入住日, int 天数, int 房型, int 房号(-1 未分配), byte 状态]
+ *   归档     int 数量, 每条定长 28 字节 [int 订单号, int 住客, int 入住日, int 天数, int 房型, int 房号, int 归档时每晚房价(分)]
+ *            （状态恒为 FINISHED）
+ * 各房型在自己的条带锁内逐个复制，复制时读取日志的已追加序号作为该房型的切点：
+ * 该房型序号不超过切点的事件都已包含在快照中，恢复时只需重放切点之后的事件。
+ * 复制期间只短暂持有单个房型的锁，其他房型的预订不受影响。
+ * 快照中没有出现的房型在复制时为空，其切点取基准序号。
+ */
+public class HotelSnapshot {
+    private static final int MAGIC = 0x48534E50; // "HSNP"
+    private static final int VERSION = 1;
+    private static final int ROOM_BYTES = 24;
+    private static final int ORDER_BYTES = 25;
+    private static final int ARCHIVED_BYTES = 28;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    // 各房型的日志切点；base 为开始复制前的日志序号，不超过任何房型的切点
+    public record Cuts(long base, Map<String, Long> byType) {
+        public static final Cuts NONE = new Cuts(0, Map.of());
+
+        public long of(String roomType) {
+            return byType.getOrDefault(roomType, base);
+        }
+
+        public boolean contains(String roomType) {
+            return byType.containsKey(roomType);
+        }
+
+        public long max() {
+            return byType.values().stream().mapToLong(Long::longValue).max().orElse(base);
+        }
+    }
+
+    private HotelSnapshot() {}
+
+    /**
+     * 写出快照：先写临时文件并 fsync，再原子替换为目标文件
+     * @param journal 用于读取切点并等待其落盘，为 null 时切点均为 0
+     * @return 各房型切点
+     */
+    public static Cuts write(Path file, RoomService roomService, OrderService orderService, Journal journal) throws IOException {
+        long base = journal == null ? 0 : journal.getAppendedSeq();
+        Set<String> types = new TreeSet<>();
+        types.addAll(roomService.getRoomTypes());
+        types.addAll(orderService.getOrderRoomTypes());
+        types.addAll(orderService.getArchive().getRoomTypes());
+
+        StringTable strings = new StringTable();
+        Map<String, Long> cuts = new LinkedHashMap<>();
+        // 房号 -> 房间记录。房间在两个房型的复制之间被删除并以另一房型重建时会被复制两次，
+        // 后复制的房型切点更晚，保留它的版本（先复制的版本的删除事件序号不超过该切点，回放时会被跳过）
+        Map<Integer, RoomRecord> rooms = new LinkedHashMap<>();
+        IntBuffer orders = new IntBuffer();      // 每个订单 7 个 int，顺序同文件布局
+        IntBuffer archived = new IntBuffer();    // 每个归档订单 7 个 int，同上
+
+        for (String type : types) {
+            int typeRef = strings.ref(type);
+            ReentrantLock typeLock = roomService.getLocks().forType(type);
+            typeLock.lock();
+            try {
+                cuts.put(type, journal == null ? 0 : journal.getAppendedSeq());
+                for (Room r : roomService.getRoomsOfType(type)) {
+                    rooms.put(r.getRoomID(), new RoomRecord(typeRef, r.getRoomArea().doubleValue(),
+                            r.getRoomPrice() == null ? Double.NaN : r.getRoomPrice().doubleValue()));
+                }
+                // 直接按列读取订单字段，不经过订单对象
+                orderService.forEachOrderOfType(type, (orderID, guestID, startDay, stayTime, roomID, status) -> {
+                    orders.add(orderID);
+                    orders.add(strings.ref(guestID));
+                    orders.add(startDay);
+                    orders.add(stayTime);
+                    orders.add(typeRef);
+                    orders.add(roomID);
+                    orders.add(status.ordinal());
+                });
+                // 归档与实时订单在同一房型锁内复制，一个订单不会两处都出现或都缺失
+                orderService.getArchive().forEach(type, (orderID, guestID, startDay, stayTime, roomID, priceCents) -> {
+                    archived.add(orderID);
+                    archived.add(strings.ref(guestID));
+                    archived.add(startDay);
+                    archived.add(stayTime);
+                    archived.add(typeRef);
+                    archived.add(roomID);
+                    archived.add(priceCents);
+                });
+            } finally {
+                typeLock.unlock();
+            }
+        }
+        // 快照不能领先于已落盘的日志，否则崩溃后恢复出的状态会包含丢失的事件
+        long maxCut = cuts.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        if (journal != null && maxCut > 0) journal.awaitDurable(maxCut);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(base);
+            strings.writeTo(out);
+            out.writeInt(cuts.size());
+            for (Map.Entry<String, Long> cut : cuts.entrySet()) {
+                out.writeInt(strings.ref(cut.getKey()));
+                out.writeLong(cut.getValue());
+            }
+            out.writeInt(rooms.size());
+            for (Map.Entry<Integer, RoomRecord> room : rooms.entrySet()) {
+                out.writeInt(room.getKey());
+                out.writeInt(room.getValue().typeRef());
+                out.writeDouble(room.getValue().area());
+                out.writeDouble(room.getValue().price());
+            }
+            out.writeInt(orders.size / 7);
+            for (int i = 0; i < orders.size; i += 7) {
+                for (int f = 0; f < 6; f++) out.writeInt(orders.get(i + f));
+                out.writeByte(orders.get(i + 6));
+            }
+            out.writeInt(archived.size / 7);
+            for (int i = 0; i < archived.size; i++) out.writeInt(archived.get(i));
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Cuts(base, cuts);
+    }
+
+    /**
+     * 装载快照到空的服务中：内存映射文件，定长记录按区间并行解析，各房间的区间索引与各房型的位图 / 线段树并行重建
+     */
+    public static Cuts load(Path file, RoomService roomService, OrderService orderService) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.getInt() != MAGIC) throw new IOException("不是酒店快照文件: " + file);
+            int version = data.getInt();
+            if (version != VERSION) throw new IOException("不支持的快照版本: " + version);
+            long base = data.getLong();
+
+            // 1. 字符串表：按偏移并行解码
+            int stringCount = data.getInt();
+            int[] offsets = new int[stringCount + 1];
+            for (int i = 0; i <= stringCount; i++) offsets[i] = data.getInt();
+            int stringBase = data.position();
+            String[] strings = new String[stringCount];
+            IntStream.range(0, stringCount).parallel().forEach(i -> {
+                byte[] bytes = new byte[offsets[i + 1] - offsets[i]];
+                data.get(stringBase + offsets[i], bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            });
+            data.position(stringBase + offsets[stringCount]);
+
+            // 2. 房型切点
+            Map<String, Long> cuts = new LinkedHashMap<>();
+            int cutCount = data.getInt();
+            for (int i = 0; i < cutCount; i++) cuts.put(strings[data.getInt()], data.getLong());
+
+            // 3. 房间与订单：定长记录，按下标并行解析
+            int roomCount = data.getInt();
+            int roomBase = data.position();
+            Room[] rooms = new Room[roomCount];
+            IntStream.range(0, roomCount).parallel().forEach(i -> {
+                int at = roomBase + i * ROOM_BYTES;
+                double price = data.getDouble(at + 16);
+                rooms[i] = Double.isNaN(price)
+                        ? new Room(data.getInt(at), strings[data.getInt(at + 4)], data.getDouble(at + 8))
+                        : new Room(data.getInt(at), strings[data.getInt(at + 4)], data.getDouble(at + 8), price);
+            });
+            data.position(roomBase + roomCount * ROOM_BYTES);
+
+            int orderCount = data.getInt();
+            int orderBase = data.position();
+            Order[] orders = new Order[orderCount];
+            IntStream.range(0, orderCount).parallel().forEach(i -> {
+                int at = orderBase + i * ORDER_BYTES;
+                int roomID = data.getInt(at + 20);
+                orders[i] = orderService.restoredOrder(data.getInt(at), strings[data.getInt(at + 4)], LocalDate.ofEpochDay(data.getInt(at + 8)),
+                        data.getInt(at + 12), strings[data.getInt(at + 16)], roomID < 0 ? null : roomID, STATUSES[data.get(at + 24)]);
+            });
+            data.position(orderBase + orderCount * ORDER_BYTES);
+
+            Map<Integer, Room> roomById = new HashMap<>(roomCount * 2);
+            for (Room r : rooms) roomById.put(r.getRoomID(), r);
+
+            // 归档记录直接按房型装入冷存储，不生成 Order 对象
+            Map<String, OrderArchive.Batch> archived = new LinkedHashMap<>();
+            int archivedCount = data.getInt();
+            int archivedBase = data.position();
+            for (int i = 0; i < archivedCount; i++) {
+                int at = archivedBase + i * ARCHIVED_BYTES;
+                archived.computeIfAbsent(strings[data.getInt(at + 16)], OrderArchive.Batch::new)
+                        .add(data.getInt(at), strings[data.getInt(at + 4)], data.getInt(at + 8), data.getInt(at + 12), data.getInt(at + 20), data.getInt(at + 24));
+            }
+
+            // 4. 已分配的订单写回各自房间（房间之间互不影响，可并行）
+            Arrays.stream(orders).parallel()
+                    .filter(o -> o.getRoomID() != null && belongsTo(o, roomById.get(o.getRoomID())))
+                    .collect(Collectors.groupingByConcurrent(Order::getRoomID))
+                    .entrySet().parallelStream()
+                    .forEach(e -> {
+                        Room room = roomById.get(e.getKey());
+                        for (Order o : e.getValue()) room.addOrder(o);
+                    });
+
+            // 5. 重建服务层索引（位图、库存线段树等）
+            roomService.restoreRooms(Arrays.asList(rooms));
+            orderService.restoreOrders(Arrays.asList(orders));
+            orderService.restoreArchive(archived.values());
+            return new Cuts(base, cuts);
+        }
+    }
+
+    // 订单记录的房间仍存在且房型相同；房间被删除后以另一房型重建时，旧订单不再属于它（与删除时的实时状态一致）
+    private static boolean belongsTo(Order order, Room room) {
+        return room != null && room.getTypeCode() == order.getTypeCode();
+    }
+
+    // 写快照时的字符串去重表
+    private static class StringTable {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+
+        int ref(String value) {
+            Integer ref = refs.get(value);
+            if (ref != null) return ref;
+            refs.put(value, values.size());
+            values.add(value.getBytes(StandardCharsets.UTF_8));
+            return values.size() - 1;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            int offset = 0;
+            out.writeInt(0);
+            for (byte[] v : values) {
+                offset += v.length;
+                out.writeInt(offset);
+            }
+            for (byte[] v : values) out.write(v);
+        }
+    }
+
+    // 写快照时暂存定长字段的可增长 int 数组
+    private record RoomRecord(int typeRef, double area, double price) {}
+
+    private static class IntBuffer {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package me.amboo.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 只追加的预写日志（WAL），带组提交
+ * append 只在内存中排队并返回序号；后台写线程把攒下的一批记录一次性写入 FileChannel 并 fsync，
+ * 因此并发的多次预订共享同一次 fsync。调用方在释放业务锁之后用 awaitDurable 等待自己的记录落盘。
+ * 日志按段存放，文件名为段内第一条记录的序号，段大小超过上限后滚动到新文件。
+ */
+public class Journal implements Closeable {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final Object lock = new Object();
+
+    // 以下字段由 lock 保护
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private long appendedSeq;   // 已追加到内存的最后一条序号
+    private long durableSeq;    // 已 fsync 的最后一条序号
+    private IOException failure;
+    private boolean closed;
+
+    // 以下字段只由写线程访问
+    private FileChannel segment;
+    private long segmentSize;
+
+    private final Thread writer;
+
+    private Journal(Path directory, long maxSegmentBytes, long lastSeq) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.appendedSeq = lastSeq;
+        this.durableSeq = lastSeq;
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // 回放回调：seq 为事件在日志中的序号（从 1 开始）
+    @FunctionalInterface
+    public interface ReplayHandler {
+        void accept(long seq, JournalEvent event);
+    }
+
+    /**
+     * 打开日志目录：先按顺序把已有事件交给 replayHandler 重放，截掉末尾写了一半的记录，再打开供追加
+     */
+    public static Journal open(Path directory, Consumer<JournalEvent> replayHandler) {
+        return open(directory, DEFAULT_SEGMENT_BYTES, 0, (seq, event) -> replayHandler.accept(event));
+    }
+
+    /**
+     * @param afterSeq 只回放序号大于它的事件（例如已被快照覆盖的部分），完全落在其之前的段不再解码
+     */
+    public static Journal open(Path directory, long maxSegmentBytes, long afterSeq, ReplayHandler replayHandler) {
+        try {
+            Files.createDirectories(directory);
+            // 防御：若日志末尾早于快照切点（例如日志段被人为清理），新事件的序号仍须大于切点，否则下次恢复会被误跳过
+            long lastSeq = Math.max(replay(directory, afterSeq, replayHandler), afterSeq);
+            return new Journal(directory, maxSegmentBytes, lastSeq);
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：无法打开日志目录 " + directory, e);
+        }
+    }
+
+    /**
+     * 追加一条事件（只写内存，不等待落盘）
+     * @return 该事件的序号，供 awaitDurable 使用
+     */
+    public long append(JournalEvent event) {
+        byte[] frame = JournalCodec.frame(event);
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("错误：日志已关闭");
+            if (failure != null) throw new UncheckedIOException("错误：日志写入已失败", failure);
+            pending.write(frame, 0, frame.length);
+            lock.notifyAll();
+            return ++appendedSeq;
+        }
+    }
+
+    /**
+     * 阻塞直到序号 seq 及之前的所有事件都已 fsync
+     */
+    public void awaitDurable(long seq) {
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (durableSeq < seq && failure == null && !(closed && !writer.isAlive())) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true; // 落盘是提交的一部分，不能半途放弃
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (durableSeq < seq) {
+                throw new UncheckedIOException("错误：日志落盘失败", failure != null ? failure : new IOException("日志已关闭"));
+            }
+        }
+    }
+
+    // 已追加（不一定落盘）的最后一条序号；在业务锁内读取时，可作为该锁所保护数据的一致切点
+    public long getAppendedSeq() {
+        synchronized (lock) {
+            return appendedSeq;
+        }
+    }
+
+    public long getDurableSeq() {
+        synchronized (lock) {
+            return durableSeq;
+        }
+    }
+
+    /**
+     * 删除所有记录序号都不超过 seq 的旧段（通常在快照完成后调用）；正在写入的最后一段永远保留
+     */
+    public void deleteSegmentsUpTo(long seq) throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (firstSeqOf(segments.get(i + 1)) > seq + 1) break;
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (segment != null) segment.close();
+        synchronized (lock) {
+            if (failure != null) throw failure;
+        }
+    }
+
+    // 写线程：每轮取走所有已排队的记录，一次写入 + 一次 fsync
+    private void writeLoop() {
+        ByteArrayOutputStream spare = new ByteArrayOutputStream(64 * 1024);
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchFirstSeq, batchLastSeq;
+            synchronized (lock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // 写线程只在 close 时退出
+                    }
+                }
+                if (pending.size() == 0) return; // 已关闭且没有剩余数据
+                batch = pending;
+                pending = spare;
+                batchFirstSeq = durableSeq + 1;
+                batchLastSeq = appendedSeq;
+            }
+            try {
+                if (segment == null || (segmentSize > 0 && segmentSize + batch.size() > maxSegmentBytes)) {
+                    rollSegment(batchFirstSeq);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) segmentSize += segment.write(buffer);
+                segment.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            batch.reset();
+            spare = batch;
+            synchronized (lock) {
+                durableSeq = batchLastSeq;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void rollSegment(long firstSeq) throws IOException {
+        if (segment != null) segment.close();
+        Path file = directory.resolve(String.format("%019d%s", firstSeq, SEGMENT_SUFFIX));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = segment.size();
+    }
+
+    // 按段顺序重放序号大于 afterSeq 的事件，返回最后一条的序号；最后一段末尾不完整或校验失败的记录会被截掉
+    private static long replay(Path directory, long afterSeq, ReplayHandler handler) throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        long seq = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            seq = firstSeqOf(file) - 1;
+            // 下一段的起始序号不超过 afterSeq + 1，说明本段全部已被覆盖，整段跳过
+            if (!last && firstSeqOf(segments.get(i + 1)) <= afterSeq + 1) continue;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                ByteBuffer data = ByteBuffer.allocate((int) size); // 段大小有上限，整段读入内存；不用 mmap 以便随后截断
+                while (data.hasRemaining() && channel.read(data) >= 0) { }
+                data.flip();
+                long goodEnd = 0;
+                while (data.remaining() >= JournalCodec.HEADER_BYTES) {
+                    int length = data.getInt();
+                    int checksum = data.getInt();
+                    if (length < 0 || length > data.remaining()) break;
+                    byte[] payload = new byte[length];
+                    data.get(payload);
+                    if (!JournalCodec.checksumMatches(payload, checksum)) break;
+                    seq++;
+                    if (seq > afterSeq) handler.accept(seq, JournalCodec.decode(payload));
+                    goodEnd = data.position();
+                }
+                if (goodEnd < size) {
+                    if (!last) throw new IOException("日志段损坏: " + file);
+                    channel.truncate(goodEnd); // 崩溃时写了一半的尾部记录
+                }
+            }
+        }
+        return seq;
+    }
+
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
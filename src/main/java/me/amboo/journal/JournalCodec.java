@@ -0,0 +1,172 @@
+package me.amboo.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import me.amboo.journal.JournalEvent.*;
+
+/**
+ * 日志记录的二进制格式
+ * 帧：[int 负载长度][int CRC32C][负载]，负载首字节为事件类型，其后按字段顺序写入（字符串为 int 字节数 + UTF-8 字节）
+ */
+final class JournalCodec {
+    static final int HEADER_BYTES = 8;
+
+    private static final byte ROOM_ADDED = 1;
+    private static final byte ROOM_REMOVED = 2;
+    private static final byte ORDER_PLACED = 3;
+    private static final byte ORDER_CANCELLED = 4;
+    private static final byte CHECKED_IN = 5;
+    private static final byte CHECKED_OUT = 6;
+    private static final byte CLEANING_DONE = 7;
+    private static final byte ORDERS_PLACED = 8;
+    private static final byte ROOM_PRICED = 9;
+    private static final byte ORDERS_ARCHIVED = 10;
+
+    private JournalCodec() {}
+
+    // 把事件编码成完整的一帧
+    static byte[] frame(JournalEvent event) {
+        byte[] payload = encode(event);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    static boolean checksumMatches(byte[] payload, int expected) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue() == expected;
+    }
+
+    static JournalEvent decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new java.io.ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        return switch (type) {
+            case ROOM_ADDED -> new RoomAdded(in.readInt(), readString(in), in.readDouble(), in.readDouble());
+            case ROOM_PRICED -> new RoomPriced(in.readInt(), in.readDouble());
+            case ROOM_REMOVED -> new RoomRemoved(in.readInt());
+            case ORDER_PLACED -> readOrderPlaced(in);
+            case ORDERS_PLACED -> {
+                int count = in.readInt();
+                List<OrderPlaced> orders = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) orders.add(readOrderPlaced(in));
+                yield new OrdersPlaced(orders);
+            }
+            case ORDER_CANCELLED -> new OrderCancelled(in.readInt(), in.readInt());
+            case CHECKED_IN -> new CheckedIn(in.readInt(), in.readInt());
+            case CHECKED_OUT -> new CheckedOut(in.readInt(), in.readInt());
+            case CLEANING_DONE -> new CleaningDone(in.readInt());
+            case ORDERS_ARCHIVED -> {
+                String roomType = readString(in);
+                int count = in.readInt();
+                List<Integer> orderIDs = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) orderIDs.add(in.readInt());
+                yield new OrdersArchived(roomType, orderIDs);
+            }
+            default -> throw new IOException("未知的日志事件类型: " + type);
+        };
+    }
+
+    private static byte[] encode(JournalEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            switch (event) {
+                case RoomAdded e -> {
+                    out.writeByte(ROOM_ADDED);
+                    out.writeInt(e.roomID());
+                    writeString(out, e.roomType());
+                    out.writeDouble(e.area());
+                    out.writeDouble(e.price()); // NaN 表示未定价
+                }
+                case RoomPriced e -> {
+                    out.writeByte(ROOM_PRICED);
+                    out.writeInt(e.roomID());
+                    out.writeDouble(e.price());
+                }
+                case RoomRemoved e -> {
+                    out.writeByte(ROOM_REMOVED);
+                    out.writeInt(e.roomID());
+                }
+                case OrderPlaced e -> {
+                    out.writeByte(ORDER_PLACED);
+                    writeOrderPlaced(out, e);
+                }
+                case OrdersPlaced e -> {
+                    out.writeByte(ORDERS_PLACED);
+                    out.writeInt(e.orders().size());
+                    for (OrderPlaced order : e.orders()) writeOrderPlaced(out, order);
+                }
+                case OrderCancelled e -> {
+                    out.writeByte(ORDER_CANCELLED);
+                    out.writeInt(e.orderID());
+                    out.writeInt(e.roomID());
+                }
+                case CheckedIn e -> {
+                    out.writeByte(CHECKED_IN);
+                    out.writeInt(e.orderID());
+                    out.writeInt(e.roomID());
+                }
+                case CheckedOut e -> {
+                    out.writeByte(CHECKED_OUT);
+                    out.writeInt(e.orderID());
+                    out.writeInt(e.roomID());
+                }
+                case CleaningDone e -> {
+                    out.writeByte(CLEANING_DONE);
+                    out.writeInt(e.orderID());
+                }
+                case OrdersArchived e -> {
+                    out.writeByte(ORDERS_ARCHIVED);
+                    writeString(out, e.roomType());
+                    out.writeInt(e.orderIDs().size());
+                    for (int orderID : e.orderIDs()) out.writeInt(orderID);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // 写内存流不会发生
+        }
+        return bytes.toByteArray();
+    }
+
+    private static OrderPlaced readOrderPlaced(DataInputStream in) throws IOException {
+        return new OrderPlaced(in.readInt(), readString(in), LocalDate.ofEpochDay(in.readLong()), in.readInt(), readString(in));
+    }
+
+    private static void writeOrderPlaced(DataOutputStream out, OrderPlaced e) throws IOException {
+        out.writeInt(e.orderID());
+        writeString(out, e.guestID());
+        out.writeLong(e.startDate().toEpochDay());
+        out.writeInt(e.stayTime());
+        writeString(out, e.roomType());
+    }
+
+    // 不用 writeUTF：它的长度前缀只有两个字节，超过 65535 字节的字符串会在状态已经改动之后才编码失败
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) throw new IOException("字符串长度越界: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,37 @@
+package me.amboo.journal;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 日志中的领域事件：每个事件对应一次已经成功执行的状态变更，按顺序重放即可重建 RoomService / OrderService
+ */
+public sealed interface JournalEvent {
+
+    // price 为每晚房价，NaN 表示未定价
+    record RoomAdded(int roomID, String roomType, double area, double price) implements JournalEvent {
+        public RoomAdded(int roomID, String roomType, double area) {
+            this(roomID, roomType, area, Double.NaN);
+        }
+    }
+
+    record RoomPriced(int roomID, double price) implements JournalEvent {}
+
+    record RoomRemoved(int roomID) implements JournalEvent {}
+
+    record OrderPlaced(int orderID, String guestID, LocalDate startDate, int stayTime, String roomType) implements JournalEvent {}
+
+    // 批量预订：整批作为一条记录写入，崩溃后要么整批重放，要么整批丢失
+    record OrdersPlaced(List<OrderPlaced> orders) implements JournalEvent {}
+
+    record OrderCancelled(int orderID, int roomID) implements JournalEvent {}
+
+    record CheckedIn(int orderID, int roomID) implements JournalEvent {}
+
+    record CheckedOut(int orderID, int roomID) implements JournalEvent {}
+
+    record CleaningDone(int orderID) implements JournalEvent {}
+
+    // 同一房型的一批已结束订单移入冷存储
+    record OrdersArchived(String roomType, List<Integer> orderIDs) implements JournalEvent {}
+}
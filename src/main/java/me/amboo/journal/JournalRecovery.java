@@ -0,0 +1,134 @@
+package me.amboo.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import me.amboo.journal.JournalEvent.*;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+/**
+ * 启动恢复：先装载目录中最新的快照，再重放快照切点之后的日志，然后把日志挂接到服务上继续记录
+ */
+public class JournalRecovery {
+
+    private JournalRecovery() {}
+
+    /**
+     * @return 已挂接到两个服务上的日志，退出前应调用 close
+     */
+    public static Journal recover(Path directory, RoomService roomService, OrderService orderService) {
+        HotelSnapshot.Cuts cuts = loadLatestSnapshot(directory, roomService, orderService);
+        Journal journal = Journal.open(directory, Journal.DEFAULT_SEGMENT_BYTES, cuts.base(), (seq, event) -> {
+            // 批量预订可能跨多个房型，各房型的切点不同，逐项判断
+            if (event instanceof OrdersPlaced batch) batch.orders().forEach(e -> replay(seq, e, cuts, roomService, orderService));
+            else replay(seq, event, cuts, roomService, orderService);
+        });
+        roomService.setJournal(journal);
+        orderService.setJournal(journal);
+        return journal;
+    }
+
+    private static HotelSnapshot.Cuts loadLatestSnapshot(Path directory, RoomService roomService, OrderService orderService) {
+        try {
+            Path snapshot = Snapshotter.latest(directory);
+            return snapshot == null ? HotelSnapshot.Cuts.NONE : HotelSnapshot.load(snapshot, roomService, orderService);
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：快照装载失败", e);
+        }
+    }
+
+    private static void replay(long seq, JournalEvent event, HotelSnapshot.Cuts cuts, RoomService roomService, OrderService orderService) {
+        long maxCut = cuts.max();
+        String type = typeOf(event, roomService, orderService);
+        // 1. 已包含在快照中的事件跳过；实体已不存在说明其删除早已体现在快照里
+        if (type == null ? seq <= maxCut : seq <= cuts.of(type)) return;
+        // 2. 快照复制时为空的房型：基准序号与最大切点之间的事件只有在实体已处于事件之后的状态时才跳过
+        //    （例如房号被另一房型复用、该房型复制时已包含这间房），其余照常应用，失败直接抛出
+        if (!cuts.contains(type) && seq <= maxCut && alreadyApplied(event, roomService, orderService)) return;
+        apply(event, roomService, orderService);
+    }
+
+    // 事件涉及的实体是否已经处于事件应用之后的状态
+    private static boolean alreadyApplied(JournalEvent event, RoomService roomService, OrderService orderService) {
+        return switch (event) {
+            case RoomAdded e -> {
+                Room room = roomService.findRoomById(e.roomID());
+                yield room != null && room.getRoomType().equals(e.roomType()) && room.getRoomArea().doubleValue() == e.area();
+            }
+            case RoomPriced e -> {
+                Room room = roomService.findRoomById(e.roomID());
+                yield room != null && room.getRoomPrice() != null && room.getRoomPrice().doubleValue() == e.price();
+            }
+            case RoomRemoved e -> roomService.findRoomById(e.roomID()) == null;
+            case OrderPlaced e -> {
+                Order order = orderService.getOrder(e.orderID());
+                yield order != null && order.getGuestID().equals(e.guestID()) && order.getStartDate().equals(e.startDate())
+                        && order.getStayTime() == e.stayTime() && order.getOrderType().equals(e.roomType());
+            }
+            case OrdersPlaced e -> false; // 回放时已拆成单项
+            case OrderCancelled e -> orderService.getOrder(e.orderID()) == null;
+            case CheckedIn e -> hasReached(orderService.getOrder(e.orderID()), e.roomID(), Order.OrderStatus.OCCUPIED);
+            case CheckedOut e -> hasReached(orderService.getOrder(e.orderID()), e.roomID(), Order.OrderStatus.CLEANING);
+            case CleaningDone e -> {
+                Order order = orderService.getOrder(e.orderID());
+                yield order != null && order.getStatus() == Order.OrderStatus.FINISHED;
+            }
+            case OrdersArchived e -> e.orderIDs().stream().allMatch(orderService.getArchive()::contains);
+        };
+    }
+
+    // 订单已分配在 roomID 且状态不早于 status（OCCUPIED -> CLEANING -> FINISHED）
+    private static boolean hasReached(Order order, int roomID, Order.OrderStatus status) {
+        return order != null && order.getRoomID() != null && order.getRoomID() == roomID && order.getStatus().compareTo(status) >= 0;
+    }
+
+    // 事件所属的房型；涉及的房间或订单已不存在时返回 null
+    private static String typeOf(JournalEvent event, RoomService roomService, OrderService orderService) {
+        return switch (event) {
+            case RoomAdded e -> e.roomType();
+            case OrderPlaced e -> e.roomType();
+            case OrdersPlaced e -> null; // 回放时已拆成单项
+            case RoomRemoved e -> roomTypeOf(roomService.findRoomById(e.roomID()));
+            case RoomPriced e -> roomTypeOf(roomService.findRoomById(e.roomID()));
+            case OrderCancelled e -> roomTypeOf(roomService.findRoomById(e.roomID()));
+            case CheckedIn e -> roomTypeOf(roomService.findRoomById(e.roomID()));
+            case CheckedOut e -> orderTypeOf(orderService.getOrder(e.orderID()));
+            case CleaningDone e -> orderTypeOf(orderService.getOrder(e.orderID()));
+            case OrdersArchived e -> e.roomType();
+        };
+    }
+
+    private static String roomTypeOf(Room room) {
+        return room == null ? null : room.getRoomType();
+    }
+
+    private static String orderTypeOf(Order order) {
+        return order == null ? null : order.getOrderType();
+    }
+
+    // 把一条事件重新应用到服务上；回放期间服务尚未挂接日志，因此不会重复记录。失败时附上事件内容抛出，不会被回放忽略
+    public static void apply(JournalEvent event, RoomService roomService, OrderService orderService) {
+        try {
+            switch (event) {
+                case RoomAdded e -> roomService.addRoom(Double.isNaN(e.price())
+                        ? new Room(e.roomID(), e.roomType(), e.area())
+                        : new Room(e.roomID(), e.roomType(), e.area(), e.price()));
+                case RoomPriced e -> roomService.setRoomPrice(e.roomID(), e.price());
+                case RoomRemoved e -> roomService.removeRoom(e.roomID());
+                case OrderPlaced e -> orderService.placeOrder(e.orderID(), e.guestID(), e.startDate(), e.stayTime(), e.roomType());
+                case OrdersPlaced e -> e.orders().forEach(o -> orderService.placeOrder(o.orderID(), o.guestID(), o.startDate(), o.stayTime(), o.roomType()));
+                case OrderCancelled e -> orderService.cancelOrder(e.orderID(), e.roomID());
+                case CheckedIn e -> orderService.processCheckIn(e.orderID(), e.roomID());
+                case CheckedOut e -> orderService.processCheckOut(e.orderID(), e.roomID());
+                case CleaningDone e -> orderService.processCleaning(e.orderID());
+                case OrdersArchived e -> orderService.archiveOrders(e.roomType(), e.orderIDs());
+            }
+        } catch (RuntimeException ex) {
+            throw new IllegalStateException("错误：日志回放失败，事件 " + event + "：" + ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package me.amboo.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+/**
+ * 后台快照：在独立线程中写出 snapshot-<基准序号>.bin，完成后清理旧快照和已被覆盖的日志段
+ * startAutomatic 之后按日志增长自动生成快照：距上次快照追加的事件数达到阈值，或有新事件且已超过最长间隔，
+ * 日志段随之删除，不会无限增长。手动与自动快照都在同一个后台线程中依次进行。
+ */
+public class Snapshotter implements Closeable {
+    public static final long DEFAULT_EVERY_EVENTS = 100_000;
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofHours(1);
+    public static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofSeconds(30);
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+    private final RoomService roomService;
+    private final OrderService orderService;
+    private final Journal journal;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "snapshot-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    // 以下字段只由后台线程访问
+    private long lastSeq;         // 上次快照覆盖到的日志序号
+    private long lastNanos = System.nanoTime();
+
+    public Snapshotter(Path directory, RoomService roomService, OrderService orderService, Journal journal) {
+        this.directory = directory;
+        this.roomService = roomService;
+        this.orderService = orderService;
+        this.journal = journal;
+        // 恢复时装载的快照对所有房型都覆盖到文件名中的基准序号，之后的事件才算作待快照（与每次快照后的 lastSeq 一致）
+        try {
+            Path latest = latest(directory);
+            this.lastSeq = latest == null ? 0 : baseOf(latest);
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：无法读取快照目录 " + directory, e);
+        }
+    }
+
+    // 异步生成快照，返回快照文件路径
+    public CompletableFuture<Path> snapshotAsync() {
+        return CompletableFuture.supplyAsync(this::snapshot, executor);
+    }
+
+    /**
+     * 按默认阈值启动自动快照，可用系统属性 hotel.snapshot.everyEvents、hotel.snapshot.maxAgeMinutes 调整；未挂接日志时不做任何事
+     */
+    public void startAutomatic() {
+        startAutomatic(Long.getLong("hotel.snapshot.everyEvents", DEFAULT_EVERY_EVENTS),
+                Duration.ofMinutes(Long.getLong("hotel.snapshot.maxAgeMinutes", DEFAULT_MAX_AGE.toMinutes())), DEFAULT_CHECK_INTERVAL);
+    }
+
+    /**
+     * 每隔 checkInterval 检查一次日志增长：追加了 everyEvents 条事件，或有新事件且距上次快照超过 maxAge 时生成快照
+     */
+    public void startAutomatic(long everyEvents, Duration maxAge, Duration checkInterval) {
+        if (everyEvents <= 0) throw new IllegalArgumentException("错误：自动快照的事件数阈值必须为正数");
+        if (journal == null) return;
+        long period = checkInterval.toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            long pending = journal.getAppendedSeq() - lastSeq;
+            if (pending <= 0) return;
+            if (pending < everyEvents && System.nanoTime() - lastNanos < maxAge.toNanos()) return;
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                // 定时任务抛出异常后不会再被调度；记录下来，下一轮重试
+                System.err.println("自动快照失败：" + e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // 在后台线程中执行
+    private Path snapshot() {
+        try {
+            Path tmp = directory.resolve(PREFIX + "pending" + SUFFIX);
+            HotelSnapshot.Cuts cuts = HotelSnapshot.write(tmp, roomService, orderService, journal);
+            Path file = directory.resolve(String.format("%s%019d%s", PREFIX, cuts.base(), SUFFIX));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (Path old : snapshots(directory)) {
+                if (!old.equals(file)) Files.deleteIfExists(old);
+            }
+            // 快照之前的日志段不再需要：base 之前的事件对所有房型都已包含在快照中
+            if (journal != null) journal.deleteSegmentsUpTo(cuts.base());
+            lastSeq = cuts.base();
+            lastNanos = System.nanoTime();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：快照写入失败", e);
+        }
+    }
+
+    // 目录中最新的快照，没有则返回 null
+    public static Path latest(Path directory) throws IOException {
+        List<Path> all = snapshots(directory);
+        return all.isEmpty() ? null : all.get(all.size() - 1);
+    }
+
+    private static long baseOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static List<Path> snapshots(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX) && !name.contains("pending");
+            }).sorted().toList();
+        }
+    }
+
+    // 等正在写的快照完成后再返回，调用方随后才能关闭日志；尚未执行的自动快照不再进行
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package me.amboo.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 全局性能指标：每个服务操作和算法阶段一个 OperationStats，以静态常量形式直接引用，记录时无需查表
+ * 可通过 JMX（me.amboo:type=HotelMetrics）或管理菜单查看
+ */
+public final class HotelMetrics {
+    private static final List<OperationStats> ALL = new ArrayList<>();
+    private static volatile boolean enabled = true;
+
+    // --- OrderService ---
+    public static final OperationStats PLACE_ORDER = register("order.placeOrder");
+    public static final OperationStats PLACE_ORDERS = register("order.placeOrders");
+    public static final OperationStats CHECK_IN = register("order.checkIn");
+    public static final OperationStats CHECK_OUT = register("order.checkOut");
+    public static final OperationStats CLEANING = register("order.cleaning");
+    public static final OperationStats CANCEL_ORDER = register("order.cancel");
+    public static final OperationStats GET_ORDER = register("order.get");
+    public static final OperationStats ORDER_QUERY = register("order.query");
+    public static final OperationStats ORDER_ARCHIVE = register("order.archive");
+    public static final OperationStats ROOM_ASSIGNMENT = register("order.assignRooms");
+    public static final OperationStats RESTORE_ORDERS = register("order.restore");
+
+    // --- RoomService ---
+    public static final OperationStats ADD_ROOM = register("room.add");
+    public static final OperationStats REMOVE_ROOM = register("room.remove");
+    public static final OperationStats SET_ROOM_PRICE = register("room.setPrice");
+    public static final OperationStats FIND_AVAILABLE_ROOMS = register("room.findAvailable");
+    public static final OperationStats AVAILABLE_ROOM_COUNT = register("room.availableCount");
+    public static final OperationStats FREE_ROOM_CALENDAR = register("room.freeCalendar");
+    public static final OperationStats ADVANCE_WINDOW = register("room.advanceWindow");
+    // 查询超出位图窗口、回退到逐房间检查的次数与耗时
+    public static final OperationStats AVAILABILITY_FALLBACK = register("room.availabilityFallback");
+    public static final OperationStats RESTORE_ROOMS = register("room.restore");
+
+    // --- 多酒店 ---
+    public static final OperationStats GROUP_FAN_OUT = register("group.fanOut");
+
+    // --- 收入统计 ---
+    public static final OperationStats ANALYTICS_REPORT = register("analytics.report");
+    public static final OperationStats ANALYTICS_REBUILD = register("analytics.rebuild");
+
+    // --- 算法阶段 ---
+    public static final OperationStats AOV_BUILD = register("algo.aov.build");
+    public static final OperationStats TOPO_SORT = register("algo.aov.topoSort");
+    public static final OperationStats AOE_BUILD = register("algo.aoe.build");
+    public static final OperationStats AOE_TOPO_SORT = register("algo.aoe.topoSort");
+    public static final OperationStats AOE_VE = register("algo.aoe.ve");
+    public static final OperationStats AOE_VL = register("algo.aoe.vl");
+    public static final OperationStats AOE_CRITICAL = register("algo.aoe.critical");
+    public static final OperationStats GRAPH_UPDATE = register("algo.graph.update");
+    public static final OperationStats GRAPH_SNAPSHOT = register("algo.graph.snapshot");
+    public static final OperationStats CPM_UPDATE = register("algo.cpm.update");
+
+    private HotelMetrics() {}
+
+    private static OperationStats register(String name) {
+        OperationStats stats = new OperationStats(name);
+        ALL.add(stats);
+        return stats;
+    }
+
+    public static List<OperationStats> all() {
+        return Collections.unmodifiableList(ALL);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // 关闭后 record / failed 直接返回
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static void reset() {
+        ALL.forEach(OperationStats::reset);
+    }
+
+    // 注册 JMX MBean，重复调用无副作用
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new HotelMetricsJmx(), new ObjectName(HotelMetricsJmx.OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException ignored) {
+            // 已注册
+        } catch (JMException e) {
+            throw new IllegalStateException("错误：性能指标 MBean 注册失败", e);
+        }
+    }
+
+    /**
+     * 文本报表：只列出有调用记录的操作，延迟单位为微秒
+     */
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-22s %10s %8s %10s %10s %10s %10s %10s  %s%n",
+                "操作", "次数", "失败", "平均(us)", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "失败类型"));
+        for (OperationStats s : ALL) {
+            LatencyHistogram h = s.getLatency();
+            if (h.getCount() == 0) continue;
+            out.append(String.format("%-22s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f  %s%n",
+                    s.getName(), h.getCount(), s.getFailureCount(), h.getMean() / 1e3,
+                    h.getPercentile(50) / 1e3, h.getPercentile(99) / 1e3, h.getPercentile(99.9) / 1e3, h.getMax() / 1e3,
+                    s.getFailuresByType().isEmpty() ? "" : s.getFailuresByType()));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package me.amboo.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+/**
+ * HotelMetrics 的 JMX 视图：每个操作导出 <操作>.count / failures / meanMicros / p50Micros / p99Micros / p999Micros / maxMicros
+ * 以及 <操作>.failuresByType 属性，另有 enabled 开关和 reset / dump 两个操作
+ */
+class HotelMetricsJmx implements DynamicMBean {
+    static final String OBJECT_NAME = "me.amboo:type=HotelMetrics";
+    private static final String[] FIELDS = {"count", "failures", "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros", "failuresByType"};
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (attribute.equals("enabled")) return HotelMetrics.isEnabled();
+        int dot = attribute.lastIndexOf('.');
+        if (dot > 0) {
+            String op = attribute.substring(0, dot);
+            for (OperationStats s : HotelMetrics.all()) {
+                if (s.getName().equals(op)) return field(s, attribute.substring(dot + 1), attribute);
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    private static Object field(OperationStats s, String field, String attribute) throws AttributeNotFoundException {
+        LatencyHistogram h = s.getLatency();
+        return switch (field) {
+            case "count" -> h.getCount();
+            case "failures" -> s.getFailureCount();
+            case "meanMicros" -> h.getMean() / 1e3;
+            case "p50Micros" -> h.getPercentile(50) / 1e3;
+            case "p99Micros" -> h.getPercentile(99) / 1e3;
+            case "p999Micros" -> h.getPercentile(99.9) / 1e3;
+            case "maxMicros" -> h.getMax() / 1e3;
+            case "failuresByType" -> s.getFailuresByType().toString();
+            default -> throw new AttributeNotFoundException(attribute);
+        };
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        if (!attribute.getName().equals("enabled")) throw new AttributeNotFoundException(attribute.getName());
+        HotelMetrics.setEnabled((Boolean) attribute.getValue());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String name : attributes) {
+            try {
+                list.add(new Attribute(name, getAttribute(name)));
+            } catch (AttributeNotFoundException ignored) {
+                // 按 JMX 约定跳过不存在的属性
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        AttributeList set = new AttributeList();
+        for (Attribute a : attributes.asList()) {
+            try {
+                setAttribute(a);
+                set.add(a);
+            } catch (AttributeNotFoundException ignored) {
+                // 按 JMX 约定跳过不存在的属性
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        return switch (actionName) {
+            case "reset" -> {
+                HotelMetrics.reset();
+                yield null;
+            }
+            case "dump" -> HotelMetrics.dump();
+            default -> throw new ReflectionException(new NoSuchMethodException(actionName));
+        };
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        attributes.add(new MBeanAttributeInfo("enabled", "boolean", "是否记录指标", true, true, true));
+        for (OperationStats s : HotelMetrics.all()) {
+            for (String field : FIELDS) {
+                String type = switch (field) {
+                    case "count", "failures" -> "long";
+                    case "failuresByType" -> "java.lang.String";
+                    default -> "double";
+                };
+                attributes.add(new MBeanAttributeInfo(s.getName() + "." + field, type, s.getName() + " " + field, true, false, false));
+            }
+        }
+        MBeanOperationInfo[] operations = {
+                new MBeanOperationInfo("reset", "清零全部指标", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION),
+                new MBeanOperationInfo("dump", "文本报表", new MBeanParameterInfo[0], "java.lang.String", MBeanOperationInfo.INFO),
+        };
+        return new MBeanInfo(getClass().getName(), "酒店系统性能指标", attributes.toArray(new MBeanAttributeInfo[0]),
+                null, operations, null);
+    }
+}
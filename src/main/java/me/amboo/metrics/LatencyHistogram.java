@@ -0,0 +1,94 @@
+package me.amboo.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图（纳秒），对数-线性分桶：每个 2 的幂区间再均分为 32 个子桶，相对误差不超过 1/32
+ * 桶数组在构造时一次分配，record 只做原子自增，不产生任何对象，可在业务热路径上由多线程并发调用。
+ *   [0, 64)            每个值一个桶（精确）
+ *   [2^k, 2^(k+1))     k >= 6，等分为 32 个桶
+ * 计数按线程分散到若干条带（与 LongAdder 的思路相同），不同线程记录同一延迟区间时不会争用同一缓存行；读取时再把各条带相加。
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;           // 32
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;       // 64
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BITS - 1) * SUB_BUCKETS;
+    // 条带数：不超过 CPU 数的 2 倍且不超过 8，取 2 的幂
+    private static final int STRIPES = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors() * 2));
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS); // 条带 i 占 [i * BUCKETS, (i + 1) * BUCKETS)
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(stripe() * BUCKETS + indexOf(value));
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * 百分位延迟（纳秒），返回所在桶的上界（不超过记录到的最大值）
+     * @param percentile 0 ~ 100，例如 99.9
+     */
+    public long getPercentile(double percentile) {
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < STRIPES * BUCKETS; i++) snapshot[i % BUCKETS] += counts.get(i);
+        for (long c : snapshot) n += c;
+        if (n == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) return Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < STRIPES * BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    // 按线程 ID 散列选择条带；同一线程总是落在同一条带
+    private static int stripe() {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id ^ (id >>> 7)) & (STRIPES - 1));
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BITS;                     // >= 1
+        int top = (int) (value >>> shift);              // [32, 64)
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long top = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
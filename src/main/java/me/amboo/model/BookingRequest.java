@@ -0,0 +1,8 @@
+package me.amboo.model;
+
+import java.time.LocalDate;
+
+/**
+ * 批量预订中的一项：住客、入住日期、天数、房型
+ */
+public record BookingRequest(String guestID, LocalDate startDate, int stayTime, String roomType) {}
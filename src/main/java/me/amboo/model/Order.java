@@ -3,57 +3,205 @@ package me.amboo.model;
 import java.time.LocalDate;
 import java.util.concurrent.ThreadLocalRandom;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
-
-@Getter
-@AllArgsConstructor
+/**
+ * 订单
+ * 由 OrderService 创建的订单是 OrderStore 中一个槽位的视图（享元），字段都在存储的列数组里；
+ * 直接 new 出来的订单（归档副本、快照解析、基准测试）是独立订单，字段保存在自身的 Values 中。
+ * 视图的槽位被释放（取消、归档）后，存储把最后的字段值写入 Values，此后视图改读 Values。
+ */
 public class Order {
-    private Integer orderID; // 订单ID
-    private String guestID; // 预定人ID
-    private LocalDate startDate; // 预定日期
-    private Integer stayTime; // 预定天数
-    private String orderType; //预定房间类型
-
-    private OrderStatus status; 
-    public enum OrderStatus { BOOKED, OCCUPIED, CLEANING, FINISHED } 
+    public enum OrderStatus { BOOKED, OCCUPIED, CLEANING, FINISHED }
      /* 订单状态：已预定、已入住、待清理、已结束 */
 
+    // 独立订单（或已脱离存储的视图）的字段
+    private static final class Values {
+        final int orderID;
+        final String guestID;
+        final int startDay;
+        final int stayTime;
+        final short typeCode;
+        volatile int roomID; // -1 表示未分配
+        volatile OrderStatus status; // 状态在服务层的锁内修改，volatile 保证其他线程读取可见
+
+        Values(int orderID, String guestID, int startDay, int stayTime, short typeCode, int roomID, OrderStatus status) {
+            this.orderID = orderID;
+            this.guestID = guestID;
+            this.startDay = startDay;
+            this.stayTime = stayTime;
+            this.typeCode = typeCode;
+            this.roomID = roomID;
+            this.status = status;
+        }
+    }
+
+    private final OrderStore.Chunk chunk; // 独立订单为 null
+    private final int index;
+    private final int generation;
+    private volatile Values values; // 视图在脱离存储前为 null
 
     public Order(String guestID, LocalDate startDate, Integer stayTime, String orderType){
-        // 实例化时自动生成一个 7 位随机 ID
-        this.orderID = ThreadLocalRandom.current().nextInt(1000000, 10000000);
-        this.guestID = guestID;
-        this.startDate = startDate;
-        this.stayTime = stayTime;
-        this.orderType = orderType;
-        this.status = OrderStatus.BOOKED;
+        // 实例化时自动生成一个 7 位随机 ID（可能重复，服务层改用 OrderIdGenerator 分配的 ID）
+        this(ThreadLocalRandom.current().nextInt(1000000, 10000000), guestID, startDate, stayTime, orderType);
+    }
+
+    public Order(int orderID, String guestID, LocalDate startDate, Integer stayTime, String orderType){
+        this(orderID, guestID, startDate, stayTime, orderType, null, OrderStatus.BOOKED);
+    }
+
+    public Order(Integer orderID, String guestID, LocalDate startDate, Integer stayTime, String orderType, Integer roomID, OrderStatus status) {
+        this.chunk = null;
+        this.index = -1;
+        this.generation = 0;
+        this.values = new Values(orderID, guestID, (int) startDate.toEpochDay(), stayTime, RoomTypes.codeOf(orderType),
+                roomID == null ? -1 : roomID, status);
+    }
+
+    // 存储中槽位的视图，由 OrderStore.create 创建
+    Order(OrderStore.Chunk chunk, int index, int generation) {
+        this.chunk = chunk;
+        this.index = index;
+        this.generation = generation;
+    }
+
+    OrderStore.Chunk chunk() {
+        return chunk;
+    }
+
+    int index() {
+        return index;
+    }
+
+    // 由 OrderStore.release 在递增槽位代数之前调用：把当前字段值转存到视图自身
+    void detach() {
+        OrderStore.Chunk c = chunk;
+        int i = index;
+        this.values = new Values(c.orderIDs[i], c.owner.guestName(c.guests[i]), c.startDays[i], c.stayTimes[i], c.types[i],
+                c.roomID(i), c.status(i));
+    }
+
+    // 以下读取先读列，再确认槽位仍属于本视图；否则改读转存的值
+
+    public int getOrderID() {
+        OrderStore.Chunk c = chunk;
+        if (c != null) {
+            int v = c.orderIDs[index];
+            if (c.isCurrent(index, generation)) return v;
+        }
+        return values.orderID;
+    }
+
+    public String getGuestID() {
+        OrderStore.Chunk c = chunk;
+        if (c != null) {
+            String v = c.owner.guestName(c.guests[index]); // 编码释放后可能被复用，先解码再校验
+            if (c.isCurrent(index, generation)) return v;
+        }
+        return values.guestID;
+    }
+
+    // 入住日 (epochDay)
+    public int getStartDay() {
+        OrderStore.Chunk c = chunk;
+        if (c != null) {
+            int v = c.startDays[index];
+            if (c.isCurrent(index, generation)) return v;
+        }
+        return values.startDay;
+    }
+
+    public int getStayTime() {
+        OrderStore.Chunk c = chunk;
+        if (c != null) {
+            int v = c.stayTimes[index];
+            if (c.isCurrent(index, generation)) return v;
+        }
+        return values.stayTime;
+    }
+
+    // 房型编码（见 RoomTypes）
+    public short getTypeCode() {
+        OrderStore.Chunk c = chunk;
+        if (c != null) {
+            short v = c.types[index];
+            if (c.isCurrent(index, generation)) return v;
+        }
+        return values.typeCode;
+    }
+
+    // 入住时分配的房间号，分配前为 null
+    public Integer getRoomID() {
+        int roomID;
+        OrderStore.Chunk c = chunk;
+        if (c != null) {
+            roomID = c.roomID(index);
+            if (!c.isCurrent(index, generation)) roomID = values.roomID;
+        } else {
+            roomID = values.roomID;
+        }
+        return roomID < 0 ? null : roomID;
+    }
+
+    public OrderStatus getStatus() {
+        OrderStore.Chunk c = chunk;
+        if (c != null) {
+            OrderStatus v = c.status(index);
+            if (c.isCurrent(index, generation)) return v;
+        }
+        return values.status;
+    }
+
+    public LocalDate getStartDate() {
+        return LocalDate.ofEpochDay(getStartDay()); // 预定日期
+    }
+
+    public String getOrderType() {
+        return RoomTypes.nameOf(getTypeCode()); // 预定房间类型
+    }
+
+    public int getEndDay() {
+        return getStartDay() + getStayTime();
     }
 
     public LocalDate getEndDate() {
-        return startDate.plusDays(stayTime); // 退房日期 = 预定日期 + 天数
+        return LocalDate.ofEpochDay(getEndDay()); // 退房日期 = 预定日期 + 天数
+    }
+
+    // 可变字段的修改都在服务层的锁内进行，与槽位释放互斥
+    private void setStatus(OrderStatus status) {
+        OrderStore.Chunk c = chunk;
+        if (c != null && c.isCurrent(index, generation)) c.setStatus(index, status);
+        else values.status = status;
+    }
+
+    // 由 Room 在写入 / 移除订单时调用
+    void assignRoom(Integer roomID) {
+        int value = roomID == null ? -1 : roomID;
+        OrderStore.Chunk c = chunk;
+        if (c != null && c.isCurrent(index, generation)) c.setRoomID(index, value);
+        else values.roomID = value;
     }
 
     public void CheckIn(){
-        if(status != OrderStatus.BOOKED) throw new IllegalArgumentException("该订单状态不是 BOOKED");
-        this.status = OrderStatus.OCCUPIED;
+        if(getStatus() != OrderStatus.BOOKED) throw new IllegalArgumentException("该订单状态不是 BOOKED");
+        setStatus(OrderStatus.OCCUPIED);
     }
 
     public void CheckOut(){
-        if(status != OrderStatus.OCCUPIED) throw new IllegalArgumentException("该订单状态不是 OCCUPIED");
-        this.status = OrderStatus.CLEANING;
+        if(getStatus() != OrderStatus.OCCUPIED) throw new IllegalArgumentException("该订单状态不是 OCCUPIED");
+        setStatus(OrderStatus.CLEANING);
     }
 
     public void Cleaning(){
-        if(status != OrderStatus.CLEANING) throw new IllegalArgumentException("该订单状态不是 CLEANING");
-        this.status = OrderStatus.FINISHED;
+        if(getStatus() != OrderStatus.CLEANING) throw new IllegalArgumentException("该订单状态不是 CLEANING");
+        setStatus(OrderStatus.FINISHED);
     }
 
     // 判断当前预订是否与另一段时间冲突
     // 逻辑：计算目标订单时间区间与已有订单时间区间是否有交集
     public boolean cantBeBook(LocalDate start, int days) {
-        LocalDate end = start.plusDays(days);
+        long from = start.toEpochDay();
+        long end = from + days;
         // 逻辑：(预订开始时间 < 上一订单退房时间) 且 (预订结束时间 > 上一订单入住时间)
-        return start.isBefore(this.getEndDate()) && end.isAfter(this.startDate);
+        return from < this.getEndDay() && end > this.getStartDay();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+package me.amboo.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import me.amboo.model.Order.OrderStatus;
+
+/**
+ * 订单的列式存储：每个字段一列基本类型数组，以 4096 个槽位为一块按需分配，块一旦分配不再移动
+ *   不可变列：订单号、住客编码、入住日(epochDay)、天数、房型编码
+ *   可变列：  状态、房号（-1 未分配），按 volatile 语义读写
+ *   代数列：  槽位每被释放一次加一，视图据此判断自己是否仍占有该槽位
+ * Order 是某个槽位的视图，对象里只有块引用、块内下标和代数。取消、归档的订单释放槽位后可被新订单复用：
+ * 释放时先把最后的字段值写入视图自身，再递增代数；视图读取字段后校验代数（顺序锁式），不一致就改读自身保存的值。
+ * 住客编码按引用计数，随槽位释放归还字典，住客不再有实时订单后编码可复用。
+ * 分配与释放在对象锁内进行（OrderService 为每个房型条带建一个存储，正常运行时锁不会发生争用）；
+ * 按列扫描（快照、按房型遍历）只读取基本类型数组，调用方持有对应房型锁时结果一致。
+ */
+public final class OrderStore {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    // 一块槽位的各列
+    static final class Chunk {
+        final OrderStore owner;
+        final int base; // 块内第一个槽位的编号
+        final int[] orderIDs = new int[CHUNK_SIZE];
+        final int[] guests = new int[CHUNK_SIZE];
+        final int[] startDays = new int[CHUNK_SIZE];
+        final int[] stayTimes = new int[CHUNK_SIZE];
+        final short[] types = new short[CHUNK_SIZE];
+        final byte[] statuses = new byte[CHUNK_SIZE];
+        final int[] roomIDs = new int[CHUNK_SIZE];
+        final int[] generations = new int[CHUNK_SIZE];
+        final Order[] views = new Order[CHUNK_SIZE]; // 当前占用槽位的视图，空闲为 null
+
+        Chunk(OrderStore owner, int base) {
+            this.owner = owner;
+            this.base = base;
+        }
+
+        // 在读取某列之后调用：槽位仍属于代数为 generation 的视图时返回 true
+        boolean isCurrent(int index, int generation) {
+            VarHandle.loadLoadFence();
+            return (int) INTS.getVolatile(generations, index) == generation;
+        }
+
+        OrderStatus status(int index) {
+            return STATUSES[(byte) BYTES.getVolatile(statuses, index)];
+        }
+
+        void setStatus(int index, OrderStatus status) {
+            BYTES.setVolatile(statuses, index, (byte) status.ordinal());
+        }
+
+        int roomID(int index) {
+            return (int) INTS.getVolatile(roomIDs, index);
+        }
+
+        void setRoomID(int index, int roomID) {
+            INTS.setVolatile(roomIDs, index, roomID);
+        }
+    }
+
+    // 按列扫描时逐个读取订单字段，不经过视图
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int orderID, String guestID, int startDay, int stayTime, int roomID, OrderStatus status);
+    }
+
+    private final StringDictionary guests; // 住客编码，可由多个存储共享
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int limit; // 已使用过的最大槽位数
+    private int[] free = new int[16];
+    private int freeCount;
+    private int live;
+
+    public OrderStore(StringDictionary guests) {
+        this.guests = guests;
+    }
+
+    /**
+     * 分配槽位并写入一个订单
+     * @param roomID 未分配房间时为 null
+     */
+    public synchronized Order create(int orderID, String guestID, int startDay, int stayTime, String roomType, Integer roomID, OrderStatus status) {
+        int slot = freeCount > 0 ? free[--freeCount] : limit;
+        if (slot == limit) {
+            if (slot >>> CHUNK_BITS == chunks.length) {
+                Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                grown[chunks.length] = new Chunk(this, slot);
+                chunks = grown;
+            }
+            limit = slot + 1;
+        }
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        int i = slot & CHUNK_MASK;
+        // 持有旧视图的读者若读到下面的新值，也一定能看到释放时递增的代数
+        VarHandle.storeStoreFence();
+        chunk.orderIDs[i] = orderID;
+        chunk.guests[i] = guests.acquire(guestID);
+        chunk.startDays[i] = startDay;
+        chunk.stayTimes[i] = stayTime;
+        chunk.types[i] = RoomTypes.codeOf(roomType);
+        chunk.setRoomID(i, roomID == null ? -1 : roomID);
+        chunk.setStatus(i, status);
+        Order view = new Order(chunk, i, (int) INTS.getVolatile(chunk.generations, i));
+        chunk.views[i] = view;
+        live++;
+        return view;
+    }
+
+    /**
+     * 释放订单占用的槽位：字段的最终值转存到视图自身，之后该视图与槽位脱离，槽位可以复用
+     */
+    public synchronized void release(Order order) {
+        if (!contains(order)) throw new IllegalArgumentException("错误：订单 " + order.getOrderID() + " 不在该存储中");
+        Chunk chunk = order.chunk();
+        int i = order.index();
+        order.detach();
+        chunk.views[i] = null;
+        INTS.setVolatile(chunk.generations, i, chunk.generations[i] + 1);
+        guests.release(chunk.guests[i]); // 代数已递增：旧视图不会再用这个编码解码
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = chunk.base + i;
+        live--;
+    }
+
+    // 订单是否是本存储中仍占有槽位的视图
+    public boolean contains(Order order) {
+        Chunk chunk = order.chunk();
+        return chunk != null && chunk.owner == this && chunk.views[order.index()] == order;
+    }
+
+    // 供 Order 解码住客编码
+    String guestName(int code) {
+        return guests.name(code);
+    }
+
+    // --- 按列扫描 ---
+
+    // 逐个访问房型 roomType 的订单字段；房型从未出现时不访问任何订单
+    public void forEach(String roomType, Visitor visitor) {
+        short type = RoomTypes.find(roomType);
+        if (type < 0) return;
+        int end = limit; // 先读 limit 再读块数组，块一定覆盖到 end
+        Chunk[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            Chunk chunk = current[c];
+            int n = Math.min(CHUNK_SIZE, end - (c << CHUNK_BITS));
+            for (int i = 0; i < n; i++) {
+                if (chunk.types[i] != type || chunk.views[i] == null) continue;
+                visitor.visit(chunk.orderIDs[i], guests.name(chunk.guests[i]), chunk.startDays[i], chunk.stayTimes[i],
+                        chunk.roomID(i), chunk.status(i));
+            }
+        }
+    }
+
+    // 逐个访问房型 roomType 的订单视图
+    public void forEachOrder(String roomType, Consumer<Order> action) {
+        short type = RoomTypes.find(roomType);
+        if (type < 0) return;
+        int end = limit;
+        Chunk[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            Chunk chunk = current[c];
+            int n = Math.min(CHUNK_SIZE, end - (c << CHUNK_BITS));
+            for (int i = 0; i < n; i++) {
+                Order view = chunk.views[i];
+                if (view != null && chunk.types[i] == type) action.accept(view);
+            }
+        }
+    }
+
+    // 存储中有订单的房型
+    public Set<String> roomTypes() {
+        Set<Short> codes = new HashSet<>();
+        int end = limit;
+        Chunk[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            Chunk chunk = current[c];
+            int n = Math.min(CHUNK_SIZE, end - (c << CHUNK_BITS));
+            for (int i = 0; i < n; i++) {
+                if (chunk.views[i] != null) codes.add(chunk.types[i]);
+            }
+        }
+        Set<String> types = new HashSet<>();
+        for (short code : codes) types.add(RoomTypes.nameOf(code));
+        return types;
+    }
+
+    // 占有槽位的订单数
+    public synchronized int size() {
+        return live;
+    }
+
+    // 已分配块的列数组字节数（不含视图对象本身）
+    public long allocatedBytes() {
+        return (long) chunks.length * CHUNK_SIZE * (4 * 6 + 2 + 1 + 4);
+    }
+}
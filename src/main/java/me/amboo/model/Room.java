@@ -3,10 +3,14 @@ package me.amboo.model;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import me.amboo.model.Order.OrderStatus;
 
@@ -14,76 +18,167 @@ import me.amboo.model.Order.OrderStatus;
 public class Room {
 
     private final int roomID;
-    private final String roomType; // 房间类型
+    private final short typeCode; // 房间类型（RoomTypes 中的编码）
     private final BigDecimal roomArea; // 房间面积
-    private BigDecimal roomPrice;
+    private BigDecimal roomPrice; // 每晚房价，null 表示尚未定价（不计收入）
 
-    private Map<Integer, Order> orderIdIndex = new HashMap<>();
-    private Map<LocalDate, Order> orderIndexByDay  = new HashMap<>();
-
-// 关键：存储该房间所有的预订记录
-    private List<Order> orderList = new ArrayList<>();
+    // 写操作由服务层的房间锁串行化；使用并发容器使无锁读取（打印、回退扫描）不会抛出并发修改异常
+    private Map<Integer, Order> orderIdIndex = new ConcurrentHashMap<>();
+    // 区间索引：入住日(epochDay) -> 订单。房间内各订单区间 [入住日, 退房日) 互不重叠，
+    // 因此按入住日排序后退房日也有序，冲突检测只需看一个相邻区间
+    private NavigableMap<Long, Order> orderIntervals = new ConcurrentSkipListMap<>();
 
     LocalDate checkInDate; // 实际入住日期
 
+    // 订单变化监听器（可用性索引等）
+    @Getter(AccessLevel.NONE)
+    private final List<RoomListener> listeners = new CopyOnWriteArrayList<>();
+
     public Room(int id, String type, double area){
         if(area <= 0){ throw new IllegalArgumentException("房间面积必须大于0"); }
 
         this.roomID = id;
-        this.roomType = type;
+        this.typeCode = RoomTypes.codeOf(type);
         // 使用 valueOf 避免double的精度失真；area不直接使用String类型是为了便于判断其是否为正数
         this.roomArea = BigDecimal.valueOf(area);
     }
 
+    public Room(int id, String type, double area, double price){
+        this(id, type, area);
+        this.roomPrice = priceOf(price);
+    }
+
+    public String getRoomType() {
+        return RoomTypes.nameOf(typeCode);
+    }
+
+    // 楼层规则：房间号除以 100（查房图、楼层统计与 RoomService 的楼层索引共用）
+    public static int floorOf(int roomID) {
+        return roomID / 100;
+    }
+
+    public int getFloor() {
+        return floorOf(roomID);
+    }
+
+    // 修改房价应通过 RoomService.setRoomPrice，以便同步收入统计并记录日志
+    public void setRoomPrice(double price) {
+        this.roomPrice = priceOf(price);
+    }
+
+    // 构造器与 setRoomPrice 共用的校验，构造器不调用可被覆盖的方法
+    private static BigDecimal priceOf(double price) {
+        if (price < 0 || Double.isNaN(price)) throw new IllegalArgumentException("房价不能为负数");
+        return BigDecimal.valueOf(price);
+    }
+
     public void addOrder(Order newOrder) {
-        if (!this.roomType.equals(newOrder.getOrderType())) {
+        if (newOrder.getTypeCode() != typeCode) {
             throw new IllegalArgumentException("房间类型不匹配");
         }
+        // 区间索引以入住日为键，0 天的订单会与同日订单相互覆盖
+        if (newOrder.getStayTime() <= 0) {
+            throw new IllegalArgumentException("预定天数必须大于0");
+        }
 
-        // 检查时间冲突 
-        for (Order i : orderList) {     // 遍历已有订单
-            if (i.cantBeBook(newOrder.getStartDate(), newOrder.getStayTime())) { 
-                throw new IllegalStateException("该时间段该房间已被预订");
-            }
+        // 检查时间冲突：O(log n)
+        long start = newOrder.getStartDay();
+        if (overlaps(start, start + newOrder.getStayTime())) {
+            throw new IllegalStateException("该时间段该房间已被预订");
         }
 
         // 如果没冲突，添加预订
-        this.orderList.add(newOrder);
+        this.orderIntervals.put(start, newOrder);
         this.orderIdIndex.put(newOrder.getOrderID(), newOrder);
-        for (int i = 0; i < newOrder.getStayTime(); i++) {
-            LocalDate date = newOrder.getStartDate().plusDays(i);
-            this.orderIndexByDay.put(date, newOrder);
-        }
+        newOrder.assignRoom(roomID);
+        listeners.forEach(l -> l.onOrderAdded(this, newOrder));
     }
 
     public void deleteOrder(Integer id) {
         // 从 Map 中获取并移除订单对象
         Order removedOrder = this.orderIdIndex.remove(id);
 
-        // 如果订单确实存在，则从 List 中也移除它
+        // 如果订单确实存在，则从区间索引中也移除它
         if (removedOrder != null) {
-            this.orderList.remove(removedOrder);
-            for (int i = 0; i < removedOrder.getStayTime(); i++) {
-                LocalDate date = removedOrder.getStartDate().plusDays(i);
-                this.orderIndexByDay.remove(date, removedOrder);
-        }
+            this.orderIntervals.remove((long) removedOrder.getStartDay(), removedOrder);
+            removedOrder.assignRoom(null);
+            listeners.forEach(l -> l.onOrderRemoved(this, removedOrder));
         } else {
             throw new IllegalArgumentException("错误：订单 ID " + id + " 不存在");
         }
     }
 
+    /**
+     * 把已结束的订单移出房间（归档）；订单仍保留房号，供冷存储记录
+     * @return 订单不在该房间（例如房间已被删除后重建）时返回 false
+     */
+    public boolean archiveOrder(Order order) {
+        if (order.getStatus() != OrderStatus.FINISHED) {
+            throw new IllegalStateException("错误：订单 " + order.getOrderID() + " 尚未结束，不能归档");
+        }
+        if (!this.orderIdIndex.remove(order.getOrderID(), order)) return false;
+        this.orderIntervals.remove((long) order.getStartDay(), order);
+        listeners.forEach(l -> l.onOrderArchived(this, order));
+        return true;
+    }
+
     public Boolean canBeDistribute(LocalDate targetDate, Integer stayTime) {
+        long start = targetDate.toEpochDay();
         // 检查昨天的订单状态
-        Order lastOrder = this.orderIndexByDay.get(targetDate.minusDays(1));
+        Order lastOrder = orderCovering(start - 1);
         if(lastOrder != null && lastOrder.getStatus() != OrderStatus.FINISHED) return false;
         //     ^     这里之前出现过空指针，所以要先判断
 
-         // 检查从入住日开始的每一天，房间是否已经被预订
-        for (int i = 0; i < stayTime; i++) {
-            LocalDate dateToCheck = targetDate.plusDays(i);
-            if (this.orderIndexByDay.containsKey(dateToCheck)) return false;
+        // 检查入住区间内房间是否已经被预订
+        return !overlaps(start, start + stayTime);
+    }
+
+    // 从 date 起房间连续空闲到哪一天：其后第一个订单的入住日 (epochDay)，之后没有订单时返回 Long.MAX_VALUE
+    // date 当天已被占用时结果没有意义，调用方应先用 canBeDistribute 判断
+    public long freeUntil(LocalDate date) {
+        Long next = orderIntervals.ceilingKey(date.toEpochDay());
+        return next == null ? Long.MAX_VALUE : next;
+    }
+
+    // 已绑定订单的状态变化（退房、打扫完成）后由服务层调用，通知各监听器
+    public void orderStatusChanged(Order order) {
+        if (orderIdIndex.get(order.getOrderID()) != order) {
+            throw new IllegalArgumentException("错误：订单 " + order.getOrderID() + " 不属于房间 " + roomID);
         }
-        return true;
+        listeners.forEach(l -> l.onOrderStatusChanged(this, order));
+    }
+
+    public void addListener(RoomListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(RoomListener listener) {
+        listeners.remove(listener);
+    }
+
+    // 查询某一天占用该房间的订单，没有则返回 null
+    public Order getOrderOn(LocalDate date) {
+        return orderCovering(date.toEpochDay());
+    }
+
+    // 该房间所有的预订记录，按入住日期排序
+    public List<Order> getOrderList() {
+        return new ArrayList<>(orderIntervals.values());
+    }
+
+    // 区间 [start, end) 是否与已有订单相交：只需检查入住日在 end 之前的最后一个订单
+    private boolean overlaps(long start, long end) {
+        Map.Entry<Long, Order> entry = orderIntervals.lowerEntry(end);
+        return entry != null && endDay(entry.getValue()) > start;
+    }
+
+    private Order orderCovering(long day) {
+        Map.Entry<Long, Order> entry = orderIntervals.floorEntry(day);
+        return entry != null && endDay(entry.getValue()) > day ? entry.getValue() : null;
+    }
+
+    private static long endDay(Order order) {
+        return order.getEndDay();
     }
 
 }
@@ -0,0 +1,21 @@
+package me.amboo.model;
+
+/**
+ * 房间订单变化监听器
+ * 可用性索引等派生数据结构通过它与 Room 内部的订单记录保持同步
+ */
+public interface RoomListener {
+    // 订单写入房间之后调用
+    void onOrderAdded(Room room, Order order);
+
+    // 订单从房间移除之后调用
+    void onOrderRemoved(Room room, Order order);
+
+    // 已绑定到房间的订单状态发生变化之后调用
+    default void onOrderStatusChanged(Room room, Order order) {}
+
+    // 已结束的订单移入冷存储之后调用；默认与移除相同，需要保留历史的监听器（如收入统计）可以覆盖
+    default void onOrderArchived(Room room, Order order) {
+        onOrderRemoved(room, order);
+    }
+}
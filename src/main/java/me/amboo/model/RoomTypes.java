@@ -0,0 +1,31 @@
+package me.amboo.model;
+
+/**
+ * 进程内共享的房型字典：房型名 <-> short 编码
+ * Room 与 Order 只保存编码，房型比较是一次整数比较；getRoomType / getOrderType 返回字典中唯一的字符串实例。
+ */
+public final class RoomTypes {
+    public static final int MAX_NAME_LENGTH = 64; // 房型名写进日志与快照，长度有上限
+
+    private static final StringDictionary TYPES = new StringDictionary();
+
+    private RoomTypes() {}
+
+    // 房型的编码，首次出现时登记
+    public static short codeOf(String roomType) {
+        if (roomType == null) throw new IllegalArgumentException("错误：房型不能为空");
+        if (roomType.length() > MAX_NAME_LENGTH) throw new IllegalArgumentException("错误：房型名不能超过 " + MAX_NAME_LENGTH + " 个字符");
+        int code = TYPES.intern(roomType);
+        if (code > Short.MAX_VALUE) throw new IllegalStateException("错误：房型数量超出上限");
+        return (short) code;
+    }
+
+    // 只查找不登记，从未出现过的房型返回 -1
+    public static short find(String roomType) {
+        return roomType == null ? -1 : (short) TYPES.find(roomType);
+    }
+
+    public static String nameOf(int code) {
+        return TYPES.name(code);
+    }
+}
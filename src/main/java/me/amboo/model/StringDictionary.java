@@ -0,0 +1,104 @@
+package me.amboo.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 字符串字典：把重复出现的字符串（房型、住客 ID）编码成从 0 开始的整数，每个不同的字符串只存一份
+ * 两种编码：
+ *   intern：永久编码（房型），之后一直有效；
+ *   acquire / release：按引用计数的编码（住客），最后一个引用释放后编码回收复用，字典不会随历史住客无限增长。
+ * 查找、解码与已有编码的计数增减无锁；新增、回收编码在对象锁内进行，先写入名称表再登记编码，拿到编码的线程一定能解码。
+ * 回收的编码可能被新字符串复用：持有编码的一方须在释放之前完成解码（OrderStore 的视图先解码再校验槽位代数）。
+ */
+public final class StringDictionary {
+    private static final int PINNED = Integer.MAX_VALUE;
+
+    // refs 为引用数，PINNED 表示永久编码，-1 表示已回收
+    private static final class Entry {
+        final String value;
+        final int code;
+        final AtomicInteger refs;
+
+        Entry(String value, int code, int refs) {
+            this.value = value;
+            this.code = code;
+            this.refs = new AtomicInteger(refs);
+        }
+
+        // 编码仍然有效时加一个引用
+        boolean retain() {
+            for (int r = refs.get(); r > 0; r = refs.get()) {
+                if (r == PINNED || refs.compareAndSet(r, r + 1)) return true;
+            }
+            return false;
+        }
+    }
+
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+    private volatile Entry[] entries = new Entry[16];
+    private int size;                    // 以下由对象锁保护：用过的最大编码 + 1
+    private int[] free = new int[16];    // 回收待复用的编码
+    private int freeCount;
+
+    // 取得永久编码，没有则新增
+    public int intern(String value) {
+        Entry entry = codes.get(value);
+        return entry != null && entry.refs.get() == PINNED ? entry.code : add(value, true);
+    }
+
+    // 取得编码并加一个引用，没有则新增；与 release 成对调用
+    public int acquire(String value) {
+        Entry entry = codes.get(value);
+        return entry != null && entry.retain() ? entry.code : add(value, false);
+    }
+
+    // 减一个引用，最后一个引用释放后编码回收
+    public void release(int code) {
+        Entry entry = entries[code];
+        if (entry.refs.get() == PINNED || entry.refs.decrementAndGet() != 0) return;
+        synchronized (this) {
+            // 期间可能已被 acquire 重新引用（0 -> 1）
+            if (!entry.refs.compareAndSet(0, -1)) return;
+            codes.remove(entry.value, entry);
+            if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+            free[freeCount++] = code;
+        }
+    }
+
+    private synchronized int add(String value, boolean pin) {
+        Entry entry = codes.get(value);
+        if (entry != null) {
+            if (pin) entry.refs.set(PINNED);
+            else if (!entry.retain()) entry.refs.compareAndSet(0, 1); // 引用数刚降到 0、尚未回收：就地恢复
+            return entry.code;
+        }
+        int code = freeCount > 0 ? free[--freeCount] : size++;
+        Entry[] current = entries;
+        if (code == current.length) current = Arrays.copyOf(current, current.length * 2);
+        current[code] = new Entry(value, code, pin ? PINNED : 1);
+        entries = current;
+        codes.put(value, current[code]);
+        return code;
+    }
+
+    // 只查找不新增，不存在时返回 -1
+    public int find(String value) {
+        Entry entry = codes.get(value);
+        return entry == null ? -1 : entry.code;
+    }
+
+    // 读到的编码若来自尚未可见的新增（视图读到被复用槽位的新值），返回 null，由调用方校验后丢弃
+    public String name(int code) {
+        Entry[] current = entries;
+        Entry entry = code < current.length ? current[code] : null;
+        return entry == null ? null : entry.value;
+    }
+
+    // 当前有效的编码数
+    public int size() {
+        return codes.size();
+    }
+}
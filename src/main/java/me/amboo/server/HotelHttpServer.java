@@ -0,0 +1,608 @@
+package me.amboo.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import me.amboo.algorithm.AOECalculator;
+import me.amboo.algorithm.AOENetwork;
+import me.amboo.algorithm.AOVNetwork;
+import me.amboo.algorithm.TopoSort;
+import me.amboo.algorithm.WeightGenerator;
+import me.amboo.analytics.RevenueAnalytics;
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.metrics.LatencyHistogram;
+import me.amboo.metrics.OperationStats;
+import me.amboo.model.BookingRequest;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.AvailabilityCache;
+import me.amboo.service.BatchBookingResult;
+import me.amboo.service.HotelGroup;
+import me.amboo.service.OrderArchive;
+import me.amboo.service.OrderService;
+import me.amboo.service.PropertyShard;
+import me.amboo.service.RoomAssignmentEngine;
+import me.amboo.service.RoomService;
+
+/**
+ * 无界面服务模式：基于 JDK 内置 HttpServer，以 JSON 提供与 HotelController 相同的操作
+ * 每个请求在独立的虚拟线程中执行，阻塞在锁或日志落盘上的请求不占用平台线程，单进程即可承载上千并发连接。
+ * 并发安全由服务层的条带锁保证，这里不再加锁。
+ *
+ * 用户接口：
+ *   POST /api/orders                     预订 {guestID, startDate, stayTime, roomType}
+ *   GET  /api/orders/{id}                查询订单
+ *   POST /api/orders/{id}/check-in       入住 {roomID}，不传 roomID 时按自动排房计划分配
+ *   POST /api/orders/{id}/check-out      退房 {roomID}
+ *   GET  /api/rooms/available            空房 ?roomType=&startDate=&stayTime=
+ * 多酒店接口（{property} 为酒店 ID，本机默认酒店的 ID 为 DEFAULT_PROPERTY）：
+ *   GET  /api/properties                 全部酒店 ID
+ *   GET  /api/properties/rooms/available 全部酒店的空房，按酒店 ID 分组 ?roomType=&startDate=&stayTime=
+ *   POST /api/properties/{property}/orders       在指定酒店预订 {guestID, startDate, stayTime, roomType}
+ *   GET  /api/properties/{property}/orders/{id}  查询指定酒店的订单
+ *   GET  /api/properties/{property}/rooms/available  指定酒店的空房
+ * 管理接口（请求头 X-Admin-Password）：
+ *   POST   /api/admin/orders/batch       团体批量预订 {orders: [...]}
+ *   GET    /api/admin/orders             订单查询 ?guestID= | ?status= | ?from=&to=（不含）[&roomType=][&status=]
+ *   GET    /api/admin/orders/arrivals    预抵订单 ?date=（缺省为今天）
+ *   POST   /api/admin/orders/assignments 为当天预抵订单排房 ?date=（缺省为今天）[&fresh=true 全新排房，缺省在上一版计划上修补]
+ *   GET    /api/admin/orders/archive     订单冷存储统计
+ *   POST   /api/admin/orders/archive     归档退房日早于 ?before= 的已结束订单（缺省按保留天数）
+ *   POST   /api/admin/orders/{id}/cleaning  打扫完成
+ *   DELETE /api/admin/orders/{id}        强制删除订单 ?roomID=
+ *   GET    /api/admin/rooms              全部房间
+ *   POST   /api/admin/rooms              添加房间 {roomID, roomType, area, price?}
+ *   POST   /api/admin/rooms/{id}/price   修改房价 {price}
+ *   DELETE /api/admin/rooms/{id}         删除房间
+ *   GET    /api/admin/rooms/{id}/orders  房间预订记录
+ *   GET    /api/admin/algorithm/topo     AOV 拓扑序列
+ *   GET    /api/admin/algorithm/critical-path  AOE 关键路径（含每个活动的时差）
+ *   POST   /api/admin/algorithm/delays   上报查房延误 {from, to, minutes}，返回新的总耗时
+ *   DELETE /api/admin/algorithm/delays   撤销全部延误
+ *   GET    /api/admin/algorithm/weights  图权值分布
+ *   POST   /api/admin/algorithm/reseed   重设权值种子 {seed}，不传 seed 时随机选取
+ *   GET    /api/admin/metrics            各操作的次数、失败数与延迟分位数（微秒）
+ *   GET    /api/admin/analytics          营收报表 ?from=&to=（不含）&by=type|floor
+ *   POST   /api/admin/analytics/rebuild  从全部订单并行重建营收统计
+ *   GET    /api/admin/cache/availability 可用房查询缓存的命中 / 未命中 / 淘汰 / 失效统计
+ *   POST   /api/admin/cache/availability 开关缓存 {enabled}
+ */
+public class HotelHttpServer {
+    private static final int BACKLOG = 4096;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final String ADMIN_HEADER = "X-Admin-Password";
+
+    public static final String DEFAULT_PROPERTY = "A";
+
+    private final RoomService roomService;
+    private final OrderService orderService;
+    private final HotelGroup group;
+    private final String adminPassword;
+    private final List<Route> routes = new ArrayList<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public HotelHttpServer(RoomService roomService, OrderService orderService, String adminPassword) {
+        this(roomService, orderService, singleProperty(roomService, orderService), adminPassword);
+    }
+
+    // group 中应已包含 roomService / orderService 所属的默认酒店；未加前缀的接口都作用于默认酒店
+    public HotelHttpServer(RoomService roomService, OrderService orderService, HotelGroup group, String adminPassword) {
+        this.roomService = roomService;
+        this.orderService = orderService;
+        this.group = group;
+        this.adminPassword = adminPassword;
+        registerRoutes();
+    }
+
+    private static HotelGroup singleProperty(RoomService roomService, OrderService orderService) {
+        HotelGroup group = new HotelGroup();
+        group.addProperty(PropertyShard.of(DEFAULT_PROPERTY, roomService, orderService));
+        return group;
+    }
+
+    // 请求上下文：路径参数、查询参数、JSON 请求体
+    private record Request(Map<String, String> path, Map<String, String> query, Map<String, Object> body) {
+        // 路径参数优先：请求体或查询串里的同名字段不能改写 URL 中的 {id} / {property}
+        private Object value(String name) {
+            if (path.containsKey(name)) return path.get(name);
+            return body.containsKey(name) ? body.get(name) : query.get(name);
+        }
+
+        String text(String name) {
+            Object value = value(name);
+            if (value == null) throw new IllegalArgumentException("错误：缺少参数 " + name);
+            return value.toString();
+        }
+
+        int integer(String name) {
+            Object value = value(name);
+            if (value instanceof Number n) return Math.toIntExact(n.longValue());
+            return Integer.parseInt(text(name));
+        }
+
+        long longValue(String name) {
+            Object value = value(name);
+            if (value instanceof Number n) return n.longValue();
+            return Long.parseLong(text(name));
+        }
+
+        double decimal(String name) {
+            Object value = value(name);
+            if (value instanceof Number n) return n.doubleValue();
+            return Double.parseDouble(text(name));
+        }
+
+        LocalDate date(String name) {
+            return LocalDate.parse(text(name));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Request request) throws Exception;
+    }
+
+    private record Route(String method, String[] segments, boolean admin, int status, Handler handler) {}
+
+    private void registerRoutes() {
+        // --- 用户侧 ---
+        route("POST", "/api/orders", false, 201, r ->
+                orderJson(orderService.placeOrder(r.text("guestID"), r.date("startDate"), r.integer("stayTime"), r.text("roomType"))));
+        route("GET", "/api/orders/{id}", false, 200, r -> orderJson(findOrder(r.integer("id"))));
+        route("POST", "/api/orders/{id}/check-in", false, 200, r -> {
+            if (r.body().get("roomID") == null && !r.query().containsKey("roomID")) {
+                orderService.getAssignments().checkIn(r.integer("id"));
+            } else {
+                orderService.processCheckIn(r.integer("id"), r.integer("roomID"));
+            }
+            return orderJson(findOrder(r.integer("id")));
+        });
+        route("POST", "/api/orders/{id}/check-out", false, 200, r -> {
+            orderService.processCheckOut(r.integer("id"), r.integer("roomID"));
+            return orderJson(findOrder(r.integer("id")));
+        });
+        route("GET", "/api/rooms/available", false, 200, r ->
+                roomService.findAvailableRooms(r.date("startDate"), r.integer("stayTime"), r.text("roomType"))
+                        .stream().map(HotelHttpServer::roomJson).toList());
+
+        // --- 多酒店 ---
+        route("GET", "/api/properties", false, 200, r -> Map.of("properties", group.getPropertyIDs()));
+        route("GET", "/api/properties/rooms/available", false, 200, r -> {
+            Map<String, Object> json = new LinkedHashMap<>();
+            group.findAvailableRooms(r.date("startDate"), r.integer("stayTime"), r.text("roomType")).forEach((property, rooms) ->
+                    json.put(property, rooms.stream().map(HotelHttpServer::roomJson).toList()));
+            return json;
+        });
+        route("POST", "/api/properties/{property}/orders", false, 201, r ->
+                orderJson(group.placeOrder(property(r), r.text("guestID"), r.date("startDate"), r.integer("stayTime"), r.text("roomType"))));
+        route("GET", "/api/properties/{property}/orders/{id}", false, 200, r -> {
+            Order order = group.getOrder(property(r), r.integer("id"));
+            if (order == null) throw new NotFoundException("错误：未找到 ID 为 " + r.integer("id") + " 的订单");
+            return orderJson(order);
+        });
+        route("GET", "/api/properties/{property}/rooms/available", false, 200, r ->
+                group.findAvailableRooms(property(r), r.date("startDate"), r.integer("stayTime"), r.text("roomType"))
+                        .stream().map(HotelHttpServer::roomJson).toList());
+
+        // --- 管理侧 ---
+        route("POST", "/api/admin/orders/batch", true, 200, this::bookBatch);
+        route("GET", "/api/admin/orders", true, 200, this::searchOrders);
+        route("GET", "/api/admin/orders/arrivals", true, 200, r -> {
+            LocalDate date = r.query().containsKey("date") ? r.date("date") : LocalDate.now();
+            return orderService.getArrivals(date).stream().map(HotelHttpServer::orderJson).toList();
+        });
+        route("POST", "/api/admin/orders/assignments", true, 200, r -> {
+            LocalDate date = r.query().containsKey("date") ? r.date("date") : LocalDate.now();
+            RoomAssignmentEngine engine = orderService.getAssignments();
+            return planJson(Boolean.parseBoolean(r.query().get("fresh")) ? engine.plan(date) : engine.reoptimize(date));
+        });
+        route("GET", "/api/admin/orders/archive", true, 200, r -> archiveJson(0));
+        route("POST", "/api/admin/orders/archive", true, 200, r -> {
+            LocalDate before = r.query().containsKey("before") ? r.date("before") : orderService.getArchive().defaultCutoff(LocalDate.now());
+            return archiveJson(orderService.archiveFinished(before));
+        });
+        route("POST", "/api/admin/orders/{id}/cleaning", true, 200, r -> {
+            orderService.processCleaning(r.integer("id"));
+            return orderJson(findOrder(r.integer("id")));
+        });
+        route("DELETE", "/api/admin/orders/{id}", true, 200, r -> {
+            orderService.cancelOrder(r.integer("id"), r.integer("roomID"));
+            return Map.of("deleted", r.integer("id"));
+        });
+        route("GET", "/api/admin/rooms", true, 200, r ->
+                roomService.getAllRooms().stream().map(HotelHttpServer::roomJson).toList());
+        route("POST", "/api/admin/rooms", true, 201, r -> {
+            Room room = r.body().get("price") == null
+                    ? new Room(r.integer("roomID"), r.text("roomType"), r.decimal("area"))
+                    : new Room(r.integer("roomID"), r.text("roomType"), r.decimal("area"), r.decimal("price"));
+            roomService.addRoom(room);
+            return roomJson(room);
+        });
+        route("POST", "/api/admin/rooms/{id}/price", true, 200, r -> {
+            roomService.setRoomPrice(r.integer("id"), r.decimal("price"));
+            return roomJson(roomService.findRoomById(r.integer("id")));
+        });
+        route("DELETE", "/api/admin/rooms/{id}", true, 200, r -> {
+            roomService.removeRoom(r.integer("id"));
+            return Map.of("deleted", r.integer("id"));
+        });
+        route("GET", "/api/admin/rooms/{id}/orders", true, 200, r -> {
+            Room room = roomService.findRoomById(r.integer("id"));
+            if (room == null) throw new NotFoundException("错误：未找到 ID 为" + r.integer("id") + "的房间");
+            return room.getOrderList().stream().map(HotelHttpServer::orderJson).toList();
+        });
+        route("GET", "/api/admin/algorithm/topo", true, 200, r -> {
+            AOVNetwork aov = new AOVNetwork(roomService.getRoomGraph().snapshot());
+            return Map.of("order", new TopoSort(ForkJoinPool.commonPool()).execute(aov));
+        });
+        route("GET", "/api/admin/algorithm/critical-path", true, 200, r -> {
+            AOECalculator.CriticalPath path = roomService.getCriticalPath().getResult();
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("maxTime", path.maxTime());
+            json.put("criticalActivities", path.criticalActivities().stream().map(HotelHttpServer::edgeJson).toList());
+            json.put("activities", path.activities().stream().map(s -> {
+                Map<String, Object> item = edgeJson(s.activity());
+                item.put("earliest", s.earliest());
+                item.put("latest", s.latest());
+                item.put("slack", s.slack());
+                return item;
+            }).toList());
+            return json;
+        });
+        route("POST", "/api/admin/algorithm/delays", true, 200, r -> {
+            int maxTime = roomService.getCriticalPath().reportDelay(r.integer("from"), r.integer("to"), r.integer("minutes"));
+            return Map.of("maxTime", maxTime);
+        });
+        route("DELETE", "/api/admin/algorithm/delays", true, 200, r -> {
+            roomService.getCriticalPath().clearDelays();
+            return Map.of("maxTime", roomService.getCriticalPath().getMakespan());
+        });
+        route("GET", "/api/admin/algorithm/weights", true, 200, r -> {
+            AOENetwork aoe = new AOENetwork(roomService.getRoomGraph().snapshot());
+            List<Map<String, Object>> edges = new ArrayList<>();
+            aoe.getAdjList().keySet().stream().sorted().forEach(u ->
+                    aoe.getAdjList().get(u).forEach((v, w) -> edges.add(edgeJson(new AOECalculator.Activity(u, v, w)))));
+            return edges;
+        });
+        route("POST", "/api/admin/algorithm/reseed", true, 200, r -> {
+            long seed;
+            if (r.body().get("seed") == null) {
+                seed = WeightGenerator.reseed();
+            } else {
+                seed = r.longValue("seed");
+                WeightGenerator.reseed(seed);
+            }
+            return Map.of("seed", seed);
+        });
+        route("GET", "/api/admin/metrics", true, 200, r -> {
+            List<Map<String, Object>> operations = new ArrayList<>();
+            for (OperationStats stats : HotelMetrics.all()) {
+                LatencyHistogram h = stats.getLatency();
+                if (h.getCount() == 0) continue;
+                Map<String, Object> json = new LinkedHashMap<>();
+                json.put("name", stats.getName());
+                json.put("count", h.getCount());
+                json.put("failures", stats.getFailureCount());
+                json.put("failuresByType", stats.getFailuresByType());
+                json.put("meanMicros", h.getMean() / 1e3);
+                json.put("p50Micros", h.getPercentile(50) / 1e3);
+                json.put("p99Micros", h.getPercentile(99) / 1e3);
+                json.put("p999Micros", h.getPercentile(99.9) / 1e3);
+                json.put("maxMicros", h.getMax() / 1e3);
+                operations.add(json);
+            }
+            return Map.of("enabled", HotelMetrics.isEnabled(), "operations", operations);
+        });
+        route("GET", "/api/admin/analytics", true, 200, r -> {
+            boolean byFloor = "floor".equals(r.query().get("by"));
+            RevenueAnalytics analytics = roomService.getAnalytics();
+            return (byFloor ? analytics.reportByFloor(r.date("from"), r.date("to")) : analytics.reportByType(r.date("from"), r.date("to")))
+                    .stream().map(HotelHttpServer::revenueJson).toList();
+        });
+        route("POST", "/api/admin/analytics/rebuild", true, 200, r -> {
+            long begin = System.nanoTime();
+            orderService.rebuildAnalytics();
+            return Map.of("elapsedMillis", (System.nanoTime() - begin) / 1e6);
+        });
+        route("GET", "/api/admin/cache/availability", true, 200, r -> availabilityCacheJson());
+        route("POST", "/api/admin/cache/availability", true, 200, r -> {
+            roomService.getAvailabilityCache().setEnabled(Boolean.parseBoolean(r.text("enabled")));
+            return availabilityCacheJson();
+        });
+    }
+
+    private static Object planJson(RoomAssignmentEngine.Plan plan) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("date", plan.date());
+        json.put("assigned", plan.assigned());
+        json.put("unassigned", plan.unassigned());
+        json.put("kept", plan.kept());
+        json.put("gapNights", plan.gapNights());
+        json.put("elapsedMillis", plan.elapsedNanos() / 1_000_000.0);
+        json.put("assignments", plan.assignments().stream().map(a -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("orderID", a.orderID());
+            item.put("guestID", a.guestID());
+            item.put("roomType", a.roomType());
+            item.put("stayTime", a.stayTime());
+            item.put("roomID", a.roomID());
+            return item;
+        }).toList());
+        return json;
+    }
+
+    private Object archiveJson(int archived) {
+        OrderArchive.Stats stats = orderService.getArchive().getStats();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("archived", archived);
+        json.put("orders", stats.orders());
+        json.put("segments", stats.segments());
+        json.put("bytes", stats.bytes());
+        json.put("guests", stats.guests());
+        json.put("mapped", stats.mapped());
+        json.put("retentionDays", stats.retentionDays());
+        json.put("liveOrders", orderService.getAllOrders().size());
+        return json;
+    }
+
+    private Object availabilityCacheJson() {
+        AvailabilityCache.Stats stats = roomService.getAvailabilityCache().getStats();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("enabled", stats.enabled());
+        json.put("size", stats.size());
+        json.put("capacity", stats.capacity());
+        json.put("hits", stats.hits());
+        json.put("misses", stats.misses());
+        json.put("hitRate", stats.hitRate());
+        json.put("evictions", stats.evictions());
+        json.put("invalidations", stats.invalidations());
+        return json;
+    }
+
+    private Object searchOrders(Request r) {
+        Map<String, String> q = r.query();
+        Order.OrderStatus status = q.containsKey("status") ? Order.OrderStatus.valueOf(q.get("status").toUpperCase()) : null;
+        List<Order> orders;
+        if (q.containsKey("guestID")) orders = orderService.getOrdersByGuest(q.get("guestID"));
+        else if (q.containsKey("from")) orders = orderService.getOrdersStartingBetween(q.get("roomType"), r.date("from"), r.date("to"), status);
+        else if (status != null) orders = orderService.getOrdersByStatus(status);
+        else throw new IllegalArgumentException("错误：需要 guestID、status 或 from/to 之一");
+        return orders.stream().map(HotelHttpServer::orderJson).toList();
+    }
+
+    private Object bookBatch(Request r) {
+        Object items = r.body().get("orders");
+        if (!(items instanceof List<?> list)) throw new IllegalArgumentException("错误：缺少参数 orders");
+        List<BookingRequest> requests = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> map)) throw new IllegalArgumentException("错误：orders 的每一项必须是对象");
+            @SuppressWarnings("unchecked")
+            Request itemRequest = new Request(Map.of(), Map.of(), (Map<String, Object>) map);
+            requests.add(new BookingRequest(itemRequest.text("guestID"), itemRequest.date("startDate"),
+                    itemRequest.integer("stayTime"), itemRequest.text("roomType")));
+        }
+        BatchBookingResult result = orderService.placeOrders(requests);
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("committed", result.committed());
+        json.put("lockWaitMillis", result.lockWaitNanos() / 1e6);
+        json.put("elapsedMillis", result.elapsedNanos() / 1e6);
+        json.put("items", result.items().stream().map(item -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("guestID", item.request().guestID());
+            m.put("orderID", item.order() == null ? null : item.order().getOrderID());
+            m.put("error", item.error());
+            return m;
+        }).toList());
+        return json;
+    }
+
+    /**
+     * 启动服务；port 为 0 时由系统分配端口
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::dispatch);
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    // 停止接收新连接，最多等待 delaySeconds 秒让进行中的请求完成
+    public void stop(int delaySeconds) {
+        if (server == null) return;
+        server.stop(delaySeconds);
+        executor.close();
+    }
+
+    private void route(String method, String pattern, boolean admin, int status, Handler handler) {
+        routes.add(new Route(method, pattern.substring(1).split("/"), admin, status, handler));
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int status;
+            Object body;
+            try {
+                String[] segments = exchange.getRequestURI().getPath().substring(1).split("/");
+                Route matched = null;
+                Map<String, String> params = null;
+                boolean pathMatched = false;
+                for (Route route : routes) {
+                    Map<String, String> p = match(route.segments(), segments);
+                    if (p == null) continue;
+                    pathMatched = true;
+                    if (route.method().equals(exchange.getRequestMethod())) {
+                        matched = route;
+                        params = p;
+                        break;
+                    }
+                }
+                if (matched == null) {
+                    status = pathMatched ? 405 : 404;
+                    body = Map.of("error", pathMatched ? "不支持的请求方法" : "接口不存在");
+                } else if (matched.admin() && !isAdmin(exchange)) {
+                    status = 401;
+                    body = Map.of("error", "需要管理员认证");
+                } else {
+                    Request request = new Request(params, parseQuery(exchange.getRequestURI().getRawQuery()), Json.parseObject(readBody(exchange)));
+                    body = matched.handler().handle(request);
+                    status = matched.status();
+                }
+            } catch (Exception e) {
+                status = statusOf(e);
+                body = Map.of("error", e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+            }
+            byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private boolean isAdmin(HttpExchange exchange) {
+        String given = exchange.getRequestHeaders().getFirst(ADMIN_HEADER);
+        return given != null && MessageDigest.isEqual(adminPassword.getBytes(StandardCharsets.UTF_8), given.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 异常 -> HTTP 状态码：参数与状态错误沿用服务层的异常类型
+    private static int statusOf(Exception e) {
+        return switch (e) {
+            case NotFoundException ignored -> 404;
+            case BodyTooLargeException ignored -> 413;
+            case DateTimeParseException ignored -> 400;
+            case IllegalArgumentException ignored -> 400; // 含 NumberFormatException
+            case IllegalStateException ignored -> 409;    // 售罄、房间冲突等
+            case ArithmeticException ignored -> 400;      // 数值超出 int 范围
+            default -> 500;
+        };
+    }
+
+    private static Map<String, String> match(String[] pattern, String[] segments) {
+        if (pattern.length != segments.length) return null;
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i].startsWith("{")) params.put(pattern[i].substring(1, pattern[i].length() - 1), segments[i]);
+            else if (!pattern[i].equals(segments[i])) return null;
+        }
+        return params;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) throw new BodyTooLargeException();
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // 路径中的酒店 ID，不存在时返回 404
+    private String property(Request r) {
+        String id = r.path().get("property");
+        if (!group.hasProperty(id)) throw new NotFoundException("错误：未找到 ID 为 " + id + " 的酒店");
+        return id;
+    }
+
+    private Order findOrder(int orderID) {
+        Order order = orderService.getOrder(orderID);
+        if (order == null) throw new NotFoundException("错误：未找到 ID 为 " + orderID + " 的订单");
+        return order;
+    }
+
+    private static Map<String, Object> orderJson(Order order) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("orderID", order.getOrderID());
+        json.put("guestID", order.getGuestID());
+        json.put("startDate", order.getStartDate());
+        json.put("stayTime", order.getStayTime());
+        json.put("endDate", order.getEndDate());
+        json.put("roomType", order.getOrderType());
+        json.put("roomID", order.getRoomID());
+        json.put("status", order.getStatus());
+        return json;
+    }
+
+    private static Map<String, Object> roomJson(Room room) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("roomID", room.getRoomID());
+        json.put("roomType", room.getRoomType());
+        json.put("area", room.getRoomArea().doubleValue());
+        json.put("price", room.getRoomPrice() == null ? null : room.getRoomPrice().doubleValue());
+        return json;
+    }
+
+    private static Map<String, Object> revenueJson(RevenueAnalytics.Row row) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("roomType", row.roomType());
+        json.put("floor", row.floor());
+        json.put("rooms", row.rooms());
+        json.put("supplyNights", row.supplyNights());
+        json.put("soldNights", row.soldNights());
+        json.put("bookedNights", row.bookedNights());
+        json.put("occupancy", row.occupancy());
+        json.put("revenue", row.revenue().doubleValue());
+        json.put("adr", row.adr().doubleValue());
+        json.put("revpar", row.revpar().doubleValue());
+        return json;
+    }
+
+    private static Map<String, Object> edgeJson(AOECalculator.Activity a) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("from", a.from());
+        json.put("to", a.to());
+        json.put("weight", a.weight());
+        return json;
+    }
+
+    private static class NotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private static class BodyTooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BodyTooLargeException() {
+            super("请求体过大");
+        }
+    }
+}
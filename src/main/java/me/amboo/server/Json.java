@@ -0,0 +1,251 @@
+package me.amboo.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 极简 JSON 读写，仅供 HTTP 接口使用，避免为几个扁平对象引入第三方库
+ * 写：Map、Collection、int[]、String、Number、Boolean、Enum、null，其他类型按 toString 写成字符串（如 LocalDate）
+ * 读：对象解析为 LinkedHashMap，数组为 ArrayList，整数为 Long，小数为 Double
+ */
+public final class Json {
+
+    private Json() {}
+
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder(256);
+        write(out, value);
+        return out.toString();
+    }
+
+    private static void write(StringBuilder out, Object value) {
+        switch (value) {
+            case null -> out.append("null");
+            case Map<?, ?> map -> {
+                out.append('{');
+                boolean first = true;
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    if (!first) out.append(',');
+                    first = false;
+                    writeString(out, String.valueOf(e.getKey()));
+                    out.append(':');
+                    write(out, e.getValue());
+                }
+                out.append('}');
+            }
+            case Collection<?> list -> {
+                out.append('[');
+                boolean first = true;
+                for (Object item : list) {
+                    if (!first) out.append(',');
+                    first = false;
+                    write(out, item);
+                }
+                out.append(']');
+            }
+            case int[] array -> {
+                out.append('[');
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) out.append(',');
+                    out.append(array[i]);
+                }
+                out.append(']');
+            }
+            case Number n -> out.append(n);
+            case Boolean b -> out.append(b);
+            case Enum<?> e -> writeString(out, e.name());
+            default -> writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * 解析 JSON 文本
+     * @throws IllegalArgumentException 格式错误
+     */
+    public static Object parse(String text) {
+        Parser parser = new Parser(text);
+        Object value = parser.value();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) throw parser.error("多余的内容");
+        return value;
+    }
+
+    // 解析顶层必须是对象的请求体；空请求体视为空对象
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        if (text.isBlank()) return new LinkedHashMap<>();
+        Object value = parse(text);
+        if (!(value instanceof Map)) throw new IllegalArgumentException("错误：请求体必须是 JSON 对象");
+        return (Map<String, Object>) value;
+    }
+
+    private static class Parser {
+        // 对象 / 数组的最大嵌套层数：递归下降解析，不设上限时深层嵌套的请求体会让线程栈溢出
+        private static final int MAX_DEPTH = 64;
+
+        private final String text;
+        private int pos;
+        private int depth;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object value() {
+            skipWhitespace();
+            if (pos >= text.length()) throw error("意外的结尾");
+            char c = text.charAt(pos);
+            return switch (c) {
+                case '{' -> nested(true);
+                case '[' -> nested(false);
+                case '"' -> string();
+                case 't' -> literal("true", Boolean.TRUE);
+                case 'f' -> literal("false", Boolean.FALSE);
+                case 'n' -> literal("null", null);
+                default -> number();
+            };
+        }
+
+        private Object nested(boolean object) {
+            if (++depth > MAX_DEPTH) throw error("嵌套超过 " + MAX_DEPTH + " 层");
+            try {
+                return object ? object() : array();
+            } finally {
+                depth--;
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++; // {
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') throw error("需要字段名");
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                map.put(key, value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<>();
+            pos++; // [
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String string() {
+            pos++; // "
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) throw error("字符串未结束");
+                char c = text.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) throw error("字符串未结束");
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) throw error("转义不完整");
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> sb.append(e); // " \ /
+                }
+            }
+        }
+
+        private Object number() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+            String token = text.substring(start, pos);
+            if (token.isEmpty()) throw error("无法识别的字符");
+            try {
+                if (token.contains(".") || token.contains("e") || token.contains("E")) return Double.parseDouble(token);
+                return Long.parseLong(token);
+            } catch (NumberFormatException ex) {
+                throw error("数字格式错误");
+            }
+        }
+
+        private Object literal(String word, Object value) {
+            if (!text.startsWith(word, pos)) throw error("无法识别的字符");
+            pos += word.length();
+            return value;
+        }
+
+        private char peek() {
+            if (pos >= text.length()) throw error("意外的结尾");
+            return text.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw error("需要 '" + c + "'");
+            pos++;
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("错误：JSON 格式错误（位置 " + pos + "）：" + message);
+        }
+    }
+}
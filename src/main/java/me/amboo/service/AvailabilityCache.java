@@ -0,0 +1,199 @@
+package me.amboo.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.model.RoomListener;
+
+/**
+ * findAvailableRooms 的结果缓存：键为 (房型, 入住日, 晚数)，按最近使用淘汰（LRU），容量固定
+ * 精确失效：查询 [start, start + n) 的结果取决于 start-1 晚（是否待打扫）和 start .. start+n-1 晚（是否占用），
+ * 房间上 [s, e) 的订单变化（写入、移除、状态变化）只使同房型、且 [start-1, start+n) 与 [s, e) 相交的结果失效；
+ * 房间增删使整个房型失效。每个房型按入住日维护一份键索引，失效时只扫描可能相交的入住日。
+ * 未命中的查询在计算前取得房型的版本号，写回时版本已变说明计算期间发生过失效，结果直接丢弃。
+ * 所有方法在对象锁内完成，临界区只有哈希表和有序表的几次操作。
+ */
+public class AvailabilityCache implements RoomListener {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private record Key(String type, long startDay, int nights) {}
+
+    // 单个房型的键索引与版本号
+    private static final class TypeIndex {
+        final NavigableMap<Long, Set<Key>> byStart = new TreeMap<>();
+        int maxNights;
+        long version;
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, List<Room>> entries;
+    private final Map<String, TypeIndex> types = new HashMap<>();
+    private volatile boolean enabled;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * 统计快照；invalidations 为因数据变化而移除的条目数
+     */
+    public record Stats(boolean enabled, int size, int capacity, long hits, long misses, long evictions, long invalidations) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    public AvailabilityCache() {
+        this(Integer.getInteger("hotel.availability.cacheSize", DEFAULT_CAPACITY),
+                Boolean.parseBoolean(System.getProperty("hotel.availability.cache", "true")));
+    }
+
+    public AvailabilityCache(int capacity, boolean enabled) {
+        if (capacity <= 0) throw new IllegalArgumentException("错误：缓存容量必须大于0");
+        this.capacity = capacity;
+        this.enabled = enabled;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @return 缓存的只读结果；未命中或缓存已关闭时返回 null
+     */
+    public synchronized List<Room> get(String type, LocalDate startDate, int nights) {
+        if (!enabled) return null;
+        List<Room> rooms = entries.get(new Key(type, startDate.toEpochDay(), nights));
+        if (rooms == null) misses.increment();
+        else hits.increment();
+        return rooms;
+    }
+
+    // 未命中时在计算结果之前调用，写回时原样传给 put
+    public synchronized long version(String type) {
+        TypeIndex index = types.get(type);
+        return index == null ? 0 : index.version;
+    }
+
+    /**
+     * 写入计算结果；version 之后该房型发生过失效时不写入
+     * @return 调用方应返回的只读结果
+     */
+    public synchronized List<Room> put(String type, LocalDate startDate, int nights, List<Room> rooms, long version) {
+        List<Room> result = List.copyOf(rooms);
+        if (!enabled || version(type) != version) return result;
+        Key key = new Key(type, startDate.toEpochDay(), nights);
+        if (entries.put(key, result) == null) {
+            TypeIndex index = types.computeIfAbsent(type, t -> new TypeIndex());
+            index.byStart.computeIfAbsent(key.startDay(), d -> new HashSet<>()).add(key);
+            index.maxNights = Math.max(index.maxNights, nights);
+            if (entries.size() > capacity) evictEldest();
+        }
+        return result;
+    }
+
+    private void evictEldest() {
+        Iterator<Key> it = entries.keySet().iterator();
+        Key eldest = it.next();
+        it.remove();
+        unindex(eldest);
+        evictions.increment();
+    }
+
+    private void unindex(Key key) {
+        TypeIndex index = types.get(key.type());
+        Set<Key> keys = index.byStart.get(key.startDay());
+        keys.remove(key);
+        if (keys.isEmpty()) index.byStart.remove(key.startDay());
+    }
+
+    /**
+     * 使房型 type 中与 [fromDay, toDay) 相交的结果失效：
+     * 查询 [start-1, start+n) 与之相交 <=> start <= toDay 且 start + n > fromDay
+     */
+    public synchronized void invalidate(String type, long fromDay, long toDay) {
+        TypeIndex index = types.computeIfAbsent(type, t -> new TypeIndex()); // 即使没有条目也要推进版本，挡住计算中的写回
+        index.version++;
+        Map<Long, Set<Key>> candidates = index.byStart.subMap(fromDay - index.maxNights + 1, true, toDay, true);
+        List<Key> stale = new ArrayList<>();
+        for (Set<Key> keys : candidates.values()) {
+            for (Key key : keys) {
+                if (key.startDay() + key.nights() > fromDay) stale.add(key);
+            }
+        }
+        for (Key key : stale) {
+            entries.remove(key);
+            unindex(key);
+        }
+        invalidations.add(stale.size());
+    }
+
+    // 房间增删：该房型的全部结果失效
+    public synchronized void invalidateType(String type) {
+        TypeIndex index = types.computeIfAbsent(type, t -> new TypeIndex());
+        index.version++;
+        int removed = 0;
+        for (Set<Key> keys : index.byStart.values()) {
+            for (Key key : keys) entries.remove(key);
+            removed += keys.size();
+        }
+        index.byStart.clear();
+        index.maxNights = 0;
+        invalidations.add(removed);
+    }
+
+    public synchronized void invalidateAll() {
+        for (TypeIndex index : types.values()) {
+            index.version++;
+            index.byStart.clear();
+            index.maxNights = 0;
+        }
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    // 关闭时清空已有条目，重新打开后从空缓存开始
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) invalidateAll();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(enabled, entries.size(), capacity, hits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    @Override
+    public void onOrderAdded(Room room, Order order) {
+        invalidate(room, order);
+    }
+
+    @Override
+    public void onOrderRemoved(Room room, Order order) {
+        invalidate(room, order);
+    }
+
+    @Override
+    public void onOrderStatusChanged(Room room, Order order) {
+        invalidate(room, order);
+    }
+
+    private void invalidate(Room room, Order order) {
+        long from = order.getStartDay();
+        invalidate(room.getRoomType(), from, from + order.getStayTime());
+    }
+}
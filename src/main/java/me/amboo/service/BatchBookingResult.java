@@ -0,0 +1,17 @@
+package me.amboo.service;
+
+import java.util.List;
+
+import me.amboo.model.BookingRequest;
+import me.amboo.model.Order;
+
+/**
+ * 批量预订结果：整批要么全部成功（committed），要么全部撤销
+ * items 与请求一一对应；撤销时失败项给出原因，其余项注明因整批撤销而未提交
+ * lockWaitNanos 为等待房型锁的耗时，elapsedNanos 为整个调用的耗时（含日志落盘）
+ */
+public record BatchBookingResult(boolean committed, List<Item> items, long lockWaitNanos, long elapsedNanos) {
+
+    // order 仅在整批提交时非空；error 仅在整批撤销时非空
+    public record Item(BookingRequest request, Order order, String error) {}
+}
@@ -0,0 +1,203 @@
+package me.amboo.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+
+/**
+ * 酒店集团：按酒店 ID 把调用路由到各自独立的 PropertyShard
+ * 单酒店的操作只触及该酒店的分片（房间列表、订单表、条带锁都是分片私有的），互不争用；
+ * 跨酒店的查询（例如“全城哪家还有这几天的双人间”）在 fork-join 池中对各分片并行执行后按酒店 ID 合并。
+ * 分片可以随时单独加入、恢复或移除，其余分片照常服务。
+ */
+public class HotelGroup {
+    private final Map<String, PropertyShard> shards = new ConcurrentHashMap<>();
+    private final ForkJoinPool pool; // 为 null 时跨酒店查询在调用线程中逐个执行
+
+    public HotelGroup() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public HotelGroup(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void addProperty(PropertyShard shard) {
+        if (shards.putIfAbsent(shard.getPropertyID(), shard) != null) {
+            throw new IllegalArgumentException("错误：ID 为 " + shard.getPropertyID() + " 的酒店已存在");
+        }
+    }
+
+    // 新建一个纯内存的酒店分片
+    public PropertyShard addProperty(String propertyID) {
+        PropertyShard shard = PropertyShard.inMemory(propertyID);
+        addProperty(shard);
+        return shard;
+    }
+
+    /**
+     * 从 root 下的每个子目录恢复一家酒店（子目录名即酒店 ID），各分片并行装载
+     * @return 本次装载的酒店数
+     */
+    public int openAll(Path root) {
+        List<Path> directories;
+        try (Stream<Path> children = Files.list(root)) {
+            directories = children.filter(Files::isDirectory).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：无法读取酒店目录 " + root, e);
+        }
+        for (Path dir : directories) {
+            if (shards.containsKey(dir.getFileName().toString())) {
+                throw new IllegalArgumentException("错误：ID 为 " + dir.getFileName() + " 的酒店已存在");
+            }
+        }
+        // 每个目录的装载结果都收集回来再决定：并行流在某一项失败后不会等其余任务结束，直接抛出会漏掉之后打开的分片
+        List<Opening> results = fanOut(directories, dir -> {
+            try {
+                return new Opening(PropertyShard.open(dir.getFileName().toString(), dir), null);
+            } catch (RuntimeException e) {
+                return new Opening(null, e);
+            }
+        });
+        RuntimeException failure = null;
+        for (Opening result : results) {
+            if (result.failure() == null) continue;
+            if (failure == null) failure = result.failure();
+            else failure.addSuppressed(result.failure());
+        }
+        List<PropertyShard> opened = results.stream().map(Opening::shard).filter(Objects::nonNull).toList();
+        if (failure != null) {
+            // 有一家装载失败：已打开的分片（日志写线程、快照线程、文件句柄）全部关闭，整批不加入
+            closeAll(opened, failure);
+            throw failure;
+        }
+        for (int i = 0; i < opened.size(); i++) {
+            try {
+                addProperty(opened.get(i));
+            } catch (RuntimeException e) {
+                // 装载期间另有同名酒店加入：尚未加入的分片关闭，已加入的保留
+                closeAll(opened.subList(i, opened.size()), e);
+                throw e;
+            }
+        }
+        return opened.size();
+    }
+
+    private record Opening(PropertyShard shard, RuntimeException failure) {}
+
+    private static void closeAll(List<PropertyShard> opened, RuntimeException cause) {
+        for (PropertyShard shard : opened) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    // 移除并关闭一家酒店，其余酒店不受影响
+    public void removeProperty(String propertyID) throws IOException {
+        PropertyShard shard = shards.remove(propertyID);
+        if (shard == null) throw new IllegalArgumentException("错误：未找到 ID 为 " + propertyID + " 的酒店");
+        shard.close();
+    }
+
+    public PropertyShard getProperty(String propertyID) {
+        PropertyShard shard = propertyID == null ? null : shards.get(propertyID);
+        if (shard == null) throw new IllegalArgumentException("错误：未找到 ID 为 " + propertyID + " 的酒店");
+        return shard;
+    }
+
+    public boolean hasProperty(String propertyID) {
+        return propertyID != null && shards.containsKey(propertyID);
+    }
+
+    // 全部酒店 ID（升序）
+    public List<String> getPropertyIDs() {
+        List<String> ids = new ArrayList<>(shards.keySet());
+        Collections.sort(ids);
+        return ids;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    // --- 单酒店操作：直接路由到对应分片 ---
+
+    public Order placeOrder(String propertyID, String guestID, LocalDate startDate, int stayTime, String roomType) {
+        return getProperty(propertyID).getOrderService().placeOrder(guestID, startDate, stayTime, roomType);
+    }
+
+    public Order getOrder(String propertyID, int orderID) {
+        return getProperty(propertyID).getOrderService().getOrder(orderID);
+    }
+
+    public List<Room> findAvailableRooms(String propertyID, LocalDate startDate, int stayTime, String roomType) {
+        return getProperty(propertyID).getRoomService().findAvailableRooms(startDate, stayTime, roomType);
+    }
+
+    // --- 跨酒店查询：并行分发到所有分片后合并 ---
+
+    /**
+     * 每家酒店在指定时段内可用的该房型房间；没有空房的酒店不出现在结果中
+     * @return 酒店 ID（升序）-> 可用房间
+     */
+    public Map<String, List<Room>> findAvailableRooms(LocalDate startDate, int stayTime, String roomType) {
+        Map<String, List<Room>> result = new TreeMap<>();
+        fanOutByProperty(shard -> shard.getRoomService().findAvailableRooms(startDate, stayTime, roomType))
+                .forEach((id, rooms) -> {
+                    if (!rooms.isEmpty()) result.put(id, rooms);
+                });
+        return result;
+    }
+
+    // 每家酒店指定日期的空房数，酒店 ID 升序
+    public Map<String, Long> getAvailableRoomCounts(LocalDate date) {
+        return fanOutByProperty(shard -> shard.getRoomService().getAvailableRoomCount(date));
+    }
+
+    // 全集团指定日期的空房总数
+    public long getAvailableRoomCount(LocalDate date) {
+        return getAvailableRoomCounts(date).values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    // 各酒店的全部房间，酒店 ID 升序
+    public Map<String, List<Room>> getAllRooms() {
+        return fanOutByProperty(shard -> shard.getRoomService().getAllRooms());
+    }
+
+    private <T> Map<String, T> fanOutByProperty(Function<PropertyShard, T> query) {
+        return HotelMetrics.GROUP_FAN_OUT.time(() -> {
+            List<PropertyShard> targets = new ArrayList<>(shards.values());
+            List<T> results = fanOut(targets, query);
+            Map<String, T> merged = new TreeMap<>();
+            for (int i = 0; i < targets.size(); i++) merged.put(targets.get(i).getPropertyID(), results.get(i));
+            return merged;
+        });
+    }
+
+    // 对每个元素执行 task，结果与输入顺序一致；任一分片失败则整个查询失败
+    private <S, T> List<T> fanOut(List<S> inputs, Function<S, T> task) {
+        if (pool == null || pool.getParallelism() <= 1 || inputs.size() <= 1) {
+            return inputs.stream().map(task).toList();
+        }
+        return pool.submit(() -> inputs.parallelStream().map(task).toList()).join();
+    }
+}
@@ -0,0 +1,29 @@
+package me.amboo.service;
+
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalEvent;
+
+/**
+ * 服务挂接的预写日志，RoomService 与 OrderService 共用同一套写法
+ * 在锁内 append 事件取得序号；锁外再 awaitDurable 等待落盘，使并发操作共享同一次 fsync。
+ * 未挂接日志（例如正在回放日志）时两者都什么也不做
+ */
+final class JournalLink {
+    private volatile Journal journal;
+
+    // 挂接日志；应在回放完成之后调用
+    void set(Journal journal) {
+        this.journal = journal;
+    }
+
+    // 追加事件，返回序号；未挂接时返回 0
+    long append(JournalEvent event) {
+        Journal current = journal;
+        return current == null ? 0 : current.append(event);
+    }
+
+    void awaitDurable(long seq) {
+        Journal current = journal;
+        if (current != null && seq > 0) current.awaitDurable(seq);
+    }
+}
@@ -0,0 +1,531 @@
+package me.amboo.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import me.amboo.analytics.RevenueAnalytics;
+import me.amboo.model.Order;
+import me.amboo.model.Order.OrderStatus;
+
+/**
+ * 订单冷存储：已结束且超过保留期的订单从 OrderService 的实时结构中移出后存放在这里
+ * 每个房型一组只读段，段内是按订单号升序排列的定长记录，其后附一份按 (住客, 订单号) 排序的记录下标：
+ *   记录 24 字节 [int 订单号, int 住客编码, int 入住日(epochDay), int 天数, int 房号(-1 未分配), int 每晚房价(分)]
+ * 房价是归档时该房间的房价，-1 表示不计入已售间夜（见 RevenueAnalytics.ArchivedStay），之后的改价不影响归档订单的收入。
+ * 住客 ID 在整个归档内去重编码，每个订单约占 28 字节。按订单号查找在各段上二分，按住客查找在住客下标上二分。
+ * 每次归档分两步：prepare 排序并写出新段（耗时部分，调用方不必持有房型锁），publish 只把段挂到段数组上。
+ * 合并按大小分层（size-tiered）：段按记录数落在 TIER_BASE·MERGE_FANOUT^k 的层级上，
+ * 同一层攒够 MERGE_FANOUT 段时只把这几段合并成上一层的一段，每条记录一生只被重写 O(log n) 次，
+ * 不会因为追加一小批就重写整个归档。合并由 compact 在调用方的锁外进行，完成后再替换段数组。
+ * 指定目录时段写成文件后只读映射，记录不占用堆；这些文件只是缓存，数据以快照和日志为准，构造时清空目录重新生成。
+ * 段数组的修改（发布、合并后的替换）在对象锁内串行进行，合并之间由 mergeLock 串行；
+ * 读取无锁，段数组和住客字典都通过 volatile 引用整体发布，合并前后的段数组都包含全部记录。
+ */
+public class OrderArchive {
+    public static final int DEFAULT_RETENTION_DAYS = 90;
+    static final int TIER_BASE = 1024;
+    static final int MERGE_FANOUT = 4;
+    private static final int RECORD_BYTES = 24;
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    // 一个只读段：size 条记录，之后 size 个 int 为住客下标；file 为 null 表示段在堆内
+    private record Segment(ByteBuffer data, int size, Path file) {
+        int orderID(int i) { return data.getInt(i * RECORD_BYTES); }
+        int guest(int i) { return data.getInt(i * RECORD_BYTES + 4); }
+        int startDay(int i) { return data.getInt(i * RECORD_BYTES + 8); }
+        int stayTime(int i) { return data.getInt(i * RECORD_BYTES + 12); }
+        int roomID(int i) { return data.getInt(i * RECORD_BYTES + 16); }
+        int priceCents(int i) { return data.getInt(i * RECORD_BYTES + 20); }
+        int byGuest(int k) { return data.getInt(size * RECORD_BYTES + k * 4); }
+
+        // 订单号所在的记录下标，不存在时返回 -1
+        int indexOf(int orderID) {
+            int lo = 0, hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int id = orderID(mid);
+                if (id < orderID) lo = mid + 1;
+                else if (id > orderID) hi = mid - 1;
+                else return mid;
+            }
+            return -1;
+        }
+
+        // 住客下标中第一个住客编码不小于 guest 的位置
+        int lowerBoundGuest(int guest) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (guest(byGuest(mid)) < guest) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * 同一房型的一批待归档记录（来自实时订单或快照）
+     */
+    public static final class Batch {
+        private final String roomType;
+        private int[] ids = new int[16];
+        private int[] starts = new int[16];
+        private int[] stays = new int[16];
+        private int[] rooms = new int[16];
+        private int[] prices = new int[16];
+        private String[] guests = new String[16];
+        private int size;
+
+        public Batch(String roomType) {
+            this.roomType = roomType;
+        }
+
+        public void add(int orderID, String guestID, int startDay, int stayTime, int roomID, int priceCents) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                stays = Arrays.copyOf(stays, capacity);
+                rooms = Arrays.copyOf(rooms, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                guests = Arrays.copyOf(guests, capacity);
+            }
+            ids[size] = orderID;
+            guests[size] = guestID;
+            starts[size] = startDay;
+            stays[size] = stayTime;
+            rooms[size] = roomID;
+            prices[size] = priceCents;
+            size++;
+        }
+
+        // priceCents 为订单所在房间此刻的每晚房价（分），不计入已售间夜时为 -1
+        public void add(Order order, int priceCents) {
+            if (!roomType.equals(order.getOrderType())) throw new IllegalArgumentException("房间类型不匹配");
+            Integer roomID = order.getRoomID();
+            add(order.getOrderID(), order.getGuestID(), order.getStartDay(), order.getStayTime(), roomID == null ? -1 : roomID, priceCents);
+        }
+
+        int orderID(int i) {
+            return ids[i];
+        }
+
+        int priceCents(int i) {
+            return prices[i];
+        }
+
+        public String getRoomType() {
+            return roomType;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    // 逐条读取归档记录（写快照时使用，不生成 Order 对象）
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int orderID, String guestID, int startDay, int stayTime, int roomID, int priceCents);
+    }
+
+    /**
+     * 已排序写出、尚未发布的段（prepare 的结果），交给 publish 发布或 discard 丢弃
+     */
+    public static final class Sealed {
+        private final String roomType;
+        private final Segment segment;
+
+        private Sealed(String roomType, Segment segment) {
+            this.roomType = roomType;
+            this.segment = segment;
+        }
+
+        public int size() {
+            return segment == null ? 0 : segment.size();
+        }
+    }
+
+    /**
+     * 统计快照；bytes 为全部段的记录与下标字节数
+     */
+    public record Stats(long orders, int segments, long bytes, int guests, boolean mapped, int retentionDays) {}
+
+    private final Path directory; // 为 null 时段在堆内
+    private final int retentionDays;
+    private final Map<String, Segment[]> segmentsByType = new ConcurrentHashMap<>(); // 值整体替换，不原地修改
+    private final Map<String, Integer> guestCodes = new ConcurrentHashMap<>();
+    private volatile String[] guestNames = new String[16];
+    private int guestCount; // 由对象锁保护
+    private final AtomicLong nextFile = new AtomicLong();
+    private final Object mergeLock = new Object();
+
+    public OrderArchive() {
+        this(null);
+    }
+
+    public OrderArchive(Path directory) {
+        this(directory, Integer.getInteger("hotel.archive.retentionDays", DEFAULT_RETENTION_DAYS));
+    }
+
+    public OrderArchive(Path directory, int retentionDays) {
+        if (retentionDays < 0) throw new IllegalArgumentException("错误：归档保留天数不能为负数");
+        this.directory = directory;
+        this.retentionDays = retentionDays;
+        if (directory != null) clearDirectory(directory);
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    // 默认的归档界限：退房日早于该日期的已结束订单可以归档
+    public LocalDate defaultCutoff(LocalDate today) {
+        return today.minusDays(retentionDays);
+    }
+
+    // --- 写入 ---
+
+    // 追加一批记录并立即合并，等同于 prepare + publish + compact
+    public void append(Batch batch) {
+        publish(prepare(batch));
+        compact();
+    }
+
+    /**
+     * 把一批记录排序并写成段，读者此时还看不到它；不需要调用方持有任何锁
+     */
+    public Sealed prepare(Batch batch) {
+        if (batch.size == 0) return new Sealed(batch.roomType, null);
+        int[] guests = new int[batch.size];
+        synchronized (this) {
+            for (int i = 0; i < batch.size; i++) guests[i] = intern(batch.guests[i]);
+        }
+        return new Sealed(batch.roomType, seal(batch.ids, guests, batch.starts, batch.stays, batch.rooms, batch.prices, batch.size));
+    }
+
+    /**
+     * 发布 prepare 写好的段：只复制一次段数组；段内订单号已在归档中时丢弃该段并抛出，整批不写入
+     */
+    public synchronized void publish(Sealed sealed) {
+        Segment segment = sealed.segment;
+        if (segment == null) return;
+        for (int i = 0; i < segment.size(); i++) {
+            if (contains(segment.orderID(i))) {
+                deleteFiles(new Segment[] { segment });
+                throw new IllegalArgumentException("错误：ID 为 " + segment.orderID(i) + " 的订单已归档");
+            }
+        }
+        Segment[] current = segmentsByType.getOrDefault(sealed.roomType, new Segment[0]);
+        Segment[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = segment;
+        segmentsByType.put(sealed.roomType, next);
+    }
+
+    // 丢弃未发布的段（调用方在锁内复核后发现批次已失效）
+    public void discard(Sealed sealed) {
+        if (sealed.segment != null) deleteFiles(new Segment[] { sealed.segment });
+    }
+
+    /**
+     * 按层合并：某房型同一层的段攒够 MERGE_FANOUT 段时合并为一段，直到各层都不满
+     * 合并期间不持有对象锁，并发的 publish 照常进行；替换时只换下参与合并的段
+     */
+    public void compact() {
+        synchronized (mergeLock) {
+            for (String type : segmentsByType.keySet()) {
+                Segment[] inputs;
+                while ((inputs = mergeCandidates(segmentsByType.get(type))) != null) {
+                    Segment merged = merge(inputs);
+                    Set<Segment> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+                    replaced.addAll(Arrays.asList(inputs));
+                    synchronized (this) {
+                        List<Segment> next = new ArrayList<>();
+                        for (Segment s : segmentsByType.get(type)) {
+                            if (!replaced.contains(s)) next.add(s);
+                        }
+                        next.add(merged);
+                        segmentsByType.put(type, next.toArray(new Segment[0]));
+                    }
+                    deleteFiles(inputs);
+                }
+            }
+        }
+    }
+
+    // 最低的一个攒满 MERGE_FANOUT 段的层中的全部段，各层都不满时返回 null
+    private static Segment[] mergeCandidates(Segment[] segments) {
+        if (segments == null || segments.length < MERGE_FANOUT) return null;
+        Map<Integer, List<Segment>> byTier = new TreeMap<>();
+        for (Segment s : segments) byTier.computeIfAbsent(tier(s.size()), t -> new ArrayList<>()).add(s);
+        for (List<Segment> tier : byTier.values()) {
+            if (tier.size() >= MERGE_FANOUT) return tier.toArray(new Segment[0]);
+        }
+        return null;
+    }
+
+    // 记录数所在的层：不超过 TIER_BASE 为第 0 层，之后每层上限乘以 MERGE_FANOUT
+    static int tier(int size) {
+        int tier = 0;
+        for (long bound = TIER_BASE; size > bound; bound *= MERGE_FANOUT) tier++;
+        return tier;
+    }
+
+    // 住客 ID 编码，调用方持有对象锁；先写入名称表再登记编码，读者拿到的编码一定能解码
+    private int intern(String guestID) {
+        Integer code = guestCodes.get(guestID);
+        if (code != null) return code;
+        String[] names = guestNames;
+        if (guestCount == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[guestCount] = guestID;
+        guestNames = names;
+        guestCodes.put(guestID, guestCount);
+        return guestCount++;
+    }
+
+    // 多段合并为一段
+    private Segment merge(Segment[] segments) {
+        int total = 0;
+        for (Segment s : segments) total += s.size();
+        int[] ids = new int[total], guests = new int[total], starts = new int[total], stays = new int[total], rooms = new int[total],
+                prices = new int[total];
+        int n = 0;
+        for (Segment s : segments) {
+            for (int i = 0; i < s.size(); i++, n++) {
+                ids[n] = s.orderID(i);
+                guests[n] = s.guest(i);
+                starts[n] = s.startDay(i);
+                stays[n] = s.stayTime(i);
+                rooms[n] = s.roomID(i);
+                prices[n] = s.priceCents(i);
+            }
+        }
+        return seal(ids, guests, starts, stays, rooms, prices, total);
+    }
+
+    /**
+     * 按订单号排序写出记录，再写出按 (住客, 订单号) 排序的下标
+     * 两次排序都把 (排序键, 下标) 打包成 long 后对 long[] 排序，不装箱
+     */
+    private Segment seal(int[] ids, int[] guests, int[] starts, int[] stays, int[] rooms, int[] prices, int size) {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) keys[i] = (long) ids[i] << 32 | i;
+        Arrays.sort(keys);
+        ByteBuffer data = ByteBuffer.allocate(size * (RECORD_BYTES + 4));
+        int[] sortedGuests = new int[size];
+        for (int k = 0; k < size; k++) {
+            int i = (int) keys[k];
+            data.putInt(ids[i]).putInt(guests[i]).putInt(starts[i]).putInt(stays[i]).putInt(rooms[i]).putInt(prices[i]);
+            sortedGuests[k] = guests[i];
+        }
+        // 排序后第 k 条记录的下标即 k，住客相同时按 k（即订单号）排列
+        for (int k = 0; k < size; k++) keys[k] = (long) sortedGuests[k] << 32 | k;
+        Arrays.sort(keys);
+        for (int k = 0; k < size; k++) data.putInt((int) keys[k]);
+        data.flip();
+        return directory == null ? new Segment(data, size, null) : spill(data, size);
+    }
+
+    private Segment spill(ByteBuffer data, int size) {
+        Path file = directory.resolve(String.format("%s%06d.bin", SEGMENT_PREFIX, nextFile.getAndIncrement()));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) channel.write(data);
+            return new Segment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), size, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：归档段写入失败 " + file, e);
+        }
+    }
+
+    // 合并后旧段文件不再被新的读者引用；仍在读取的映射在删除后继续有效
+    private static void deleteFiles(Segment[] segments) {
+        for (Segment s : segments) {
+            if (s.file() == null) continue;
+            try {
+                Files.deleteIfExists(s.file());
+            } catch (IOException e) {
+                throw new UncheckedIOException("错误：无法删除归档段 " + s.file(), e);
+            }
+        }
+    }
+
+    private static void clearDirectory(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)).toList()) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：无法初始化归档目录 " + directory, e);
+        }
+    }
+
+    // --- 查询：返回的 Order 是按记录新建的只读副本，状态恒为 FINISHED ---
+
+    public boolean contains(int orderID) {
+        for (Segment[] segments : segmentsByType.values()) {
+            for (Segment s : segments) {
+                if (s.indexOf(orderID) >= 0) return true;
+            }
+        }
+        return false;
+    }
+
+    // 按订单号查找，不存在时返回 null
+    public Order find(int orderID) {
+        for (Map.Entry<String, Segment[]> entry : segmentsByType.entrySet()) {
+            for (Segment s : entry.getValue()) {
+                int i = s.indexOf(orderID);
+                if (i >= 0) return toOrder(entry.getKey(), s, i, guestNames);
+            }
+        }
+        return null;
+    }
+
+    // 某住客的全部归档订单，按入住日、订单号排序
+    public List<Order> findByGuest(String guestID) {
+        Integer code = guestCodes.get(guestID);
+        if (code == null) return List.of();
+        List<Order> result = new ArrayList<>();
+        for (Map.Entry<String, Segment[]> entry : segmentsByType.entrySet()) {
+            Segment[] segments = entry.getValue();
+            String[] names = guestNames;
+            for (Segment s : segments) {
+                for (int k = s.lowerBoundGuest(code); k < s.size() && s.guest(s.byGuest(k)) == code; k++) {
+                    result.add(toOrder(entry.getKey(), s, s.byGuest(k), names));
+                }
+            }
+        }
+        result.sort(OrderIndexes.BY_START);
+        return result;
+    }
+
+    // 某房型的全部归档记录，按段、段内按订单号的顺序
+    public void forEach(String roomType, Visitor visitor) {
+        Segment[] segments = segmentsByType.getOrDefault(roomType, new Segment[0]);
+        String[] names = guestNames;
+        for (Segment s : segments) {
+            for (int i = 0; i < s.size(); i++) {
+                visitor.visit(s.orderID(i), names[s.guest(i)], s.startDay(i), s.stayTime(i), s.roomID(i), s.priceCents(i));
+            }
+        }
+    }
+
+    /**
+     * 全部归档订单的只读视图：按下标访问时才生成 Order，可用 parallelStream 并行遍历
+     */
+    public List<Order> orders() {
+        return view(OrderArchive::toOrder);
+    }
+
+    /**
+     * 全部归档订单在收入统计中的份额（重建收入统计、快照装载时使用），同样按下标生成
+     */
+    public List<RevenueAnalytics.ArchivedStay> stays() {
+        return view((type, s, i, names) -> new RevenueAnalytics.ArchivedStay(type, s.roomID(i), s.startDay(i), s.stayTime(i), s.priceCents(i)));
+    }
+
+    // 把段内第 i 条记录转换为视图元素
+    @FunctionalInterface
+    private interface RecordMapper<T> {
+        T map(String roomType, Segment s, int i, String[] names);
+    }
+
+    private <T> List<T> view(RecordMapper<T> mapper) {
+        List<String> types = new ArrayList<>();
+        List<Segment> segments = new ArrayList<>();
+        segmentsByType.forEach((type, array) -> {
+            for (Segment s : array) {
+                types.add(type);
+                segments.add(s);
+            }
+        });
+        String[] names = guestNames;
+        int[] offsets = new int[segments.size() + 1];
+        for (int i = 0; i < segments.size(); i++) offsets[i + 1] = offsets[i] + segments.get(i).size();
+        return new View<>(types, segments, offsets, names, mapper);
+    }
+
+    private static final class View<T> extends AbstractList<T> implements RandomAccess {
+        private final List<String> types;
+        private final List<Segment> segments;
+        private final int[] offsets;
+        private final String[] names;
+        private final RecordMapper<T> mapper;
+
+        View(List<String> types, List<Segment> segments, int[] offsets, String[] names, RecordMapper<T> mapper) {
+            this.types = types;
+            this.segments = segments;
+            this.offsets = offsets;
+            this.names = names;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+            int s = Arrays.binarySearch(offsets, index);
+            s = s >= 0 ? s : -s - 2; // 段都不为空，offsets 严格递增
+            return mapper.map(types.get(s), segments.get(s), index - offsets[s], names);
+        }
+
+        @Override
+        public int size() {
+            return offsets[offsets.length - 1];
+        }
+    }
+
+    private static Order toOrder(String roomType, Segment s, int i, String[] names) {
+        int roomID = s.roomID(i);
+        return new Order(s.orderID(i), names[s.guest(i)], LocalDate.ofEpochDay(s.startDay(i)), s.stayTime(i), roomType,
+                roomID < 0 ? null : roomID, OrderStatus.FINISHED);
+    }
+
+    // 有归档记录的房型
+    public Set<String> getRoomTypes() {
+        return Set.copyOf(segmentsByType.keySet());
+    }
+
+    public long size() {
+        long total = 0;
+        for (Segment[] segments : segmentsByType.values()) {
+            for (Segment s : segments) total += s.size();
+        }
+        return total;
+    }
+
+    public synchronized Stats getStats() {
+        long orders = 0, bytes = 0;
+        int count = 0;
+        for (Segment[] segments : segmentsByType.values()) {
+            for (Segment s : segments) {
+                orders += s.size();
+                bytes += s.data().capacity();
+                count++;
+            }
+        }
+        return new Stats(orders, count, bytes, guestCount, directory != null, retentionDays);
+    }
+}
@@ -0,0 +1,116 @@
+package me.amboo.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import me.amboo.model.Order;
+import me.amboo.model.Order.OrderStatus;
+
+/**
+ * OrderService 的二级索引：住客 -> 订单、状态 -> 订单、房型 -> (入住日 -> 订单)
+ * 写入都发生在订单所属房型的锁内（与 allOrders、库存线段树同一临界区）；读取无锁。
+ * 状态迁移时先登记到新状态、再修改订单状态、最后从旧状态移除，因此并发读者按“当前状态”过滤后不会漏掉订单。
+ * 住客索引跨房型共享，增删空集合用 compute 原子完成。
+ */
+final class OrderIndexes {
+    static final Comparator<Order> BY_START = Comparator.comparingInt(Order::getStartDay).thenComparingInt(Order::getOrderID);
+
+    private final Map<String, Set<Order>> byGuest = new ConcurrentHashMap<>();
+    private final Map<OrderStatus, Set<Order>> byStatus = new EnumMap<>(OrderStatus.class);
+    private final Map<String, NavigableMap<LocalDate, Set<Order>>> byTypeAndStart = new ConcurrentHashMap<>();
+
+    OrderIndexes() {
+        for (OrderStatus status : OrderStatus.values()) byStatus.put(status, ConcurrentHashMap.newKeySet());
+    }
+
+    void add(Order order) {
+        byGuest.compute(order.getGuestID(), (guest, orders) -> {
+            if (orders == null) orders = ConcurrentHashMap.newKeySet();
+            orders.add(order);
+            return orders;
+        });
+        byStatus.get(order.getStatus()).add(order);
+        byTypeAndStart.computeIfAbsent(order.getOrderType(), type -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(order.getStartDate(), day -> ConcurrentHashMap.newKeySet())
+                .add(order);
+    }
+
+    void remove(Order order) {
+        byGuest.computeIfPresent(order.getGuestID(), (guest, orders) -> {
+            orders.remove(order);
+            return orders.isEmpty() ? null : orders;
+        });
+        byStatus.get(order.getStatus()).remove(order);
+        NavigableMap<LocalDate, Set<Order>> byStart = byTypeAndStart.get(order.getOrderType());
+        if (byStart != null) {
+            byStart.computeIfPresent(order.getStartDate(), (day, orders) -> {
+                orders.remove(order);
+                return orders.isEmpty() ? null : orders;
+            });
+        }
+    }
+
+    /**
+     * 在索引中完成一次状态迁移：change 负责修改订单状态（并在状态不合法时抛出）
+     * 订单已不在索引中（已取消或已归档）时抛出，不会把它重新登记到新状态下
+     */
+    void transition(Order order, OrderStatus target, Runnable change) {
+        OrderStatus previous = order.getStatus();
+        if (!byStatus.get(previous).contains(order)) {
+            throw new IllegalStateException("错误：订单 " + order.getOrderID() + " 已不在实时订单中");
+        }
+        Set<Order> next = byStatus.get(target);
+        boolean added = next.add(order);
+        try {
+            change.run();
+        } catch (RuntimeException e) {
+            if (added) next.remove(order);
+            throw e;
+        }
+        if (previous != target) byStatus.get(previous).remove(order);
+    }
+
+    List<Order> byGuest(String guestID) {
+        return sorted(byGuest.getOrDefault(guestID, Set.of()), null);
+    }
+
+    List<Order> byStatus(OrderStatus status) {
+        return sorted(byStatus.get(status), status);
+    }
+
+    // 房型 type 中入住日在 [from, to) 的订单；type 为 null 时遍历全部房型
+    List<Order> startingBetween(String type, LocalDate from, LocalDate to, OrderStatus status) {
+        List<Order> result = new ArrayList<>();
+        Collection<NavigableMap<LocalDate, Set<Order>>> maps = type == null
+                ? byTypeAndStart.values()
+                : List.of(byTypeAndStart.getOrDefault(type, new ConcurrentSkipListMap<>()));
+        for (NavigableMap<LocalDate, Set<Order>> byStart : maps) {
+            for (Set<Order> orders : byStart.subMap(from, true, to, false).values()) {
+                for (Order order : orders) {
+                    if (status == null || order.getStatus() == status) result.add(order);
+                }
+            }
+        }
+        result.sort(BY_START);
+        return result;
+    }
+
+    // status 不为 null 时按订单的当前状态过滤掉迁移中尚未移除的条目
+    private static List<Order> sorted(Collection<Order> orders, OrderStatus status) {
+        List<Order> result = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            if (status == null || order.getStatus() == status) result.add(order);
+        }
+        result.sort(BY_START);
+        return result;
+    }
+}
@@ -1,52 +1,240 @@
 package me.amboo.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import me.amboo.analytics.RevenueAnalytics;
+import me.amboo.algorithm.RangeMaxSegmentTree;
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalEvent;
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.model.BookingRequest;
 import me.amboo.model.Order;
+import me.amboo.model.OrderStore;
 import me.amboo.model.Room;
+import me.amboo.model.RoomTypes;
+import me.amboo.model.StringDictionary;
+import me.amboo.service.id.OrderIdGenerator;
 
+/**
+ * 订单服务
+ * 线程安全：同一房型的库存判断与占用在该房型的条带锁内完成，涉及具体房间时再获取房间锁，
+ * 加锁顺序固定为 房型 -> 房间（见 StripedLocks），不同房型、不同房间的操作可以并行
+ */
 @Getter
 public class OrderService {
+    public static final int MAX_GUEST_ID_LENGTH = 64; // 住客 ID 写进日志与快照，长度有上限
+
     // 核心功能：预订房间
     // 逻辑：先找房，再建单，最后绑定
-    private Map<Integer, Order> allOrders = new HashMap<>(); //
+    private Map<Integer, Order> allOrders = new ConcurrentHashMap<>(); //
     private RoomService roomService; //
+    // 库存索引：房型 -> 以 epochDay 为下标的线段树，记录每天占用库存的订单数（由房型锁保护）
+    private Map<String, RangeMaxSegmentTree> demandByType = new ConcurrentHashMap<>();
+    // 订单的列式存储：每个房型条带一个，分配与释放都在该条带的房型锁内；住客编码由全部存储共享
+    @Getter(AccessLevel.NONE)
+    private final OrderStore[] stores;
+    // 二级索引：住客、状态、房型 + 入住日（由房型锁保护写入）
+    @Getter(AccessLevel.NONE)
+    private final OrderIndexes indexes = new OrderIndexes();
+    // 冷存储：已结束且超过保留期的订单移出上面的实时结构后存放在这里
+    private final OrderArchive archive;
+    // 自动排房：为预抵订单生成排房计划，第一次使用时创建（构造器不把 this 交给其他对象）
+    @Getter(AccessLevel.NONE)
+    private volatile RoomAssignmentEngine assignments;
+    private StripedLocks locks;
+    // 订单号生成器
+    private OrderIdGenerator idGenerator;
+    // 预写日志，未挂接时不记录（例如正在回放日志）
+    @Getter(AccessLevel.NONE)
+    private final JournalLink journal = new JournalLink();
 
     public OrderService(RoomService roomService) {
+        this(roomService, OrderIdGenerator.inMemory());
+    }
+
+    public OrderService(RoomService roomService, OrderIdGenerator idGenerator) {
+        this(roomService, idGenerator, new OrderArchive());
+    }
+
+    public OrderService(RoomService roomService, OrderIdGenerator idGenerator, OrderArchive archive) {
         this.roomService = roomService;
+        this.locks = roomService.getLocks();
+        this.idGenerator = idGenerator;
+        this.archive = archive;
+        StringDictionary guests = new StringDictionary();
+        this.stores = new OrderStore[locks.typeStripeCount()];
+        for (int i = 0; i < stores.length; i++) stores[i] = new OrderStore(guests);
     }
 
     // 下单逻辑：仅根据房型库存判断
     public Order placeOrder(String guestID, LocalDate startDate, int stayTime, String roomType) {
-        // 1. 获取该房型的物理房间总数
-        long totalRoomsOfType = roomService.getAllRooms().stream()
-                .filter(r -> r.getRoomType().equals(roomType))
-                .count(); // 将 r.getRoomType() 与 roomType 作比较，如果相等则计数器自增。工作流彻底结束后将计数器的值赋给这个long变量
-
-        // 2. 检查在预订时段内，每一天的“已订”订单数是否超过总房数
-        for (int i = 0; i < stayTime; i++) {
-            LocalDate dateToCheck = startDate.plusDays(i);
-            
-            // 统计该日期、该房型下，有多少个订单（已预订或已入住）
-            long occupiedCount = allOrders.values().stream()
-                    .filter(o -> o.getOrderType().equals(roomType))
-                    .filter(o -> o.getStatus() == Order.OrderStatus.BOOKED || o.getStatus() == Order.OrderStatus.OCCUPIED)
-                    // 使用 Order 类中已有的时间判断逻辑：如果当前日期处于订单区间内
-                    .filter(o -> !dateToCheck.isBefore(o.getStartDate()) && dateToCheck.isBefore(o.getEndDate()))
-                    .count();
-
-            if (occupiedCount >= totalRoomsOfType) {
-                throw new IllegalStateException("错误：" + dateToCheck + " 该房型已售罄");
+        return book(null, guestID, startDate, stayTime, roomType);
+    }
+
+    // 以指定订单号下单：用于日志回放等数据恢复场景，库存检查与普通下单完全一致
+    public Order placeOrder(int orderID, String guestID, LocalDate startDate, int stayTime, String roomType) {
+        return book(orderID, guestID, startDate, stayTime, roomType);
+    }
+
+    private Order book(Integer orderID, String guestID, LocalDate startDate, int stayTime, String roomType) {
+        // 天数为 0 或负数时区间 [from, to) 为空，库存检查会直接放行，必须先拒绝
+        if (stayTime <= 0) throw new IllegalArgumentException("错误：预定天数必须大于0");
+        String invalid = checkNames(guestID, roomType);
+        if (invalid != null) throw new IllegalArgumentException(invalid);
+        return HotelMetrics.PLACE_ORDER.time(() -> {
+            Order newOrder;
+            long seq;
+            ReentrantLock typeLock = locks.forType(roomType);
+            typeLock.lock();
+            try {
+                // 1. 获取该房型的物理房间总数
+                int totalRoomsOfType = roomService.getRoomCount(roomType);
+
+                // 2. 一次区间查询：预订时段内“已订”订单数的最大值是否已达到总房数
+                long from = startDate.toEpochDay();
+                long to = from + stayTime;
+                RangeMaxSegmentTree demand = demandTree(roomType);
+                if (demand.max(from, to) >= totalRoomsOfType) {
+                    throw new IllegalStateException("错误：" + firstSoldOutDay(demand, from, to, totalRoomsOfType) + " 该房型已售罄");
+                }
+
+                // 3. 库存储备充足，生成订单，但不与具体 Room 绑定
+                newOrder = orderID == null
+                        ? newOrder(guestID, startDate, stayTime, roomType)
+                        : restoreOrder(orderID, guestID, startDate, stayTime, roomType);
+                demand.add(from, to, 1); // 一次区间更新：占用这段时间的库存
+                indexes.add(newOrder);
+                roomService.getAnalytics().orderBooked(newOrder);
+                seq = journal.append(new JournalEvent.OrderPlaced(newOrder.getOrderID(), guestID, startDate, stayTime, roomType));
+            } finally {
+                typeLock.unlock();
+            }
+            journal.awaitDurable(seq);
+            return newOrder;
+        });
+    }
+
+    /**
+     * 批量 / 团体预订：整批要么全部成功，要么全部撤销
+     * 按条带下标升序锁住涉及的全部房型，在线段树上逐项试占库存（后面的请求能看到前面请求的占用），
+     * 一遍检查完毕后整体提交；任何一项失败则撤销已试占的库存，不生成任何订单。
+     * 整批作为一条日志记录写入，崩溃恢复时同样不会只留下一部分。
+     */
+    public BatchBookingResult placeOrders(List<BookingRequest> requests) {
+        return HotelMetrics.PLACE_ORDERS.time(() -> {
+            long begin = System.nanoTime();
+            int n = requests.size();
+            String[] errors = new String[n];
+            Order[] orders = new Order[n];
+
+            // 0. 参数校验，并按房型分组
+            Map<String, List<Integer>> byType = new HashMap<>();
+            boolean valid = true;
+            for (int i = 0; i < n; i++) {
+                BookingRequest r = requests.get(i);
+                if (r.roomType() == null || r.startDate() == null) errors[i] = "错误：入住日期和房型不能为空";
+                else if (r.stayTime() <= 0) errors[i] = "错误：预定天数必须大于0";
+                else errors[i] = checkNames(r.guestID(), r.roomType());
+                if (errors[i] == null) byType.computeIfAbsent(r.roomType(), type -> new ArrayList<>()).add(i);
+                valid &= errors[i] == null;
             }
+            if (!valid) return batchResult(false, requests, orders, errors, 0, begin);
+
+            // 1. 按条带下标升序加锁，避免与其他批量操作死锁
+            int[] stripes = byType.keySet().stream().mapToInt(locks::typeStripe).distinct().sorted().toArray();
+            for (int stripe : stripes) locks.typeStripeLock(stripe).lock();
+            long lockWait = System.nanoTime() - begin;
+            long seq = 0;
+            boolean committed;
+            try {
+                // 2. 一遍检查：逐项试占库存
+                List<Integer> reserved = new ArrayList<>(n);
+                for (Map.Entry<String, List<Integer>> entry : byType.entrySet()) {
+                    int capacity = roomService.getRoomCount(entry.getKey());
+                    RangeMaxSegmentTree demand = demandTree(entry.getKey());
+                    for (int i : entry.getValue()) {
+                        BookingRequest r = requests.get(i);
+                        long from = r.startDate().toEpochDay();
+                        long to = from + r.stayTime();
+                        if (demand.max(from, to) >= capacity) {
+                            errors[i] = "错误：" + firstSoldOutDay(demand, from, to, capacity) + " 该房型已售罄";
+                        } else {
+                            demand.add(from, to, 1);
+                            reserved.add(i);
+                        }
+                    }
+                }
+                committed = reserved.size() == n;
+
+                // 3. 整体提交或整体撤销
+                if (committed) {
+                    seq = commitBatch(requests, orders);
+                } else {
+                    for (int i : reserved) releaseInventory(requests.get(i));
+                }
+            } finally {
+                for (int k = stripes.length - 1; k >= 0; k--) locks.typeStripeLock(stripes[k]).unlock();
+            }
+            journal.awaitDurable(seq);
+            return batchResult(committed, requests, orders, errors, lockWait, begin);
+        });
+    }
+
+    // 库存已全部试占成功后生成订单并记日志；分配订单号失败时撤销已生成的订单和试占的库存后抛出
+    private long commitBatch(List<BookingRequest> requests, Order[] orders) {
+        try {
+            for (int i = 0; i < orders.length; i++) {
+                BookingRequest r = requests.get(i);
+                orders[i] = newOrder(r.guestID(), r.startDate(), r.stayTime(), r.roomType());
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < orders.length; i++) {
+                if (orders[i] != null) {
+                    allOrders.remove(orders[i].getOrderID());
+                    store(orders[i].getOrderType()).release(orders[i]);
+                }
+                releaseInventory(requests.get(i));
+            }
+            throw e;
         }
+        List<JournalEvent.OrderPlaced> events = new ArrayList<>(orders.length);
+        for (Order order : orders) {
+            indexes.add(order);
+            roomService.getAnalytics().orderBooked(order);
+            events.add(new JournalEvent.OrderPlaced(order.getOrderID(), order.getGuestID(), order.getStartDate(), order.getStayTime(), order.getOrderType()));
+        }
+        return journal.append(new JournalEvent.OrdersPlaced(events));
+    }
 
-        // 3. 库存储备充足，生成订单，但不与具体 Room 绑定
-        Order newOrder = new Order(guestID, startDate, stayTime, roomType); //
-        allOrders.put(newOrder.getOrderID(), newOrder);
-        return newOrder;
+    // 住客 ID 与房型名会写进日志和快照：在改动任何状态之前校验，不合法时返回错误信息
+    private static String checkNames(String guestID, String roomType) {
+        if (guestID == null) return "错误：住客 ID 不能为空";
+        if (guestID.length() > MAX_GUEST_ID_LENGTH) return "错误：住客 ID 不能超过 " + MAX_GUEST_ID_LENGTH + " 个字符";
+        if (roomType != null && roomType.length() > RoomTypes.MAX_NAME_LENGTH) return "错误：房型名不能超过 " + RoomTypes.MAX_NAME_LENGTH + " 个字符";
+        return null;
+    }
+
+    private static BatchBookingResult batchResult(boolean committed, List<BookingRequest> requests, Order[] orders, String[] errors,
+                                                  long lockWait, long begin) {
+        List<BatchBookingResult.Item> items = new ArrayList<>(orders.length);
+        for (int i = 0; i < orders.length; i++) {
+            String error = committed ? null : errors[i] != null ? errors[i] : "未提交：同批其他预订失败，整批已撤销";
+            items.add(new BatchBookingResult.Item(requests.get(i), orders[i], error));
+        }
+        return new BatchBookingResult(committed, items, lockWait, System.nanoTime() - begin);
     }
 
     /**
@@ -54,34 +242,421 @@ public class OrderService {
      * 将 Order 与具体的 Room 进行物理绑定
      */
     public void processCheckIn(int orderID, int roomID) {
-        Order order = findOrderOrThrow(orderID);
-        Room room = roomService.findRoomById(roomID);
-
-        if (room == null) throw new IllegalArgumentException("房间不存在");
-        if (!room.getRoomType().equals(order.getOrderType())) throw new IllegalStateException("房型不匹配");
-
-        // 调用 Room 内部逻辑：检查该房间物理上是否可用（考虑昨天的打扫状态和未来冲突）
-        if (room.canBeDistribute(order.getStartDate(), order.getStayTime())) {
-            room.addOrder(order); // 正式写入房间的 orderList 和索引
-            order.CheckIn();      // 修改状态为 OCCUPIED
-        } else {
-            throw new IllegalStateException("该房间当前无法分配（未打扫或有物理冲突）");
-        }
+        HotelMetrics.CHECK_IN.run(() -> {
+            Order order = findOrderOrThrow(orderID);
+            Room room = roomService.findRoomById(roomID);
+
+            if (room == null) throw new IllegalArgumentException("房间不存在");
+            if (room.getTypeCode() != order.getTypeCode()) throw new IllegalStateException("房型不匹配");
+
+            long seq;
+            ReentrantLock typeLock = locks.forType(order.getOrderType());
+            ReentrantLock roomLock = locks.forRoom(roomID);
+            typeLock.lock();
+            roomLock.lock();
+            try {
+                // 加锁后再确认：订单仍然有效且未被其他线程办理入住，房间也没有被删除
+                if (allOrders.get(orderID) != order) throw new IllegalArgumentException("错误：未找到 ID 为 " + orderID + " 的订单");
+                if (order.getStatus() != Order.OrderStatus.BOOKED) throw new IllegalArgumentException("该订单状态不是 BOOKED");
+                if (roomService.findRoomById(roomID) != room) throw new IllegalArgumentException("房间不存在");
+
+                // 调用 Room 内部逻辑：检查该房间物理上是否可用（考虑昨天的打扫状态和未来冲突）
+                if (room.canBeDistribute(order.getStartDate(), order.getStayTime())) {
+                    room.addOrder(order); // 正式写入房间的 orderList 和索引
+                    indexes.transition(order, Order.OrderStatus.OCCUPIED, order::CheckIn); // 修改状态为 OCCUPIED
+                    seq = journal.append(new JournalEvent.CheckedIn(orderID, roomID));
+                } else {
+                    throw new IllegalStateException("该房间当前无法分配（未打扫或有物理冲突）");
+                }
+            } finally {
+                roomLock.unlock();
+                typeLock.unlock();
+            }
+            journal.awaitDurable(seq);
+        });
     }
 
     // 办理退房
     public void processCheckOut(int orderID, int roomID) {
-        Order order = findOrderOrThrow(orderID);
-        order.CheckOut(); // 修改状态为 CLEANING
+        HotelMetrics.CHECK_OUT.run(() -> {
+            Order order = findOrderOrThrow(orderID);
+            journal.awaitDurable(withOrderLocks(order, () -> {
+                if (!Integer.valueOf(roomID).equals(order.getRoomID())) {
+                    throw new IllegalArgumentException("错误：订单 " + orderID + " 不在房间 " + roomID);
+                }
+                indexes.transition(order, Order.OrderStatus.CLEANING, order::CheckOut); // 修改状态为 CLEANING
+                releaseInventory(order); // 退房后不再占用库存
+                notifyRoom(order);
+                return journal.append(new JournalEvent.CheckedOut(orderID, roomID));
+            }));
+        });
+    }
+
+    // 打扫完成：订单结束，房间可以再次分配
+    public void processCleaning(int orderID) {
+        HotelMetrics.CLEANING.run(() -> {
+            Order order = findOrderOrThrow(orderID);
+            journal.awaitDurable(withOrderLocks(order, () -> {
+                indexes.transition(order, Order.OrderStatus.FINISHED, order::Cleaning); // 修改状态为 FINISHED
+                notifyRoom(order);
+                return journal.append(new JournalEvent.CleaningDone(orderID));
+            }));
+        });
+    }
+
+    // 已绑定房间的订单状态变化后，通知房间的监听器（可用性位图等）
+    private void notifyRoom(Order order) {
+        if (order.getRoomID() == null) return;
+        Room room = roomService.findRoomById(order.getRoomID());
+        if (room != null) room.orderStatusChanged(order);
     }
 
     // 取消订单
     public void cancelOrder(int orderID, int roomID) {
-        Room room = roomService.findRoomById(roomID);
-        if (room == null) throw new IllegalArgumentException("房间不存在");
+        HotelMetrics.CANCEL_ORDER.run(() -> {
+            Room room = roomService.findRoomById(roomID);
+            if (room == null) throw new IllegalArgumentException("房间不存在");
+
+            long seq;
+            ReentrantLock typeLock = locks.forType(room.getRoomType());
+            ReentrantLock roomLock = locks.forRoom(roomID);
+            typeLock.lock();
+            roomLock.lock();
+            try {
+                room.deleteOrder(orderID); // 从房间的预订列表中移除
+                Order removed = allOrders.remove(orderID);  // 从总索引中移除
+                if (removed != null) {
+                    if (holdsInventory(removed)) releaseInventory(removed);
+                    indexes.remove(removed);
+                    roomService.getAnalytics().orderCancelled(removed);
+                    store(removed.getOrderType()).release(removed);
+                }
+                seq = journal.append(new JournalEvent.OrderCancelled(orderID, roomID));
+            } finally {
+                roomLock.unlock();
+                typeLock.unlock();
+            }
+            journal.awaitDurable(seq);
+        });
+    }
+
+    // 挂接预写日志；应在回放完成之后调用
+    public void setJournal(Journal journal) {
+        this.journal.set(journal);
+    }
+
+    // 在订单所属房型锁（以及已绑定房间的房间锁）内执行状态变更，返回日志序号
+    // 订单是在锁外查到的：加锁后先确认它仍是有效订单（未被并发取消或归档），否则会重复释放库存
+    private long withOrderLocks(Order order, LongSupplier action) {
+        ReentrantLock typeLock = locks.forType(order.getOrderType());
+        typeLock.lock();
+        try {
+            if (allOrders.get(order.getOrderID()) != order) {
+                throw new IllegalArgumentException("错误：未找到 ID 为 " + order.getOrderID() + " 的订单");
+            }
+            Integer roomID = order.getRoomID();
+            ReentrantLock roomLock = roomID == null ? null : locks.forRoom(roomID);
+            if (roomLock != null) roomLock.lock();
+            try {
+                return action.getAsLong();
+            } finally {
+                if (roomLock != null) roomLock.unlock();
+            }
+        } finally {
+            typeLock.unlock();
+        }
+    }
+
+    // 分配订单号并登记订单；绝不覆盖已有订单（例如从外部恢复的订单恰好占用了生成器将要发出的号）
+    private Order newOrder(String guestID, LocalDate startDate, int stayTime, String roomType) {
+        OrderStore store = store(roomType);
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            Order order = store.create(idGenerator.nextId(), guestID, (int) startDate.toEpochDay(), stayTime, roomType,
+                    null, Order.OrderStatus.BOOKED);
+            if (allOrders.putIfAbsent(order.getOrderID(), order) == null) {
+                if (!archive.contains(order.getOrderID())) return order;
+                allOrders.remove(order.getOrderID(), order);
+            }
+            store.release(order);
+        }
+        throw new IllegalStateException("错误：无法分配不重复的订单号");
+    }
+
+    private Order restoreOrder(int orderID, String guestID, LocalDate startDate, int stayTime, String roomType) {
+        if (allOrders.containsKey(orderID) || archive.contains(orderID)) {
+            throw new IllegalArgumentException("错误：ID 为 " + orderID + " 的订单已存在");
+        }
+        OrderStore store = store(roomType);
+        Order order = store.create(orderID, guestID, (int) startDate.toEpochDay(), stayTime, roomType, null, Order.OrderStatus.BOOKED);
+        if (allOrders.putIfAbsent(orderID, order) != null) {
+            store.release(order);
+            throw new IllegalArgumentException("错误：ID 为 " + orderID + " 的订单已存在");
+        }
+        idGenerator.reserve(orderID);
+        return order;
+    }
+
+    private OrderStore store(String roomType) {
+        return stores[locks.typeStripe(roomType)];
+    }
+
+    /**
+     * 在订单存储中生成一个订单（快照装载），此时尚未登记到服务，须随后整体交给 restoreOrders
+     * @param roomID 未入住的订单为 null；已绑定房间的订单还须由调用方写入对应 Room
+     */
+    public Order restoredOrder(int orderID, String guestID, LocalDate startDate, int stayTime, String roomType,
+                               Integer roomID, Order.OrderStatus status) {
+        return store(roomType).create(orderID, guestID, (int) startDate.toEpochDay(), stayTime, roomType, roomID, status);
+    }
+
+    /**
+     * 批量恢复订单（快照装载）：按房型并行重建订单索引与库存线段树，不做库存检查也不写日志
+     * 已绑定房间的订单须由调用方先写入对应 Room；只应在服务开放之前调用
+     */
+    public void restoreOrders(Collection<Order> orders) {
+        HotelMetrics.RESTORE_ORDERS.run(() -> {
+            Map<String, List<Order>> byType = orders.parallelStream()
+                    .collect(Collectors.groupingByConcurrent(Order::getOrderType));
+            byType.entrySet().parallelStream().forEach(entry -> {
+                ReentrantLock typeLock = locks.forType(entry.getKey());
+                typeLock.lock();
+                try {
+                    RangeMaxSegmentTree demand = demandTree(entry.getKey());
+                    OrderStore store = store(entry.getKey());
+                    for (Order order : entry.getValue()) {
+                        if (!store.contains(order)) {
+                            throw new IllegalArgumentException("错误：订单 " + order.getOrderID() + " 不是由 restoredOrder 生成的");
+                        }
+                        if (allOrders.putIfAbsent(order.getOrderID(), order) != null) {
+                            throw new IllegalArgumentException("错误：ID 为 " + order.getOrderID() + " 的订单已存在");
+                        }
+                        indexes.add(order);
+                        roomService.getAnalytics().orderBooked(order);
+                        idGenerator.reserve(order.getOrderID());
+                        if (holdsInventory(order)) {
+                            long from = order.getStartDay();
+                            demand.add(from, from + order.getStayTime(), 1);
+                        }
+                    }
+                } finally {
+                    typeLock.unlock();
+                }
+            });
+        });
+    }
 
-        room.deleteOrder(orderID); // 从房间的预订列表中移除
-        allOrders.remove(orderID);  // 从总索引中移除
+    // --- 冷热分层：归档已结束的订单 ---
+
+    // 按冷存储配置的保留期归档：退房日早于 今天 - 保留天数 的已结束订单
+    public int archiveFinished() {
+        return archiveFinished(archive.defaultCutoff(LocalDate.now()));
+    }
+
+    /**
+     * 把退房日早于 before 的 FINISHED 订单移入冷存储，每个房型记一条日志
+     * 候选订单在房型锁外挑选并写成归档段；锁内只复核候选仍是实时的已结束订单，再发布该段并从实时结构
+     * （总表、房型集合、二级索引、房间区间索引）中移除，并发的查询至少能在一处找到它。段的合并在全部锁外进行。
+     * @return 归档的订单数
+     */
+    public int archiveFinished(LocalDate before) {
+        return HotelMetrics.ORDER_ARCHIVE.time(() -> {
+            int archived = 0;
+            long seq = 0;
+            for (String type : getOrderRoomTypes()) {
+                List<Order> expired = expiredOrders(type, before);
+                if (expired.isEmpty()) continue;
+                OrderArchive.Batch batch = batchOf(type, expired);
+                OrderArchive.Sealed sealed = archive.prepare(batch);
+                ReentrantLock typeLock = locks.forType(type);
+                typeLock.lock();
+                try {
+                    // 挑选之后有订单被取消、被另一次归档移走或房间改了价时，在锁内按最新状态重新挑选（少见）
+                    if (!stillArchivable(expired, batch)) {
+                        archive.discard(sealed);
+                        expired = expiredOrders(type, before);
+                        if (expired.isEmpty()) continue;
+                        sealed = archive.prepare(batchOf(type, expired));
+                    }
+                    moveToArchive(type, expired, sealed);
+                    archived += expired.size();
+                    seq = journal.append(new JournalEvent.OrdersArchived(type, expired.stream().map(Order::getOrderID).toList()));
+                } finally {
+                    typeLock.unlock();
+                }
+            }
+            journal.awaitDurable(seq);
+            archive.compact();
+            return archived;
+        });
+    }
+
+    // 归档指定的订单（日志回放）；订单必须仍在实时结构中且已结束
+    public void archiveOrders(String roomType, List<Integer> orderIDs) {
+        HotelMetrics.ORDER_ARCHIVE.run(() -> {
+            long seq;
+            ReentrantLock typeLock = locks.forType(roomType);
+            typeLock.lock();
+            try {
+                List<Order> orders = new ArrayList<>(orderIDs.size());
+                for (int orderID : orderIDs) {
+                    Order order = findOrderOrThrow(orderID);
+                    if (!order.getOrderType().equals(roomType)) throw new IllegalArgumentException("房间类型不匹配");
+                    if (order.getStatus() != Order.OrderStatus.FINISHED) {
+                        throw new IllegalStateException("错误：订单 " + orderID + " 尚未结束，不能归档");
+                    }
+                    orders.add(order);
+                }
+                moveToArchive(roomType, orders, archive.prepare(batchOf(roomType, orders)));
+                seq = journal.append(new JournalEvent.OrdersArchived(roomType, List.copyOf(orderIDs)));
+            } finally {
+                typeLock.unlock();
+            }
+            journal.awaitDurable(seq);
+            archive.compact();
+        });
+    }
+
+    // 房型 type 中退房日早于 before 的已结束订单；退房日早于界限的订单入住日必然也早于界限，只需扫描入住日索引的前段
+    private List<Order> expiredOrders(String type, LocalDate before) {
+        long cutoff = before.toEpochDay();
+        List<Order> expired = new ArrayList<>();
+        for (Order order : indexes.startingBetween(type, LocalDate.MIN, before, Order.OrderStatus.FINISHED)) {
+            if (order.getEndDay() < cutoff) expired.add(order);
+        }
+        return expired;
+    }
+
+    // 记下每个订单此刻的房价，归档后的收入按它计入，不再随改价变化
+    private OrderArchive.Batch batchOf(String roomType, List<Order> orders) {
+        OrderArchive.Batch batch = new OrderArchive.Batch(roomType);
+        for (Order order : orders) batch.add(order, archivedPrice(order));
+        return batch;
+    }
+
+    // 订单所在房间的每晚房价（分）；未分配房间或房间已删除时为 -1，不计入已售间夜
+    private int archivedPrice(Order order) {
+        Integer roomID = order.getRoomID();
+        Room room = roomID == null ? null : roomService.findRoomById(roomID);
+        if (room == null || room.getTypeCode() != order.getTypeCode()) return -1;
+        return Math.toIntExact(RevenueAnalytics.priceCents(room));
+    }
+
+    // 锁外写成的批次是否仍然有效：订单仍是实时的已结束订单，房价也没有变过；调用方持有该房型锁
+    private boolean stillArchivable(List<Order> orders, OrderArchive.Batch batch) {
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            if (allOrders.get(order.getOrderID()) != order || order.getStatus() != Order.OrderStatus.FINISHED) return false;
+            if (archivedPrice(order) != batch.priceCents(i)) return false;
+        }
+        return true;
+    }
+
+    // 调用方持有该房型锁，sealed 是 orders 写成的段；每个订单在其房间锁内移出房间
+    private void moveToArchive(String roomType, List<Order> orders, OrderArchive.Sealed sealed) {
+        archive.publish(sealed);
+        for (Order order : orders) {
+            Integer roomID = order.getRoomID();
+            Room room = roomID == null ? null : roomService.findRoomById(roomID);
+            if (room != null) {
+                ReentrantLock roomLock = locks.forRoom(roomID);
+                roomLock.lock();
+                try {
+                    room.archiveOrder(order);
+                } finally {
+                    roomLock.unlock();
+                }
+            }
+            allOrders.remove(order.getOrderID(), order);
+            indexes.remove(order);
+            store(roomType).release(order);
+        }
+    }
+
+    /**
+     * 从实时订单与冷存储重建收入统计；冷存储在全部房型锁内读取，不会与并发的归档交错
+     */
+    public void rebuildAnalytics() {
+        roomService.rebuildAnalytics(allOrders.values(), archive::stays);
+    }
+
+    /**
+     * 批量恢复归档（快照装载）：冷存储须为空，房间须已恢复；同时把归档订单计入收入统计。只应在服务开放之前调用
+     */
+    public void restoreArchive(Collection<OrderArchive.Batch> batches) {
+        if (archive.size() > 0) throw new IllegalStateException("错误：冷存储不为空，不能恢复归档");
+        for (OrderArchive.Batch batch : batches) {
+            archive.publish(archive.prepare(batch));
+            for (int i = 0; i < batch.size(); i++) idGenerator.reserve(batch.orderID(i));
+        }
+        archive.compact();
+        archive.stays().parallelStream().forEach(roomService.getAnalytics()::addArchived);
+    }
+
+    // 某房型的全部订单（按列扫描得到的副本）；读取一致快照时须持有该房型锁
+    public List<Order> getOrdersOfType(String roomType) {
+        List<Order> orders = new ArrayList<>();
+        store(roomType).forEachOrder(roomType, orders::add);
+        return orders;
+    }
+
+    // 按列逐个访问某房型订单的字段，不经过订单对象（快照写出）；读取一致快照时须持有该房型锁
+    public void forEachOrderOfType(String roomType, OrderStore.Visitor visitor) {
+        store(roomType).forEach(roomType, visitor);
+    }
+
+    public RoomAssignmentEngine getAssignments() {
+        RoomAssignmentEngine engine = assignments;
+        if (engine == null) {
+            synchronized (this) {
+                engine = assignments;
+                if (engine == null) assignments = engine = new RoomAssignmentEngine(roomService, this);
+            }
+        }
+        return engine;
+    }
+
+    // 当前有实时订单的房型
+    public Set<String> getOrderRoomTypes() {
+        Set<String> types = new HashSet<>();
+        for (OrderStore store : stores) types.addAll(store.roomTypes());
+        return types;
+    }
+
+    // 订单列式存储已分配的列数组字节数
+    public long getOrderStoreBytes() {
+        long bytes = 0;
+        for (OrderStore store : stores) bytes += store.allocatedBytes();
+        return bytes;
+    }
+
+    // 仅“已预订 / 已入住”的订单占用房型库存
+    private static boolean holdsInventory(Order order) {
+        return order.getStatus() == Order.OrderStatus.BOOKED || order.getStatus() == Order.OrderStatus.OCCUPIED;
+    }
+
+    private void releaseInventory(Order order) {
+        long from = order.getStartDay();
+        demandTree(order.getOrderType()).add(from, from + order.getStayTime(), -1);
+    }
+
+    private void releaseInventory(BookingRequest request) {
+        long from = request.startDate().toEpochDay();
+        demandTree(request.roomType()).add(from, from + request.stayTime(), -1);
+    }
+
+    private RangeMaxSegmentTree demandTree(String roomType) {
+        return demandByType.computeIfAbsent(roomType, type -> new RangeMaxSegmentTree());
+    }
+
+    // 仅用于生成错误提示：二分找出第一个售罄的日期
+    private static LocalDate firstSoldOutDay(RangeMaxSegmentTree demand, long from, long to, int capacity) {
+        long lo = from, hi = to - 1;
+        while (lo < hi) {
+            long mid = lo + (hi - lo) / 2;
+            if (demand.max(from, mid + 1) >= capacity) hi = mid;
+            else lo = mid + 1;
+        }
+        return LocalDate.ofEpochDay(lo);
     }
 
     private Order findOrderOrThrow(int orderID) {
@@ -92,7 +667,49 @@ public class OrderService {
         return order;
     }
 
+    // --- 前台查询：走二级索引，结果按入住日、订单号排序 ---
+
+    // 某住客的全部订单，包括已归档的
+    public List<Order> getOrdersByGuest(String guestID) {
+        return HotelMetrics.ORDER_QUERY.time(() -> {
+            List<Order> live = indexes.byGuest(guestID);
+            List<Order> archived = archive.findByGuest(guestID);
+            if (archived.isEmpty()) return live;
+            // 归档过程中订单可能短暂同时出现在两处，以实时的为准
+            Set<Integer> liveIDs = live.stream().map(Order::getOrderID).collect(Collectors.toSet());
+            List<Order> result = new ArrayList<>(live);
+            for (Order order : archived) {
+                if (!liveIDs.contains(order.getOrderID())) result.add(order);
+            }
+            result.sort(OrderIndexes.BY_START);
+            return result;
+        });
+    }
+
+    // 处于某状态的全部订单，例如 CLEANING 即待打扫
+    public List<Order> getOrdersByStatus(Order.OrderStatus status) {
+        return HotelMetrics.ORDER_QUERY.time(() -> indexes.byStatus(status));
+    }
+
+    /**
+     * 入住日在 [from, to) 内的订单
+     * @param roomType 为 null 时查询全部房型
+     * @param status   为 null 时不按状态过滤
+     */
+    public List<Order> getOrdersStartingBetween(String roomType, LocalDate from, LocalDate to, Order.OrderStatus status) {
+        return HotelMetrics.ORDER_QUERY.time(() -> indexes.startingBetween(roomType, from, to, status));
+    }
+
+    // 当天预抵：入住日为 date、尚未办理入住的订单
+    public List<Order> getArrivals(LocalDate date) {
+        return getOrdersStartingBetween(null, date, date.plusDays(1), Order.OrderStatus.BOOKED);
+    }
+
+    // 先查实时订单，再查冷存储；归档订单返回的是只读副本
     public Order getOrder(int orderID) {
-        return allOrders.get(orderID);
+        return HotelMetrics.GET_ORDER.time(() -> {
+            Order order = allOrders.get(orderID);
+            return order != null ? order : archive.find(orderID);
+        });
     }
 }
\ No newline at end of file
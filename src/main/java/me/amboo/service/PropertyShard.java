@@ -0,0 +1,82 @@
+package me.amboo.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalRecovery;
+import me.amboo.journal.Snapshotter;
+import me.amboo.service.id.OrderIdGenerator;
+
+/**
+ * 单个酒店（物业）的分片：独立的 RoomService / OrderService、条带锁、订单号生成器，以及可选的日志与快照目录
+ * 分片之间不共享任何可变状态，一家酒店的预订、加锁、恢复都不会触及其他酒店的数据。
+ */
+public final class PropertyShard implements Closeable {
+    private final String propertyID;
+    private final RoomService roomService;
+    private final OrderService orderService;
+    private final Journal journal;         // 未启用日志时为 null
+    private final Snapshotter snapshotter; // 同上
+
+    private PropertyShard(String propertyID, RoomService roomService, OrderService orderService, Journal journal, Snapshotter snapshotter) {
+        if (propertyID == null || propertyID.isBlank()) throw new IllegalArgumentException("错误：酒店 ID 不能为空");
+        this.propertyID = propertyID;
+        this.roomService = roomService;
+        this.orderService = orderService;
+        this.journal = journal;
+        this.snapshotter = snapshotter;
+    }
+
+    // 纯内存分片，不记录日志
+    public static PropertyShard inMemory(String propertyID) {
+        RoomService roomService = new RoomService();
+        return new PropertyShard(propertyID, roomService, new OrderService(roomService), null, null);
+    }
+
+    // 包装已创建好的服务（例如单酒店模式下的默认酒店），日志与快照由调用方自行管理
+    public static PropertyShard of(String propertyID, RoomService roomService, OrderService orderService) {
+        return new PropertyShard(propertyID, roomService, orderService, null, null);
+    }
+
+    /**
+     * 从目录恢复一个分片：装载最新快照并重放日志，之后的操作继续记录到该目录，并按日志增长自动生成快照
+     */
+    public static PropertyShard open(String propertyID, Path directory) {
+        RoomService roomService = new RoomService();
+        OrderService orderService = new OrderService(roomService, OrderIdGenerator.persistent(directory.resolve("order-id.hwm")),
+                new OrderArchive(directory.resolve("archive")));
+        Journal journal = JournalRecovery.recover(directory, roomService, orderService);
+        Snapshotter snapshotter = new Snapshotter(directory, roomService, orderService, journal);
+        snapshotter.startAutomatic();
+        return new PropertyShard(propertyID, roomService, orderService, journal, snapshotter);
+    }
+
+    public String getPropertyID() {
+        return propertyID;
+    }
+
+    public RoomService getRoomService() {
+        return roomService;
+    }
+
+    public OrderService getOrderService() {
+        return orderService;
+    }
+
+    public boolean isDurable() {
+        return journal != null;
+    }
+
+    // 未启用日志的分片返回 null
+    public Snapshotter getSnapshotter() {
+        return snapshotter;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (snapshotter != null) snapshotter.close();
+        if (journal != null) journal.close();
+    }
+}
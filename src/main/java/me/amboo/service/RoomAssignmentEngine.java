@@ -0,0 +1,203 @@
+package me.amboo.service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+
+/**
+ * 自动排房：为某天的全部预抵（BOOKED）订单一次性分配房间，前台办理入住时不必再手工选房
+ * 启发式（区间调度 + 最佳适配），按房型分别进行：
+ *   1. 候选房间是该房型当天可分配的房间（canBeDistribute：前一晚的订单已打扫完成、当天空闲），
+ *      按“连续空闲到哪天”（Room.freeUntil）放入有序表；
+ *   2. 订单按天数从长到短处理，每个订单在空闲期足够的房间中取空闲期最短的一间，
+ *      使离店日尽量贴住该房间的下一个订单，少留零碎间夜；长订单先排，避免长空档被短订单拆散。
+ * 每个订单一次有序表查找，数千个预抵也在毫秒级完成。
+ * 计划不写入房间也不记日志，真正入住仍走 OrderService.processCheckIn，在锁内复核房间是否可用。
+ * reoptimize 在上一版计划上修补：仍然有效的分配保持不变（已告知住客的房号不会变动），取消或已入住的订单剔除，
+ * 腾出的房间和新增的预抵按同样的规则补排，可在取消陆续到来时反复调用。
+ * 计划只保留到入住日之后 PLAN_RETENTION_DAYS 天，更早的在每次排房时清除；对这些日期 reoptimize 等同于全新排房。
+ */
+public class RoomAssignmentEngine {
+    // 一个订单的排房结果，roomID 为 null 表示该房型当天已无可分配的房间
+    public record Assignment(int orderID, String guestID, String roomType, int stayTime, Integer roomID) {}
+
+    /**
+     * 某天的排房计划
+     * @param kept      沿用上一版计划的分配数，全新排房时为 0
+     * @param gapNights 已分配房间在离店日与其下一个订单之间留下的空档间夜合计（之后没有订单的房间不计）
+     */
+    public record Plan(LocalDate date, List<Assignment> assignments, int assigned, int kept, long gapNights, long elapsedNanos) {
+        // 计划中该订单的房间，没有分配到房间或不在计划中时返回 null
+        public Integer roomOf(int orderID) {
+            for (Assignment a : assignments) {
+                if (a.orderID() == orderID) return a.roomID();
+            }
+            return null;
+        }
+
+        public int unassigned() {
+            return assignments.size() - assigned;
+        }
+    }
+
+    // 过了午夜才到的住客仍按前一天的计划入住
+    public static final int PLAN_RETENTION_DAYS = 1;
+
+    private final RoomService roomService;
+    private final OrderService orderService;
+    private final Clock clock;
+    // 日期 -> 最近一版计划
+    private final Map<LocalDate, Plan> plans = new ConcurrentHashMap<>();
+
+    public RoomAssignmentEngine(RoomService roomService, OrderService orderService) {
+        this(roomService, orderService, Clock.systemDefaultZone());
+    }
+
+    // clock 决定哪些日期的计划已经过期
+    public RoomAssignmentEngine(RoomService roomService, OrderService orderService, Clock clock) {
+        this.roomService = roomService;
+        this.orderService = orderService;
+        this.clock = clock;
+    }
+
+    // 全新排房，不参考之前的计划
+    public Plan plan(LocalDate date) {
+        return run(date, Map.of());
+    }
+
+    // 在上一版计划的基础上修补；当天还没有计划时等同于 plan
+    public Plan reoptimize(LocalDate date) {
+        Plan previous = plans.get(date);
+        Map<Integer, Integer> pinned = new HashMap<>();
+        if (previous != null) {
+            for (Assignment a : previous.assignments()) {
+                if (a.roomID() != null) pinned.put(a.orderID(), a.roomID());
+            }
+        }
+        return run(date, pinned);
+    }
+
+    // 最近一版计划，没有时返回 null
+    public Plan getPlan(LocalDate date) {
+        return plans.get(date);
+    }
+
+    public void discard(LocalDate date) {
+        plans.remove(date);
+    }
+
+    /**
+     * 按计划办理入住：先修补入住日的计划，再以计划中的房间调用 processCheckIn；
+     * 房间恰好被手工分配给了别的订单时重新修补后再试
+     * @return 入住的房间
+     */
+    public Room checkIn(int orderID) {
+        Order order = orderService.getOrder(orderID);
+        if (order == null) throw new IllegalArgumentException("错误：未找到 ID 为 " + orderID + " 的订单");
+        if (order.getStatus() != Order.OrderStatus.BOOKED) throw new IllegalArgumentException("该订单状态不是 BOOKED");
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Integer roomID = reoptimize(order.getStartDate()).roomOf(orderID);
+            if (roomID == null) throw new IllegalStateException("错误：订单 " + orderID + " 入住当天已无可分配的房间");
+            try {
+                orderService.processCheckIn(orderID, roomID);
+                return roomService.findRoomById(roomID);
+            } catch (IllegalStateException e) {
+                // 计划与实际房态不一致（房间刚被占用或尚未打扫），下一轮修补会避开它
+            }
+        }
+        throw new IllegalStateException("错误：订单 " + orderID + " 自动排房冲突，请手工选房");
+    }
+
+    private synchronized Plan run(LocalDate date, Map<Integer, Integer> pinned) {
+        long start = System.nanoTime();
+        try {
+            Map<String, List<Order>> byType = new TreeMap<>();
+            for (Order order : orderService.getArrivals(date)) {
+                byType.computeIfAbsent(order.getOrderType(), type -> new ArrayList<>()).add(order);
+            }
+            List<Assignment> assignments = new ArrayList<>();
+            int assigned = 0;
+            int kept = 0;
+            long gapNights = 0;
+            for (Map.Entry<String, List<Order>> entry : byType.entrySet()) {
+                // 空闲期截止日 -> 房间（同一截止日按房间号升序）
+                TreeMap<Long, ArrayDeque<Room>> free = new TreeMap<>();
+                Map<Integer, Long> freeUntil = new HashMap<>();
+                for (Room room : roomService.getRoomsOfType(entry.getKey())) {
+                    if (!room.canBeDistribute(date, 1)) continue;
+                    long until = room.freeUntil(date);
+                    free.computeIfAbsent(until, day -> new ArrayDeque<>()).add(room);
+                    freeUntil.put(room.getRoomID(), until);
+                }
+                List<Order> orders = entry.getValue();
+                orders.sort(Comparator.comparingInt(Order::getStayTime).reversed().thenComparingInt(Order::getOrderID));
+
+                Set<Integer> taken = new HashSet<>(); // 已分配出去的房间，有序表中的对应项延迟删除
+                Map<Integer, Integer> rooms = new HashMap<>();
+                List<Order> pending = new ArrayList<>();
+                // 1. 沿用上一版计划中仍然有效的分配
+                for (Order order : orders) {
+                    Integer roomID = pinned.get(order.getOrderID());
+                    Long until = roomID == null ? null : freeUntil.get(roomID);
+                    if (until != null && until >= order.getEndDay() && taken.add(roomID)) {
+                        rooms.put(order.getOrderID(), roomID);
+                        kept++;
+                    } else {
+                        pending.add(order);
+                    }
+                }
+                // 2. 其余订单做最佳适配
+                for (Order order : pending) {
+                    Room room = bestFit(free, taken, order.getEndDay());
+                    if (room != null) rooms.put(order.getOrderID(), room.getRoomID());
+                }
+
+                for (Order order : orders) {
+                    Integer roomID = rooms.get(order.getOrderID());
+                    assignments.add(new Assignment(order.getOrderID(), order.getGuestID(), entry.getKey(), order.getStayTime(), roomID));
+                    if (roomID == null) continue;
+                    assigned++;
+                    long until = freeUntil.get(roomID);
+                    if (until != Long.MAX_VALUE) gapNights += until - order.getEndDay();
+                }
+            }
+            // 计划的耗时就是 ROOM_ASSIGNMENT 记录的这次延迟，只测量一次
+            Plan plan = new Plan(date, List.copyOf(assignments), assigned, kept, gapNights, HotelMetrics.ROOM_ASSIGNMENT.record(start));
+            plans.put(date, plan);
+            LocalDate oldest = LocalDate.now(clock).minusDays(PLAN_RETENTION_DAYS);
+            plans.keySet().removeIf(day -> day.isBefore(oldest));
+            return plan;
+        } catch (RuntimeException e) {
+            HotelMetrics.ROOM_ASSIGNMENT.failed(e);
+            HotelMetrics.ROOM_ASSIGNMENT.record(start);
+            throw e;
+        }
+    }
+
+    // 空闲期截止日不早于 endDay 的房间中截止日最早的一间，没有则返回 null
+    private static Room bestFit(TreeMap<Long, ArrayDeque<Room>> free, Set<Integer> taken, long endDay) {
+        for (Map.Entry<Long, ArrayDeque<Room>> entry = free.ceilingEntry(endDay); entry != null; entry = free.ceilingEntry(endDay)) {
+            ArrayDeque<Room> rooms = entry.getValue();
+            Room room;
+            while ((room = rooms.poll()) != null) {
+                if (taken.add(room.getRoomID())) break;
+            }
+            if (rooms.isEmpty()) free.remove(entry.getKey());
+            if (room != null) return room;
+        }
+        return null;
+    }
+}
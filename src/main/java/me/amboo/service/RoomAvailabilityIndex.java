@@ -0,0 +1,257 @@
+package me.amboo.service;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import me.amboo.model.Order;
+import me.amboo.model.Order.OrderStatus;
+import me.amboo.model.Room;
+import me.amboo.model.RoomListener;
+
+/**
+ * 房间 × 日期 可用性位图
+ * 每个房型给每个房间分配一个槽位（bit），对滚动窗口内的每一天保存两行位图：
+ *   occupied[day]：该晚被订单占用的房间
+ *   dirty[day]   ：该晚的订单尚未 FINISHED 的房间（次日入住需要等待打扫）
+ * 查询 [start, start + n) 的空房 = present & ~(dirty[start-1] | occupied[start] | ... | occupied[start+n-1])，
+ * 与 Room.canBeDistribute 的语义一致，按 64 个房间一组做按位运算，计数用 bitCount。
+ * 超出窗口的查询返回 null / -1，由调用方回退到逐房间检查。
+ * 线程安全由调用方保证：同一房型的读写须持有该房型的条带锁，advanceTo 须持有全部房型锁。
+ */
+public class RoomAvailabilityIndex implements RoomListener {
+    // 窗口天数，必须是 2 的幂（环形数组下标用位与）
+    public static final int HORIZON = 512;
+    private static final int MASK = HORIZON - 1;
+
+    private final Map<String, TypeBitmap> byType = new ConcurrentHashMap<>();
+    private volatile long baseDay; // 窗口的第一天 (epochDay)，窗口为 [baseDay, baseDay + HORIZON)
+
+    public RoomAvailabilityIndex(LocalDate windowStart) {
+        this.baseDay = windowStart.toEpochDay();
+    }
+
+    public LocalDate getWindowStart() {
+        return LocalDate.ofEpochDay(baseDay);
+    }
+
+    public void addRoom(Room room) {
+        byType.computeIfAbsent(room.getRoomType(), type -> new TypeBitmap()).add(room);
+    }
+
+    public void removeRoom(Room room) {
+        TypeBitmap bitmap = byType.get(room.getRoomType());
+        if (bitmap == null) return;
+        bitmap.remove(room);
+        if (bitmap.roomCount == 0) byType.remove(room.getRoomType());
+    }
+
+    /**
+     * 查找 [startDate, startDate + stayTime) 可分配的房间
+     * @return 可用房间列表；若区间超出窗口则返回 null
+     */
+    public List<Room> findAvailableRooms(LocalDate startDate, int stayTime, String type) {
+        long start = startDate.toEpochDay();
+        if (!covers(start - 1, start + stayTime)) return null;
+        TypeBitmap bitmap = byType.get(type);
+        if (bitmap == null) return new ArrayList<>();
+
+        long[] free = bitmap.freeMask(start, stayTime);
+        List<Room> result = new ArrayList<>(Long.bitCount(free[0]));
+        for (int w = 0; w < free.length; w++) {
+            long bits = free[w];
+            while (bits != 0) {
+                int slot = (w << 6) + Long.numberOfTrailingZeros(bits);
+                result.add(bitmap.slots.get(slot));
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 统计某房型在 [startDate, startDate + stayTime) 的空房数
+     * @return 空房数；若区间超出窗口则返回 -1
+     */
+    public long countAvailableRooms(String type, LocalDate startDate, int stayTime) {
+        long start = startDate.toEpochDay();
+        if (!covers(start - 1, start + stayTime)) return -1;
+        TypeBitmap bitmap = byType.get(type);
+        if (bitmap == null) return 0;
+        long count = 0;
+        for (long word : bitmap.freeMask(start, stayTime)) count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * 日历查询：从 from 开始连续 days 天，每天可入住（住 1 晚）的该房型空房数
+     * @return 每天的空房数；若区间超出窗口则返回 null
+     */
+    public int[] freeRoomCalendar(String type, LocalDate from, int days) {
+        long start = from.toEpochDay();
+        if (!covers(start - 1, start + days)) return null;
+        int[] calendar = new int[days];
+        TypeBitmap bitmap = byType.get(type);
+        if (bitmap == null) return calendar;
+        for (int d = 0; d < days; d++) {
+            long[] occupied = bitmap.occupied[index(start + d)];
+            long[] dirty = bitmap.dirty[index(start + d - 1)];
+            int count = 0;
+            for (int w = 0; w < bitmap.words; w++) {
+                count += Long.bitCount(bitmap.present[w] & ~(occupied[w] | dirty[w]));
+            }
+            calendar[d] = count;
+        }
+        return calendar;
+    }
+
+    /**
+     * 滚动窗口：把窗口起点推进到 newStart，移出窗口的行被清空，新进入窗口的日期从各房间的区间索引中回填
+     */
+    public void advanceTo(LocalDate newStart) {
+        long newBase = newStart.toEpochDay();
+        if (newBase <= baseDay) return;
+        long shift = newBase - baseDay;
+        long oldEnd = baseDay + HORIZON;
+        baseDay = newBase;
+        // 新进入窗口的日期：[max(oldEnd, newBase), newBase + HORIZON)
+        long refillFrom = Math.max(oldEnd, newBase);
+        for (TypeBitmap bitmap : byType.values()) {
+            if (shift >= HORIZON) bitmap.clearAllRows();
+            else for (long day = refillFrom; day < newBase + HORIZON; day++) bitmap.clearRow(index(day));
+            for (int slot = 0; slot < bitmap.slots.size(); slot++) {
+                Room room = bitmap.slots.get(slot);
+                if (room == null) continue;
+                for (long day = refillFrom; day < newBase + HORIZON; day++) {
+                    Order order = room.getOrderOn(LocalDate.ofEpochDay(day));
+                    if (order != null) bitmap.mark(slot, day, day + 1, true, order.getStatus() != OrderStatus.FINISHED);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onOrderAdded(Room room, Order order) {
+        TypeBitmap bitmap = byType.get(room.getRoomType());
+        if (bitmap != null) bitmap.markOrder(room, order, true, order.getStatus() != OrderStatus.FINISHED);
+    }
+
+    @Override
+    public void onOrderRemoved(Room room, Order order) {
+        TypeBitmap bitmap = byType.get(room.getRoomType());
+        if (bitmap != null) bitmap.markOrder(room, order, false, false);
+    }
+
+    @Override
+    public void onOrderStatusChanged(Room room, Order order) {
+        TypeBitmap bitmap = byType.get(room.getRoomType());
+        if (bitmap != null) bitmap.markOrder(room, order, true, order.getStatus() != OrderStatus.FINISHED);
+    }
+
+    private boolean covers(long from, long to) {
+        return from >= baseDay && to <= baseDay + HORIZON && from <= to;
+    }
+
+    private static int index(long day) {
+        return (int) (day & MASK);
+    }
+
+    /**
+     * 单个房型的位图：槽位 <-> 房间 的映射，以及按天存放的位行
+     */
+    private class TypeBitmap {
+        private final List<Room> slots = new ArrayList<>(); // 槽位 -> 房间，已删除的槽位为 null
+        private final Map<Integer, Integer> slotByRoomId = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private int roomCount = 0;
+        private int words = 1;
+        private long[] present = new long[1];
+        private long[][] occupied = new long[HORIZON][1];
+        private long[][] dirty = new long[HORIZON][1];
+
+        void add(Room room) {
+            int slot = freeSlots.isEmpty() ? slots.size() : freeSlots.pop();
+            if (slot == slots.size()) slots.add(room);
+            else slots.set(slot, room);
+            slotByRoomId.put(room.getRoomID(), slot);
+            roomCount++;
+            ensureWords((slot >> 6) + 1);
+            present[slot >> 6] |= 1L << slot;
+            for (Order order : room.getOrderList()) {
+                markOrder(room, order, true, order.getStatus() != OrderStatus.FINISHED);
+            }
+        }
+
+        void remove(Room room) {
+            Integer slot = slotByRoomId.remove(room.getRoomID());
+            if (slot == null) return;
+            long keep = ~(1L << slot);
+            int w = slot >> 6;
+            present[w] &= keep;
+            for (int i = 0; i < HORIZON; i++) {
+                occupied[i][w] &= keep;
+                dirty[i][w] &= keep;
+            }
+            slots.set(slot, null);
+            freeSlots.push(slot);
+            roomCount--;
+        }
+
+        void markOrder(Room room, Order order, boolean isOccupied, boolean isDirty) {
+            Integer slot = slotByRoomId.get(room.getRoomID());
+            if (slot == null) return;
+            long start = order.getStartDay();
+            mark(slot, start, start + order.getStayTime(), isOccupied, isDirty);
+        }
+
+        // 设置 [from, to) 与窗口相交部分的两行位
+        void mark(int slot, long from, long to, boolean isOccupied, boolean isDirty) {
+            long lo = Math.max(from, baseDay);
+            long hi = Math.min(to, baseDay + HORIZON);
+            int w = slot >> 6;
+            long bit = 1L << slot;
+            for (long day = lo; day < hi; day++) {
+                int i = index(day);
+                occupied[i][w] = isOccupied ? occupied[i][w] | bit : occupied[i][w] & ~bit;
+                dirty[i][w] = isDirty ? dirty[i][w] | bit : dirty[i][w] & ~bit;
+            }
+        }
+
+        // 可分配房间掩码：present & ~(dirty[start-1] | occupied[start..start+n))
+        long[] freeMask(long start, int stayTime) {
+            long[] busy = dirty[index(start - 1)].clone();
+            for (int d = 0; d < stayTime; d++) {
+                long[] row = occupied[index(start + d)];
+                for (int w = 0; w < words; w++) busy[w] |= row[w];
+            }
+            for (int w = 0; w < words; w++) busy[w] = present[w] & ~busy[w];
+            return busy;
+        }
+
+        void clearRow(int i) {
+            Arrays.fill(occupied[i], 0L);
+            Arrays.fill(dirty[i], 0L);
+        }
+
+        void clearAllRows() {
+            for (int i = 0; i < HORIZON; i++) clearRow(i);
+        }
+
+        private void ensureWords(int needed) {
+            if (needed <= words) return;
+            int newWords = Math.max(needed, words * 2);
+            present = Arrays.copyOf(present, newWords);
+            for (int i = 0; i < HORIZON; i++) {
+                occupied[i] = Arrays.copyOf(occupied[i], newWords);
+                dirty[i] = Arrays.copyOf(dirty[i], newWords);
+            }
+            words = newWords;
+        }
+    }
+}
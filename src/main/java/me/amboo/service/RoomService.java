@@ -1,34 +1,206 @@
 package me.amboo.service;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import me.amboo.algorithm.CriticalPathEngine;
+import me.amboo.algorithm.LiveRoomGraph;
+import me.amboo.analytics.RevenueAnalytics;
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalEvent;
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.model.Order;
 import me.amboo.model.Room;
 
+/**
+ * 房间服务
+ * 线程安全：房间增删和可用性位图的读写按房型条带加锁（同时涉及具体房间时再加房间锁），
+ * 锁对象由 StripedLocks 提供，并与 OrderService 共享
+ */
 public class RoomService {
-    private List<Room> roomList = new ArrayList<>(); // List 是一个接口，ArrayList 是实现 List 的一个类
+    // 自动推进时位图窗口从 今天 - WINDOW_LAG_DAYS 开始，近几天的订单（退房、打扫）仍在窗口内
+    public static final int WINDOW_LAG_DAYS = 7;
+
     // 快速索引：用于 ID 查找和后续生成图时建立映射
-    private Map<Integer, Room> roomMap = new HashMap<>();
+    private Map<Integer, Room> roomMap = new ConcurrentHashMap<>();
+    // 房型索引：房型 -> 该房型的房间（按房间号排序），增删 O(log n)，由房型锁保护写入
+    private final Map<String, NavigableMap<Integer, Room>> roomsByType = new ConcurrentHashMap<>();
+    // 房型容量：房型 -> 该房型的物理房间数，供下单时 O(1) 判断库存
+    private Map<String, Integer> typeCapacity = new ConcurrentHashMap<>();
+    // 楼层索引：楼层 -> 该层房间（按房间号排序）；同一楼层可能有多种房型，写入在该对象锁内进行
+    private final NavigableMap<Integer, NavigableMap<Integer, Room>> roomsByFloor = new ConcurrentSkipListMap<>();
+    // 房间 × 日期 可用性位图，窗口外的查询回退到逐房间检查（计入 HotelMetrics.AVAILABILITY_FALLBACK）
+    private final RoomAvailabilityIndex availability;
+    // 位图窗口跟随的时钟；为 null 时窗口固定，只能通过 advanceAvailabilityWindow 推进
+    private final Clock clock;
+    // findAvailableRooms 的结果缓存，随订单和房间变化精确失效
+    private final AvailabilityCache availabilityCache = new AvailabilityCache();
+    // 收入与入住率的按日预聚合
+    private final RevenueAnalytics analytics = new RevenueAnalytics();
+    // 查房图（AOV / AOE 共用），随房间增删增量维护
+    private final LiveRoomGraph roomGraph = new LiveRoomGraph();
+    // 查房关键路径，随查房图变化和上报的延误增量更新
+    private final CriticalPathEngine criticalPath = new CriticalPathEngine(roomGraph);
+    // 按房型 / 房间号分段的锁
+    private final StripedLocks locks = new StripedLocks();
+    // 预写日志，未挂接时不记录（例如正在回放日志）
+    private final JournalLink journal = new JournalLink();
+
+    public RoomService() {
+        this(Clock.systemDefaultZone());
+    }
+
+    // 位图窗口随 clock 的日期自动推进：日期变化后的第一次可用性查询把窗口移到 今天 - WINDOW_LAG_DAYS
+    public RoomService(Clock clock) {
+        this.clock = clock;
+        this.availability = new RoomAvailabilityIndex(LocalDate.now(clock).minusDays(WINDOW_LAG_DAYS));
+    }
+
+    // windowStart：可用性位图窗口的起始日期，窗口固定（例如回放脚本、测试）
+    public RoomService(LocalDate windowStart) {
+        this.clock = null;
+        this.availability = new RoomAvailabilityIndex(windowStart);
+    }
 
     public void addRoom(Room targetRoom) {
-        if (roomMap.containsKey(targetRoom.getRoomID())) {
-            throw new IllegalArgumentException("错误：ID 为" + targetRoom.getRoomID() + "的房间已存在");
-        }
-        roomList.add(targetRoom);
-        roomMap.put(targetRoom.getRoomID(), targetRoom);
+        HotelMetrics.ADD_ROOM.run(() -> {
+            long seq;
+            // 同一房号的增删都持有房间锁：删除旧房间（可能是另一房型、持有另一把房型锁）记下 RoomRemoved 之前，
+            // 新房间不会占用该房号，日志中两条事件的顺序与实际一致
+            ReentrantLock typeLock = locks.forType(targetRoom.getRoomType());
+            ReentrantLock roomLock = locks.forRoom(targetRoom.getRoomID());
+            typeLock.lock();
+            roomLock.lock();
+            try {
+                if (roomMap.putIfAbsent(targetRoom.getRoomID(), targetRoom) != null) {
+                    throw new IllegalArgumentException("错误：ID 为" + targetRoom.getRoomID() + "的房间已存在");
+                }
+                index(targetRoom);
+                availability.addRoom(targetRoom);
+                targetRoom.addListener(availability);
+                targetRoom.addListener(availabilityCache);
+                availabilityCache.invalidateType(targetRoom.getRoomType());
+                analytics.addRoom(targetRoom);
+                targetRoom.addListener(analytics);
+                roomGraph.addRoom(targetRoom.getRoomID());
+                seq = journal.append(new JournalEvent.RoomAdded(targetRoom.getRoomID(), targetRoom.getRoomType(), targetRoom.getRoomArea().doubleValue(),
+                        targetRoom.getRoomPrice() == null ? Double.NaN : targetRoom.getRoomPrice().doubleValue()));
+            } finally {
+                roomLock.unlock();
+                typeLock.unlock();
+            }
+            journal.awaitDurable(seq);
+        });
     }
 
     public void removeRoom(int roomID) {
-        Room room = roomMap.get(roomID);
-        if (room == null) {
-            throw new IllegalArgumentException("错误：ID 为" + roomID + "的房间不存在");
-        }
-        roomList.remove(room);
-        roomMap.remove(roomID);
+        HotelMetrics.REMOVE_ROOM.run(() -> {
+            Room room = roomMap.get(roomID);
+            if (room == null) {
+                throw new IllegalArgumentException("错误：ID 为" + roomID + "的房间不存在");
+            }
+            long seq;
+            ReentrantLock typeLock = locks.forType(room.getRoomType());
+            ReentrantLock roomLock = locks.forRoom(roomID);
+            typeLock.lock();
+            roomLock.lock();
+            try {
+                if (!roomMap.remove(roomID, room)) {
+                    throw new IllegalArgumentException("错误：ID 为" + roomID + "的房间不存在");
+                }
+                unindex(room);
+                room.removeListener(availability);
+                room.removeListener(availabilityCache);
+                room.removeListener(analytics);
+                availability.removeRoom(room);
+                availabilityCache.invalidateType(room.getRoomType());
+                analytics.removeRoom(room);
+                roomGraph.removeRoom(roomID);
+                seq = journal.append(new JournalEvent.RoomRemoved(roomID));
+            } finally {
+                roomLock.unlock();
+                typeLock.unlock();
+            }
+            journal.awaitDurable(seq);
+        });
+    }
+
+    /**
+     * 修改房价：该房间已有订单的收入按新房价重新计入统计
+     */
+    public void setRoomPrice(int roomID, double price) {
+        HotelMetrics.SET_ROOM_PRICE.run(() -> {
+            Room room = roomMap.get(roomID);
+            if (room == null) {
+                throw new IllegalArgumentException("错误：ID 为" + roomID + "的房间不存在");
+            }
+            long seq;
+            ReentrantLock typeLock = locks.forType(room.getRoomType());
+            ReentrantLock roomLock = locks.forRoom(roomID);
+            typeLock.lock();
+            roomLock.lock();
+            try {
+                if (roomMap.get(roomID) != room) {
+                    throw new IllegalArgumentException("错误：ID 为" + roomID + "的房间不存在");
+                }
+                analytics.repriceRoom(room, price);
+                seq = journal.append(new JournalEvent.RoomPriced(roomID, price));
+            } finally {
+                roomLock.unlock();
+                typeLock.unlock();
+            }
+            journal.awaitDurable(seq);
+        });
+    }
+
+    // 挂接预写日志；应在回放完成之后调用
+    public void setJournal(Journal journal) {
+        this.journal.set(journal);
+    }
+
+    /**
+     * 批量恢复房间（快照装载）：房间内的订单应已写入，按房型并行建立可用性位图；不写日志，只应在服务开放之前调用
+     */
+    public void restoreRooms(List<Room> rooms) {
+        HotelMetrics.RESTORE_ROOMS.run(() -> {
+            for (Room room : rooms) {
+                if (roomMap.putIfAbsent(room.getRoomID(), room) != null) {
+                    throw new IllegalArgumentException("错误：ID 为" + room.getRoomID() + "的房间已存在");
+                }
+            }
+            roomGraph.addRooms(rooms);
+            rooms.stream().collect(Collectors.groupingBy(Room::getRoomType)).entrySet().parallelStream().forEach(entry -> {
+                ReentrantLock typeLock = locks.forType(entry.getKey());
+                typeLock.lock();
+                try {
+                    for (Room room : entry.getValue()) {
+                        index(room);
+                        availability.addRoom(room);
+                        room.addListener(availability);
+                        room.addListener(availabilityCache);
+                        analytics.addRoom(room);
+                        room.addListener(analytics);
+                    }
+                    availabilityCache.invalidateType(entry.getKey());
+                } finally {
+                    typeLock.unlock();
+                }
+            });
+        });
     }
 
     // 查找房间
@@ -36,24 +208,194 @@ public class RoomService {
         return roomMap.get(id);
     }
 
-    // 获取所有房间，直接返回 ArrayList
+    // 获取某房型的物理房间总数
+    public int getRoomCount(String type) {
+        return typeCapacity.getOrDefault(type, 0);
+    }
+
+    // 登记到房型 / 楼层索引，调用方持有该房型锁
+    private void index(Room room) {
+        roomsByType.computeIfAbsent(room.getRoomType(), type -> new ConcurrentSkipListMap<>()).put(room.getRoomID(), room);
+        typeCapacity.merge(room.getRoomType(), 1, Integer::sum);
+        synchronized (roomsByFloor) {
+            roomsByFloor.computeIfAbsent(room.getFloor(), floor -> new ConcurrentSkipListMap<>()).put(room.getRoomID(), room);
+        }
+    }
+
+    // 从房型 / 楼层索引中移除，调用方持有该房型锁；房型或楼层空了就连同键一起删除
+    private void unindex(Room room) {
+        NavigableMap<Integer, Room> ofType = roomsByType.get(room.getRoomType());
+        ofType.remove(room.getRoomID());
+        if (ofType.isEmpty()) roomsByType.remove(room.getRoomType());
+        typeCapacity.computeIfPresent(room.getRoomType(), (type, count) -> count > 1 ? count - 1 : null);
+        synchronized (roomsByFloor) {
+            NavigableMap<Integer, Room> floor = roomsByFloor.get(room.getFloor());
+            floor.remove(room.getRoomID());
+            if (floor.isEmpty()) roomsByFloor.remove(room.getFloor());
+        }
+    }
+
+    // 获取所有房间（按房间号排序的副本，遍历时不受并发增删影响）
     public List<Room> getAllRooms() {
-        return roomList;
+        List<Room> rooms = new ArrayList<>(roomMap.size());
+        for (NavigableMap<Integer, Room> floor : roomsByFloor.values()) rooms.addAll(floor.values());
+        return rooms;
     }
 
+    // 某房型的全部房间（按房间号排序的只读实时视图）
+    public Collection<Room> getRoomsOfType(String type) {
+        NavigableMap<Integer, Room> ofType = roomsByType.get(type);
+        return ofType == null ? List.of() : Collections.unmodifiableCollection(ofType.values());
+    }
+
+    // 有房间的房型
+    public Set<String> getRoomTypes() {
+        return Collections.unmodifiableSet(typeCapacity.keySet());
+    }
 
-    // 核心业务功能：寻找指定时间段内可用的特定类型房间
+    // 楼层 -> 该层房间（均按升序）的一致副本，可直接交给 AOVNetwork / AOENetwork.buildNetwork
+    public NavigableMap<Integer, List<Room>> getRoomsByFloor() {
+        NavigableMap<Integer, List<Room>> copy = new TreeMap<>();
+        synchronized (roomsByFloor) {
+            roomsByFloor.forEach((floor, rooms) -> copy.put(floor, List.copyOf(rooms.values())));
+        }
+        return copy;
+    }
+
+    // 当前的查房图；算法查询取 getRoomGraph().snapshot()，无需每次重新建图
+    public LiveRoomGraph getRoomGraph() {
+        return roomGraph;
+    }
+
+    public CriticalPathEngine getCriticalPath() {
+        return criticalPath;
+    }
+
+    public RevenueAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * 从全部房间、实时订单与归档订单并行重建收入统计；重建期间锁住全部房型，暂停写入
+     * 归档在房型锁内发布，archived 须在加锁之后才读取，否则与并发归档的订单可能重复计入或漏掉
+     */
+    public void rebuildAnalytics(Collection<Order> orders, Supplier<Collection<RevenueAnalytics.ArchivedStay>> archived) {
+        locks.lockAllTypes();
+        try {
+            analytics.rebuild(roomMap.values(), orders, archived.get(), ForkJoinPool.commonPool());
+        } finally {
+            locks.unlockAllTypes();
+        }
+    }
+
+    public AvailabilityCache getAvailabilityCache() {
+        return availabilityCache;
+    }
+
+    // 与 OrderService 共享的分段锁
+    public StripedLocks getLocks() {
+        return locks;
+    }
+
+
+    // 核心业务功能：寻找指定时间段内可用的特定类型房间（返回只读列表，可能来自结果缓存）
     public List<Room> findAvailableRooms(LocalDate startDate, int stayTime, String type) {
-        return roomList.stream()
-            .filter(room -> room.getRoomType().equals(type)) // 过滤类型
-            .filter(room -> room.canBeDistribute(startDate, stayTime)) // 调用 Room 类里的逻辑检查冲突
-            .collect(Collectors.toList());
+        return HotelMetrics.FIND_AVAILABLE_ROOMS.time(() -> {
+            List<Room> cached = availabilityCache.get(type, startDate, stayTime);
+            if (cached != null) return cached;
+            advanceWindowIfDue();
+            long version;
+            ReentrantLock typeLock = locks.forType(type);
+            typeLock.lock();
+            try {
+                version = availabilityCache.version(type);
+                List<Room> fromBitmap = availability.findAvailableRooms(startDate, stayTime, type);
+                if (fromBitmap != null) return availabilityCache.put(type, startDate, stayTime, fromBitmap, version);
+            } finally {
+                typeLock.unlock();
+            }
+            long fallbackStart = System.nanoTime();
+            List<Room> scanned = getRoomsOfType(type).stream() // 房型索引，无需过滤类型
+                .filter(room -> room.canBeDistribute(startDate, stayTime)) // 调用 Room 类里的逻辑检查冲突
+                .collect(Collectors.toList());
+            HotelMetrics.AVAILABILITY_FALLBACK.record(fallbackStart);
+            return availabilityCache.put(type, startDate, stayTime, scanned, version);
+        });
     }
 
     // 简单的统计：获取指定日期所有空闲房间
     public long getAvailableRoomCount(LocalDate date) {
-        return roomList.stream()
-            .filter(room -> room.canBeDistribute(date, 1))
-            .count();
+        return HotelMetrics.AVAILABLE_ROOM_COUNT.time(() -> {
+            advanceWindowIfDue();
+            long total = 0;
+            for (String type : typeCapacity.keySet()) {
+                ReentrantLock typeLock = locks.forType(type);
+                typeLock.lock();
+                try {
+                    long fromBitmap = availability.countAvailableRooms(type, date, 1);
+                    if (fromBitmap < 0) {
+                        long fallbackStart = System.nanoTime();
+                        long scanned = roomMap.values().stream()
+                            .filter(room -> room.canBeDistribute(date, 1))
+                            .count();
+                        HotelMetrics.AVAILABILITY_FALLBACK.record(fallbackStart);
+                        return scanned;
+                    }
+                    total += fromBitmap;
+                } finally {
+                    typeLock.unlock();
+                }
+            }
+            return total;
+        });
+    }
+
+    // 日历查询：从 from 开始连续 days 天，每天该房型可入住的空房数
+    public int[] getFreeRoomCalendar(String type, LocalDate from, int days) {
+        return HotelMetrics.FREE_ROOM_CALENDAR.time(() -> {
+            advanceWindowIfDue();
+            ReentrantLock typeLock = locks.forType(type);
+            typeLock.lock();
+            try {
+                int[] fromBitmap = availability.freeRoomCalendar(type, from, days);
+                if (fromBitmap != null) return fromBitmap;
+            } finally {
+                typeLock.unlock();
+            }
+            long fallbackStart = System.nanoTime();
+            int[] calendar = new int[days];
+            Collection<Room> rooms = getRoomsOfType(type);
+            for (int d = 0; d < days; d++) {
+                LocalDate date = from.plusDays(d);
+                calendar[d] = (int) rooms.stream()
+                    .filter(room -> room.canBeDistribute(date, 1))
+                    .count();
+            }
+            HotelMetrics.AVAILABILITY_FALLBACK.record(fallbackStart);
+            return calendar;
+        });
+    }
+
+    // 跟随时钟时，日期变化后第一次查询顺带推进窗口；调用方不能持有房型锁
+    private void advanceWindowIfDue() {
+        if (clock == null) return;
+        LocalDate target = LocalDate.now(clock).minusDays(WINDOW_LAG_DAYS);
+        if (target.isAfter(availability.getWindowStart())) advanceAvailabilityWindow(target);
+    }
+
+    public LocalDate getAvailabilityWindowStart() {
+        return availability.getWindowStart();
+    }
+
+    // 推进可用性位图的滚动窗口（跟随时钟时自动进行，窗口固定时由夜审或脚本调用）
+    public void advanceAvailabilityWindow(LocalDate windowStart) {
+        HotelMetrics.ADVANCE_WINDOW.run(() -> {
+            locks.lockAllTypes();
+            try {
+                availability.advanceTo(windowStart);
+            } finally {
+                locks.unlockAllTypes();
+            }
+        });
     }
 }
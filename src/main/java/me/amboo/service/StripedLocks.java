@@ -0,0 +1,63 @@
+package me.amboo.service;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分段锁：按房型和房间号把锁打散到固定数量的条带上，互不相关的预订可以并行执行
+ * 加锁顺序约定：先房型锁，再房间锁；同时持有多个房型锁时按条带下标升序获取，避免死锁
+ */
+public class StripedLocks {
+    private final ReentrantLock[] typeLocks;
+    private final ReentrantLock[] roomLocks;
+
+    public StripedLocks() {
+        this(64, 256);
+    }
+
+    public StripedLocks(int typeStripes, int roomStripes) {
+        this.typeLocks = newLocks(typeStripes);
+        this.roomLocks = newLocks(roomStripes);
+    }
+
+    public ReentrantLock forType(String roomType) {
+        return typeLocks[typeStripe(roomType)];
+    }
+
+    public ReentrantLock forRoom(int roomID) {
+        return roomLocks[Math.floorMod(spread(roomID), roomLocks.length)];
+    }
+
+    // 房型对应的条带下标，批量操作据此排序加锁
+    public int typeStripe(String roomType) {
+        return Math.floorMod(spread(roomType.hashCode()), typeLocks.length);
+    }
+
+    public ReentrantLock typeStripeLock(int stripe) {
+        return typeLocks[stripe];
+    }
+
+    public int typeStripeCount() {
+        return typeLocks.length;
+    }
+
+    // 按下标顺序锁住全部房型条带（滚动窗口等全局维护操作使用）
+    public void lockAllTypes() {
+        for (ReentrantLock lock : typeLocks) lock.lock();
+    }
+
+    public void unlockAllTypes() {
+        for (int i = typeLocks.length - 1; i >= 0; i--) typeLocks[i].unlock();
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static ReentrantLock[] newLocks(int count) {
+        if (count <= 0) throw new IllegalArgumentException("锁条带数量必须大于0");
+        ReentrantLock[] locks = new ReentrantLock[count];
+        Arrays.setAll(locks, i -> new ReentrantLock());
+        return locks;
+    }
+}
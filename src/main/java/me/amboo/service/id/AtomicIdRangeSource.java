@@ -0,0 +1,24 @@
+package me.amboo.service.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内号段来源：原子计数器按块推进
+ */
+public class AtomicIdRangeSource implements IdRangeSource {
+    private final AtomicLong next;
+    private final long end;
+
+    public AtomicIdRangeSource(long start, long end) {
+        if (start >= end) throw new IllegalArgumentException("号段范围无效");
+        this.next = new AtomicLong(start);
+        this.end = end;
+    }
+
+    @Override
+    public long leaseBlock(int size) {
+        long start = next.getAndAdd(size);
+        if (start + size > end) throw new IllegalStateException("错误：号段已耗尽");
+        return start;
+    }
+}
@@ -0,0 +1,61 @@
+package me.amboo.service.id;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 持久化高水位的号段来源
+ * 每租出一个号段，先把新的高水位写入文件并 fsync，再把号段交给调用方；
+ * 重启后从文件中的高水位继续，未用完的号段直接作废，因此 ID 跨重启也不会重复。
+ * 多节点部署时为每个节点配置互不相交的 [rangeStart, rangeEnd) 和各自的文件即可，节点之间无需协调。
+ */
+public class FileIdRangeSource implements IdRangeSource, Closeable {
+    private final FileChannel channel;
+    private final long rangeEnd;
+    private long highWaterMark;
+
+    public FileIdRangeSource(Path file, long rangeStart, long rangeEnd) {
+        if (rangeStart >= rangeEnd) throw new IllegalArgumentException("号段范围无效");
+        this.rangeEnd = rangeEnd;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            long stored = channel.read(buffer, 0) == Long.BYTES ? buffer.flip().getLong() : rangeStart;
+            this.highWaterMark = Math.max(stored, rangeStart);
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：无法打开订单号高水位文件 " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized long leaseBlock(int size) {
+        long start = highWaterMark;
+        long end = start + size;
+        if (end > rangeEnd) throw new IllegalStateException("错误：号段已耗尽");
+        try {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, end), 0);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("错误：写入订单号高水位失败", e);
+        }
+        highWaterMark = end;
+        return start;
+    }
+
+    public synchronized long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,13 @@
+package me.amboo.service.id;
+
+/**
+ * 号段来源：每次租出一段连续的序号 [start, start + size)
+ * 多个线程或多个节点只在租号段时协调一次，号段内部取号互不竞争
+ */
+public interface IdRangeSource {
+    /**
+     * @return 本次号段的起始序号
+     * @throws IllegalStateException 号段已耗尽
+     */
+    long leaseBlock(int size);
+}
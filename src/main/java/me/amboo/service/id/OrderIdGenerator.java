@@ -0,0 +1,31 @@
+package me.amboo.service.id;
+
+import java.nio.file.Path;
+
+/**
+ * 订单号生成器
+ * 实现必须保证同一生成器（及共享同一号段来源的多个生成器）发出的 ID 永不重复
+ */
+public interface OrderIdGenerator {
+    int nextId();
+
+    /**
+     * 告知生成器某个 ID 已被占用（例如从日志或快照恢复的订单），单调生成器据此跳过它之前的序号
+     */
+    default void reserve(int usedId) {}
+
+    /**
+     * 默认方案：进程内原子计数器 + 7 位易读订单号（重启后从头计数，适合不落盘的演示环境）
+     */
+    static OrderIdGenerator inMemory() {
+        return new ReadableOrderIdGenerator(new SequentialIdGenerator(0));
+    }
+
+    /**
+     * 持久化方案：按号段从高水位文件租用序号，重启后从文件记录的高水位继续，保证跨重启唯一
+     */
+    static OrderIdGenerator persistent(Path highWaterMarkFile) {
+        IdRangeSource source = new FileIdRangeSource(highWaterMarkFile, 0, ReadableOrderIdGenerator.CAPACITY);
+        return new ReadableOrderIdGenerator(new RangeLeasingIdGenerator(source, 256));
+    }
+}
@@ -0,0 +1,50 @@
+package me.amboo.service.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段租用生成器：所有线程共享当前号段，号段内一次原子自增取号，用完时只有一个线程去来源租下一段
+ * 号段不随线程走：服务模式下每个请求都是新的虚拟线程，若按线程持有号段，每次取号都会租新号段（并 fsync 高水位），
+ * 其余序号全部作废。共享号段使序号连续，租号段的频率只与取号总数有关。
+ */
+public class RangeLeasingIdGenerator implements OrderIdGenerator {
+    private final IdRangeSource source;
+    private final int blockSize;
+    private volatile Lease lease = new Lease(0, 0);
+
+    // 当前号段 [next, end)；next 可能被并发自增越过 end，越过的部分不发出
+    private static final class Lease {
+        final AtomicLong next;
+        final long end;
+
+        Lease(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+
+    public RangeLeasingIdGenerator(IdRangeSource source, int blockSize) {
+        if (blockSize <= 0) throw new IllegalArgumentException("号段大小必须大于0");
+        this.source = source;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int nextId() {
+        while (true) {
+            Lease current = lease;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                if (id > Integer.MAX_VALUE) throw new IllegalStateException("错误：订单号已用尽");
+                return (int) id;
+            }
+            // 号段用完：只由一个线程续租，其他线程随后重读新号段
+            synchronized (this) {
+                if (lease == current) {
+                    long start = source.leaseBlock(blockSize);
+                    lease = new Lease(start, start + blockSize);
+                }
+            }
+        }
+    }
+}
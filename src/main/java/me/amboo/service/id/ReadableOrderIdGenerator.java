@@ -0,0 +1,35 @@
+package me.amboo.service.id;
+
+/**
+ * 7 位易读订单号：把底层生成器给出的序号 [0, 9000000) 经过一个双射打散到 [1000000, 9999999]
+ * 序号不重复则订单号不重复，同时保留旧版“随机 7 位数”的外观，不暴露订单量
+ */
+public class ReadableOrderIdGenerator implements OrderIdGenerator {
+    public static final int CAPACITY = 9_000_000;
+    private static final int OFFSET = 1_000_000;
+    // 与 9000000 = 2^6 * 3^2 * 5^6 互素的乘数，保证 (seq * MULTIPLIER + INCREMENT) mod CAPACITY 是双射
+    private static final long MULTIPLIER = 7_368_787L;
+    private static final long INCREMENT = 4_129_513L;
+    // MULTIPLIER 在模 CAPACITY 下的逆元，用于把订单号还原为序号
+    private static final long MULTIPLIER_INVERSE = 8_341_723L;
+
+    private final OrderIdGenerator sequence;
+
+    public ReadableOrderIdGenerator(OrderIdGenerator sequence) {
+        this.sequence = sequence;
+    }
+
+    @Override
+    public int nextId() {
+        int seq = sequence.nextId();
+        if (seq < 0 || seq >= CAPACITY) throw new IllegalStateException("错误：7 位订单号已用尽");
+        return OFFSET + (int) ((seq * MULTIPLIER + INCREMENT) % CAPACITY);
+    }
+
+    @Override
+    public void reserve(int usedId) {
+        if (usedId < OFFSET || usedId >= OFFSET + CAPACITY) return; // 不是本生成器的号段
+        long seq = Math.floorMod((usedId - OFFSET - INCREMENT) * MULTIPLIER_INVERSE, (long) CAPACITY);
+        sequence.reserve((int) seq);
+    }
+}
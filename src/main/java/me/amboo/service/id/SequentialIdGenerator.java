@@ -0,0 +1,27 @@
+package me.amboo.service.id;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 无锁单调递增生成器：一次 CAS 取号，适合单进程
+ */
+public class SequentialIdGenerator implements OrderIdGenerator {
+    private final AtomicInteger next;
+
+    public SequentialIdGenerator(int first) {
+        this.next = new AtomicInteger(first);
+    }
+
+    @Override
+    public int nextId() {
+        int id = next.getAndIncrement();
+        if (id < 0) throw new IllegalStateException("错误：订单号已用尽");
+        return id;
+    }
+
+    // 恢复数据后调用，保证之后发出的 ID 都大于已存在的 ID
+    @Override
+    public void reserve(int usedId) {
+        next.accumulateAndGet(usedId + 1, Math::max);
+    }
+}
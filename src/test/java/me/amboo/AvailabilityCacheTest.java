@@ -0,0 +1,131 @@
+package me.amboo;
+
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.AvailabilityCache;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static me.amboo.TestFixtures.BASE;
+import static me.amboo.TestFixtures.TYPES;
+import static me.amboo.TestFixtures.WINDOW;
+
+/**
+ * 可用房查询缓存测试：
+ *   失效边界：查询 [start, start+n) 还取决于 start-1 晚，前一晚订单的状态变化必须使其失效，紧邻其后的订单则不影响；
+ *   随机操作（预订入住、退房、打扫、取消、增删房间、开关缓存）之间反复查询，结果与逐房间 canBeDistribute 的暴力判断一致
+ */
+public class AvailabilityCacheTest {
+    public static void main(String[] args) {
+        checkBoundaries();
+        checkRandomized();
+        System.out.println("可用房缓存测试通过");
+    }
+
+    private static void checkBoundaries() {
+        RoomService roomService = new RoomService(WINDOW);
+        OrderService orderService = new OrderService(roomService);
+        roomService.addRoom(new Room(101, TYPES[0], 20));
+        LocalDate day = BASE.plusDays(10);
+
+        // 前一晚 [day-1, day) 的订单入住、退房、打扫：只有打扫完成后 day 起才可分配
+        Order previous = orderService.placeOrder("prev", day.minusDays(1), 1, TYPES[0]);
+        orderService.processCheckIn(previous.getOrderID(), 101);
+        assertRooms(roomService, day, 2, TYPES[0], Set.of(), "前一晚已入住");
+        long hits = roomService.getAvailabilityCache().getStats().hits();
+        assertRooms(roomService, day, 2, TYPES[0], Set.of(), "前一晚已入住（缓存）");
+        if (roomService.getAvailabilityCache().getStats().hits() != hits + 1) throw new AssertionError("重复查询没有命中缓存");
+        orderService.processCheckOut(previous.getOrderID(), 101);
+        assertRooms(roomService, day, 2, TYPES[0], Set.of(), "前一晚待打扫");
+        orderService.processCleaning(previous.getOrderID());
+        assertRooms(roomService, day, 2, TYPES[0], Set.of(101), "前一晚打扫完成");
+
+        // 紧接在查询区间之后的订单 [day+2, day+3) 不使结果失效
+        long invalidations = roomService.getAvailabilityCache().getStats().invalidations();
+        Order after = orderService.placeOrder("after", day.plusDays(2), 1, TYPES[0]);
+        orderService.processCheckIn(after.getOrderID(), 101);
+        if (roomService.getAvailabilityCache().getStats().invalidations() != invalidations) throw new AssertionError("区间之后的订单使查询结果失效");
+        assertRooms(roomService, day, 2, TYPES[0], Set.of(101), "区间之后有订单");
+
+        // 区间内最后一晚 [day+1, day+2) 的订单使其失效
+        Order inside = orderService.placeOrder("inside", day.plusDays(1), 1, TYPES[0]);
+        orderService.processCheckIn(inside.getOrderID(), 101);
+        assertRooms(roomService, day, 2, TYPES[0], Set.of(), "区间最后一晚有订单");
+        orderService.cancelOrder(inside.getOrderID(), 101);
+        assertRooms(roomService, day, 2, TYPES[0], Set.of(101), "区间内订单取消");
+        System.out.println("失效边界: " + roomService.getAvailabilityCache().getStats());
+    }
+
+    private static void checkRandomized() {
+        Random random = new Random(7);
+        RoomService roomService = new RoomService(WINDOW);
+        OrderService orderService = new OrderService(roomService);
+        AvailabilityCache cache = roomService.getAvailabilityCache();
+        int nextRoom = 101;
+        List<Order> live = new ArrayList<>();
+        for (int i = 0; i < 20; i++) roomService.addRoom(new Room(nextRoom++, TYPES[i % 2], 20));
+        int checks = 0;
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(10);
+            try {
+                if (op < 4) {
+                    String type = TYPES[random.nextInt(2)];
+                    LocalDate date = BASE.plusDays(random.nextInt(40));
+                    int nights = 1 + random.nextInt(5);
+                    Order order = orderService.placeOrder("g", date, nights, type);
+                    List<Room> free = roomService.findAvailableRooms(date, nights, type);
+                    if (!free.isEmpty()) {
+                        orderService.processCheckIn(order.getOrderID(), free.get(random.nextInt(free.size())).getRoomID());
+                        live.add(order);
+                    }
+                } else if (op < 6 && !live.isEmpty()) {
+                    Order order = live.get(random.nextInt(live.size()));
+                    if (order.getStatus() == Order.OrderStatus.OCCUPIED) {
+                        orderService.processCheckOut(order.getOrderID(), order.getRoomID());
+                    } else if (order.getStatus() == Order.OrderStatus.CLEANING) {
+                        orderService.processCleaning(order.getOrderID());
+                    } else if (order.getRoomID() != null) {
+                        orderService.cancelOrder(order.getOrderID(), order.getRoomID());
+                        live.remove(order);
+                    }
+                } else if (op == 6 && random.nextInt(10) == 0) {
+                    roomService.addRoom(new Room(nextRoom++, TYPES[random.nextInt(2)], 20));
+                } else if (op == 7 && random.nextInt(20) == 0) {
+                    Room room = roomService.getAllRooms().get(random.nextInt(roomService.getAllRooms().size()));
+                    if (room.getOrderList().isEmpty()) roomService.removeRoom(room.getRoomID());
+                } else if (op == 8 && random.nextInt(50) == 0) {
+                    cache.setEnabled(!cache.isEnabled());
+                }
+            } catch (IllegalStateException | IllegalArgumentException soldOut) {
+                // 售罄、房间冲突属于预期结果
+            }
+            for (int q = 0; q < 5; q++) {
+                LocalDate date = BASE.plusDays(random.nextInt(8));
+                if (random.nextInt(20) == 0) date = date.plusYears(3); // 位图窗口之外
+                String type = TYPES[random.nextInt(2)];
+                int nights = 1 + random.nextInt(3);
+                Set<Integer> expected = new TreeSet<>();
+                for (Room room : roomService.getAllRooms()) {
+                    if (room.getRoomType().equals(type) && room.canBeDistribute(date, nights)) expected.add(room.getRoomID());
+                }
+                assertRooms(roomService, date, nights, type, expected, "第 " + step + " 步");
+                checks++;
+            }
+        }
+        if (cache.getStats().hits() == 0) throw new AssertionError("随机查询从未命中缓存");
+        System.out.println("随机比对: " + checks + " 次查询与暴力判断一致，" + cache.getStats());
+    }
+
+    private static void assertRooms(RoomService roomService, LocalDate date, int nights, String type, Set<Integer> expected, String what) {
+        Set<Integer> actual = new TreeSet<>();
+        for (Room room : roomService.findAvailableRooms(date, nights, type)) actual.add(room.getRoomID());
+        if (!expected.equals(actual)) throw new AssertionError(what + ": " + type + " " + date + " 起 " + nights + " 晚可用房应为 " + expected + "，实际 " + actual);
+    }
+}
@@ -0,0 +1,233 @@
+package me.amboo;
+
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalRecovery;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 并发压力测试：大量线程同时预订、入住、退房，验证不会超卖、不会一房多住
+ */
+public class ConcurrencyStressTest {
+    private static final int THREADS = 32;
+    private static final int BOOKINGS_PER_THREAD = 400;
+    private static final LocalDate BASE = LocalDate.of(2026, 3, 1);
+    private static final String[] TYPES = {"单人间", "双人间", "总统套房"};
+    private static final int[] ROOMS_PER_TYPE = {20, 12, 3};
+
+    public static void main(String[] args) throws Exception {
+        RoomService roomService = new RoomService(BASE.minusDays(7));
+        OrderService orderService = new OrderService(roomService);
+        for (int t = 0; t < TYPES.length; t++) {
+            for (int i = 0; i < ROOMS_PER_TYPE[t]; i++) {
+                roomService.addRoom(new Room((t + 1) * 100 + i, TYPES[t], 20.0 + t * 10));
+            }
+        }
+
+        // 1. 并发预订：所有线程争抢同一段日期
+        List<Order> booked = Collections.synchronizedList(new ArrayList<>());
+        runParallel(worker -> {
+            Random random = new Random(worker);
+            for (int i = 0; i < BOOKINGS_PER_THREAD; i++) {
+                String type = TYPES[random.nextInt(TYPES.length)];
+                LocalDate start = BASE.plusDays(random.nextInt(30));
+                try {
+                    booked.add(orderService.placeOrder("Guest_" + worker + "_" + i, start, 1 + random.nextInt(5), type));
+                } catch (IllegalStateException soldOut) {
+                    // 售罄属于预期结果
+                }
+            }
+        });
+        System.out.println("并发预订成功数: " + booked.size());
+        checkNoOverbooking(booked, "预订阶段");
+
+        // 2. 并发入住：同一房型的订单同时抢房，随机挑选房间
+        List<Room> rooms = roomService.getAllRooms();
+        List<Order> checkedIn = Collections.synchronizedList(new ArrayList<>());
+        runParallel(worker -> {
+            Random random = new Random(1000 + worker);
+            for (int i = worker; i < booked.size(); i += THREADS) {
+                Order order = booked.get(i);
+                for (int attempt = 0; attempt < 8; attempt++) {
+                    Room room = rooms.get(random.nextInt(rooms.size()));
+                    if (!room.getRoomType().equals(order.getOrderType())) continue;
+                    try {
+                        orderService.processCheckIn(order.getOrderID(), room.getRoomID());
+                        checkedIn.add(order);
+                        break;
+                    } catch (IllegalStateException | IllegalArgumentException busy) {
+                        // 房间冲突或已被其他线程分配，换一间再试
+                    }
+                }
+            }
+        });
+        System.out.println("并发入住成功数: " + checkedIn.size());
+        checkNoDoubleOccupancy(roomService, checkedIn);
+
+        // 3. 退房与新预订交错进行：退房释放的库存可以被并发预订重新占用
+        List<Order> rebooked = Collections.synchronizedList(new ArrayList<>());
+        runParallel(worker -> {
+            Random random = new Random(2000 + worker);
+            for (int i = worker; i < checkedIn.size(); i += THREADS) {
+                Order order = checkedIn.get(i);
+                orderService.processCheckOut(order.getOrderID(), order.getRoomID());
+                String type = TYPES[random.nextInt(TYPES.length)];
+                try {
+                    rebooked.add(orderService.placeOrder("Rebook_" + worker + "_" + i, BASE.plusDays(random.nextInt(30)), 1 + random.nextInt(3), type));
+                } catch (IllegalStateException soldOut) {
+                    // 售罄属于预期结果
+                }
+            }
+        });
+        List<Order> all = new ArrayList<>(booked);
+        all.addAll(rebooked);
+        checkNoOverbooking(all, "退房/再预订阶段");
+
+        // 4. 同一个已入住订单同时被取消和退房：只能有一个生效，库存只释放一次，状态索引不留下已删除的订单
+        LocalDate raceDay = BASE.plusDays(50);
+        List<Order> racing = new ArrayList<>();
+        for (Room room : roomService.getAllRooms()) {
+            for (int d = 0; d < 5; d++) { // 隔天入住，前一晚的订单不必先打扫
+                Order order = orderService.placeOrder("Race_" + room.getRoomID() + "_" + d, raceDay.plusDays(2 * d), 1, room.getRoomType());
+                orderService.processCheckIn(order.getOrderID(), room.getRoomID());
+                racing.add(order);
+            }
+        }
+        runParallel(worker -> {
+            int pair = worker / 2;
+            for (int i = pair; i < racing.size(); i += THREADS / 2) {
+                Order order = racing.get(i);
+                int roomID = order.getRoomID() == null ? -1 : order.getRoomID();
+                try {
+                    if (worker % 2 == 0) orderService.cancelOrder(order.getOrderID(), roomID);
+                    else orderService.processCheckOut(order.getOrderID(), roomID);
+                } catch (IllegalStateException | IllegalArgumentException lost) {
+                    // 另一方先完成
+                }
+            }
+        });
+        checkDemandMatchesOrders(orderService, raceDay, 10);
+        for (Order order : orderService.getOrdersByStatus(Order.OrderStatus.CLEANING)) {
+            if (orderService.getAllOrders().get(order.getOrderID()) != order) {
+                throw new AssertionError("已取消的订单 " + order.getOrderID() + " 仍留在待打扫索引中");
+            }
+        }
+        System.out.println("取消 / 退房竞争 " + racing.size() + " 单，库存与状态索引一致");
+
+        // 5. 同一房号被并发地删除、再以不同房型添加：日志中事件的先后必须与实际一致，重放后房间与现状相同
+        Path journalDir = Files.createTempDirectory("hotel-stress-journal");
+        RoomService journaled = new RoomService(BASE.minusDays(7));
+        Journal journal = JournalRecovery.recover(journalDir, journaled, new OrderService(journaled));
+        int[] reused = {901, 902, 903, 904};
+        runParallel(worker -> {
+            String type = TYPES[worker % TYPES.length];
+            for (int i = 0; i < 2000; i++) {
+                int roomID = reused[(worker + i) % reused.length];
+                try {
+                    if (i % 2 == 0) journaled.addRoom(new Room(roomID, type, 20.0));
+                    else journaled.removeRoom(roomID);
+                } catch (IllegalArgumentException lost) {
+                    // 房号已被占用或已被删除
+                }
+            }
+        });
+        journal.close();
+        RoomService replayed = new RoomService(BASE.minusDays(7));
+        JournalRecovery.recover(journalDir, replayed, new OrderService(replayed)).close();
+        for (int roomID : reused) {
+            Room expected = journaled.findRoomById(roomID), actual = replayed.findRoomById(roomID);
+            String want = expected == null ? null : expected.getRoomType(), got = actual == null ? null : actual.getRoomType();
+            if (!Objects.equals(want, got)) throw new AssertionError("房间 " + roomID + " 重放后为 " + got + "，实际为 " + want);
+        }
+        System.out.println("房号复用竞争：日志重放结果与现状一致");
+
+        System.out.println("并发压力测试通过：无超卖、无一房多住");
+    }
+
+    private interface Worker {
+        void run(int worker) throws Exception;
+    }
+
+    private static void runParallel(Worker task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < THREADS; w++) {
+            int worker = w;
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run(worker);
+                return null;
+            }));
+        }
+        start.countDown(); // 所有线程同时开始，尽量制造竞争
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+    }
+
+    // 每个房型每一天，占用库存（BOOKED / OCCUPIED）的订单数不得超过该房型房间数
+    private static void checkNoOverbooking(List<Order> orders, String phase) {
+        for (int t = 0; t < TYPES.length; t++) {
+            for (int d = 0; d < 40; d++) {
+                LocalDate day = BASE.plusDays(d);
+                String type = TYPES[t];
+                long demand = orders.stream()
+                        .filter(o -> o.getOrderType().equals(type))
+                        .filter(o -> o.getStatus() == Order.OrderStatus.BOOKED || o.getStatus() == Order.OrderStatus.OCCUPIED)
+                        .filter(o -> !day.isBefore(o.getStartDate()) && day.isBefore(o.getEndDate()))
+                        .count();
+                if (demand > ROOMS_PER_TYPE[t]) {
+                    throw new AssertionError(phase + " 超卖: " + type + " " + day + " 订单数 " + demand + " > 房间数 " + ROOMS_PER_TYPE[t]);
+                }
+            }
+        }
+    }
+
+    // 库存线段树中每天的占用数必须等于实际占用库存（BOOKED / OCCUPIED）的实时订单数
+    private static void checkDemandMatchesOrders(OrderService orderService, LocalDate from, int days) {
+        for (String type : TYPES) {
+            for (int d = 0; d < days; d++) {
+                long day = from.plusDays(d).toEpochDay();
+                long live = orderService.getAllOrders().values().stream()
+                        .filter(o -> o.getOrderType().equals(type))
+                        .filter(o -> o.getStatus() == Order.OrderStatus.BOOKED || o.getStatus() == Order.OrderStatus.OCCUPIED)
+                        .filter(o -> o.getStartDay() <= day && day < o.getEndDay())
+                        .count();
+                long demand = orderService.getDemandByType().get(type).max(day, day + 1);
+                if (demand != live) {
+                    throw new AssertionError("库存不一致: " + type + " " + LocalDate.ofEpochDay(day) + " 线段树 " + demand + "，实际订单 " + live);
+                }
+            }
+        }
+    }
+
+    // 每间房内的订单区间互不重叠，且每个订单只绑定一个房间
+    private static void checkNoDoubleOccupancy(RoomService roomService, List<Order> checkedIn) {
+        Set<Integer> seen = new HashSet<>();
+        for (Room room : roomService.getAllRooms()) {
+            List<Order> list = room.getOrderList();
+            for (int i = 0; i < list.size(); i++) {
+                if (!seen.add(list.get(i).getOrderID())) {
+                    throw new AssertionError("订单 " + list.get(i).getOrderID() + " 被分配到多个房间");
+                }
+                for (int j = i + 1; j < list.size(); j++) {
+                    Order a = list.get(i), b = list.get(j);
+                    if (a.cantBeBook(b.getStartDate(), b.getStayTime())) {
+                        throw new AssertionError("房间 " + room.getRoomID() + " 一房多住: " + a.getOrderID() + " / " + b.getOrderID());
+                    }
+                }
+            }
+        }
+        if (seen.size() != checkedIn.size()) {
+            throw new AssertionError("入住订单数 " + checkedIn.size() + " 与房间记录数 " + seen.size() + " 不一致");
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package me.amboo;
+
+import me.amboo.model.Room;
+import me.amboo.service.HotelGroup;
+import me.amboo.service.OrderService;
+import me.amboo.service.PropertyShard;
+import me.amboo.service.RoomService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 酒店集团测试：
+ *   跨酒店查询在并行池、单线程两种执行方式下与逐个分片查询的结果一致，按酒店 ID 升序合并，没有空房的酒店不出现；
+ *   任一分片失败则整个查询失败；openAll 中有一家装载失败时整批不加入，已打开的分片全部关闭，修复后可以重新装载
+ */
+public class HotelGroupTest {
+    private static final String[] TYPES = {"单人间", "双人间"};
+
+    public static void main(String[] args) throws Exception {
+        checkFanOut();
+        checkFailingShard();
+        checkOpenAll();
+        System.out.println("酒店集团测试通过");
+    }
+
+    private static void checkFanOut() {
+        Random random = new Random(41);
+        LocalDate today = LocalDate.now();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        HotelGroup parallel = new HotelGroup(pool);
+        HotelGroup sequential = new HotelGroup(null);
+        for (String id : new String[] {"D", "B", "A", "C", "E"}) {
+            PropertyShard shard = parallel.addProperty(id);
+            sequential.addProperty(PropertyShard.of(id, shard.getRoomService(), shard.getOrderService()));
+            // E 没有双人间；其余酒店房间数、订单数各不相同
+            int rooms = id.equals("E") ? 3 : 2 + random.nextInt(6);
+            for (int i = 0; i < rooms; i++) {
+                String type = id.equals("E") ? TYPES[0] : TYPES[i % 2];
+                shard.getRoomService().addRoom(new Room(100 * (1 + i / 10) + i % 10, type, 20));
+            }
+            for (int i = 0; i < 10; i++) {
+                try {
+                    shard.getOrderService().placeOrder("g", today.plusDays(1 + random.nextInt(5)), 1 + random.nextInt(3), TYPES[random.nextInt(2)]);
+                } catch (IllegalStateException soldOut) {
+                    // 该房型已订满
+                }
+            }
+        }
+        if (!parallel.getPropertyIDs().equals(List.of("A", "B", "C", "D", "E"))) throw new AssertionError("酒店 ID 应升序");
+
+        for (int day = 1; day <= 6; day++) {
+            LocalDate date = today.plusDays(day);
+            for (String type : TYPES) {
+                Map<String, List<Room>> expected = new TreeMap<>();
+                for (String id : parallel.getPropertyIDs()) {
+                    List<Room> rooms = parallel.getProperty(id).getRoomService().findAvailableRooms(date, 2, type);
+                    if (!rooms.isEmpty()) expected.put(id, rooms);
+                }
+                for (HotelGroup group : List.of(parallel, sequential)) {
+                    Map<String, List<Room>> actual = group.findAvailableRooms(date, 2, type);
+                    if (!actual.equals(expected) || !new ArrayList<>(actual.keySet()).equals(new ArrayList<>(expected.keySet()))) {
+                        throw new AssertionError(date + " " + type + " 的跨酒店空房为 " + actual.keySet() + "，应为 " + expected.keySet());
+                    }
+                }
+                if (parallel.findAvailableRooms(date, 2, type).containsKey("E") != type.equals(TYPES[0])) throw new AssertionError("没有该房型空房的酒店不应出现在结果中");
+            }
+            long total = 0;
+            for (String id : parallel.getPropertyIDs()) {
+                long count = parallel.getProperty(id).getRoomService().getAvailableRoomCount(date);
+                if (parallel.getAvailableRoomCounts(date).get(id) != count || sequential.getAvailableRoomCounts(date).get(id) != count) {
+                    throw new AssertionError(date + " 酒店 " + id + " 的空房数不一致");
+                }
+                total += count;
+            }
+            if (parallel.getAvailableRoomCount(date) != total) throw new AssertionError(date + " 全集团空房数应为 " + total);
+        }
+        if (!parallel.getAllRooms().equals(sequential.getAllRooms()) || parallel.getAllRooms().get("E").size() != 3) {
+            throw new AssertionError("getAllRooms 的合并结果不正确");
+        }
+
+        try {
+            parallel.addProperty("A");
+            throw new AssertionError("重复的酒店 ID 应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 原有分片不受影响
+        }
+        try {
+            parallel.getProperty("Z");
+            throw new AssertionError("不存在的酒店应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 未找到
+        }
+        pool.shutdown();
+    }
+
+    private static void checkFailingShard() {
+        HotelGroup group = new HotelGroup(new ForkJoinPool(4));
+        group.addProperty("A").getRoomService().addRoom(new Room(101, TYPES[0], 20));
+        RoomService broken = new RoomService() {
+            @Override
+            public long getAvailableRoomCount(LocalDate date) {
+                throw new IllegalStateException("分片故障");
+            }
+        };
+        group.addProperty(PropertyShard.of("B", broken, new OrderService(broken)));
+        try {
+            group.getAvailableRoomCounts(LocalDate.now());
+            throw new AssertionError("有分片失败时整个查询应失败");
+        } catch (IllegalStateException expected) {
+            // 经 fork-join 池转抛时异常类型不变，原始异常可能作为 cause
+            Throwable root = expected;
+            while (root.getCause() != null) root = root.getCause();
+            if (!"分片故障".equals(root.getMessage())) throw new AssertionError("应抛出分片的原始异常", expected);
+        }
+    }
+
+    private static void checkOpenAll() throws IOException, InterruptedException {
+        Path root = Files.createTempDirectory("hotel-group-test");
+        // 先建两家带日志的酒店并关闭
+        for (String id : new String[] {"A", "B"}) {
+            try (PropertyShard shard = PropertyShard.open(id, Files.createDirectory(root.resolve(id)))) {
+                shard.getRoomService().addRoom(new Room(101, TYPES[0], 20));
+            }
+        }
+        // C 的快照损坏，装载失败
+        Path broken = Files.createDirectory(root.resolve("C"));
+        Files.write(broken.resolve(String.format("snapshot-%019d.bin", 1)), new byte[] {1, 2, 3, 4});
+
+        int writers = threads("journal-writer");
+        HotelGroup group = new HotelGroup(new ForkJoinPool(4));
+        try {
+            group.openAll(root);
+            throw new AssertionError("有酒店装载失败时 openAll 应抛出异常");
+        } catch (RuntimeException expected) {
+            // 整批不加入
+        }
+        if (group.size() != 0) throw new AssertionError("装载失败后不应加入任何酒店，实际 " + group.getPropertyIDs());
+        awaitThreads("journal-writer", writers);
+
+        // 修复后重新装载：A、B 的数据完整，且已存在的酒店 ID 会被拒绝
+        try (var files = Files.list(broken)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        if (group.openAll(root) != 3 || !group.getPropertyIDs().equals(List.of("A", "B", "C"))) throw new AssertionError("修复后应装载 3 家酒店");
+        if (group.getProperty("A").getRoomService().findRoomById(101) == null) throw new AssertionError("重新装载后 A 的房间丢失");
+        if (!group.getProperty("B").isDurable()) throw new AssertionError("从目录装载的酒店应启用日志");
+        try {
+            group.openAll(root);
+            throw new AssertionError("重复装载同名酒店应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 在打开任何分片之前拒绝
+        }
+        for (String id : group.getPropertyIDs()) group.removeProperty(id);
+        awaitThreads("journal-writer", writers);
+    }
+
+    private static int threads(String name) {
+        return (int) Thread.getAllStackTraces().keySet().stream().filter(t -> t.isAlive() && t.getName().equals(name)).count();
+    }
+
+    // 关闭分片后它的后台线程应在短时间内退出
+    private static void awaitThreads(String name, int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && threads(name) > expected; i++) Thread.sleep(50);
+        if (threads(name) > expected) throw new AssertionError("仍有 " + (threads(name) - expected) + " 个 " + name + " 线程没有关闭");
+    }
+}
@@ -0,0 +1,126 @@
+package me.amboo;
+
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.server.HotelHttpServer;
+import me.amboo.server.Json;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * HTTP 服务测试：在本机端口上启动服务，检查
+ *   路由匹配（路径参数、404 / 405、管理接口的 401）、异常到状态码的映射（400 / 404 / 409 / 413），
+ *   路径参数优先于请求体和查询串中的同名字段，以及过深的 JSON 嵌套返回 400
+ */
+public class HotelHttpServerTest {
+    private static final LocalDate BASE = LocalDate.of(2026, 7, 1);
+    private static final String PASSWORD = "secret";
+
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+    private static String root;
+
+    public static void main(String[] args) throws Exception {
+        RoomService roomService = new RoomService(BASE);
+        OrderService orderService = new OrderService(roomService);
+        roomService.addRoom(new Room(101, "单人间", 20, 100));
+        roomService.addRoom(new Room(102, "单人间", 20, 100));
+        HotelHttpServer server = new HotelHttpServer(roomService, orderService, PASSWORD);
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        root = "http://127.0.0.1:" + server.getAddress().getPort();
+        try {
+            checkRouting(orderService);
+            checkStatusMapping();
+            checkPathPrecedence(orderService);
+        } finally {
+            server.stop(0);
+        }
+        System.out.println("HTTP 服务测试通过");
+    }
+
+    private static void checkRouting(OrderService orderService) throws Exception {
+        String booking = "{\"guestID\": \"张三\", \"startDate\": \"" + BASE + "\", \"stayTime\": 2, \"roomType\": \"单人间\"}";
+        Map<String, Object> created = expectObject(send("POST", "/api/orders", booking, false), 201);
+        long orderID = (Long) created.get("orderID");
+        if (orderService.getOrder((int) orderID) == null) throw new AssertionError("POST /api/orders 没有生成订单");
+
+        Map<String, Object> fetched = expectObject(send("GET", "/api/orders/" + orderID, null, false), 200);
+        if (!"张三".equals(fetched.get("guestID")) || !"BOOKED".equals(fetched.get("status"))) throw new AssertionError("GET /api/orders/{id} 返回的订单不正确: " + fetched);
+        expectObject(send("GET", "/api/properties/" + HotelHttpServer.DEFAULT_PROPERTY + "/orders/" + orderID, null, false), 200);
+
+        expect(send("GET", "/api/nothing", null, false), 404);
+        expect(send("GET", "/api/orders", null, false), 405);           // 路径存在，方法不支持
+        expect(send("PUT", "/api/orders/" + orderID, null, false), 405);
+        expect(send("GET", "/api/orders/" + orderID + "/extra", null, false), 404);
+        expect(send("GET", "/api/admin/rooms", null, false), 401);
+        HttpResponse<String> wrongPassword = CLIENT.send(HttpRequest.newBuilder(URI.create(root + "/api/admin/rooms"))
+                .header("X-Admin-Password", "wrong").GET().build(), HttpResponse.BodyHandlers.ofString());
+        expect(wrongPassword, 401);
+        expect(send("GET", "/api/admin/rooms", null, true), 200);
+        expect(send("GET", "/api/properties/B/orders/" + orderID, null, false), 404); // 不存在的酒店
+    }
+
+    private static void checkStatusMapping() throws Exception {
+        expect(send("GET", "/api/orders/1", null, false), 404);                               // 订单不存在
+        expect(send("GET", "/api/orders/abc", null, false), 400);                             // NumberFormatException
+        expect(send("GET", "/api/orders/99999999999", null, false), 400);
+        expect(send("GET", "/api/rooms/available?roomType=单人间&startDate=2026-13-01&stayTime=1", null, false), 400); // 日期格式
+        expect(send("GET", "/api/rooms/available?startDate=" + BASE + "&stayTime=1", null, false), 400);             // 缺少参数
+        expect(send("POST", "/api/orders", "{\"guestID\": ", false), 400);                   // JSON 格式错误
+        expect(send("POST", "/api/orders", "[1, 2]", false), 400);                            // 顶层不是对象
+        expect(send("POST", "/api/orders", "{\"a\": " + "[".repeat(5000) + "]".repeat(5000) + "}", false), 400); // 嵌套过深
+        expect(send("POST", "/api/orders", "x".repeat((1 << 20) + 1), false), 413);
+
+        String booking = "{\"guestID\": \"g\", \"startDate\": \"" + BASE.plusDays(10) + "\", \"stayTime\": 1, \"roomType\": \"单人间\"}";
+        expect(send("POST", "/api/orders", booking, false), 201);
+        expect(send("POST", "/api/orders", booking, false), 201);
+        expect(send("POST", "/api/orders", booking, false), 409);                             // 售罄
+        expect(send("POST", "/api/orders", booking.replace("单人间", "总统套房"), false), 409);
+        expect(send("POST", "/api/orders", booking.replace("\"stayTime\": 1", "\"stayTime\": 1e12"), false), 400); // 超出 int 范围
+    }
+
+    // 请求体或查询串里的 id 不能改写 URL 中的订单号
+    private static void checkPathPrecedence(OrderService orderService) throws Exception {
+        Order target = orderService.placeOrder("目标", BASE.plusDays(20), 1, "单人间");
+        Order other = orderService.placeOrder("旁人", BASE.plusDays(20), 1, "单人间");
+        String body = "{\"id\": " + other.getOrderID() + ", \"roomID\": 101}";
+        Map<String, Object> checkedIn = expectObject(send("POST", "/api/orders/" + target.getOrderID() + "/check-in", body, false), 200);
+        if (((Long) checkedIn.get("orderID")) != target.getOrderID()) throw new AssertionError("入住应作用于 URL 中的订单");
+        if (target.getStatus() != Order.OrderStatus.OCCUPIED || other.getStatus() != Order.OrderStatus.BOOKED) {
+            throw new AssertionError("请求体中的 id 改写了路径参数");
+        }
+
+        String path = "/api/admin/orders/" + target.getOrderID() + "?roomID=101&id=" + other.getOrderID();
+        Map<String, Object> deleted = expectObject(send("DELETE", path, null, true), 200);
+        if (((Long) deleted.get("deleted")) != target.getOrderID()) throw new AssertionError("删除应作用于 URL 中的订单");
+        if (orderService.getOrder(target.getOrderID()) != null || orderService.getOrder(other.getOrderID()) == null) {
+            throw new AssertionError("查询串中的 id 改写了路径参数");
+        }
+    }
+
+    private static HttpResponse<String> send(String method, String path, String body, boolean admin) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(root + path.replace("单人间", "%E5%8D%95%E4%BA%BA%E9%97%B4")))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (admin) request.header("X-Admin-Password", PASSWORD);
+        return CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void expect(HttpResponse<String> response, int status) {
+        if (response.statusCode() != status) {
+            throw new AssertionError(response.request().method() + " " + response.uri() + " 返回 " + response.statusCode() + "，应为 " + status + ": " + response.body());
+        }
+    }
+
+    private static Map<String, Object> expectObject(HttpResponse<String> response, int status) {
+        expect(response, status);
+        return Json.parseObject(response.body());
+    }
+}
@@ -0,0 +1,222 @@
+package me.amboo;
+
+import me.amboo.journal.HotelSnapshot;
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalRecovery;
+import me.amboo.journal.Snapshotter;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static me.amboo.TestFixtures.BASE;
+import static me.amboo.TestFixtures.TYPES;
+import static me.amboo.TestFixtures.WINDOW;
+
+/**
+ * 快照测试：
+ *   往返：随机预订、入住、退房、打扫、归档之后写出快照，装载到新的服务中，房间（含未定价）、实时订单、
+ *   各房间的订单列表、归档记录与房价、收入报表、可用房查询都与原状态一致；
+ *   房型交错：快照复制完一个房型后，其中的房间被删除并以另一房型重建，快照只保留一份，恢复出的状态与原状态一致；
+ *   魔数错误与未知版本被拒绝
+ */
+public class HotelSnapshotTest {
+    private static final int MAGIC = 0x48534E50;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("hotel-snapshot-test");
+        checkRoundTrip(dir);
+        checkRoomMovedBetweenTypes(dir);
+        checkRejected(dir);
+        System.out.println("快照测试通过");
+    }
+
+    private static void checkRoundTrip(Path dir) throws IOException {
+        Random random = new Random(17);
+        RoomService roomService = new RoomService(WINDOW);
+        OrderService orderService = new OrderService(roomService);
+        for (int i = 0; i < 40; i++) {
+            int roomID = 100 * (1 + i / 10) + i % 10;
+            roomService.addRoom(i % 4 == 0 ? new Room(roomID, TYPES[i % 2], 15 + i * 0.5) : new Room(roomID, TYPES[i % 2], 20, 150 + i + 0.99));
+        }
+        List<Order> live = new ArrayList<>();
+        for (int step = 0; step < 4000; step++) {
+            try {
+                int op = random.nextInt(10);
+                if (op < 5) {
+                    String type = TYPES[random.nextInt(2)];
+                    LocalDate date = BASE.plusDays(random.nextInt(200));
+                    int nights = 1 + random.nextInt(5);
+                    Order order = orderService.placeOrder("住客" + random.nextInt(300), date, nights, type);
+                    List<Room> free = roomService.findAvailableRooms(date, nights, type);
+                    // 部分订单不分配房间，以 -1 房号写入快照
+                    if (!free.isEmpty() && random.nextInt(3) != 0) {
+                        orderService.processCheckIn(order.getOrderID(), free.get(0).getRoomID());
+                        live.add(order);
+                    }
+                } else if (op < 9 && !live.isEmpty()) {
+                    Order order = live.get(random.nextInt(live.size()));
+                    switch (order.getStatus()) {
+                        case OCCUPIED -> orderService.processCheckOut(order.getOrderID(), order.getRoomID());
+                        case CLEANING -> orderService.processCleaning(order.getOrderID());
+                        default -> { }
+                    }
+                } else {
+                    Room room = roomService.getAllRooms().get(random.nextInt(roomService.getAllRooms().size()));
+                    roomService.setRoomPrice(room.getRoomID(), random.nextInt(40_000) / 100.0);
+                }
+            } catch (IllegalStateException | IllegalArgumentException soldOut) {
+                // 售罄、状态不符属于预期结果
+            }
+        }
+        int archived = orderService.archiveFinished(BASE.plusDays(120));
+        if (archived == 0 || orderService.getArchive().orders().isEmpty()) throw new AssertionError("没有归档任何订单");
+        // 归档后再改价：归档记录保留归档时的房价，装载后不应变为现价
+        for (Room room : roomService.getAllRooms()) if (room.getRoomPrice() != null) roomService.setRoomPrice(room.getRoomID(), 999.5);
+
+        Path file = dir.resolve("roundtrip.snap");
+        HotelSnapshot.write(file, roomService, orderService, null);
+        RoomService loadedRooms = new RoomService(WINDOW);
+        OrderService loadedOrders = new OrderService(loadedRooms);
+        HotelSnapshot.load(file, loadedRooms, loadedOrders);
+
+        assertEquals(describeRooms(roomService), describeRooms(loadedRooms), "房间及其订单");
+        assertEquals(describeOrders(orderService.getAllOrders().values()), describeOrders(loadedOrders.getAllOrders().values()), "实时订单");
+        assertEquals(describeArchive(orderService), describeArchive(loadedOrders), "归档记录");
+        LocalDate from = BASE, to = BASE.plusDays(250);
+        assertEquals(roomService.getAnalytics().reportByFloor(from, to).toString(), loadedRooms.getAnalytics().reportByFloor(from, to).toString(), "收入报表");
+        for (int k = 0; k < 100; k++) {
+            LocalDate date = BASE.plusDays(random.nextInt(220));
+            int nights = 1 + random.nextInt(4);
+            String type = TYPES[random.nextInt(2)];
+            assertEquals(roomIDs(roomService.findAvailableRooms(date, nights, type)), roomIDs(loadedRooms.findAvailableRooms(date, nights, type)), date + " 可用房");
+        }
+        System.out.println("往返: " + roomService.getAllRooms().size() + " 间房，" + orderService.getAllOrders().size() + " 个实时订单，归档 " + archived + " 个");
+    }
+
+    private static void checkRoomMovedBetweenTypes(Path parent) throws IOException {
+        Path dir = Files.createDirectory(parent.resolve("moved"));
+        RoomService roomService = new RoomService(WINDOW);
+        OrderService orderService = new OrderService(roomService);
+        Journal journal = JournalRecovery.recover(dir, roomService, orderService);
+        roomService.addRoom(new Room(101, TYPES[0], 20, 100));
+        roomService.addRoom(new Room(102, TYPES[0], 20));
+        roomService.addRoom(new Room(201, TYPES[1], 25));
+        Order stay = orderService.placeOrder("g", BASE, 2, TYPES[0]);
+        orderService.processCheckIn(stay.getOrderID(), 101);
+        if (roomService.getLocks().typeStripe(TYPES[0]) == roomService.getLocks().typeStripe(TYPES[1])) {
+            throw new AssertionError("两个房型落在同一把锁上，无法构造交错");
+        }
+
+        // 快照按房型名排序复制（单人间在前）：持有双人间的锁，让快照复制完单人间后停下，此时把 101 改建为双人间
+        Snapshotter snapshotter = new Snapshotter(dir, roomService, orderService, journal);
+        ReentrantLock later = roomService.getLocks().forType(TYPES[1]);
+        CompletableFuture<Path> snapshot;
+        later.lock();
+        try {
+            snapshot = snapshotter.snapshotAsync();
+            while (!later.hasQueuedThreads()) Thread.onSpinWait();
+            roomService.removeRoom(101);
+            roomService.addRoom(new Room(101, TYPES[1], 30, 200));
+        } finally {
+            later.unlock();
+        }
+        // 文件名记录基准序号：它对所有房型都已覆盖，与 Snapshotter 快照后的待快照起点一致
+        Path file = snapshot.join();
+        RoomService loadedRooms = new RoomService(WINDOW);
+        HotelSnapshot.Cuts cuts = HotelSnapshot.load(file, loadedRooms, new OrderService(loadedRooms));
+        if (!file.getFileName().toString().equals(String.format("snapshot-%019d.bin", cuts.base())) || cuts.max() == cuts.base()) {
+            throw new AssertionError("快照文件名应为基准序号 " + cuts.base() + "，实际 " + file.getFileName());
+        }
+        roomService.setRoomPrice(101, 210); // 快照之后的事件
+        snapshotter.close();
+        journal.close();
+
+        RoomService recoveredRooms = new RoomService(WINDOW);
+        OrderService recoveredOrders = new OrderService(recoveredRooms);
+        JournalRecovery.recover(dir, recoveredRooms, recoveredOrders).close();
+        assertEquals(describeRooms(roomService), describeRooms(recoveredRooms), "改建房型后恢复的房间");
+        assertEquals(describeOrders(orderService.getAllOrders().values()), describeOrders(recoveredOrders.getAllOrders().values()), "改建房型后恢复的订单");
+        if (!recoveredRooms.findRoomById(101).getRoomType().equals(TYPES[1])) throw new AssertionError("101 应恢复为" + TYPES[1]);
+        System.out.println("房型交错: " + describeRooms(recoveredRooms));
+
+        // close 等待已提交的快照写完，之后才能关闭日志
+        RoomService reopenedRooms = new RoomService(WINDOW);
+        OrderService reopenedOrders = new OrderService(reopenedRooms);
+        Journal reopened = JournalRecovery.recover(dir, reopenedRooms, reopenedOrders);
+        Snapshotter last = new Snapshotter(dir, reopenedRooms, reopenedOrders, reopened);
+        CompletableFuture<Path> pending = last.snapshotAsync();
+        last.close();
+        if (!pending.isDone()) throw new AssertionError("close 返回时快照应已写完");
+        reopened.close();
+    }
+
+    private static void checkRejected(Path dir) throws IOException {
+        Path wrongMagic = dir.resolve("magic.snap");
+        Files.write(wrongMagic, new byte[] { 1, 2, 3, 4, 0, 0, 0, 4 });
+        Path future = dir.resolve("future.snap");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(future))) {
+            out.writeInt(MAGIC);
+            out.writeInt(99);
+            out.writeLong(0);
+        }
+        for (Path file : List.of(wrongMagic, future)) {
+            RoomService roomService = new RoomService(WINDOW);
+            try {
+                HotelSnapshot.load(file, roomService, new OrderService(roomService));
+                throw new AssertionError(file.getFileName() + " 应被拒绝");
+            } catch (IOException expected) {
+                // 不是可识别的快照
+            }
+        }
+    }
+
+    private static List<String> describeRooms(RoomService roomService) {
+        TreeMap<Integer, String> rooms = new TreeMap<>();
+        for (Room room : roomService.getAllRooms()) {
+            rooms.put(room.getRoomID(), room.getRoomType() + " " + room.getRoomArea() + " " + room.getRoomPrice() + " "
+                    + room.getOrderList().stream().map(Order::getOrderID).toList());
+        }
+        return rooms.entrySet().stream().map(e -> e.getKey() + " " + e.getValue()).toList();
+    }
+
+    private static List<String> describeOrders(Iterable<Order> orders) {
+        List<String> result = new ArrayList<>();
+        for (Order o : orders) {
+            result.add(o.getOrderID() + " " + o.getGuestID() + " " + o.getStartDate() + " " + o.getStayTime() + " "
+                    + o.getOrderType() + " " + o.getRoomID() + " " + o.getStatus());
+        }
+        result.sort(null);
+        return result;
+    }
+
+    private static List<String> describeArchive(OrderService orderService) {
+        List<String> result = new ArrayList<>();
+        for (String type : TYPES) {
+            orderService.getArchive().forEach(type, (orderID, guestID, startDay, stayTime, roomID, priceCents) ->
+                    result.add(type + " " + orderID + " " + guestID + " " + startDay + " " + stayTime + " " + roomID + " " + priceCents));
+        }
+        result.sort(null);
+        return result;
+    }
+
+    private static List<Integer> roomIDs(List<Room> rooms) {
+        return rooms.stream().map(Room::getRoomID).sorted().toList();
+    }
+
+    private static void assertEquals(Object expected, Object actual, String what) {
+        if (!expected.equals(actual)) throw new AssertionError(what + "不一致:\n期望 " + expected + "\n实际 " + actual);
+    }
+}
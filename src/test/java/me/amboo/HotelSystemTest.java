@@ -1,11 +1,14 @@
 package me.amboo;
 
+import me.amboo.model.BookingRequest;
 import me.amboo.model.Order;
 import me.amboo.model.Room;
+import me.amboo.service.BatchBookingResult;
 import me.amboo.service.OrderService;
 import me.amboo.service.RoomService;
 
 import java.time.LocalDate;
+import java.util.List;
 
 public class HotelSystemTest {
     public static void main(String[] args) {
@@ -41,6 +44,16 @@ public class HotelSystemTest {
             System.err.println("预订失败捕获: " + e.getMessage()); // 预期结果：提示已售罄
         }
 
+        // 天数为 0 或负数的预订与批量预订一样被拒绝，即使当天已售罄也不会生成订单
+        for (int days : new int[] {0, -1}) {
+            try {
+                orderService.placeOrder("Guest_004", startDate, days, "单人间");
+                throw new AssertionError("预订 " + days + " 天应被拒绝");
+            } catch (IllegalArgumentException e) {
+                if (!e.getMessage().equals("错误：预定天数必须大于0")) throw new AssertionError("错误信息不正确: " + e.getMessage());
+            }
+        }
+
         // 4. 模拟入住阶段：为订单 1 分配 101 房
         try {
             System.out.println("\n=== 入住分配测试 ===");
@@ -60,5 +73,31 @@ public class HotelSystemTest {
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        // 5. 批量预订：任何一项失败则整批撤销
+        System.out.println("\n=== 批量预订测试 ===");
+        LocalDate nextDay = startDate.plusDays(2);
+        int ordersBefore = orderService.getAllOrders().size();
+        BatchBookingResult rejected = orderService.placeOrders(List.of(
+                new BookingRequest("Tour_001", nextDay, 1, "单人间"),
+                new BookingRequest("Tour_002", nextDay, 1, "单人间"),
+                new BookingRequest("Tour_003", startDate, 1, "单人间"))); // 当天已售罄
+        if (rejected.committed()) throw new AssertionError("含售罄项的批次不应提交");
+        rejected.items().forEach(item -> System.out.println("  " + item.request().guestID() + " -> " + item.error()));
+        if (orderService.getAllOrders().size() != ordersBefore || !orderService.getOrdersByGuest("Tour_001").isEmpty()) {
+            throw new AssertionError("被拒绝的批次留下了订单");
+        }
+        // 未分配房间的预订按订单占用房型库存，撤销后当天不应再有该房型的订单
+        if (!orderService.getOrdersStartingBetween("单人间", nextDay, nextDay.plusDays(1), null).isEmpty()) throw new AssertionError("被拒绝的批次没有释放库存");
+
+        BatchBookingResult accepted = orderService.placeOrders(List.of(
+                new BookingRequest("Tour_001", nextDay, 1, "单人间"),
+                new BookingRequest("Tour_002", nextDay, 1, "单人间")));
+        if (!accepted.committed()) throw new AssertionError("撤销后库存已释放，新批次应提交");
+        if (orderService.getAllOrders().size() != ordersBefore + 2 || accepted.items().stream().anyMatch(item -> item.order() == null)) {
+            throw new AssertionError("提交的批次应新增 2 个订单，实际 " + (orderService.getAllOrders().size() - ordersBefore));
+        }
+        accepted.items().forEach(item -> System.out.println("  " + item.request().guestID() + " -> 订单ID " + item.order().getOrderID()));
+        System.out.printf("批量预订耗时: %.3f ms%n", accepted.elapsedNanos() / 1e6);
     }
 }
\ No newline at end of file
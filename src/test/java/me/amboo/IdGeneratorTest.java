@@ -0,0 +1,64 @@
+package me.amboo;
+
+import me.amboo.service.id.FileIdRangeSource;
+import me.amboo.service.id.OrderIdGenerator;
+import me.amboo.service.id.RangeLeasingIdGenerator;
+import me.amboo.service.id.ReadableOrderIdGenerator;
+import me.amboo.service.id.SequentialIdGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订单号生成器测试：号段在大量短命线程之间共享（序号连续）、高水位跨重启、易读订单号双射与 reserve
+ */
+public class IdGeneratorTest {
+    private static final int BLOCK = 256;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("hotel-id-test");
+        Path hwm = dir.resolve("order-id.hwm");
+
+        // 1. 每个取号都在新的虚拟线程中（与服务模式一致），序号必须连续，号段只按总量租用
+        int count = 5000;
+        FileIdRangeSource source = new FileIdRangeSource(hwm, 0, ReadableOrderIdGenerator.CAPACITY);
+        RangeLeasingIdGenerator generator = new RangeLeasingIdGenerator(source, BLOCK);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) threads.add(Thread.ofVirtual().start(() -> ids.add(generator.nextId())));
+        for (Thread t : threads) t.join();
+        if (ids.size() != count) throw new AssertionError("取号重复: " + (count - ids.size()) + " 个");
+        int max = ids.stream().mapToInt(Integer::intValue).max().orElseThrow();
+        if (max >= count) throw new AssertionError("序号不连续: " + count + " 次取号的最大序号为 " + max);
+        long leased = source.getHighWaterMark();
+        if (leased > (count + BLOCK - 1) / BLOCK * BLOCK) throw new AssertionError("租出号段过多，高水位 " + leased);
+        System.out.println("短命线程取号 " + count + " 个，最大序号 " + max + "，高水位 " + leased);
+
+        // 2. 重启：从高水位继续，旧号段剩余部分作废但不会重复
+        source.close();
+        FileIdRangeSource reopened = new FileIdRangeSource(hwm, 0, ReadableOrderIdGenerator.CAPACITY);
+        int first = new RangeLeasingIdGenerator(reopened, BLOCK).nextId();
+        if (first != leased) throw new AssertionError("重启后应从高水位 " + leased + " 继续，实际 " + first);
+        reopened.close();
+
+        // 3. 易读订单号：7 位、互不相同，reserve 后不再发出已占用的号
+        OrderIdGenerator readable = new ReadableOrderIdGenerator(new SequentialIdGenerator(0));
+        Set<Integer> readableIds = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int id = readable.nextId();
+            if (id < 1_000_000 || id > 9_999_999) throw new AssertionError("订单号不是 7 位: " + id);
+            if (!readableIds.add(id)) throw new AssertionError("订单号重复: " + id);
+        }
+        OrderIdGenerator restored = new ReadableOrderIdGenerator(new SequentialIdGenerator(0));
+        for (int id : readableIds) restored.reserve(id);
+        int next = restored.nextId();
+        if (readableIds.contains(next)) throw new AssertionError("reserve 之后仍发出已占用的订单号 " + next);
+
+        System.out.println("订单号生成器测试通过");
+    }
+}
@@ -0,0 +1,213 @@
+package me.amboo;
+
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalEvent;
+import me.amboo.model.BookingRequest;
+import me.amboo.model.Room;
+import me.amboo.model.RoomTypes;
+import me.amboo.service.BatchBookingResult;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 预写日志测试：追加与滚动分段、重启后按序号完整回放（含 afterSeq 跳段）、末尾写了一半的记录被截掉后继续追加、
+ * 中间段损坏时拒绝打开、删除旧段、多线程并发追加时组提交的序号连续且全部落盘、
+ * 超长字符串的编码与回放，以及服务在改动状态之前拒绝过长的住客 ID / 房型名
+ */
+public class JournalTest {
+    private static final long SEGMENT_BYTES = 512;
+    private static final LocalDate BASE = LocalDate.of(2026, 3, 1);
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("hotel-journal-test");
+        Random random = new Random(11);
+
+        // 1. 追加并滚动分段
+        List<JournalEvent> written = new ArrayList<>();
+        Journal journal = Journal.open(dir, SEGMENT_BYTES, 0, (seq, event) -> { throw new AssertionError("空目录不应有事件"); });
+        for (int i = 0; i < 300; i++) {
+            JournalEvent event = randomEvent(random, i);
+            long seq = journal.append(event);
+            if (seq != i + 1) throw new AssertionError("第 " + i + " 条事件的序号为 " + seq);
+            written.add(event);
+            if (i % 50 == 49) journal.awaitDurable(seq); // 分几批落盘，才会滚动出多个段
+        }
+        journal.awaitDurable(written.size());
+        journal.close();
+        List<Path> segments = segments(dir);
+        if (segments.size() < 3) throw new AssertionError("日志没有滚动分段: " + segments.size() + " 段");
+
+        // 2. 重启后完整回放，序号从 1 开始连续
+        List<JournalEvent> replayed = new ArrayList<>();
+        journal = Journal.open(dir, SEGMENT_BYTES, 0, (seq, event) -> {
+            if (seq != replayed.size() + 1) throw new AssertionError("回放序号不连续: " + seq);
+            replayed.add(event);
+        });
+        if (!replayed.equals(written)) throw new AssertionError("回放的事件与写入的不一致");
+        if (journal.getAppendedSeq() != written.size()) throw new AssertionError("重启后的序号应从 " + written.size() + " 继续");
+        journal.close();
+
+        // 3. afterSeq：只回放之后的事件
+        long after = 137;
+        List<JournalEvent> tail = new ArrayList<>();
+        Journal.open(dir, SEGMENT_BYTES, after, (seq, event) -> {
+            if (seq <= after) throw new AssertionError("回放了已被覆盖的事件 " + seq);
+            tail.add(event);
+        }).close();
+        if (!tail.equals(written.subList((int) after, written.size()))) throw new AssertionError("afterSeq 之后的事件不一致");
+
+        // 4. 末尾写了一半的记录：截掉后继续追加，新记录接在截断处
+        Path last = segments.get(segments.size() - 1);
+        long size = Files.size(last);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        List<JournalEvent> afterCrash = new ArrayList<>();
+        journal = Journal.open(dir, SEGMENT_BYTES, 0, (seq, event) -> afterCrash.add(event));
+        if (!afterCrash.equals(written.subList(0, written.size() - 1))) throw new AssertionError("截断尾部后应回放前 " + (written.size() - 1) + " 条");
+        JournalEvent next = new JournalEvent.CleaningDone(42);
+        if (journal.append(next) != written.size()) throw new AssertionError("截断后的新记录应取得被截掉记录的序号");
+        journal.close();
+        written.set(written.size() - 1, next);
+        assertReplay(dir, written, "截断尾部后再追加");
+
+        // 尾部是垃圾字节（长度字段正常但校验失败）同样截掉
+        try (FileChannel channel = FileChannel.open(segments(dir).get(segments(dir).size() - 1), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 4, 1, 2, 3, 4, 9, 9, 9, 9 }));
+        }
+        assertReplay(dir, written, "尾部校验失败");
+
+        // 5. 中间段损坏：不能静默丢弃其后的段
+        Path middle = segments(dir).get(1);
+        byte[] bytes = Files.readAllBytes(middle);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Path copy = Files.createTempDirectory("hotel-journal-corrupt");
+        for (Path segment : segments(dir)) Files.copy(segment, copy.resolve(segment.getFileName()));
+        Files.write(copy.resolve(middle.getFileName()), bytes);
+        try {
+            Journal.open(copy, SEGMENT_BYTES, 0, (seq, event) -> {}).close();
+            throw new AssertionError("中间段损坏时应拒绝打开");
+        } catch (UncheckedIOException expected) {
+            // 需要人工处理
+        }
+
+        // 6. 删除旧段：只删记录全部不超过 seq 的段，其余事件仍可回放
+        journal = Journal.open(dir, SEGMENT_BYTES, 0, (seq, event) -> {});
+        journal.deleteSegmentsUpTo(150);
+        journal.close();
+        if (segments(dir).size() >= segments.size()) throw new AssertionError("没有删除任何旧段");
+        List<JournalEvent> kept = new ArrayList<>();
+        Journal.open(dir, SEGMENT_BYTES, 150, (seq, event) -> kept.add(event)).close();
+        if (!kept.equals(written.subList(150, written.size()))) throw new AssertionError("删除旧段后序号 150 之后的事件不完整");
+
+        // 7. 组提交：多线程并发追加并等待落盘，序号互不重复且连续
+        Path concurrentDir = Files.createTempDirectory("hotel-journal-concurrent");
+        Journal shared = Journal.open(concurrentDir, SEGMENT_BYTES * 64, 0, (seq, event) -> {});
+        List<Long> seqs = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            int worker = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 500; i++) {
+                    long seq = shared.append(new JournalEvent.CheckedIn(worker * 1000 + i, worker));
+                    shared.awaitDurable(seq);
+                    if (shared.getDurableSeq() < seq) throw new AssertionError("awaitDurable 返回时记录尚未落盘");
+                    seqs.add(seq);
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+        shared.close();
+        if (seqs.size() != 8000 || seqs.stream().distinct().count() != 8000 || Collections.max(seqs) != 8000) throw new AssertionError("并发追加的序号重复或不连续");
+        int[] count = new int[1];
+        Journal.open(concurrentDir, SEGMENT_BYTES * 64, 0, (seq, event) -> count[0]++).close();
+        if (count[0] != 8000) throw new AssertionError("并发追加后回放 " + count[0] + " 条，应为 8000");
+
+        // 8. 超过 65535 字节的字符串照常编码回放；服务在改动状态之前拒绝过长的住客 ID / 房型名
+        Path longDir = Files.createTempDirectory("hotel-journal-long");
+        String huge = "住".repeat(30_000);
+        JournalEvent longEvent = new JournalEvent.OrderPlaced(1, huge, BASE, 1, huge);
+        Journal longJournal = Journal.open(longDir, SEGMENT_BYTES, 0, (seq, event) -> {});
+        longJournal.awaitDurable(longJournal.append(longEvent));
+        longJournal.close();
+        assertReplay(longDir, List.of(longEvent), "长字符串");
+        checkOversizedNames(Files.createTempDirectory("hotel-journal-names"));
+
+        System.out.println("日志: " + written.size() + " 条事件，" + segments.size() + " 个段；并发追加 8000 条");
+        System.out.println("日志测试通过");
+    }
+
+    private static void checkOversizedNames(Path dir) throws IOException {
+        RoomService roomService = new RoomService(BASE);
+        OrderService orderService = new OrderService(roomService);
+        Journal journal = Journal.open(dir, SEGMENT_BYTES, 0, (seq, event) -> {});
+        roomService.setJournal(journal);
+        orderService.setJournal(journal);
+        roomService.addRoom(new Room(101, "单人间", 20));
+        String longGuest = "g".repeat(OrderService.MAX_GUEST_ID_LENGTH + 1);
+        String longType = "房".repeat(RoomTypes.MAX_NAME_LENGTH + 1);
+        assertRejected(() -> orderService.placeOrder(longGuest, BASE, 1, "单人间"), "过长的住客 ID");
+        assertRejected(() -> orderService.placeOrder("g", BASE, 1, longType), "过长的房型名");
+        assertRejected(() -> roomService.addRoom(new Room(102, longType, 20)), "过长的房型名");
+        BatchBookingResult batch = orderService.placeOrders(List.of(
+                new BookingRequest("g", BASE, 1, "单人间"), new BookingRequest(longGuest, BASE, 1, "单人间")));
+        if (batch.committed() || batch.items().get(1).error() == null) throw new AssertionError("含过长住客 ID 的批量预订应整批撤销");
+        if (!orderService.getAllOrders().isEmpty() || roomService.getRoomCount("单人间") != 1) throw new AssertionError("被拒绝的请求改动了状态");
+        if (journal.getAppendedSeq() != 1) throw new AssertionError("被拒绝的请求不应写日志，实际序号 " + journal.getAppendedSeq());
+        journal.close();
+    }
+
+    private static void assertRejected(Runnable action, String what) {
+        try {
+            action.run();
+            throw new AssertionError(what + "应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 在改动状态之前拒绝
+        }
+    }
+
+    private static JournalEvent randomEvent(Random random, int i) {
+        LocalDate date = BASE.plusDays(random.nextInt(100));
+        return switch (random.nextInt(10)) {
+            case 0 -> new JournalEvent.RoomAdded(100 + i, "单人间", 20.5);
+            case 1 -> new JournalEvent.RoomAdded(100 + i, "双人间", 30, 199.99);
+            case 2 -> new JournalEvent.RoomPriced(100 + i, random.nextInt(500) + 0.5);
+            case 3 -> new JournalEvent.RoomRemoved(100 + i);
+            case 4 -> new JournalEvent.OrderPlaced(1_000_000 + i, "住客" + i, date, 1 + random.nextInt(5), "单人间");
+            case 5 -> new JournalEvent.OrdersPlaced(List.of(
+                    new JournalEvent.OrderPlaced(2_000_000 + i, "团" + i, date, 2, "双人间"),
+                    new JournalEvent.OrderPlaced(3_000_000 + i, "团" + i, date, 2, "双人间")));
+            case 6 -> new JournalEvent.OrderCancelled(1_000_000 + i, 101);
+            case 7 -> new JournalEvent.CheckedIn(1_000_000 + i, 102);
+            case 8 -> new JournalEvent.CheckedOut(1_000_000 + i, 102);
+            default -> random.nextBoolean() ? new JournalEvent.CleaningDone(1_000_000 + i)
+                    : new JournalEvent.OrdersArchived("单人间", List.of(1_000_000 + i, 1_000_001 + i));
+        };
+    }
+
+    private static void assertReplay(Path dir, List<JournalEvent> expected, String what) throws IOException {
+        List<JournalEvent> replayed = new ArrayList<>();
+        Journal.open(dir, SEGMENT_BYTES, 0, (seq, event) -> replayed.add(event)).close();
+        if (!replayed.equals(expected)) throw new AssertionError(what + ": 回放 " + replayed.size() + " 条，应为 " + expected.size() + " 条");
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package me.amboo;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+// 日期可调的时钟，每天的零点（UTC）；供需要推进日期的测试共用
+final class MutableClock extends Clock {
+    volatile LocalDate today;
+
+    MutableClock(LocalDate today) {
+        this.today = today;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+        return today.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,127 @@
+package me.amboo;
+
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalRecovery;
+import me.amboo.journal.Snapshotter;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderArchive;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+import me.amboo.service.id.OrderIdGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static me.amboo.TestFixtures.BASE;
+import static me.amboo.TestFixtures.TYPES;
+import static me.amboo.TestFixtures.WINDOW;
+import static me.amboo.TestFixtures.assertReport;
+import static me.amboo.TestFixtures.report;
+
+/**
+ * 冷存储测试：分层合并后段数有界且记录可查；归档订单的收入按归档时的房价冻结，
+ * 改价之后重建统计、日志回放、快照装载都与增量维护的结果一致
+ */
+public class OrderArchiveTest {
+    public static void main(String[] args) throws Exception {
+        checkTieredSegments(new OrderArchive());
+        checkTieredSegments(new OrderArchive(Files.createTempDirectory("hotel-archive-test"), 30));
+        checkArchivedRevenue();
+        System.out.println("冷存储测试通过");
+    }
+
+    // 逐批追加：每批之后段数都不超过各层上限之和（2 个房型 × 不到 5 层 × 每层最多 3 段），按订单号、按住客都能查到
+    private static void checkTieredSegments(OrderArchive archive) {
+        int id = 1_000_000;
+        for (int round = 0; round < 300; round++) {
+            OrderArchive.Batch batch = new OrderArchive.Batch(TYPES[round % 2]);
+            int size = round % 50 == 0 ? 5000 : 1 + round % 37;
+            for (int i = 0; i < size; i++) batch.add(id++, "g" + (i % 97), 20_000 + i % 400, 1 + i % 5, 100 + i % 30, 10_000);
+            archive.append(batch);
+            int segments = archive.getStats().segments();
+            if (segments > 2 * 5 * 3) throw new AssertionError("第 " + round + " 批之后段数过多: " + segments);
+        }
+        if (archive.size() != id - 1_000_000) throw new AssertionError("归档记录数不符: " + archive.size());
+        for (int orderID = 1_000_000; orderID < id; orderID += 13) {
+            Order order = archive.find(orderID);
+            if (order == null || order.getOrderID() != orderID) throw new AssertionError("按订单号找不到 " + orderID);
+        }
+        long byGuest = 0;
+        for (int g = 0; g < 97; g++) {
+            List<Order> orders = archive.findByGuest("g" + g);
+            for (int k = 1; k < orders.size(); k++) {
+                if (orders.get(k - 1).getStartDay() > orders.get(k).getStartDay()) throw new AssertionError("住客 g" + g + " 的订单未按入住日排序");
+            }
+            byGuest += orders.size();
+        }
+        if (byGuest != archive.size()) throw new AssertionError("按住客查到 " + byGuest + " 条，应为 " + archive.size());
+        try {
+            OrderArchive.Batch duplicate = new OrderArchive.Batch(TYPES[0]);
+            duplicate.add(1_000_000, "g0", 20_000, 1, 100, 10_000);
+            archive.append(duplicate);
+            throw new AssertionError("重复归档应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 整批不写入
+        }
+        System.out.println("分层合并: " + archive.getStats());
+    }
+
+    private static void checkArchivedRevenue() throws Exception {
+        Path dir = Files.createTempDirectory("hotel-archive-revenue");
+        RoomService roomService = new RoomService(WINDOW);
+        OrderService orderService = new OrderService(roomService, OrderIdGenerator.inMemory(), new OrderArchive(dir.resolve("archive"), 30));
+        Journal journal = JournalRecovery.recover(dir, roomService, orderService);
+        for (int i = 0; i < 12; i++) roomService.addRoom(new Room(100 * (1 + i / 4) + i % 4, TYPES[i % 2], 20, 100 + 10 * i));
+
+        Random random = new Random(22);
+        for (int round = 0; round < 6; round++) {
+            LocalDate from = BASE.plusDays(30L * round);
+            for (int i = 0; i < 40; i++) stay(roomService, orderService, from.plusDays(random.nextInt(25)), 1 + random.nextInt(4), TYPES[i % 2]);
+            // 改价既作用于尚在实时结构中的订单，也不能改动已归档订单的收入
+            for (int k = 0; k < 3; k++) {
+                Room room = roomService.getAllRooms().get(random.nextInt(12));
+                roomService.setRoomPrice(room.getRoomID(), 80 + random.nextInt(200) + 0.5);
+            }
+            int archived = orderService.archiveFinished(from.plusDays(20));
+            if (round > 0 && archived == 0) throw new AssertionError("第 " + round + " 轮没有订单被归档");
+        }
+        if (orderService.getArchive().size() == 0) throw new AssertionError("没有订单被归档");
+        String incremental = report(roomService);
+
+        orderService.rebuildAnalytics();
+        assertReport(incremental, roomService, "改价后重建统计");
+        journal.close();
+
+        // 日志回放：归档事件按回放到那一刻的房价记录
+        RoomService replayedRooms = new RoomService(WINDOW);
+        OrderService replayedOrders = new OrderService(replayedRooms, OrderIdGenerator.inMemory(), new OrderArchive(dir.resolve("archive"), 30));
+        Journal replayed = JournalRecovery.recover(dir, replayedRooms, replayedOrders);
+        assertReport(incremental, replayedRooms, "日志回放");
+
+        // 快照装载：归档记录带着归档时的房价，装载后再改价也不影响它们
+        new Snapshotter(dir, replayedRooms, replayedOrders, replayed).snapshotAsync().join();
+        for (Room room : replayedRooms.getAllRooms()) replayedRooms.setRoomPrice(room.getRoomID(), 999);
+        String repriced = report(replayedRooms);
+        replayed.close();
+        RoomService loadedRooms = new RoomService(WINDOW);
+        OrderService loadedOrders = new OrderService(loadedRooms, OrderIdGenerator.inMemory(), new OrderArchive(dir.resolve("archive"), 30));
+        JournalRecovery.recover(dir, loadedRooms, loadedOrders).close();
+        assertReport(repriced, loadedRooms, "快照装载");
+        System.out.println("归档收入: " + orderService.getArchive().size() + " 个归档订单，重建、回放、装载均与增量一致");
+    }
+
+    // 预订、入住、退房、打扫，订单变为 FINISHED；没有空房时留在 BOOKED
+    private static void stay(RoomService roomService, OrderService orderService, LocalDate date, int nights, String type) {
+        List<Room> free = roomService.findAvailableRooms(date, nights, type);
+        if (free.isEmpty()) return;
+        Order order = orderService.placeOrder("guest" + (date.getDayOfYear() % 7), date, nights, type);
+        int roomID = free.get(0).getRoomID();
+        orderService.processCheckIn(order.getOrderID(), roomID);
+        orderService.processCheckOut(order.getOrderID(), roomID);
+        orderService.processCleaning(order.getOrderID());
+    }
+}
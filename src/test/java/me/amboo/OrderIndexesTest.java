@@ -0,0 +1,132 @@
+package me.amboo;
+
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 订单二级索引测试：随机预订、入住、退房、打扫、取消、非法的状态迁移和归档之后，
+ * getOrdersByGuest（含已归档）、getOrdersByStatus、getOrdersStartingBetween、getArrivals 与逐个订单扫描的结果一致；
+ * 失败的状态迁移不在索引中留下痕迹
+ */
+public class OrderIndexesTest {
+    private static final LocalDate BASE = LocalDate.of(2026, 9, 1);
+    private static final String[] TYPES = {"单人间", "双人间"};
+    private static final String[] GUESTS = {"张三", "李四", "王五", "赵六", "钱七"};
+
+    // 参考模型中的一条订单：归档后只保留不变的字段
+    private record Expected(int orderID, String guestID, int startDay, String roomType, Order live) {
+        Order.OrderStatus status() {
+            return live == null ? Order.OrderStatus.FINISHED : live.getStatus();
+        }
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(37);
+        RoomService roomService = new RoomService(BASE);
+        OrderService orderService = new OrderService(roomService);
+        List<Integer> rooms = new ArrayList<>();
+        for (int i = 0; i < 6; i++) rooms.add(101 + i);
+        for (int i = 0; i < 4; i++) rooms.add(201 + i);
+        for (int id : rooms) roomService.addRoom(new Room(id, id < 200 ? TYPES[0] : TYPES[1], 20));
+
+        Map<Integer, Expected> expected = new HashMap<>();
+        int rejected = 0, archived = 0;
+        for (int step = 0; step < 6000; step++) {
+            int op = random.nextInt(20);
+            List<Order> live = expected.values().stream().map(Expected::live).filter(o -> o != null).toList();
+            Order order = live.isEmpty() ? null : live.get(random.nextInt(live.size()));
+            try {
+                if (op < 6 || order == null) {
+                    String type = TYPES[random.nextInt(2)];
+                    Order placed = orderService.placeOrder(GUESTS[random.nextInt(GUESTS.length)], BASE.plusDays(random.nextInt(90)), 1 + random.nextInt(4), type);
+                    expected.put(placed.getOrderID(), new Expected(placed.getOrderID(), placed.getGuestID(), placed.getStartDay(), type, placed));
+                } else if (op < 10) {
+                    int room = rooms.get(random.nextInt(rooms.size()));
+                    orderService.processCheckIn(order.getOrderID(), room);
+                } else if (op < 13) {
+                    orderService.processCheckOut(order.getOrderID(), order.getRoomID() == null ? rooms.get(0) : order.getRoomID());
+                } else if (op < 16) {
+                    orderService.processCleaning(order.getOrderID());
+                } else if (op < 18) {
+                    if (order.getRoomID() == null) continue; // 只能删除已分配房间的订单
+                    orderService.cancelOrder(order.getOrderID(), order.getRoomID());
+                    expected.remove(order.getOrderID());
+                } else if (op == 18) {
+                    Map<Integer, Order> before = new HashMap<>(orderService.getAllOrders());
+                    LocalDate cutoff = BASE.plusDays(random.nextInt(100));
+                    int count = orderService.archiveFinished(cutoff);
+                    for (Order gone : before.values()) {
+                        if (orderService.getAllOrders().containsKey(gone.getOrderID())) continue;
+                        if (gone.getStatus() != Order.OrderStatus.FINISHED || !gone.getEndDate().isBefore(cutoff)) {
+                            throw new AssertionError("第 " + step + " 步归档了不该归档的订单 " + gone.getOrderID());
+                        }
+                        Expected e = expected.get(gone.getOrderID());
+                        expected.put(e.orderID(), new Expected(e.orderID(), e.guestID(), e.startDay(), e.roomType(), null));
+                        count--;
+                        archived++;
+                    }
+                    if (count != 0) throw new AssertionError("第 " + step + " 步归档数量与移出实时订单的数量不一致");
+                } else {
+                    // 非法迁移：BOOKED 直接打扫、已结束的再退房，都应原样拒绝
+                    if (order.getStatus() == Order.OrderStatus.BOOKED) orderService.processCleaning(order.getOrderID());
+                    else orderService.processCheckOut(order.getOrderID(), order.getRoomID());
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                rejected++;
+            }
+            if (step % 10 == 0) check(orderService, expected, random, step);
+        }
+        check(orderService, expected, random, -1);
+        if (archived == 0) throw new AssertionError("随机操作没有归档任何订单");
+        System.out.println("二级索引: " + expected.size() + " 个订单（已归档 " + archived + "），拒绝 " + rejected + " 次操作");
+        System.out.println("订单二级索引测试通过");
+    }
+
+    private static void check(OrderService orderService, Map<Integer, Expected> expected, Random random, int step) {
+        Comparator<Expected> byStart = Comparator.comparingInt(Expected::startDay).thenComparingInt(Expected::orderID);
+        for (String guest : GUESTS) {
+            List<Integer> want = expected.values().stream().filter(e -> e.guestID().equals(guest)).sorted(byStart).map(Expected::orderID).toList();
+            List<Integer> got = ids(orderService.getOrdersByGuest(guest));
+            if (!got.equals(want)) throw new AssertionError("第 " + step + " 步住客 " + guest + " 的订单为 " + got + "，应为 " + want);
+        }
+        if (!orderService.getOrdersByGuest("无此人").isEmpty()) throw new AssertionError("没有订单的住客应返回空列表");
+
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            // 已归档的订单只在住客查询中出现
+            List<Integer> want = expected.values().stream().filter(e -> e.live() != null && e.status() == status).sorted(byStart).map(Expected::orderID).toList();
+            List<Integer> got = ids(orderService.getOrdersByStatus(status));
+            if (!got.equals(want)) throw new AssertionError("第 " + step + " 步 " + status + " 的订单为 " + got + "，应为 " + want);
+        }
+
+        LocalDate from = BASE.plusDays(random.nextInt(90) - 5);
+        LocalDate to = from.plusDays(random.nextInt(20));
+        String type = random.nextBoolean() ? null : TYPES[random.nextInt(2)];
+        Order.OrderStatus status = random.nextBoolean() ? null : Order.OrderStatus.values()[random.nextInt(Order.OrderStatus.values().length)];
+        List<Integer> want = expected.values().stream()
+                .filter(e -> e.live() != null && e.startDay() >= from.toEpochDay() && e.startDay() < to.toEpochDay())
+                .filter(e -> type == null || e.roomType().equals(type))
+                .filter(e -> status == null || e.status() == status)
+                .sorted(byStart).map(Expected::orderID).toList();
+        List<Integer> got = ids(orderService.getOrdersStartingBetween(type, from, to, status));
+        if (!got.equals(want)) throw new AssertionError("第 " + step + " 步 [" + from + ", " + to + ") " + type + " " + status + " 的订单为 " + got + "，应为 " + want);
+
+        List<Integer> arrivals = expected.values().stream()
+                .filter(e -> e.live() != null && e.startDay() == from.toEpochDay() && e.status() == Order.OrderStatus.BOOKED)
+                .sorted(byStart).map(Expected::orderID).toList();
+        if (!ids(orderService.getArrivals(from)).equals(arrivals)) throw new AssertionError("第 " + step + " 步 " + from + " 的预抵订单不一致");
+    }
+
+    private static List<Integer> ids(List<Order> orders) {
+        return orders.stream().map(Order::getOrderID).toList();
+    }
+}
@@ -0,0 +1,136 @@
+package me.amboo;
+
+import me.amboo.model.Order;
+import me.amboo.model.OrderStore;
+import me.amboo.model.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 订单列式存储测试：释放的槽位被新订单复用、不再分配新块；脱离槽位的旧视图仍读到自己的字段；
+ * 住客编码随订单释放回收，字典大小只取决于仍有实时订单的住客数；并发复用槽位时旧视图不会读到新订单的值
+ */
+public class OrderStoreTest {
+    private static final int COUNT = 10_000;
+    private static final int BASE_DAY = 20_500;
+
+    public static void main(String[] args) throws Exception {
+        checkSlotReuse();
+        checkDetachedView();
+        checkGuestCodes();
+        checkConcurrentReuse();
+        System.out.println("订单存储测试通过");
+    }
+
+    // 释放全部订单后再写入同样多的订单：槽位复用，块数不变，旧视图不再属于存储
+    private static void checkSlotReuse() {
+        StringDictionary guests = new StringDictionary();
+        OrderStore store = new OrderStore(guests);
+        List<Order> first = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) first.add(store.create(i, "g" + i % 100, BASE_DAY + i % 30, 1 + i % 5, "单人间", null, Order.OrderStatus.BOOKED));
+        long allocated = store.allocatedBytes();
+        for (Order order : first) store.release(order);
+        if (store.size() != 0) throw new AssertionError("全部释放后仍有 " + store.size() + " 个订单");
+        List<Order> second = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) second.add(store.create(COUNT + i, "h" + i % 100, BASE_DAY, 2, "双人间", 300 + i % 10, Order.OrderStatus.OCCUPIED));
+        if (store.allocatedBytes() != allocated) throw new AssertionError("槽位未复用: 列数组 " + allocated + " -> " + store.allocatedBytes() + " 字节");
+        if (store.size() != COUNT) throw new AssertionError("订单数不符: " + store.size());
+        for (Order order : first) if (store.contains(order)) throw new AssertionError("已释放的订单 " + order.getOrderID() + " 仍属于存储");
+        for (Order order : second) if (!store.contains(order)) throw new AssertionError("新订单 " + order.getOrderID() + " 不属于存储");
+        try {
+            store.release(first.get(0));
+            throw new AssertionError("重复释放应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 槽位已属于新订单，不能被旧视图释放
+        }
+        System.out.println("槽位复用: " + COUNT + " 个订单释放后重新写入，列数组仍为 " + allocated + " 字节");
+    }
+
+    // 槽位被复用后，旧视图的读写只作用于自身保存的值，新视图读到新值
+    private static void checkDetachedView() {
+        OrderStore store = new OrderStore(new StringDictionary());
+        Order old = store.create(1_000_001, "alice", BASE_DAY, 3, "单人间", 101, Order.OrderStatus.OCCUPIED);
+        store.release(old);
+        Order fresh = store.create(1_000_002, "bob", BASE_DAY + 10, 1, "总统套房", null, Order.OrderStatus.BOOKED);
+        if (fresh.getOrderID() == old.getOrderID()) throw new AssertionError("新订单读到旧订单号");
+        assertOrder(old, 1_000_001, "alice", BASE_DAY, 3, "单人间", 101, Order.OrderStatus.OCCUPIED);
+        assertOrder(fresh, 1_000_002, "bob", BASE_DAY + 10, 1, "总统套房", null, Order.OrderStatus.BOOKED);
+
+        old.CheckOut(); // 只改变旧视图自身
+        assertOrder(old, 1_000_001, "alice", BASE_DAY, 3, "单人间", 101, Order.OrderStatus.CLEANING);
+        assertOrder(fresh, 1_000_002, "bob", BASE_DAY + 10, 1, "总统套房", null, Order.OrderStatus.BOOKED);
+        fresh.CheckIn();
+        assertOrder(old, 1_000_001, "alice", BASE_DAY, 3, "单人间", 101, Order.OrderStatus.CLEANING);
+        if (fresh.getStatus() != Order.OrderStatus.OCCUPIED) throw new AssertionError("新订单状态未更新");
+        System.out.println("脱离视图: 槽位复用后旧视图与新视图互不影响");
+    }
+
+    // 住客编码按引用计数：最后一个订单释放后编码回收，新住客复用旧编码，字典不随历史住客增长
+    private static void checkGuestCodes() {
+        StringDictionary guests = new StringDictionary();
+        OrderStore store = new OrderStore(guests);
+        int orderID = 0;
+        List<Order> live = new ArrayList<>();
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 200; i++) live.add(store.create(orderID++, "guest" + round + "_" + i % 50, BASE_DAY, 1, "单人间", null, Order.OrderStatus.BOOKED));
+            if (guests.size() > 100) throw new AssertionError("第 " + round + " 轮字典中有 " + guests.size() + " 个住客，编码未回收");
+            // 保留本轮的订单，释放上一轮的
+            List<Order> kept = new ArrayList<>();
+            for (Order order : live) {
+                if (order.getGuestID().startsWith("guest" + round + "_")) kept.add(order);
+                else store.release(order);
+            }
+            live = kept;
+        }
+        if (guests.size() != 50) throw new AssertionError("字典应只剩最后一轮的 50 个住客，实际 " + guests.size());
+        if (guests.find("guest0_0") >= 0) throw new AssertionError("早已没有订单的住客仍在字典中");
+        // 同一住客的订单部分释放时编码保持不变
+        int code = guests.find("guest49_0");
+        store.release(live.get(0));
+        if (guests.find("guest49_0") != code) throw new AssertionError("住客仍有订单时编码被回收");
+        for (Order order : live) if (order.getGuestID() == null || !order.getGuestID().startsWith("guest49_")) throw new AssertionError("订单住客解码错误: " + order.getGuestID());
+        System.out.println("住客编码: 50 轮共 " + orderID + " 个订单，字典保持 " + guests.size() + " 个住客");
+    }
+
+    // 一个线程不断释放、复用槽位（每个订单一个新住客），其他线程持有旧视图反复读取：订单号与住客必须始终对应
+    private static void checkConcurrentReuse() throws Exception {
+        OrderStore store = new OrderStore(new StringDictionary());
+        AtomicReference<Order> latest = new AtomicReference<>(store.create(0, "g0", BASE_DAY, 1, "单人间", null, Order.OrderStatus.BOOKED));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                while (!done.get() && failure.get() == null) {
+                    Order view = latest.get();
+                    for (int k = 0; k < 100; k++) {
+                        String guest = view.getGuestID();
+                        int start = view.getStartDay();
+                        if (!("g" + view.getOrderID()).equals(guest) || start != BASE_DAY + view.getOrderID() % 30) {
+                            failure.set("订单 " + view.getOrderID() + " 读到住客 " + guest + "、入住日 " + start);
+                        }
+                    }
+                }
+            }));
+        }
+        for (int id = 1; id < 200_000 && failure.get() == null; id++) {
+            Order previous = latest.get();
+            latest.set(store.create(id, "g" + id, BASE_DAY + id % 30, 1, "单人间", null, Order.OrderStatus.BOOKED));
+            store.release(previous);
+        }
+        done.set(true);
+        for (Thread reader : readers) reader.join();
+        if (failure.get() != null) throw new AssertionError("并发复用槽位时旧视图读到新订单的值: " + failure.get());
+        System.out.println("并发复用: 旧视图始终读到自己的字段");
+    }
+
+    private static void assertOrder(Order order, int orderID, String guestID, int startDay, int stayTime, String type, Integer roomID, Order.OrderStatus status) {
+        String actual = order.getOrderID() + "/" + order.getGuestID() + "/" + order.getStartDay() + "/" + order.getStayTime() + "/"
+                + order.getOrderType() + "/" + order.getRoomID() + "/" + order.getStatus();
+        String expected = orderID + "/" + guestID + "/" + startDay + "/" + stayTime + "/" + type + "/" + roomID + "/" + status;
+        if (!expected.equals(actual)) throw new AssertionError("订单字段不符: 期望 " + expected + "，实际 " + actual);
+    }
+}
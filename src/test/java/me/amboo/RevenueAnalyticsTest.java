@@ -0,0 +1,144 @@
+package me.amboo;
+
+import me.amboo.analytics.RevenueAnalytics;
+import me.amboo.journal.HotelSnapshot;
+import me.amboo.journal.Journal;
+import me.amboo.journal.JournalRecovery;
+import me.amboo.journal.Snapshotter;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+import me.amboo.service.id.OrderIdGenerator;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static me.amboo.TestFixtures.BASE;
+import static me.amboo.TestFixtures.TYPES;
+import static me.amboo.TestFixtures.WINDOW;
+import static me.amboo.TestFixtures.assertReport;
+import static me.amboo.TestFixtures.report;
+
+/**
+ * 收入统计测试：随机预订、入住、退房、打扫、取消与改价（含未定价房间、改为 0）之后，
+ * 任意区间的已售间夜、收入、在手间夜与按订单逐晚累加的结果一致；
+ * 全量重建、日志回放、快照装载得到的报表与增量维护的完全相同
+ */
+public class RevenueAnalyticsTest {
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(3);
+        Path dir = Files.createTempDirectory("hotel-revenue-test");
+        RoomService roomService = new RoomService(WINDOW);
+        OrderService orderService = new OrderService(roomService, OrderIdGenerator.inMemory());
+        Journal journal = JournalRecovery.recover(dir, roomService, orderService);
+        for (int i = 0; i < 30; i++) {
+            int roomID = 100 * (1 + i / 10) + i % 10;
+            // 每三间有一间未定价，不计收入
+            roomService.addRoom(i % 3 == 0 ? new Room(roomID, TYPES[i % 2], 20) : new Room(roomID, TYPES[i % 2], 20, 100 + i + 0.25));
+        }
+
+        List<Order> live = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            try {
+                int op = random.nextInt(10);
+                if (op < 5) {
+                    String type = TYPES[random.nextInt(2)];
+                    LocalDate date = BASE.plusDays(random.nextInt(300));
+                    int nights = 1 + random.nextInt(5);
+                    Order order = orderService.placeOrder("g" + random.nextInt(50), date, nights, type);
+                    List<Room> free = roomService.findAvailableRooms(date, nights, type);
+                    // 一半订单留在 BOOKED：只计在手间夜
+                    if (!free.isEmpty() && random.nextBoolean()) {
+                        orderService.processCheckIn(order.getOrderID(), free.get(0).getRoomID());
+                        live.add(order);
+                    }
+                } else if (op < 8 && !live.isEmpty()) {
+                    Order order = live.get(random.nextInt(live.size()));
+                    if (order.getStatus() == Order.OrderStatus.OCCUPIED) {
+                        orderService.processCheckOut(order.getOrderID(), order.getRoomID());
+                    } else if (order.getStatus() == Order.OrderStatus.CLEANING) {
+                        orderService.processCleaning(order.getOrderID());
+                    } else {
+                        orderService.cancelOrder(order.getOrderID(), order.getRoomID());
+                        live.remove(order);
+                    }
+                } else if (op == 8) {
+                    Room room = roomService.getAllRooms().get(random.nextInt(roomService.getAllRooms().size()));
+                    roomService.setRoomPrice(room.getRoomID(), random.nextInt(10) == 0 ? 0 : random.nextInt(50_000) / 100.0);
+                }
+            } catch (IllegalStateException | IllegalArgumentException soldOut) {
+                // 售罄、状态不符属于预期结果
+            }
+        }
+
+        for (int k = 0; k < 50; k++) {
+            LocalDate from = BASE.plusDays(random.nextInt(320) - 10);
+            checkAgainstOrders(roomService, orderService, from, from.plusDays(random.nextInt(60)));
+        }
+        LocalDate from = BASE, to = BASE.plusDays(365);
+        checkAgainstOrders(roomService, orderService, from, to);
+        String incremental = report(roomService);
+
+        roomService.rebuildAnalytics(orderService.getAllOrders().values(), List::of);
+        assertReport(incremental, roomService, "全量重建");
+        journal.close();
+
+        RoomService replayedRooms = new RoomService(WINDOW);
+        OrderService replayedOrders = new OrderService(replayedRooms);
+        Journal replayed = JournalRecovery.recover(dir, replayedRooms, replayedOrders);
+        assertReport(incremental, replayedRooms, "日志回放");
+
+        Path snapshot = new Snapshotter(dir, replayedRooms, replayedOrders, replayed).snapshotAsync().join();
+        replayed.close();
+        RoomService loadedRooms = new RoomService(WINDOW);
+        HotelSnapshot.load(snapshot, loadedRooms, new OrderService(loadedRooms));
+        assertReport(incremental, loadedRooms, "快照装载");
+
+        System.out.println(roomService.getAnalytics().reportByType(from, to).get(TYPES.length));
+        System.out.println("收入统计测试通过");
+    }
+
+    // 按房间上的订单逐晚累加已售间夜与收入（当前房价），按全部实时订单累加在手间夜
+    private static void checkAgainstOrders(RoomService roomService, OrderService orderService, LocalDate from, LocalDate to) {
+        long lo = from.toEpochDay(), hi = to.toEpochDay();
+        Map<String, long[]> expected = new HashMap<>(); // 房型/楼层 -> {房间数, 已售间夜, 收入（分）}
+        for (Room room : roomService.getAllRooms()) {
+            long[] cell = expected.computeIfAbsent(room.getRoomType() + "/" + room.getFloor(), key -> new long[3]);
+            cell[0]++;
+            for (Order order : room.getOrderList()) {
+                long nights = nightsWithin(order, lo, hi);
+                cell[1] += nights;
+                cell[2] += nights * RevenueAnalytics.priceCents(room);
+            }
+        }
+        for (RevenueAnalytics.Row row : roomService.getAnalytics().reportByFloor(from, to)) {
+            long[] cell = expected.remove(row.roomType() + "/" + row.floor());
+            if (cell == null) throw new AssertionError("报表中多出 " + row.roomType() + " " + row.floor() + " 层");
+            if (row.rooms() != cell[0] || row.supplyNights() != cell[0] * (hi - lo) || row.soldNights() != cell[1]
+                    || row.revenue().compareTo(BigDecimal.valueOf(cell[2], 2)) != 0) {
+                throw new AssertionError(from + " ~ " + to + " " + row + " 应为 房间 " + cell[0] + "，已售 " + cell[1] + "，收入 " + BigDecimal.valueOf(cell[2], 2));
+            }
+        }
+        if (!expected.isEmpty()) throw new AssertionError("报表中缺少 " + expected.keySet());
+
+        Map<String, Long> booked = new HashMap<>();
+        for (Order order : orderService.getAllOrders().values()) booked.merge(order.getOrderType(), nightsWithin(order, lo, hi), Long::sum);
+        for (RevenueAnalytics.Row row : roomService.getAnalytics().reportByType(from, to)) {
+            if (row.roomType() == null) continue; // 合计行
+            long want = booked.getOrDefault(row.roomType(), 0L);
+            if (row.bookedNights() != want) throw new AssertionError(from + " ~ " + to + " " + row.roomType() + " 在手间夜 " + row.bookedNights() + "，应为 " + want);
+        }
+    }
+
+    private static long nightsWithin(Order order, long lo, long hi) {
+        return Math.max(0, Math.min(hi, order.getEndDay()) - Math.max(lo, order.getStartDay()));
+    }
+}
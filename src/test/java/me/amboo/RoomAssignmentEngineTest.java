@@ -0,0 +1,281 @@
+package me.amboo;
+
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomAssignmentEngine;
+import me.amboo.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 自动排房测试：
+ *   最佳适配取空闲期最短且足够的房间；随机房态下计划中的房间逐一通过按订单列表的重叠 / 打扫检查，
+ *   房间不重复，未排上的订单确实已无可用房；reoptimize 保留仍有效的房号、修补失效的分配；
+ *   checkIn 在房间被抢占后重排重试，连续冲突时放弃；过期计划按 PLAN_RETENTION_DAYS 清除
+ */
+public class RoomAssignmentEngineTest {
+    private static final LocalDate BASE = LocalDate.of(2026, 4, 1);
+    private static final String[] TYPES = {"单人间", "双人间"};
+
+    public static void main(String[] args) {
+        checkBestFit();
+        checkRandomized();
+        checkCheckInRetry();
+        checkRetention();
+        System.out.println("自动排房测试通过");
+    }
+
+    // 101 空闲到 +3，102 空闲到 +10，103 之后没有订单：5 晚 -> 102，3 晚 -> 101，1 晚 -> 103
+    private static void checkBestFit() {
+        RoomService roomService = new RoomService(BASE);
+        OrderService orderService = new OrderService(roomService);
+        for (int id = 101; id <= 103; id++) roomService.addRoom(new Room(id, "单人间", 20));
+        LocalDate date = BASE.plusDays(10);
+        orderService.processCheckIn(orderService.placeOrder("占用", date.plusDays(3), 2, "单人间").getOrderID(), 101);
+        orderService.processCheckIn(orderService.placeOrder("占用", date.plusDays(10), 2, "单人间").getOrderID(), 102);
+        Order shortStay = orderService.placeOrder("短", date, 1, "单人间");
+        Order mediumStay = orderService.placeOrder("中", date, 3, "单人间");
+        Order longStay = orderService.placeOrder("长", date, 5, "单人间");
+
+        RoomAssignmentEngine.Plan plan = new RoomAssignmentEngine(roomService, orderService, new MutableClock(date)).plan(date);
+        expectRoom(plan, longStay, 102);
+        expectRoom(plan, mediumStay, 101);
+        expectRoom(plan, shortStay, 103);
+        if (plan.assigned() != 3 || plan.kept() != 0 || plan.gapNights() != 5) {
+            throw new AssertionError("最佳适配: 已排 " + plan.assigned() + "，沿用 " + plan.kept() + "，空档 " + plan.gapNights() + " 间夜");
+        }
+        if (plan.elapsedNanos() <= 0) throw new AssertionError("计划的耗时应为正数");
+    }
+
+    private static void checkRandomized() {
+        Random random = new Random(23);
+        RoomService roomService = new RoomService(BASE);
+        OrderService orderService = new OrderService(roomService);
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 12; i++) rooms.add(new Room(101 + i, TYPES[0], 20));
+        for (int i = 0; i < 8; i++) rooms.add(new Room(201 + i, TYPES[1], 30));
+        rooms.forEach(roomService::addRoom);
+        // 时钟跟着排房日期走，否则以系统日期衡量，这些计划一生成就已过期
+        MutableClock clock = new MutableClock(BASE);
+        RoomAssignmentEngine engine = new RoomAssignmentEngine(roomService, orderService, clock);
+
+        int plans = 0, kept = 0, unassigned = 0;
+        for (int round = 0; round < 40; round++) {
+            LocalDate date = BASE.plusDays(5 + round);
+            clock.today = date;
+            // 前几天的订单入住后随机退房、打扫，之后的订单有一部分提前绑定房间，形成长短不一的空闲期
+            for (int i = 0; i < 12; i++) {
+                LocalDate start = date.plusDays(random.nextInt(12) - 4);
+                Order order = tryPlace(orderService, start, 1 + random.nextInt(5), TYPES[random.nextInt(2)]);
+                if (order == null || (start.isAfter(date) && random.nextInt(3) != 0)) continue;
+                Room room = randomRoom(rooms, order.getOrderType(), random);
+                try {
+                    orderService.processCheckIn(order.getOrderID(), room.getRoomID());
+                } catch (IllegalStateException unavailable) {
+                    continue;
+                }
+                if (!start.isBefore(date)) continue;
+                if (random.nextInt(4) != 0) orderService.processCheckOut(order.getOrderID(), room.getRoomID());
+                if (random.nextInt(3) != 0 && order.getStatus() == Order.OrderStatus.CLEANING) orderService.processCleaning(order.getOrderID());
+            }
+            for (int i = 0; i < 6; i++) tryPlace(orderService, date, 1 + random.nextInt(6), TYPES[random.nextInt(2)]);
+
+            RoomAssignmentEngine.Plan plan = engine.plan(date);
+            check(plan, orderService, roomService, date, "第 " + round + " 轮全新排房");
+            plans++;
+            unassigned += plan.unassigned();
+
+            // 手工把一个预抵订单办进别人计划中的房间：它离开预抵，那间房的分配失效，由 reoptimize 修补
+            RoomAssignmentEngine.Assignment victim = firstAssigned(plan, random);
+            Order intruder = victim == null ? null : otherArrival(plan, orderService, victim);
+            if (intruder != null) orderService.processCheckIn(intruder.getOrderID(), victim.roomID());
+            tryPlace(orderService, date, 1 + random.nextInt(3), TYPES[random.nextInt(2)]);
+
+            RoomAssignmentEngine.Plan repaired = engine.reoptimize(date);
+            check(repaired, orderService, roomService, date, "第 " + round + " 轮修补");
+            plans++;
+            int expectedKept = 0;
+            for (RoomAssignmentEngine.Assignment a : plan.assignments()) {
+                if (a.roomID() == null || a.orderID() == (intruder == null ? -1 : intruder.getOrderID())) continue;
+                if (intruder != null && a.roomID().equals(victim.roomID())) {
+                    if (victim.roomID().equals(repaired.roomOf(a.orderID()))) throw new AssertionError("第 " + round + " 轮失效的分配没有修补");
+                    continue;
+                }
+                if (!a.roomID().equals(repaired.roomOf(a.orderID()))) {
+                    throw new AssertionError("第 " + round + " 轮仍然有效的分配被改动: 订单 " + a.orderID() + " 原房间 " + a.roomID() + "，现为 " + repaired.roomOf(a.orderID()));
+                }
+                expectedKept++;
+            }
+            if (repaired.kept() != expectedKept) throw new AssertionError("第 " + round + " 轮沿用 " + repaired.kept() + " 个分配，应为 " + expectedKept);
+            if (intruder != null && repaired.roomOf(intruder.getOrderID()) != null) throw new AssertionError("已入住的订单应从计划中剔除");
+            kept += repaired.kept();
+
+            // 按计划办理入住，房间与计划一致
+            for (RoomAssignmentEngine.Assignment a : repaired.assignments()) {
+                if (a.roomID() == null || random.nextInt(2) == 0) continue;
+                Room room = engine.checkIn(a.orderID());
+                if (room.getRoomID() != a.roomID()) throw new AssertionError("订单 " + a.orderID() + " 入住 " + room.getRoomID() + "，计划为 " + a.roomID());
+                if (orderService.getOrder(a.orderID()).getStatus() != Order.OrderStatus.OCCUPIED) throw new AssertionError("自动入住后订单状态应为 OCCUPIED");
+            }
+        }
+        if (kept == 0 || unassigned == 0) throw new AssertionError("随机场景没有覆盖沿用分配或无房的情况");
+        System.out.println("自动排房: " + plans + " 版计划与逐房检查一致，沿用 " + kept + " 个分配，无房 " + unassigned + " 次");
+    }
+
+    // 逐个分配与按订单列表的暴力检查比对
+    private static void check(RoomAssignmentEngine.Plan plan, OrderService orderService, RoomService roomService, LocalDate date, String what) {
+        Set<Integer> arrivals = new HashSet<>();
+        for (Order order : orderService.getArrivals(date)) arrivals.add(order.getOrderID());
+        Set<Integer> planned = new HashSet<>();
+        Map<Integer, Integer> usedRooms = new HashMap<>();
+        long gapNights = 0;
+        int assigned = 0;
+        for (RoomAssignmentEngine.Assignment a : plan.assignments()) {
+            if (!planned.add(a.orderID())) throw new AssertionError(what + ": 订单 " + a.orderID() + " 重复出现");
+            Order order = orderService.getOrder(a.orderID());
+            if (a.roomID() == null) continue;
+            assigned++;
+            Room room = roomService.findRoomById(a.roomID());
+            if (!room.getRoomType().equals(order.getOrderType())) throw new AssertionError(what + ": 订单 " + a.orderID() + " 排进了房型不同的房间");
+            if (!fits(room, order.getStartDay(), order.getEndDay())) throw new AssertionError(what + ": 房间 " + a.roomID() + " 容不下订单 " + a.orderID());
+            Integer other = usedRooms.put(a.roomID(), a.orderID());
+            if (other != null) throw new AssertionError(what + ": 房间 " + a.roomID() + " 同时排给了订单 " + other + " 和 " + a.orderID());
+            long next = room.getOrderList().stream().mapToLong(Order::getStartDay).filter(day -> day >= order.getEndDay()).min().orElse(-1);
+            if (next >= 0) gapNights += next - order.getEndDay();
+        }
+        if (!planned.equals(arrivals)) throw new AssertionError(what + ": 计划中的订单与当天预抵不一致");
+        if (plan.assigned() != assigned || plan.gapNights() != gapNights) {
+            throw new AssertionError(what + ": 已排 " + plan.assigned() + " / 空档 " + plan.gapNights() + "，应为 " + assigned + " / " + gapNights);
+        }
+        // 没排上的订单：同房型中容得下它的房间都已排给了别人
+        for (RoomAssignmentEngine.Assignment a : plan.assignments()) {
+            if (a.roomID() != null) continue;
+            Order order = orderService.getOrder(a.orderID());
+            for (Room room : roomService.getRoomsOfType(order.getOrderType())) {
+                if (!usedRooms.containsKey(room.getRoomID()) && fits(room, order.getStartDay(), order.getEndDay())) {
+                    throw new AssertionError(what + ": 订单 " + a.orderID() + " 没有排房，但房间 " + room.getRoomID() + " 可用");
+                }
+            }
+        }
+    }
+
+    // 暴力检查：[from, to) 内没有任何订单，前一晚的订单（如有）已打扫完成
+    private static boolean fits(Room room, long from, long to) {
+        for (Order order : room.getOrderList()) {
+            if (order.getStartDay() < to && from < order.getEndDay()) return false;
+            boolean coversEve = order.getStartDay() <= from - 1 && from - 1 < order.getEndDay();
+            if (coversEve && order.getStatus() != Order.OrderStatus.FINISHED) return false;
+        }
+        return true;
+    }
+
+    // 计划给订单分到的房间恰好被手工占用：checkIn 修补后换一间房重试；每次都冲突时放弃
+    private static void checkCheckInRetry() {
+        RoomService roomService = new RoomService(BASE);
+        int[] attempts = {0};
+        Order[] rival = {null};
+        OrderService orderService = new OrderService(roomService) {
+            @Override
+            public void processCheckIn(int orderID, int roomID) {
+                attempts[0]++;
+                if (rival[0] != null) {
+                    // 模拟前台在排房与入住之间把这间房手工分给了另一个订单
+                    Order other = rival[0];
+                    rival[0] = null;
+                    super.processCheckIn(other.getOrderID(), roomID);
+                }
+                super.processCheckIn(orderID, roomID);
+            }
+        };
+        roomService.addRoom(new Room(101, "单人间", 20));
+        roomService.addRoom(new Room(102, "单人间", 20));
+        LocalDate date = BASE.plusDays(3);
+        Order order = orderService.placeOrder("自动", date, 2, "单人间");
+        rival[0] = orderService.placeOrder("手工", date, 2, "单人间");
+        RoomAssignmentEngine engine = new RoomAssignmentEngine(roomService, orderService, new MutableClock(date));
+        Integer planned = engine.plan(date).roomOf(order.getOrderID());
+        Room room = engine.checkIn(order.getOrderID());
+        if (attempts[0] != 2) throw new AssertionError("应在一次冲突后重试一次，实际调用 processCheckIn " + attempts[0] + " 次");
+        if (room.getRoomID() == planned) throw new AssertionError("重试后仍入住了被占用的房间 " + planned);
+        if (order.getStatus() != Order.OrderStatus.OCCUPIED || !Integer.valueOf(room.getRoomID()).equals(order.getRoomID())) {
+            throw new AssertionError("重试后订单应入住房间 " + room.getRoomID());
+        }
+
+        // 每次都冲突：重试三次后放弃，订单仍是预抵
+        OrderService conflicting = new OrderService(roomService) {
+            @Override
+            public void processCheckIn(int orderID, int roomID) {
+                attempts[0]++;
+                throw new IllegalStateException("该房间当前无法分配（未打扫或有物理冲突）");
+            }
+        };
+        roomService.addRoom(new Room(201, "双人间", 30));
+        Order stuck = conflicting.placeOrder("冲突", date, 1, "双人间");
+        attempts[0] = 0;
+        try {
+            new RoomAssignmentEngine(roomService, conflicting, new MutableClock(date)).checkIn(stuck.getOrderID());
+            throw new AssertionError("连续冲突时应放弃自动入住");
+        } catch (IllegalStateException expected) {
+            if (attempts[0] != 3) throw new AssertionError("连续冲突时应尝试 3 次，实际 " + attempts[0] + " 次");
+        }
+        if (stuck.getStatus() != Order.OrderStatus.BOOKED) throw new AssertionError("放弃自动入住后订单应仍为 BOOKED");
+    }
+
+    // 早于 今天 - PLAN_RETENTION_DAYS 的计划在下一次排房时清除
+    private static void checkRetention() {
+        MutableClock clock = new MutableClock(BASE);
+        RoomService roomService = new RoomService(BASE);
+        OrderService orderService = new OrderService(roomService);
+        roomService.addRoom(new Room(101, "单人间", 20));
+        RoomAssignmentEngine engine = new RoomAssignmentEngine(roomService, orderService, clock);
+        engine.plan(BASE);
+        engine.plan(BASE.plusDays(1));
+        clock.today = BASE.plusDays(RoomAssignmentEngine.PLAN_RETENTION_DAYS + 1);
+        if (engine.getPlan(BASE) == null) throw new AssertionError("没有排房时不应清除计划");
+        engine.plan(clock.today);
+        if (engine.getPlan(BASE) != null) throw new AssertionError("过期的计划应被清除");
+        if (engine.getPlan(BASE.plusDays(1)) == null) throw new AssertionError("保留期内的计划不应被清除");
+        if (engine.getPlan(clock.today) == null) throw new AssertionError("当天的计划应保留");
+    }
+
+    private static Order tryPlace(OrderService orderService, LocalDate start, int nights, String type) {
+        try {
+            return orderService.placeOrder("g", start, nights, type);
+        } catch (IllegalStateException soldOut) {
+            return null;
+        }
+    }
+
+    private static Room randomRoom(List<Room> rooms, String type, Random random) {
+        List<Room> ofType = rooms.stream().filter(room -> room.getRoomType().equals(type)).toList();
+        return ofType.get(random.nextInt(ofType.size()));
+    }
+
+    private static RoomAssignmentEngine.Assignment firstAssigned(RoomAssignmentEngine.Plan plan, Random random) {
+        List<RoomAssignmentEngine.Assignment> assigned = plan.assignments().stream().filter(a -> a.roomID() != null).toList();
+        return assigned.isEmpty() ? null : assigned.get(random.nextInt(assigned.size()));
+    }
+
+    // 与 victim 同房型、同样能住进 victim 房间的另一个预抵订单
+    private static Order otherArrival(RoomAssignmentEngine.Plan plan, OrderService orderService, RoomAssignmentEngine.Assignment victim) {
+        for (RoomAssignmentEngine.Assignment a : plan.assignments()) {
+            if (a.orderID() == victim.orderID() || !a.roomType().equals(victim.roomType())) continue;
+            Order order = orderService.getOrder(a.orderID());
+            if (order.getStayTime() <= victim.stayTime()) return order;
+        }
+        return null;
+    }
+
+    private static void expectRoom(RoomAssignmentEngine.Plan plan, Order order, int roomID) {
+        Integer actual = plan.roomOf(order.getOrderID());
+        if (actual == null || actual != roomID) throw new AssertionError("订单 " + order.getOrderID() + "（" + order.getStayTime() + " 晚）应排进 " + roomID + "，实际 " + actual);
+    }
+}
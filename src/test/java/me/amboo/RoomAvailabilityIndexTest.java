@@ -0,0 +1,200 @@
+package me.amboo;
+
+import me.amboo.metrics.HotelMetrics;
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+import me.amboo.service.RoomAvailabilityIndex;
+import me.amboo.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 可用性位图测试：
+ *   随机增删房间（超过 64 间，跨多个位字）、加入 / 删除订单、推进状态、滚动窗口之后，
+ *   findAvailableRooms、countAvailableRooms、freeRoomCalendar 与逐房间 canBeDistribute 一致，窗口两端之外返回 null / -1；
+ *   RoomService 跟随时钟时，日期变化后的第一次查询推进窗口；超出窗口的查询计入 AVAILABILITY_FALLBACK
+ */
+public class RoomAvailabilityIndexTest {
+    private static final LocalDate WINDOW = LocalDate.of(2026, 1, 1);
+    private static final String TYPE = "单人间";
+
+    public static void main(String[] args) {
+        checkRandomized();
+        checkClockAdvance();
+        checkFallbackMetric();
+        System.out.println("可用性位图测试通过");
+    }
+
+    private static void checkRandomized() {
+        Random random = new Random(13);
+        RoomAvailabilityIndex index = new RoomAvailabilityIndex(WINDOW);
+        List<Room> rooms = new ArrayList<>();
+        List<Order> orders = new ArrayList<>();
+        int nextRoom = 100, nextOrder = 1, checks = 0, advances = 0;
+        for (int i = 0; i < 70; i++) addRoom(index, rooms, new Room(nextRoom++, TYPE, 20));
+        for (int step = 0; step < 6000; step++) {
+            int op = random.nextInt(20);
+            long base = index.getWindowStart().toEpochDay();
+            try {
+                if (op < 8) {
+                    Room room = rooms.get(random.nextInt(rooms.size()));
+                    // 大多数订单落在窗口内，少数跨过窗口末端或完全在窗口之后（推进后回填）
+                    long day = base + random.nextInt(RoomAvailabilityIndex.HORIZON + 200) - 20;
+                    Order order = new Order(nextOrder++, "g", LocalDate.ofEpochDay(day), 1 + random.nextInt(8), TYPE);
+                    room.addOrder(order);
+                    orders.add(order);
+                } else if (op < 10 && !orders.isEmpty()) {
+                    Order order = orders.remove(random.nextInt(orders.size()));
+                    roomOf(rooms, order).deleteOrder(order.getOrderID());
+                } else if (op < 16 && !orders.isEmpty()) {
+                    Order order = orders.get(random.nextInt(orders.size()));
+                    switch (order.getStatus()) {
+                        case BOOKED -> order.CheckIn();
+                        case OCCUPIED -> order.CheckOut();
+                        case CLEANING -> order.Cleaning();
+                        case FINISHED -> { continue; }
+                    }
+                    roomOf(rooms, order).orderStatusChanged(order);
+                } else if (op == 16) {
+                    addRoom(index, rooms, new Room(nextRoom++, TYPE, 20));
+                } else if (op == 17 && rooms.size() > 1) {
+                    Room room = rooms.remove(random.nextInt(rooms.size()));
+                    room.removeListener(index);
+                    index.removeRoom(room);
+                    orders.removeIf(order -> room.getOrderList().contains(order));
+                } else if (op == 18 && random.nextInt(10) == 0) {
+                    // 多数小步推进（部分行回填），偶尔一次越过整个窗口
+                    int shift = random.nextInt(5) == 0 ? RoomAvailabilityIndex.HORIZON + random.nextInt(50) : 1 + random.nextInt(60);
+                    index.advanceTo(LocalDate.ofEpochDay(base + shift));
+                    advances++;
+                }
+            } catch (IllegalStateException conflict) {
+                // 与已有订单冲突
+            }
+            if (step % 3 == 0) {
+                check(index, rooms, random, step);
+                checks++;
+            }
+        }
+        if (advances == 0) throw new AssertionError("随机操作没有推进窗口");
+        System.out.println("位图随机比对: " + checks + " 轮，窗口推进 " + advances + " 次，" + rooms.size() + " 间房");
+    }
+
+    private static void check(RoomAvailabilityIndex index, List<Room> rooms, Random random, int step) {
+        long base = index.getWindowStart().toEpochDay();
+        int horizon = RoomAvailabilityIndex.HORIZON;
+        for (int q = 0; q < 4; q++) {
+            int nights = 1 + random.nextInt(6);
+            // 查询依赖前一晚，因此窗口内最早可查 base + 1，最晚到 base + HORIZON - nights
+            long start = switch (q) {
+                case 0 -> base + 1;
+                case 1 -> base + horizon - nights;
+                default -> base + 1 + random.nextInt(horizon - nights);
+            };
+            LocalDate date = LocalDate.ofEpochDay(start);
+            Set<Integer> expected = new TreeSet<>();
+            for (Room room : rooms) if (room.canBeDistribute(date, nights)) expected.add(room.getRoomID());
+            Set<Integer> actual = new TreeSet<>();
+            for (Room room : index.findAvailableRooms(date, nights, TYPE)) actual.add(room.getRoomID());
+            if (!expected.equals(actual)) throw new AssertionError("第 " + step + " 步 " + date + " 起 " + nights + " 晚可用房应为 " + expected + "，实际 " + actual);
+            if (index.countAvailableRooms(TYPE, date, nights) != expected.size()) throw new AssertionError("第 " + step + " 步 " + date + " 空房数不一致");
+        }
+
+        long from = base + 1 + random.nextInt(horizon - 40);
+        int days = 1 + random.nextInt(39);
+        int[] calendar = index.freeRoomCalendar(TYPE, LocalDate.ofEpochDay(from), days);
+        for (int d = 0; d < days; d++) {
+            LocalDate date = LocalDate.ofEpochDay(from + d);
+            long expected = rooms.stream().filter(room -> room.canBeDistribute(date, 1)).count();
+            if (calendar[d] != expected) throw new AssertionError("第 " + step + " 步 " + date + " 日历空房 " + calendar[d] + "，应为 " + expected);
+        }
+
+        // 窗口之外：start - 1 早于窗口，或结束日晚于窗口末端
+        LocalDate first = LocalDate.ofEpochDay(base);
+        LocalDate tooLate = LocalDate.ofEpochDay(base + horizon - 1);
+        if (index.findAvailableRooms(first, 1, TYPE) != null || index.countAvailableRooms(TYPE, first, 1) != -1
+                || index.freeRoomCalendar(TYPE, first, 1) != null) {
+            throw new AssertionError("第 " + step + " 步窗口首日的查询应超出窗口");
+        }
+        if (index.findAvailableRooms(tooLate, 2, TYPE) != null || index.countAvailableRooms(TYPE, tooLate, 2) != -1
+                || index.freeRoomCalendar(TYPE, tooLate, 2) != null) {
+            throw new AssertionError("第 " + step + " 步越过窗口末端的查询应超出窗口");
+        }
+    }
+
+    private static void checkClockAdvance() {
+        MutableClock clock = new MutableClock(LocalDate.of(2026, 6, 1));
+        RoomService roomService = new RoomService(clock);
+        roomService.addRoom(new Room(101, TYPE, 20));
+        LocalDate expected = LocalDate.of(2026, 6, 1).minusDays(RoomService.WINDOW_LAG_DAYS);
+        if (!roomService.getAvailabilityWindowStart().equals(expected)) throw new AssertionError("初始窗口应从 " + expected + " 开始");
+
+        // 日期变化后，窗口不会自己动；下一次查询才推进
+        clock.today = LocalDate.of(2026, 6, 20);
+        if (!roomService.getAvailabilityWindowStart().equals(expected)) throw new AssertionError("没有查询时窗口不应推进");
+        roomService.findAvailableRooms(clock.today, 1, TYPE);
+        expected = clock.today.minusDays(RoomService.WINDOW_LAG_DAYS);
+        if (!roomService.getAvailabilityWindowStart().equals(expected)) throw new AssertionError("查询后窗口应推进到 " + expected + "，实际 " + roomService.getAvailabilityWindowStart());
+        clock.today = clock.today.plusDays(3);
+        roomService.getAvailableRoomCount(clock.today);
+        expected = clock.today.minusDays(RoomService.WINDOW_LAG_DAYS);
+        if (!roomService.getAvailabilityWindowStart().equals(expected)) throw new AssertionError("空房统计后窗口应推进到 " + expected);
+        clock.today = clock.today.plusDays(1);
+        roomService.getFreeRoomCalendar(TYPE, clock.today, 7);
+        expected = clock.today.minusDays(RoomService.WINDOW_LAG_DAYS);
+        if (!roomService.getAvailabilityWindowStart().equals(expected)) throw new AssertionError("日历查询后窗口应推进到 " + expected);
+
+        // 时钟回拨时窗口不后退
+        clock.today = clock.today.minusDays(30);
+        roomService.findAvailableRooms(clock.today.plusDays(40), 1, TYPE);
+        if (!roomService.getAvailabilityWindowStart().equals(expected)) throw new AssertionError("时钟回拨后窗口不应后退");
+
+        // 窗口固定的 RoomService 不跟随任何时钟
+        RoomService fixed = new RoomService(WINDOW);
+        fixed.addRoom(new Room(101, TYPE, 20));
+        fixed.findAvailableRooms(WINDOW.plusYears(5), 1, TYPE);
+        if (!fixed.getAvailabilityWindowStart().equals(WINDOW)) throw new AssertionError("固定窗口不应推进");
+        System.out.println("时钟推进: 窗口 " + roomService.getAvailabilityWindowStart());
+    }
+
+    private static void checkFallbackMetric() {
+        RoomService roomService = new RoomService(WINDOW);
+        roomService.addRoom(new Room(101, TYPE, 20));
+        roomService.addRoom(new Room(102, TYPE, 20));
+        long before = fallbacks();
+        LocalDate inside = WINDOW.plusDays(30);
+        if (roomService.findAvailableRooms(inside, 3, TYPE).size() != 2 || roomService.getAvailableRoomCount(inside) != 2
+                || roomService.getFreeRoomCalendar(TYPE, inside, 5)[4] != 2) {
+            throw new AssertionError("窗口内查询结果不正确");
+        }
+        if (fallbacks() != before) throw new AssertionError("窗口内的查询不应回退");
+
+        LocalDate outside = WINDOW.plusDays(RoomAvailabilityIndex.HORIZON + 10);
+        LocalDate beforeWindow = WINDOW.minusDays(10);
+        if (roomService.findAvailableRooms(outside, 3, TYPE).size() != 2) throw new AssertionError("回退扫描的结果不正确");
+        if (roomService.getAvailableRoomCount(beforeWindow) != 2) throw new AssertionError("回退统计的结果不正确");
+        if (roomService.getFreeRoomCalendar(TYPE, WINDOW.plusDays(RoomAvailabilityIndex.HORIZON - 3), 5)[4] != 2) throw new AssertionError("回退日历的结果不正确");
+        if (fallbacks() != before + 3) throw new AssertionError("超出窗口的查询应回退 3 次，实际 " + (fallbacks() - before) + " 次");
+        System.out.println("回退计数: " + HotelMetrics.AVAILABILITY_FALLBACK.getLatency().getCount());
+    }
+
+    private static long fallbacks() {
+        return HotelMetrics.AVAILABILITY_FALLBACK.getLatency().getCount();
+    }
+
+    private static void addRoom(RoomAvailabilityIndex index, List<Room> rooms, Room room) {
+        index.addRoom(room);
+        room.addListener(index);
+        rooms.add(room);
+    }
+
+    private static Room roomOf(List<Room> rooms, Order order) {
+        for (Room room : rooms) if (room.getRoomID() == order.getRoomID()) return room;
+        throw new AssertionError("订单 " + order.getOrderID() + " 所在的房间不存在");
+    }
+}
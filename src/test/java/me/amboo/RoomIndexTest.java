@@ -0,0 +1,156 @@
+package me.amboo;
+
+import me.amboo.algorithm.AOVNetwork;
+import me.amboo.model.Room;
+import me.amboo.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 房型 / 楼层索引测试：
+ *   随机增删房间（含同一房号换房型）之后，getRoomsByFloor、getAllRooms、getRoomsOfType、getRoomTypes、getRoomCount
+ *   与逐个房间扫描的结果一致，空楼层、空房型不留键；返回的楼层副本不随之后的增删变化，建出的查房图与按列表建图相同；
+ *   并发增删期间取得的楼层副本始终有序、自洽
+ */
+public class RoomIndexTest {
+    private static final String[] TYPES = {"单人间", "双人间", "套房"};
+
+    public static void main(String[] args) throws InterruptedException {
+        checkAgainstScan();
+        checkConcurrentSnapshots();
+        System.out.println("房型与楼层索引测试通过");
+    }
+
+    private static void checkAgainstScan() {
+        Random random = new Random(43);
+        RoomService roomService = new RoomService(LocalDate.of(2026, 9, 1));
+        TreeMap<Integer, Room> expected = new TreeMap<>();
+        NavigableMap<Integer, List<Room>> earlier = roomService.getRoomsByFloor();
+        TreeMap<Integer, Room> earlierExpected = new TreeMap<>();
+        for (int step = 0; step < 5000; step++) {
+            // 房间号集中在 1~12 层，每层至多 20 间，楼层经常被删空
+            int id = 100 * (1 + random.nextInt(12)) + random.nextInt(20);
+            if (random.nextInt(3) > 0 && !expected.isEmpty()) {
+                if (!expected.containsKey(id)) id = expected.floorKey(id) == null ? expected.firstKey() : expected.floorKey(id);
+                roomService.removeRoom(id);
+                expected.remove(id);
+            } else if (expected.containsKey(id)) {
+                try {
+                    roomService.addRoom(new Room(id, TYPES[random.nextInt(TYPES.length)], 20));
+                    throw new AssertionError("重复的房间号应被拒绝");
+                } catch (IllegalArgumentException e) {
+                    // 原有房间不受影响
+                }
+            } else {
+                Room room = new Room(id, TYPES[random.nextInt(TYPES.length)], 20 + random.nextInt(20));
+                roomService.addRoom(room);
+                expected.put(id, room);
+            }
+            if (step % 50 == 0) {
+                check(roomService, expected, step);
+                // 之前取得的副本保持取得时的内容
+                if (!earlier.equals(byFloor(earlierExpected))) throw new AssertionError("第 " + step + " 步之前取得的楼层副本被修改");
+                earlier = roomService.getRoomsByFloor();
+                earlierExpected = new TreeMap<>(expected);
+            }
+        }
+        check(roomService, expected, -1);
+        try {
+            roomService.removeRoom(99_999);
+            throw new AssertionError("不存在的房间应被拒绝");
+        } catch (IllegalArgumentException e) {
+            // 索引不变
+        }
+        check(roomService, expected, -1);
+    }
+
+    private static void check(RoomService roomService, TreeMap<Integer, Room> expected, int step) {
+        NavigableMap<Integer, List<Room>> floors = roomService.getRoomsByFloor();
+        if (!floors.equals(byFloor(expected))) throw new AssertionError("第 " + step + " 步楼层索引为 " + floors.keySet() + "，应为 " + byFloor(expected).keySet());
+        if (!roomService.getAllRooms().equals(new ArrayList<>(expected.values()))) throw new AssertionError("第 " + step + " 步 getAllRooms 与逐个房间扫描不一致");
+
+        Set<String> types = new TreeSet<>();
+        for (Room room : expected.values()) types.add(room.getRoomType());
+        if (!new TreeSet<>(roomService.getRoomTypes()).equals(types)) throw new AssertionError("第 " + step + " 步房型为 " + roomService.getRoomTypes() + "，应为 " + types);
+        for (String type : TYPES) {
+            List<Room> want = expected.values().stream().filter(r -> r.getRoomType().equals(type)).toList();
+            if (!new ArrayList<>(roomService.getRoomsOfType(type)).equals(want)) throw new AssertionError("第 " + step + " 步 " + type + " 的房间不一致");
+            if (roomService.getRoomCount(type) != want.size()) throw new AssertionError("第 " + step + " 步 " + type + " 的房间数为 " + roomService.getRoomCount(type) + "，应为 " + want.size());
+        }
+
+        // 由楼层索引建的图与按房间列表建的图相同
+        AOVNetwork fromFloors = new AOVNetwork(), fromList = new AOVNetwork();
+        fromFloors.buildNetwork(floors);
+        fromList.buildNetwork(new ArrayList<>(expected.values()));
+        if (!fromFloors.getAllRoomIDs().equals(fromList.getAllRoomIDs())) throw new AssertionError("第 " + step + " 步两种方式建图的房间不同");
+        for (int id : expected.keySet()) {
+            if (!fromFloors.getNeighbors(id).equals(fromList.getNeighbors(id))) throw new AssertionError("第 " + step + " 步房间 " + id + " 的出边不同");
+        }
+    }
+
+    private static NavigableMap<Integer, List<Room>> byFloor(Map<Integer, Room> rooms) {
+        NavigableMap<Integer, List<Room>> floors = new TreeMap<>();
+        for (Room room : rooms.values()) floors.computeIfAbsent(room.getFloor(), floor -> new ArrayList<>()).add(room);
+        return floors;
+    }
+
+    // 每个写者在自己的楼层上反复增删房间，楼层时有时无；读者取到的副本中每层非空、升序、房间确属该层
+    private static void checkConcurrentSnapshots() throws InterruptedException {
+        RoomService roomService = new RoomService(LocalDate.of(2026, 9, 1));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger snapshots = new AtomicInteger();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int floor = 1 + t;
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    int id = floor * 100 + i % 40;
+                    roomService.addRoom(new Room(id, TYPES[i % 2], 20));
+                    roomService.addRoom(new Room(id + 50, TYPES[i % 2], 20));
+                    if (i % 40 >= 20) {
+                        roomService.removeRoom(id - 20);
+                        roomService.removeRoom(id + 30);
+                    }
+                    if (i % 40 == 39) {
+                        for (int j = 20; j < 40; j++) {
+                            roomService.removeRoom(floor * 100 + j);
+                            roomService.removeRoom(floor * 100 + j + 50);
+                        }
+                    }
+                }
+            }));
+        }
+        AtomicInteger broken = new AtomicInteger();
+        Thread reader = Thread.ofPlatform().start(() -> {
+            while (!done.get()) {
+                NavigableMap<Integer, List<Room>> floors = roomService.getRoomsByFloor();
+                for (Map.Entry<Integer, List<Room>> entry : floors.entrySet()) {
+                    List<Room> rooms = entry.getValue();
+                    if (rooms.isEmpty()) broken.incrementAndGet();
+                    for (int i = 0; i < rooms.size(); i++) {
+                        if (rooms.get(i).getFloor() != entry.getKey() || (i > 0 && rooms.get(i).getRoomID() <= rooms.get(i - 1).getRoomID())) broken.incrementAndGet();
+                    }
+                }
+                snapshots.incrementAndGet();
+            }
+        });
+        for (Thread writer : writers) writer.join();
+        done.set(true);
+        reader.join();
+        if (broken.get() != 0) throw new AssertionError("并发增删期间有 " + broken.get() + " 处楼层副本不自洽");
+        if (snapshots.get() == 0) throw new AssertionError("读者没有取到任何副本");
+        if (!roomService.getRoomsByFloor().isEmpty() || !roomService.getAllRooms().isEmpty() || !roomService.getRoomTypes().isEmpty()) {
+            throw new AssertionError("全部删除后索引应为空");
+        }
+    }
+}
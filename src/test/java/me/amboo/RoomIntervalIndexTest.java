@@ -0,0 +1,115 @@
+package me.amboo;
+
+import me.amboo.model.Order;
+import me.amboo.model.Room;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 房间区间索引测试：随机加入（含冲突、0 天、房型不符）、删除、推进状态、归档订单之后，
+ * canBeDistribute、getOrderOn、freeUntil 与 getOrderList 的顺序都与按订单列表逐天判断的结果一致
+ */
+public class RoomIntervalIndexTest {
+    private static final LocalDate BASE = LocalDate.of(2026, 5, 1);
+    private static final int DAYS = 120;
+
+    public static void main(String[] args) {
+        Random random = new Random(9);
+        Room room = new Room(101, "单人间", 20);
+        List<Order> held = new ArrayList<>();
+        int nextID = 1, conflicts = 0, archived = 0;
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4) {
+                LocalDate date = BASE.plusDays(random.nextInt(DAYS));
+                int nights = random.nextInt(20) == 0 ? 0 : 1 + random.nextInt(6);
+                String type = random.nextInt(20) == 0 ? "双人间" : "单人间";
+                Order order = new Order(nextID++, "g", date, nights, type);
+                boolean typeMismatch = !type.equals("单人间"), empty = nights == 0;
+                boolean clash = !typeMismatch && !empty && held.stream().anyMatch(o -> o.cantBeBook(date, nights));
+                try {
+                    room.addOrder(order);
+                    if (typeMismatch || empty || clash) throw new AssertionError("第 " + step + " 步应拒绝订单 " + date + " 起 " + nights + " 晚");
+                    if (order.getRoomID() != 101) throw new AssertionError("加入房间的订单没有绑定房号");
+                    held.add(order);
+                } catch (IllegalArgumentException rejected) {
+                    if (!typeMismatch && !empty) throw new AssertionError("第 " + step + " 步不应以参数错误拒绝: " + rejected.getMessage());
+                } catch (IllegalStateException rejected) {
+                    if (!clash) throw new AssertionError("第 " + step + " 步误判冲突: " + date + " 起 " + nights + " 晚");
+                    conflicts++;
+                }
+            } else if (op < 6 && !held.isEmpty()) {
+                Order order = held.remove(random.nextInt(held.size()));
+                room.deleteOrder(order.getOrderID());
+                if (order.getRoomID() != null) throw new AssertionError("删除的订单仍绑定房号");
+            } else if (op < 9 && !held.isEmpty()) {
+                Order order = held.get(random.nextInt(held.size()));
+                switch (order.getStatus()) {
+                    case BOOKED -> order.CheckIn();
+                    case OCCUPIED -> order.CheckOut();
+                    case CLEANING -> order.Cleaning();
+                    case FINISHED -> {
+                        if (!room.archiveOrder(order)) throw new AssertionError("已结束的订单归档失败");
+                        held.remove(order);
+                        archived++;
+                    }
+                }
+            } else if (!held.isEmpty()) {
+                Order order = held.get(random.nextInt(held.size()));
+                if (order.getStatus() != Order.OrderStatus.FINISHED) {
+                    try {
+                        room.archiveOrder(order);
+                        throw new AssertionError("未结束的订单不应被归档");
+                    } catch (IllegalStateException expected) {
+                        // 订单仍在房间中
+                    }
+                }
+            }
+            if (step % 5 == 0) check(room, held, random, step);
+        }
+        try {
+            room.deleteOrder(-1);
+            throw new AssertionError("删除不存在的订单应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 房间保持不变
+        }
+        check(room, held, random, -1);
+        System.out.println("区间索引: 拒绝冲突 " + conflicts + " 次，归档 " + archived + " 个，最终 " + held.size() + " 个订单");
+        System.out.println("房间区间索引测试通过");
+    }
+
+    private static void check(Room room, List<Order> held, Random random, int step) {
+        List<Order> sorted = new ArrayList<>(held);
+        sorted.sort(Comparator.comparingInt(Order::getStartDay));
+        if (!room.getOrderList().equals(sorted)) throw new AssertionError("第 " + step + " 步 getOrderList 不一致或未按日期排序");
+        for (int q = 0; q < 10; q++) {
+            LocalDate date = BASE.plusDays(random.nextInt(DAYS + 20) - 10);
+            int nights = 1 + random.nextInt(6);
+            Order covering = covering(held, date.toEpochDay());
+            if (room.getOrderOn(date) != covering) throw new AssertionError("第 " + step + " 步 " + date + " 的订单不一致");
+
+            Order previous = covering(held, date.toEpochDay() - 1);
+            boolean expected = (previous == null || previous.getStatus() == Order.OrderStatus.FINISHED)
+                    && held.stream().noneMatch(o -> o.cantBeBook(date, nights));
+            if (room.canBeDistribute(date, nights) != expected) {
+                throw new AssertionError("第 " + step + " 步 canBeDistribute(" + date + ", " + nights + ") 应为 " + expected);
+            }
+
+            if (covering == null) {
+                long until = held.stream().mapToLong(Order::getStartDay).filter(d -> d >= date.toEpochDay()).min().orElse(Long.MAX_VALUE);
+                if (room.freeUntil(date) != until) throw new AssertionError("第 " + step + " 步 freeUntil(" + date + ") = " + room.freeUntil(date) + "，应为 " + until);
+            }
+        }
+    }
+
+    private static Order covering(List<Order> held, long day) {
+        for (Order order : held) {
+            if (order.getStartDay() <= day && day < order.getEndDay()) return order;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+package me.amboo;
+
+import me.amboo.controller.ScriptRunner;
+import me.amboo.model.Order;
+import me.amboo.service.OrderService;
+import me.amboo.service.RoomService;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 脚本回放测试：注释、空行与多余空白被跳过；book 的标签可被后续命令以 @标签 引用，打扫完成或删除后标签失效；
+ * 订单也可直接写 ID；参数不足、未知命令、未定义标签只计失败并报告行号，报告条数有上限，不中断回放
+ */
+public class ScriptRunnerTest {
+    private static final LocalDate BASE = LocalDate.of(2026, 8, 1);
+
+    public static void main(String[] args) throws IOException {
+        checkScript();
+        checkErrorLimit();
+        System.out.println("脚本回放测试通过");
+    }
+
+    private static void checkScript() throws IOException {
+        RoomService roomService = new RoomService(BASE);
+        OrderService orderService = new OrderService(roomService);
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        ScriptRunner runner = new ScriptRunner(roomService, orderService, new PrintStream(err, true, StandardCharsets.UTF_8));
+        run(runner, """
+                # 房间
+                room add 101 单人间 20
+                room  add\t102   单人间 20
+
+                room add 103 双人间 30
+                room add 104 双人间 30
+                room remove 104
+                book a 张三 2026-08-01 2 单人间
+                book - 李四 2026-08-01 1 双人间
+                book b 王五 2026-08-03 1 单人间
+                checkin @a 101
+                checkout @a
+                clean @a
+                checkout @a
+                book c 赵六 2026-08-02 1 双人间
+                checkin @c
+                cancel @c
+                query @c
+                advance 2026-08-02
+                assign 2026-08-03
+                archive 2026-08-01
+                fly @b
+                room add 105
+                """);
+        // 第 14 行：@a 已在打扫后失效；18 行：@c 已删除；22、23 行：未知命令、参数不足
+        String errors = err.toString(StandardCharsets.UTF_8);
+        for (int line : new int[] {14, 18, 22, 23}) {
+            if (!errors.contains("第 " + line + " 行执行失败")) throw new AssertionError("第 " + line + " 行的失败没有报告:\n" + errors);
+        }
+        if (errors.lines().count() != 4) throw new AssertionError("应报告 4 条失败，实际:\n" + errors);
+        if (!errors.contains("未定义的订单标签: @a") || !errors.contains("未知命令: fly") || !errors.contains("参数不足")) {
+            throw new AssertionError("失败原因不正确:\n" + errors);
+        }
+
+        if (roomService.findRoomById(104) != null || roomService.getRoomCount("单人间") != 2) throw new AssertionError("room add / remove 没有生效");
+        Order a = single(orderService, "张三");
+        if (a.getStatus() != Order.OrderStatus.FINISHED || a.getRoomID() != 101) throw new AssertionError("@a 应在 101 入住、退房并打扫完成");
+        if (!orderService.getOrdersByGuest("赵六").isEmpty()) throw new AssertionError("@c 应已被删除");
+        if (single(orderService, "李四").getStatus() != Order.OrderStatus.BOOKED) throw new AssertionError("- 标签的订单应照常预订");
+        if (!roomService.getAvailabilityWindowStart().equals(LocalDate.of(2026, 8, 2))) throw new AssertionError("advance 没有推进窗口");
+        Order b = single(orderService, "王五");
+
+        // 订单 ID 与之前定义的标签在下一次 run 中仍可用；行号接着上一次计数
+        run(runner, "checkin " + b.getOrderID() + " 102\ncheckout @b\nquery 1\n");
+        if (b.getStatus() != Order.OrderStatus.CLEANING || b.getRoomID() != 102) throw new AssertionError("按订单 ID 入住后 @b 应已退房");
+        if (!err.toString(StandardCharsets.UTF_8).contains("第 26 行执行失败：错误：未找到 ID 为 1 的订单")) throw new AssertionError("不存在的订单 ID 应报告在第 26 行");
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        runner.printReport(new PrintStream(report, true, StandardCharsets.UTF_8));
+        String text = report.toString(StandardCharsets.UTF_8);
+        if (!text.contains("读取 26 行，执行 24 条命令，失败 5 条")) throw new AssertionError("报告的汇总不正确:\n" + text);
+        for (String command : List.of("room add", "room remove", "book", "checkin", "checkout", "clean", "cancel", "query", "advance", "assign", "archive", "fly")) {
+            if (text.lines().noneMatch(l -> l.startsWith(command + " "))) throw new AssertionError("报告中缺少命令 " + command + ":\n" + text);
+        }
+    }
+
+    // 失败超过 MAX_REPORTED_ERRORS 条之后只计数，不再逐条输出
+    private static void checkErrorLimit() throws IOException {
+        RoomService roomService = new RoomService(BASE);
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        ScriptRunner runner = new ScriptRunner(roomService, new OrderService(roomService), new PrintStream(err, true, StandardCharsets.UTF_8));
+        run(runner, "query @missing\n".repeat(30) + "room add 101 单人间 20\n");
+        if (err.toString(StandardCharsets.UTF_8).lines().count() != 20) throw new AssertionError("失败报告应限制为 20 条");
+        if (roomService.getRoomCount("单人间") != 1) throw new AssertionError("失败之后的命令应继续执行");
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        runner.printReport(new PrintStream(report, true, StandardCharsets.UTF_8));
+        if (!report.toString(StandardCharsets.UTF_8).contains("失败 30 条")) throw new AssertionError("失败次数应全部计入");
+    }
+
+    private static void run(ScriptRunner runner, String script) throws IOException {
+        runner.run(new BufferedReader(new StringReader(script)));
+    }
+
+    private static Order single(OrderService orderService, String guestID) {
+        List<Order> orders = orderService.getOrdersByGuest(guestID);
+        if (orders.size() != 1) throw new AssertionError(guestID + " 应有 1 个订单，实际 " + orders.size());
+        return orders.get(0);
+    }
+}
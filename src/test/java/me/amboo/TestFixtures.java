@@ -0,0 +1,28 @@
+package me.amboo;
+
+import me.amboo.service.RoomService;
+
+import java.time.LocalDate;
+
+// 收入统计、冷存储、快照、可用房缓存等测试共用的日期、房型与收入报表比对
+final class TestFixtures {
+    // 可用性位图窗口的起点，早于所有订单日期，订单都能用位图判断
+    static final LocalDate WINDOW = LocalDate.of(2026, 1, 1);
+    // 随机订单的入住日从这里往后取
+    static final LocalDate BASE = LocalDate.of(2026, 2, 1);
+    static final String[] TYPES = { "单人间", "双人间" };
+
+    private TestFixtures() {}
+
+    // [BASE, BASE + 365) 的按楼层、按房型收入报表
+    static String report(RoomService roomService) {
+        LocalDate to = BASE.plusDays(365);
+        return roomService.getAnalytics().reportByFloor(BASE, to) + "\n" + roomService.getAnalytics().reportByType(BASE, to);
+    }
+
+    // 重建、回放、装载等之后的报表应与增量维护得到的 expected 完全相同
+    static void assertReport(String expected, RoomService roomService, String what) {
+        String actual = report(roomService);
+        if (!expected.equals(actual)) throw new AssertionError(what + "后收入统计与增量维护不一致:\n" + expected + "\n" + actual);
+    }
+}
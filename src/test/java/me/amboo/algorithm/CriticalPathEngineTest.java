@@ -0,0 +1,134 @@
+package me.amboo.algorithm;
+
+import me.amboo.model.Room;
+import me.amboo.service.RoomService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 动态关键路径测试：随机增删房间、上报延误（含负数）、清除延误、重新生成权值，
+ * 每隔几步与从零计算的最长路径比对 makespan、每条活动的时差和关键活动；没有延误时再与 AOECalculator 比对
+ */
+public class CriticalPathEngineTest {
+    private static final int STEPS = 4000;
+
+    public static void main(String[] args) {
+        Random random = new Random(5);
+        RoomService roomService = new RoomService();
+        CriticalPathEngine engine = new CriticalPathEngine(roomService.getRoomGraph());
+        List<Integer> ids = new ArrayList<>();
+        Map<Long, Integer> delays = new HashMap<>(); // 起点 << 32 | 终点 -> 累计延误
+        int checks = 0;
+        for (int step = 0; step < STEPS; step++) {
+            int op = random.nextInt(10);
+            if (op < 4 || ids.isEmpty()) {
+                int id = (1 + random.nextInt(10)) * 100 + random.nextInt(8);
+                if (roomService.findRoomById(id) == null) {
+                    roomService.addRoom(new Room(id, "单人间", 20));
+                    ids.add(id);
+                    sync(engine, roomService, delays);
+                }
+            } else if (op < 6) {
+                roomService.removeRoom(ids.remove(random.nextInt(ids.size())));
+                sync(engine, roomService, delays);
+            } else if (op < 9) {
+                CsrGraph g = roomService.getRoomGraph().snapshot();
+                if (g.edgeCount() == 0) continue;
+                int k = random.nextInt(g.edgeCount());
+                int u = sourceOf(g, k);
+                long key = edge(g.roomID(u), g.roomID(g.target(k)));
+                int delay = random.nextInt(15) - 3;
+                if (g.weight(k) + delays.getOrDefault(key, 0) + delay < 0) continue; // 耗时不能被延误抵成负数
+                engine.reportDelay(g.roomID(u), g.roomID(g.target(k)), delay);
+                delays.merge(key, delay, Integer::sum);
+            } else if (random.nextInt(10) == 0) {
+                engine.clearDelays();
+                delays.clear();
+            } else if (random.nextInt(30) == 0) {
+                WeightGenerator.reseed(random.nextLong());
+            }
+            if (step % 5 == 0) {
+                check(engine, roomService.getRoomGraph().snapshot(), delays, step);
+                checks++;
+            }
+        }
+        System.out.println("动态关键路径: " + checks + " 次与从零计算比对一致，最终 " + ids.size() + " 个房间，makespan " + engine.getMakespan());
+        System.out.println("动态关键路径测试通过");
+    }
+
+    private static void check(CriticalPathEngine engine, CsrGraph g, Map<Long, Integer> delays, int step) {
+        AOECalculator.CriticalPath result = engine.getResult();
+
+        int n = g.nodeCount();
+        int[] order = g.topologicalOrder();
+        int[] ve = new int[n];
+        int[] tail = new int[n];
+        for (int u : order) {
+            for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) ve[g.target(k)] = Math.max(ve[g.target(k)], ve[u] + weight(g, u, k, delays));
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            int u = order[i];
+            for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) tail[u] = Math.max(tail[u], tail[g.target(k)] + weight(g, u, k, delays));
+        }
+        int makespan = 0;
+        for (int v : ve) makespan = Math.max(makespan, v);
+        if (result.maxTime() != makespan || engine.getMakespan() != makespan) {
+            throw new AssertionError("第 " + step + " 步 makespan 为 " + result.maxTime() + " / " + engine.getMakespan() + "，应为 " + makespan);
+        }
+
+        int critical = 0;
+        for (int u = 0; u < n; u++) {
+            for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) {
+                int slack = makespan - tail[g.target(k)] - weight(g, u, k, delays) - ve[u];
+                if (slack == 0) critical++;
+                int actual = engine.getSlack(g.roomID(u), g.roomID(g.target(k)));
+                if (actual != slack) throw new AssertionError("第 " + step + " 步活动 " + g.roomID(u) + " -> " + g.roomID(g.target(k)) + " 时差为 " + actual + "，应为 " + slack);
+            }
+        }
+        if (result.criticalActivities().size() != critical || result.activities().size() != g.edgeCount()) {
+            throw new AssertionError("第 " + step + " 步关键活动数 " + result.criticalActivities().size() + "，应为 " + critical);
+        }
+        if (!new HashSet<>(engine.getCriticalActivities()).equals(new HashSet<>(result.criticalActivities()))) {
+            throw new AssertionError("第 " + step + " 步 getCriticalActivities 与 getResult 不一致");
+        }
+        if (delays.isEmpty()) {
+            AOECalculator.CriticalPath reference = new AOECalculator().analyze(new AOENetwork(g));
+            if (reference.maxTime() != makespan || !new HashSet<>(reference.criticalActivities()).equals(new HashSet<>(result.criticalActivities()))) {
+                throw new AssertionError("第 " + step + " 步与 AOECalculator 的结果不一致");
+            }
+        }
+    }
+
+    // 增删房间会增删边（新楼层插在两层之间时原来跨层的边消失），被删边的延误随之作废。
+    // 引擎在查询时才与图同步，这里立即同步，使模型与引擎在同一时刻丢弃延误（否则边删了又加回时二者不一致）
+    private static void sync(CriticalPathEngine engine, RoomService roomService, Map<Long, Integer> delays) {
+        engine.getMakespan();
+        CsrGraph g = roomService.getRoomGraph().snapshot();
+        Set<Long> live = new HashSet<>();
+        for (int u = 0; u < g.nodeCount(); u++) {
+            for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) live.add(edge(g.roomID(u), g.roomID(g.target(k))));
+        }
+        delays.keySet().retainAll(live);
+    }
+
+    private static int weight(CsrGraph g, int u, int k, Map<Long, Integer> delays) {
+        return g.weight(k) + delays.getOrDefault(edge(g.roomID(u), g.roomID(g.target(k))), 0);
+    }
+
+    // 边 k 的起点：offsets 中最后一个不超过 k 的节点
+    private static int sourceOf(CsrGraph g, int k) {
+        int u = 0;
+        while (g.edgeEnd(u) <= k) u++;
+        return u;
+    }
+
+    private static long edge(int from, int to) {
+        return (long) from << 32 | to;
+    }
+}
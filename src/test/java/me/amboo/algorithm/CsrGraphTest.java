@@ -0,0 +1,112 @@
+package me.amboo.algorithm;
+
+import me.amboo.model.Room;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * CSR 查房图测试：随机房间集合（打乱顺序、含空图与单层）上，AOENetwork / AOVNetwork 基于 CsrGraph 的只读视图
+ * （getAdjList、getInDegreeMap、getNeighbors、getInDegree、getAllRoomIDs）与按楼层规则用 Map 逐边构建的基准完全一致；
+ * 部分轮次换用会返回非正权值（无边）的权值来源
+ */
+public class CsrGraphTest {
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        try {
+            for (int round = 0; round < 300; round++) {
+                if (round % 3 == 0) {
+                    long salt = random.nextLong();
+                    WeightGenerator.setProvider((from, to) -> Math.floorMod(from * 31L + to * 17L + salt, 40) - 10);
+                } else {
+                    WeightGenerator.setProvider(null);
+                    WeightGenerator.reseed(random.nextLong());
+                }
+                List<Room> rooms = new ArrayList<>();
+                Set<Integer> used = new HashSet<>();
+                int floors = 1 + random.nextInt(9);
+                int n = round == 0 ? 0 : random.nextInt(Math.min(60, floors * 30));
+                while (rooms.size() < n) {
+                    int id = (1 + random.nextInt(floors)) * 100 + random.nextInt(30);
+                    if (used.add(id)) rooms.add(new Room(id, "大床房", 20));
+                }
+                Collections.shuffle(rooms, random);
+                check(rooms, round);
+            }
+        } finally {
+            WeightGenerator.setProvider(null);
+        }
+        System.out.println("CSR 查房图测试通过");
+    }
+
+    private static void check(List<Room> rooms, int round) {
+        // 基准：楼层 -> 房间号，边从每个有房楼层指向紧邻的下一个有房楼层，权值非正时不连边
+        TreeMap<Integer, List<Integer>> floors = new TreeMap<>();
+        for (Room room : rooms) floors.computeIfAbsent(room.getFloor(), f -> new ArrayList<>()).add(room.getRoomID());
+        Map<Integer, Map<Integer, Integer>> adjacency = new HashMap<>();
+        Map<Integer, Integer> inDegree = new HashMap<>();
+        for (Room room : rooms) {
+            adjacency.put(room.getRoomID(), new HashMap<>());
+            inDegree.put(room.getRoomID(), 0);
+        }
+        for (Map.Entry<Integer, List<Integer>> floor : floors.entrySet()) {
+            Map.Entry<Integer, List<Integer>> next = floors.higherEntry(floor.getKey());
+            if (next == null) continue;
+            for (int from : floor.getValue()) {
+                for (int to : next.getValue()) {
+                    int weight = WeightGenerator.getWeight(from, to);
+                    if (weight <= 0) continue;
+                    adjacency.get(from).put(to, weight);
+                    inDegree.merge(to, 1, Integer::sum);
+                }
+            }
+        }
+
+        AOENetwork aoe = new AOENetwork();
+        aoe.buildNetwork(rooms);
+        assertEquals(adjacency, aoe.getAdjList(), round, "getAdjList");
+        assertEquals(inDegree, aoe.getInDegreeMap(), round, "getInDegreeMap");
+        assertEquals(adjacency.keySet(), aoe.getAllRoomIDs(), round, "getAllRoomIDs");
+        for (int roomID : adjacency.keySet()) {
+            assertEquals(adjacency.get(roomID), aoe.getAdjList().get(roomID), round, "getAdjList().get(" + roomID + ")");
+            if (!aoe.getAdjList().containsKey(roomID)) throw new AssertionError("第 " + round + " 轮 getAdjList 不含房间 " + roomID);
+        }
+        if (aoe.getAdjList().get(99_999) != null || aoe.getAdjList().containsKey(99_999) || aoe.getInDegreeMap().get(99_999) != null) {
+            throw new AssertionError("第 " + round + " 轮不存在的房间在视图中有值");
+        }
+
+        // 按楼层索引构建的结果相同
+        TreeMap<Integer, Collection<Room>> byFloor = new TreeMap<>();
+        TreeMap<Integer, TreeMap<Integer, Room>> sorted = new TreeMap<>();
+        for (Room room : rooms) sorted.computeIfAbsent(room.getFloor(), f -> new TreeMap<>()).put(room.getRoomID(), room);
+        sorted.forEach((floor, floorRooms) -> byFloor.put(floor, floorRooms.values()));
+        AOENetwork fromFloors = new AOENetwork();
+        fromFloors.buildNetwork(byFloor);
+        assertEquals(adjacency, fromFloors.getAdjList(), round, "按楼层构建的 getAdjList");
+
+        AOVNetwork aov = new AOVNetwork();
+        aov.buildNetwork(rooms);
+        for (int roomID : adjacency.keySet()) {
+            List<Integer> neighbors = aov.getNeighbors(roomID);
+            List<Integer> expected = new ArrayList<>(new TreeMap<>(adjacency.get(roomID)).keySet());
+            assertEquals(expected, neighbors, round, "getNeighbors(" + roomID + ")");
+            if (aov.getInDegree(roomID) != inDegree.get(roomID)) throw new AssertionError("第 " + round + " 轮房间 " + roomID + " 入度不一致");
+        }
+        if (!aov.getNeighbors(99_999).isEmpty() || aov.getInDegree(99_999) != 0) throw new AssertionError("第 " + round + " 轮不存在的房间有邻居或入度");
+    }
+
+    // 双向比较，并比较 hashCode，确保视图可以与普通集合互换使用
+    private static void assertEquals(Object expected, Object actual, int round, String what) {
+        if (!expected.equals(actual) || !actual.equals(expected) || expected.hashCode() != actual.hashCode()) {
+            throw new AssertionError("第 " + round + " 轮 " + what + " 不一致:\n期望 " + expected + "\n实际 " + actual);
+        }
+    }
+}
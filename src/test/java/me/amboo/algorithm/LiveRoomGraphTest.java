@@ -0,0 +1,105 @@
+package me.amboo.algorithm;
+
+import me.amboo.model.Room;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 实时查房图测试：随机增删房间（含楼层出现、最后一间房删除后楼层消失）、批量加房、重设权值种子，
+ * 每隔几步把 snapshot() 与按现有房间从零构建的 CsrGraph.build 逐项比对（房间号、出边、权值、入度）；
+ * 图未变化时快照复用同一个对象
+ */
+public class LiveRoomGraphTest {
+    private static final int STEPS = 6000;
+
+    public static void main(String[] args) {
+        Random random = new Random(3);
+        LiveRoomGraph graph = new LiveRoomGraph();
+        Set<Integer> ids = new TreeSet<>();
+        int floorsAppeared = 0, floorsVanished = 0;
+        for (int step = 0; step < STEPS; step++) {
+            int op = random.nextInt(20);
+            if (op < 11 || ids.isEmpty()) {
+                int id = (1 + random.nextInt(12)) * 100 + random.nextInt(8);
+                if (ids.contains(id)) continue;
+                if (!hasFloor(ids, Room.floorOf(id))) floorsAppeared++;
+                graph.addRoom(id);
+                ids.add(id);
+            } else if (op < 18) {
+                int id = new ArrayList<>(ids).get(random.nextInt(ids.size()));
+                graph.removeRoom(id);
+                ids.remove(id);
+                if (!hasFloor(ids, Room.floorOf(id))) floorsVanished++;
+            } else if (op == 18) {
+                // 批量加入一个全新楼层（快照恢复走这条路径）
+                int floor = 13 + random.nextInt(5);
+                if (hasFloor(ids, floor)) continue;
+                List<Room> batch = new ArrayList<>();
+                int size = 1 + random.nextInt(4);
+                for (int i = 0; i < size; i++) batch.add(new Room(floor * 100 + i, "单人间", 20));
+                graph.addRooms(batch);
+                for (Room room : batch) ids.add(room.getRoomID());
+                floorsAppeared++;
+            } else if (random.nextInt(5) == 0) {
+                WeightGenerator.reseed(random.nextLong());
+            }
+            if (step % 7 == 0) check(graph, ids, step);
+        }
+        check(graph, ids, STEPS);
+        if (floorsAppeared == 0 || floorsVanished == 0) throw new AssertionError("随机操作没有覆盖楼层的出现与消失");
+        try {
+            graph.addRoom(ids.iterator().next());
+            throw new AssertionError("重复加入的房间应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 图保持不变
+        }
+        check(graph, ids, STEPS);
+        System.out.println("实时查房图: 楼层出现 " + floorsAppeared + " 次、消失 " + floorsVanished + " 次，最终 " + ids.size() + " 个房间");
+        System.out.println("实时查房图测试通过");
+    }
+
+    private static boolean hasFloor(Set<Integer> ids, int floor) {
+        for (int id : ids) if (Room.floorOf(id) == floor) return true;
+        return false;
+    }
+
+    private static void check(LiveRoomGraph graph, Set<Integer> ids, int step) {
+        List<Room> rooms = new ArrayList<>();
+        TreeMap<Integer, Collection<Room>> byFloor = new TreeMap<>();
+        for (int id : ids) {
+            Room room = new Room(id, "单人间", 20);
+            rooms.add(room);
+            byFloor.computeIfAbsent(Room.floorOf(id), floor -> new ArrayList<>()).add(room);
+        }
+        CsrGraph live = graph.snapshot();
+        assertSame(CsrGraph.build(rooms), live, step);
+        assertSame(CsrGraph.build(byFloor), live, step);
+        if (graph.snapshot() != live) throw new AssertionError("第 " + step + " 步图未变化却重新导出了快照");
+        if (graph.roomCount() != ids.size()) throw new AssertionError("第 " + step + " 步房间数 " + graph.roomCount() + "，应为 " + ids.size());
+    }
+
+    private static void assertSame(CsrGraph expected, CsrGraph actual, int step) {
+        if (expected.nodeCount() != actual.nodeCount() || expected.edgeCount() != actual.edgeCount()) {
+            throw new AssertionError("第 " + step + " 步节点 / 边数 " + actual.nodeCount() + " / " + actual.edgeCount()
+                    + "，应为 " + expected.nodeCount() + " / " + expected.edgeCount());
+        }
+        for (int u = 0; u < expected.nodeCount(); u++) {
+            if (expected.roomID(u) != actual.roomID(u) || expected.inDegree(u) != actual.inDegree(u)
+                    || expected.edgeStart(u) != actual.edgeStart(u) || expected.edgeEnd(u) != actual.edgeEnd(u)) {
+                throw new AssertionError("第 " + step + " 步房间 " + expected.roomID(u) + " 的节点信息不一致");
+            }
+            for (int k = expected.edgeStart(u); k < expected.edgeEnd(u); k++) {
+                if (expected.target(k) != actual.target(k) || expected.weight(k) != actual.weight(k)) {
+                    throw new AssertionError("第 " + step + " 步边 " + expected.roomID(u) + " -> " + expected.roomID(expected.target(k))
+                            + " 不一致：实际 -> " + actual.roomID(actual.target(k)) + "，权值 " + actual.weight(k) + " / " + expected.weight(k));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package me.amboo.algorithm;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 按层并行的拓扑排序与 ve / vl 测试：随机 DAG 上分层结果是合法的拓扑序列、层号等于顺序计算的最长边数，
+ * ve、vl 与顺序实现逐个相等；加入一条回边成环后返回 null
+ * 图的宽度远超单个任务的粒度，fork-join 确实会拆分；直接调用包内的 ParallelGraph，不受 PARALLEL_THRESHOLD 与核数限制
+ */
+public class ParallelGraphTest {
+    public static void main(String[] args) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(17);
+            for (int round = 0; round < 20; round++) {
+                int n = round < 5 ? 1 + random.nextInt(300) : 20_000 + random.nextInt(30_000);
+                int depth = 1 + random.nextInt(round % 2 == 0 ? 8 : 200);
+                CsrGraph g = randomDag(random, n, depth, 1 + random.nextInt(5));
+                check(g, pool);
+                if (g.edgeCount() > 0) checkCycle(random, g, pool);
+            }
+            check(CsrGraph.EMPTY, pool);
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("并行拓扑排序与 ve / vl 测试通过");
+    }
+
+    // 节点随机分到 depth 个等级，边只从低等级指向高等级；节点下标与等级无关，避免下标顺序恰好就是拓扑序
+    private static CsrGraph randomDag(Random random, int n, int depth, int fanOut) {
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) rank[i] = random.nextInt(depth);
+        int[][] out = new int[n][];
+        for (int u = 0; u < n; u++) {
+            int[] targets = new int[random.nextInt(fanOut + 1)];
+            int count = 0;
+            for (int t = 0; t < targets.length; t++) {
+                int v = random.nextInt(n);
+                if (rank[v] > rank[u]) targets[count++] = v;
+            }
+            out[u] = Arrays.stream(targets, 0, count).distinct().sorted().toArray();
+        }
+        return csr(out);
+    }
+
+    private static CsrGraph csr(int[][] out) {
+        int n = out.length;
+        int[] roomIDs = new int[n];
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            roomIDs[u] = 100 + u;
+            offsets[u + 1] = offsets[u] + out[u].length;
+        }
+        int[] targets = new int[offsets[n]];
+        int[] weights = new int[offsets[n]];
+        Random random = new Random(n);
+        for (int u = 0; u < n; u++) {
+            for (int k = 0; k < out[u].length; k++) {
+                targets[offsets[u] + k] = out[u][k];
+                weights[offsets[u] + k] = 1 + random.nextInt(60);
+            }
+        }
+        return CsrGraph.of(roomIDs, offsets, targets, weights);
+    }
+
+    private static void check(CsrGraph g, ForkJoinPool pool) {
+        int n = g.nodeCount();
+        int[] sequential = g.topologicalOrder();
+        ParallelGraph.Levels levels = ParallelGraph.levels(g, pool);
+        if (levels == null) throw new AssertionError(n + " 个节点的无环图被判定为有环");
+
+        // 分层结果是一个排列，且每条边都从前面的层指向后面的层
+        int[] order = levels.order();
+        int[] level = new int[n];
+        Arrays.fill(level, -1);
+        for (int l = 0; l < levels.count(); l++) {
+            for (int i = levels.starts()[l]; i < levels.starts()[l + 1]; i++) {
+                if (level[order[i]] >= 0) throw new AssertionError("节点 " + order[i] + " 在拓扑序列中出现两次");
+                level[order[i]] = l;
+            }
+        }
+        for (int u = 0; u < n; u++) if (level[u] < 0) throw new AssertionError("节点 " + u + " 不在拓扑序列中");
+
+        // 层号 = 从零入度节点出发的最长边数（按顺序拓扑序列计算）
+        int[] depth = new int[n];
+        int[] ve = new int[n];
+        for (int u : sequential) {
+            for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) {
+                int v = g.target(k);
+                if (level[v] <= level[u]) throw new AssertionError("边 " + u + " -> " + v + " 没有从前面的层指向后面的层");
+                depth[v] = Math.max(depth[v], depth[u] + 1);
+                ve[v] = Math.max(ve[v], ve[u] + g.weight(k));
+            }
+        }
+        if (!Arrays.equals(depth, level)) throw new AssertionError("分层与最长边数不一致");
+
+        int maxTime = Arrays.stream(ve).max().orElse(0);
+        int[] vl = new int[n];
+        Arrays.fill(vl, maxTime);
+        for (int i = n - 1; i >= 0; i--) {
+            int u = sequential[i];
+            for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) vl[u] = Math.min(vl[u], vl[g.target(k)] - g.weight(k));
+        }
+        if (!Arrays.equals(ve, ParallelGraph.earliest(g, levels, pool))) throw new AssertionError("并行 ve 与顺序计算不一致");
+        if (!Arrays.equals(vl, ParallelGraph.latest(g, levels, maxTime, pool))) throw new AssertionError("并行 vl 与顺序计算不一致");
+    }
+
+    // 从某条边的终点沿出边走到尽头，再加一条回到起点的边：形成环，顺序与并行实现都应返回 null
+    private static void checkCycle(Random random, CsrGraph g, ForkJoinPool pool) {
+        int n = g.nodeCount();
+        int[][] out = new int[n][];
+        int start = -1;
+        for (int u = 0; u < n; u++) {
+            out[u] = new int[g.edgeEnd(u) - g.edgeStart(u)];
+            for (int k = g.edgeStart(u); k < g.edgeEnd(u); k++) out[u][k - g.edgeStart(u)] = g.target(k);
+            if (start < 0 && out[u].length > 0 && random.nextInt(4) == 0) start = u;
+        }
+        if (start < 0) start = firstWithEdge(out);
+        int end = out[start][0];
+        while (out[end].length > 0) end = out[end][random.nextInt(out[end].length)];
+        int[] back = Arrays.copyOf(out[end], 1);
+        back[0] = start;
+        out[end] = back;
+        CsrGraph cyclic = csr(out);
+        if (cyclic.topologicalOrder() != null) throw new AssertionError("构造的环未被顺序实现发现");
+        if (ParallelGraph.levels(cyclic, pool) != null) throw new AssertionError(n + " 个节点的有环图未被并行实现发现");
+    }
+
+    private static int firstWithEdge(int[][] out) {
+        for (int u = 0; u < out.length; u++) if (out[u].length > 0) return u;
+        throw new AssertionError("图中没有边");
+    }
+}
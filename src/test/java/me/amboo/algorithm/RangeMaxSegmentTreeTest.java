@@ -0,0 +1,102 @@
+package me.amboo.algorithm;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * 线段树测试：随机区间加减（含负值、空区间、贴着 MIN_DAY / MAX_DAY 的区间）之后，
+ * 任意区间的最大值与按差分数组逐段累加的结果一致；越界与反向区间被拒绝
+ */
+public class RangeMaxSegmentTreeTest {
+    private static final long TODAY = 20_500;
+
+    public static void main(String[] args) {
+        Random random = new Random(5);
+        RangeMaxSegmentTree tree = new RangeMaxSegmentTree();
+        TreeMap<Long, Integer> diff = new TreeMap<>(); // 差分：day -> 从该天起的增量
+        int checks = 0;
+        for (int step = 0; step < 20_000; step++) {
+            long[] range = randomRange(random);
+            int delta = random.nextInt(7) - 3;
+            tree.add(range[0], range[1], delta);
+            if (range[0] < range[1] && delta != 0) {
+                diff.merge(range[0], delta, Integer::sum);
+                diff.merge(range[1], -delta, Integer::sum);
+            }
+            for (int q = 0; q < 3; q++) {
+                long[] query = randomRange(random);
+                int expected = bruteMax(diff, query[0], query[1]);
+                int actual = tree.max(query[0], query[1]);
+                if (actual != expected) {
+                    throw new AssertionError("第 " + step + " 步 max[" + query[0] + ", " + query[1] + ") = " + actual + "，应为 " + expected);
+                }
+                checks++;
+            }
+        }
+        int whole = tree.max(RangeMaxSegmentTree.MIN_DAY, RangeMaxSegmentTree.MAX_DAY);
+        if (whole != bruteMax(diff, RangeMaxSegmentTree.MIN_DAY, RangeMaxSegmentTree.MAX_DAY)) throw new AssertionError("全范围最大值不一致");
+
+        // 从未更新过的树：任何区间都是 0
+        RangeMaxSegmentTree empty = new RangeMaxSegmentTree();
+        if (empty.max(RangeMaxSegmentTree.MIN_DAY, RangeMaxSegmentTree.MAX_DAY) != 0 || empty.max(TODAY, TODAY) != 0) throw new AssertionError("空树的最大值应为 0");
+
+        assertRejected(tree, RangeMaxSegmentTree.MIN_DAY - 1, TODAY);
+        assertRejected(tree, TODAY, RangeMaxSegmentTree.MAX_DAY + 1);
+        assertRejected(tree, TODAY + 1, TODAY);
+        System.out.println("线段树: " + checks + " 次区间查询与差分数组一致");
+        System.out.println("线段树测试通过");
+    }
+
+    // 多数区间落在当前日期附近，少数贴着可表示范围的两端或横跨整个范围
+    private static long[] randomRange(Random random) {
+        long from, to;
+        switch (random.nextInt(10)) {
+            case 0 -> {
+                from = RangeMaxSegmentTree.MIN_DAY + random.nextInt(50);
+                to = from + random.nextInt(100);
+            }
+            case 1 -> {
+                to = RangeMaxSegmentTree.MAX_DAY - random.nextInt(50);
+                from = to - random.nextInt(100);
+            }
+            case 2 -> {
+                from = RangeMaxSegmentTree.MIN_DAY + random.nextInt(3);
+                to = RangeMaxSegmentTree.MAX_DAY - random.nextInt(3);
+            }
+            default -> {
+                from = TODAY + random.nextInt(400) - 200;
+                to = from + random.nextInt(random.nextInt(10) == 0 ? 400 : 15);
+            }
+        }
+        return new long[] { from, Math.min(to, RangeMaxSegmentTree.MAX_DAY) };
+    }
+
+    // 值在相邻两个差分点之间不变，只需检查 from 以及区间内的每个差分点
+    private static int bruteMax(TreeMap<Long, Integer> diff, long from, long to) {
+        if (from >= to) return 0;
+        int value = 0;
+        for (int d : diff.headMap(from, true).values()) value += d;
+        int best = value;
+        for (Map.Entry<Long, Integer> point : diff.subMap(from, false, to, false).entrySet()) {
+            value += point.getValue();
+            best = Math.max(best, value);
+        }
+        return best;
+    }
+
+    private static void assertRejected(RangeMaxSegmentTree tree, long from, long to) {
+        try {
+            tree.max(from, to);
+            throw new AssertionError("区间 [" + from + ", " + to + ") 应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 超出可表示范围
+        }
+        try {
+            tree.add(from, to, 1);
+            throw new AssertionError("区间 [" + from + ", " + to + ") 应被拒绝");
+        } catch (IllegalArgumentException expected) {
+            // 超出可表示范围
+        }
+    }
+}
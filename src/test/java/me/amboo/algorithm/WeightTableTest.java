@@ -0,0 +1,153 @@
+package me.amboo.algorithm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 边权表测试：
+ *   随机 put（含覆盖、负房间号、相邻房间号）跨越多次扩容后，weight 与 HashMap 基准一致，未配置的房间对交给 fallback；
+ *   扩容期间并发读取已发布的键不会落到 fallback；load 的格式与错误行号；
+ *   SeededWeightProvider 的结果只由种子决定、落在 [MIN_WEIGHT, MAX_WEIGHT] 内且大致均匀
+ */
+public class WeightTableTest {
+    private static final int FALLBACK = -999;
+
+    public static void main(String[] args) throws Exception {
+        checkAgainstHashMap();
+        checkConcurrentReads();
+        checkLoad();
+        checkSeeded();
+        System.out.println("边权表测试通过");
+    }
+
+    private static void checkAgainstHashMap() {
+        Random random = new Random(31);
+        WeightTable table = new WeightTable((from, to) -> FALLBACK);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            // 房间号多数集中在少数楼层（键相近、容易聚集），少数为任意 int
+            int from = random.nextInt(10) == 0 ? random.nextInt() : 100 * (1 + random.nextInt(30)) + random.nextInt(40);
+            int to = random.nextInt(10) == 0 ? random.nextInt() : 100 * (1 + random.nextInt(30)) + random.nextInt(40);
+            int weight = random.nextInt(100) - 10;
+            long modCount = table.getModCount();
+            table.put(from, to, weight);
+            expected.put(WeightTable.key(from, to), weight);
+            if (table.getModCount() != modCount + 1) throw new AssertionError("每次 put 应使 modCount 加一");
+            if (table.weight(from, to) != weight) throw new AssertionError("第 " + step + " 步刚写入的权值读不到");
+            if (step % 1000 == 0) check(table, expected, random, step);
+        }
+        check(table, expected, random, -1);
+
+        try {
+            table.put(Integer.MIN_VALUE, 0, 1); // 键恰好等于空槽标记
+            throw new AssertionError("与空槽标记相同的键应被拒绝");
+        } catch (IllegalArgumentException e) {
+            // 表保持不变
+        }
+        if (table.size() != expected.size()) throw new AssertionError("拒绝的写入改变了条数");
+        try {
+            new WeightTable(null);
+            throw new AssertionError("缺少 fallback 时应拒绝");
+        } catch (IllegalArgumentException e) {
+            // 必须有默认来源
+        }
+        System.out.println("边权表: " + expected.size() + " 条配置与 HashMap 一致");
+    }
+
+    private static void check(WeightTable table, Map<Long, Integer> expected, Random random, int step) {
+        if (table.size() != expected.size()) throw new AssertionError("第 " + step + " 步条数为 " + table.size() + "，应为 " + expected.size());
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+            int from = (int) (e.getKey() >> 32), to = e.getKey().intValue();
+            if (table.weight(from, to) != e.getValue()) throw new AssertionError("第 " + step + " 步 " + from + " -> " + to + " 的权值不一致");
+        }
+        for (int q = 0; q < 200; q++) {
+            int from = random.nextInt(), to = random.nextInt();
+            int want = expected.getOrDefault(WeightTable.key(from, to), FALLBACK);
+            if (table.weight(from, to) != want) throw new AssertionError("第 " + step + " 步未配置的 " + from + " -> " + to + " 应交给 fallback");
+        }
+    }
+
+    // 写者不断扩容，读者只查已经发布过的键：任何时刻都应读到写入的值
+    private static void checkConcurrentReads() throws InterruptedException {
+        WeightTable table = new WeightTable((from, to) -> FALLBACK);
+        int total = 200_000;
+        AtomicInteger published = new AtomicInteger();
+        AtomicInteger misses = new AtomicInteger();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            long seed = t;
+            readers[t] = Thread.ofPlatform().start(() -> {
+                Random random = new Random(seed);
+                while (published.get() < total) {
+                    int limit = published.get();
+                    if (limit == 0) continue;
+                    int i = random.nextInt(limit);
+                    if (table.weight(i, -i) != i % 1000) misses.incrementAndGet();
+                }
+            });
+        }
+        for (int i = 0; i < total; i++) {
+            table.put(i, -i, i % 1000);
+            published.set(i + 1);
+        }
+        for (Thread reader : readers) reader.join();
+        if (misses.get() != 0) throw new AssertionError("扩容期间有 " + misses.get() + " 次读不到已发布的键");
+    }
+
+    private static void checkLoad() throws IOException {
+        Path file = Files.createTempFile("weights", ".txt");
+        Files.writeString(file, """
+                # 实测步行耗时
+                101 201 12
+                101,202, 15
+
+                  201 301 7
+                101 201 9
+                """);
+        WeightTable table = new WeightTable((from, to) -> FALLBACK);
+        if (table.load(file) != 4) throw new AssertionError("应加载 4 条（含一次覆盖）");
+        if (table.size() != 3 || table.weight(101, 201) != 9 || table.weight(101, 202) != 15 || table.weight(201, 301) != 7) {
+            throw new AssertionError("加载的权值不正确");
+        }
+        expectLoadError(file, "101 201\n", 1);
+        expectLoadError(file, "# 注释\n101 201 3\n101 x 3\n", 3);
+    }
+
+    private static void expectLoadError(Path file, String content, int line) throws IOException {
+        Files.writeString(file, content);
+        try {
+            new WeightTable((from, to) -> FALLBACK).load(file);
+            throw new AssertionError("格式错误的权值文件应被拒绝: " + content);
+        } catch (IllegalArgumentException e) {
+            if (!e.getMessage().contains("第 " + line + " 行")) throw new AssertionError("错误信息应指出第 " + line + " 行: " + e.getMessage());
+        }
+    }
+
+    private static void checkSeeded() {
+        SeededWeightProvider a = new SeededWeightProvider(7), b = new SeededWeightProvider(7), c = new SeededWeightProvider(8);
+        int range = SeededWeightProvider.MAX_WEIGHT - SeededWeightProvider.MIN_WEIGHT + 1;
+        int[] histogram = new int[range];
+        int same = 0, samples = 0;
+        for (int from = 100; from < 1100; from++) {
+            for (int to = from + 1; to < from + 200; to += 3) {
+                int w = a.weight(from, to);
+                if (w != b.weight(from, to)) throw new AssertionError("同一个种子的权值应相同");
+                if (w < SeededWeightProvider.MIN_WEIGHT || w > SeededWeightProvider.MAX_WEIGHT) throw new AssertionError("权值越界: " + w);
+                histogram[w - SeededWeightProvider.MIN_WEIGHT]++;
+                if (w == c.weight(from, to)) same++;
+                samples++;
+            }
+        }
+        double mean = (double) samples / range;
+        for (int i = 0; i < range; i++) {
+            if (Math.abs(histogram[i] - mean) > mean * 0.1) throw new AssertionError("权值 " + (i + SeededWeightProvider.MIN_WEIGHT) + " 出现 " + histogram[i] + " 次，期望约 " + mean);
+        }
+        // 不同种子之间近似独立：相同的比例约为 1 / range
+        if (same > samples * 2 / range) throw new AssertionError("换种子后仍有 " + same + " / " + samples + " 条边权值相同");
+    }
+}
@@ -0,0 +1,135 @@
+package me.amboo.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 延迟直方图测试：
+ *   分桶连续、单调，每个值落在所在桶的上界之内，相对误差不超过 1/32；
+ *   随机分布下各百分位与排序后精确求得的值比对；多线程并发记录的计数不丢失；
+ *   OperationStats.time / run 记录延迟、按异常类型计失败并原样抛出，关闭指标后不再记录
+ */
+public class LatencyHistogramTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        checkBuckets();
+        checkPercentiles();
+        checkConcurrentRecord();
+        checkOperationStats();
+        System.out.println("延迟直方图测试通过");
+    }
+
+    private static void checkBuckets() {
+        if (LatencyHistogram.indexOf(0) != 0 || LatencyHistogram.indexOf(63) != 63 || LatencyHistogram.upperBoundOf(63) != 63) {
+            throw new AssertionError("[0, 64) 应每个值一个桶");
+        }
+        // 相邻桶首尾相接：桶 i 的上界 + 1 落在桶 i + 1
+        int last = LatencyHistogram.indexOf(Long.MAX_VALUE);
+        for (int i = 0; i < last; i++) {
+            long upper = LatencyHistogram.upperBoundOf(i);
+            if (LatencyHistogram.indexOf(upper) != i || LatencyHistogram.indexOf(upper + 1) != i + 1) {
+                throw new AssertionError("桶 " + i + " 的上界 " + upper + " 与下一个桶不衔接");
+            }
+        }
+        if (LatencyHistogram.upperBoundOf(last) != Long.MAX_VALUE) throw new AssertionError("最后一个桶应覆盖到 Long.MAX_VALUE");
+
+        Random random = new Random(17);
+        for (int i = 0; i < 200_000; i++) {
+            long value = randomLatency(random);
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(value));
+            if (upper < value) throw new AssertionError(value + " 超出所在桶的上界 " + upper);
+            if (value >= 64 && (double) (upper - value) / value > 1.0 / 32) throw new AssertionError(value + " 的分桶误差超过 1/32: 上界 " + upper);
+        }
+    }
+
+    private static void checkPercentiles() {
+        Random random = new Random(29);
+        for (int round = 0; round < 50; round++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            int n = 1 + random.nextInt(round < 5 ? 5 : 20_000);
+            long[] values = new long[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = randomLatency(random);
+                histogram.record(values[i]);
+            }
+            Arrays.sort(values);
+            for (double p : new double[] {0, 1, 25, 50, 90, 99, 99.9, 100}) {
+                long exact = values[(int) Math.max(0, Math.ceil(p / 100 * n) - 1)];
+                long actual = histogram.getPercentile(p);
+                // 返回所在桶的上界，且不超过记录到的最大值
+                long bound = Math.min(LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(exact)), values[n - 1]);
+                if (actual != bound) throw new AssertionError("第 " + round + " 轮 p" + p + " = " + actual + "，精确值 " + exact + "，应返回 " + bound);
+            }
+            if (histogram.getCount() != n || histogram.getMax() != values[n - 1]) throw new AssertionError("第 " + round + " 轮计数或最大值不正确");
+            double mean = Arrays.stream(values).average().orElse(0);
+            if (Math.abs(histogram.getMean() - mean) > 1e-6 * mean + 1e-9) throw new AssertionError("第 " + round + " 轮平均值不正确");
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (histogram.getPercentile(99) != 0 || histogram.getMean() != 0) throw new AssertionError("空直方图的百分位与平均值应为 0");
+        histogram.record(-5); // 时钟回拨等原因得到的负值按 0 计
+        histogram.record(1_000);
+        if (histogram.getPercentile(50) != 0 || histogram.getPercentile(100) != 1_000) throw new AssertionError("负值应按 0 记录");
+        histogram.reset();
+        if (histogram.getCount() != 0 || histogram.getMax() != 0 || histogram.getPercentile(50) != 0) throw new AssertionError("reset 后应为空");
+    }
+
+    private static void checkConcurrentRecord() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long value = 100L << t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 50_000; i++) histogram.record(value);
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+        if (histogram.getCount() != 400_000) throw new AssertionError("并发记录丢失: " + histogram.getCount());
+        // 每个线程的值各占 1/8
+        for (int t = 0; t < 8; t++) {
+            long expected = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(100L << t));
+            if (histogram.getPercentile(12.5 * (t + 1)) != Math.min(expected, histogram.getMax())) throw new AssertionError("并发记录后 p" + 12.5 * (t + 1) + " 不正确");
+        }
+    }
+
+    private static void checkOperationStats() {
+        OperationStats stats = new OperationStats("test");
+        if (stats.time(() -> 42) != 42) throw new AssertionError("time 应返回操作的结果");
+        stats.run(() -> {});
+        expectThrown(stats, new IllegalStateException("冲突"));
+        expectThrown(stats, new IllegalStateException("冲突"));
+        expectThrown(stats, new IllegalArgumentException("参数"));
+        if (stats.getLatency().getCount() != 5) throw new AssertionError("成功与失败的调用都应记录延迟，实际 " + stats.getLatency().getCount());
+        if (stats.getFailureCount() != 3 || !stats.getFailuresByType().equals(Map.of("IllegalStateException", 2L, "IllegalArgumentException", 1L))) {
+            throw new AssertionError("按类型统计的失败次数不正确: " + stats.getFailuresByType());
+        }
+
+        HotelMetrics.setEnabled(false);
+        try {
+            stats.run(() -> {});
+            expectThrown(stats, new IllegalStateException("冲突"));
+            if (stats.getLatency().getCount() != 5 || stats.getFailureCount() != 3) throw new AssertionError("关闭指标后不应再记录");
+        } finally {
+            HotelMetrics.setEnabled(true);
+        }
+        stats.reset();
+        if (stats.getLatency().getCount() != 0 || stats.getFailureCount() != 0) throw new AssertionError("reset 后应为空");
+    }
+
+    private static void expectThrown(OperationStats stats, RuntimeException failure) {
+        try {
+            stats.run(() -> { throw failure; });
+            throw new AssertionError("异常应原样抛出");
+        } catch (RuntimeException e) {
+            if (e != failure) throw new AssertionError("抛出的不是原来的异常", e);
+        }
+    }
+
+    // 对数均匀分布：从几纳秒到几十秒
+    private static long randomLatency(Random random) {
+        return (long) Math.pow(10, random.nextDouble() * 10.5);
+    }
+}